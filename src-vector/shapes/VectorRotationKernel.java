@@ -0,0 +1,126 @@
+package shapes;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@code RotationKernel} which rotates as many vertices at
+ * once as fit in the CPU's preferred vector of
+ * {@code double}s, with the incubating Vector API.
+ * <p>
+ * This is kept out of the main sources, since it needs the
+ * {@code jdk.incubator.vector} module to compile and run.
+ * {@code PolygonMetrics} loads it by name when the module is
+ * present, and uses its scalar loop otherwise. To build and
+ * use it, from the root of the project:
+ * <pre>
+ * javac -d out src/*.java src/shapes/*.java src/geometrygraphics/*.java
+ * javac --add-modules jdk.incubator.vector -cp out -d out src-vector/shapes/*.java
+ * java --add-modules jdk.incubator.vector -cp out Main
+ * </pre>
+ * <p>
+ * Converting {@code double}s to {@code int}s is not
+ * compiled to vector instructions on every JDK with the
+ * module, so coordinates are rounded without it: adding
+ * {@code 1.5*2^52} rounds a coordinate to the nearest
+ * integer, ties to even, and leaves that integer in the low
+ * bits of the sum, which are then picked out as
+ * {@code int}s. Ties are moved up afterwards to round the
+ * same way as {@link Math#round}. Every step is exact for
+ * coordinates below {@code 2^51}, so the results are the
+ * same as the scalar loop, including how coordinates out of
+ * the range of {@code int} wrap.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class VectorRotationKernel implements RotationKernel {
+  /** The species of the rotated coordinates. */
+  private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+  /**
+   * The species of the stored coordinates, with as many lanes
+   * as {@code DOUBLES}.
+   */
+  private static final VectorSpecies<Integer> INTS = VectorSpecies.of(
+    int.class,
+    VectorShape.forBitSize(VectorRotationKernel.DOUBLES.vectorBitSize()/2)
+  );
+  /**
+   * The species of the bits of {@code DOUBLES}, read as
+   * {@code int}s.
+   */
+  private static final VectorSpecies<Integer> BITS = VectorSpecies.of(
+    int.class,
+    VectorRotationKernel.DOUBLES.vectorShape()
+  );
+  /**
+   * Moves the low half of each {@code double}'s bits to the
+   * front, where {@code INTS} is read from.
+   */
+  private static final VectorShuffle<Integer> LOW_HALVES = VectorShuffle.fromOp(
+    VectorRotationKernel.BITS,
+    i -> (2*i)%VectorRotationKernel.BITS.length()
+  );
+  /**
+   * The number which, added to a coordinate, rounds it to an
+   * integer in the low bits of the sum.
+   */
+  private static final double ROUNDING_BIAS = 0x1.8p52;
+
+  /**
+   * Constructs a new {@code VectorRotationKernel}. Used by
+   * {@code PolygonMetrics} through reflection.
+   */
+  VectorRotationKernel() {
+  }
+
+  @Override
+  public void rotateRange(int[] xs, int[] ys, int from, int to, double sinT, double cosT) {
+    VectorSpecies<Integer> species = VectorRotationKernel.INTS;
+    int i = from;
+    int bound = from+species.loopBound(to-from);
+    for (; i < bound; i += species.length()) {
+      DoubleVector x = VectorRotationKernel.toDoubles(IntVector.fromArray(species, xs, i));
+      DoubleVector y = VectorRotationKernel.toDoubles(IntVector.fromArray(species, ys, i));
+      VectorRotationKernel.round(x.mul(cosT).sub(y.mul(sinT))).intoArray(xs, i);
+      VectorRotationKernel.round(x.mul(sinT).add(y.mul(cosT))).intoArray(ys, i);
+    }
+    // the vertices left over are fewer than a vector
+    PolygonMetrics.rotateRange(xs, ys, i, to, sinT, cosT);
+  }
+
+  /**
+   * Converts coordinates to {@code double}s.
+   *
+   * @param v The coordinates.
+   * @return DoubleVector, the same coordinates.
+   */
+  private static DoubleVector toDoubles(IntVector v) {
+    return (DoubleVector)v.convertShape(VectorOperators.I2D, VectorRotationKernel.DOUBLES, 0);
+  }
+
+  /**
+   * Rounds coordinates to the nearest integer, with halves
+   * rounded up, like {@link Math#round}.
+   *
+   * @param v The coordinates.
+   * @return IntVector, the rounded coordinates.
+   */
+  private static IntVector round(DoubleVector v) {
+    DoubleVector biased = v.add(VectorRotationKernel.ROUNDING_BIAS);
+    // a coordinate half way between integers was rounded to
+    // the even one, which is the lower one if it is half
+    // above it
+    DoubleVector rounded = biased.sub(VectorRotationKernel.ROUNDING_BIAS);
+    VectorMask<Double> lowerHalf = v.sub(rounded).compare(VectorOperators.EQ, 0.5);
+    biased = biased.add(1, lowerHalf);
+    return (IntVector)biased.reinterpretAsInts()
+      .rearrange(VectorRotationKernel.LOW_HALVES)
+      .reinterpretShape(VectorRotationKernel.INTS, 0);
+  }
+}
@@ -18,13 +18,15 @@ import javax.swing.JPanel;
  * <p>
  * Events:
  * <p>
- * Mouse scrolling zooms the panel in/out.
+ * Mouse scrolling zooms the panel in/out, and zoomTo()
+ * fits a rectangle to the panel.
  *
  * @author Kevin Qiao
- * @version 1.0
+ * @version 1.1
  */
 public abstract class CoordinatePlanePanel extends JPanel implements MouseWheelListener {
   private static final double SCROLL_SCALE_FACTOR = 0.05;
+  private static final double ZOOM_MARGIN = 0.9;
   private static final Color BACKGROUND = new Color(255, 255, 255);
   private static final Color ORIGIN_LINES = new Color(0, 0, 0);
   private double scale;
@@ -58,11 +60,19 @@ public abstract class CoordinatePlanePanel extends JPanel implements MouseWheelL
 
   public Point transformScreenToCartesian(Point p) {
     return new Point(
-      (int)((p.x - (this.getWidth()*this.xAxisPosition))/this.scale),
-      (int)((-p.y + (this.getHeight()*this.yAxisPosition))/this.scale)
+      this.transformScreenToCartesianX(p.x),
+      this.transformScreenToCartesianY(p.y)
     );
   }
 
+  public int transformScreenToCartesianX(int x) {
+    return (int)((x - (this.getWidth()*this.xAxisPosition))/this.scale);
+  }
+
+  public int transformScreenToCartesianY(int y) {
+    return (int)((-y + (this.getHeight()*this.yAxisPosition))/this.scale);
+  }
+
   public Rectangle getClipFromCartesian(Rectangle rect) {
     Rectangle r = new Rectangle(
       (int)((this.scale*rect.x) + (this.getWidth()*this.xAxisPosition)),
@@ -74,6 +84,27 @@ public abstract class CoordinatePlanePanel extends JPanel implements MouseWheelL
     return r;
   }
 
+  // rect is in the form of Shape.getBounds(), with its top
+  // left corner at (x, y)
+  public void zoomTo(Rectangle rect) {
+    int width = this.getWidth();
+    int height = this.getHeight();
+    if ((width <= 0) || (height <= 0)) {
+      return;
+    }
+
+    this.scale = CoordinatePlanePanel.ZOOM_MARGIN*Math.min(
+      width/(double)Math.max(rect.width, 1),
+      height/(double)Math.max(rect.height, 1)
+    );
+    double centerX = rect.x + (rect.width/2.0);
+    double centerY = rect.y - (rect.height/2.0);
+    this.xAxisPosition = 0.5 - ((this.scale*centerX)/width);
+    this.yAxisPosition = 0.5 + ((this.scale*centerY)/height);
+
+    this.repaint();
+  }
+
   @Override
   public void paintComponent(Graphics g) {
     int width = this.getWidth();
@@ -3,11 +3,13 @@ package geometrygraphics;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.LinkedHashSet;
 
 import javax.swing.BoxLayout;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
+import shapes.PolygonClipper;
 import shapes.Shape;
 import shapes.ShapeFactory;
 
@@ -26,7 +28,10 @@ import shapes.ShapeFactory;
  * Translate", "Apply Rotate", and "Apply Translate All"
  * when the corresponding buttons are pressed, and those
  * events cause removals or transformations in
- * ShapeDrawingPanel.
+ * ShapeDrawingPanel. It also emits "Apply Union", "Apply
+ * Intersect", "Apply Subtract", and "Apply XOR" with the
+ * selected shapes, which are replaced in ShapeDrawingPanel
+ * by their combination.
  *
  * @author Kevin Qiao
  * @version 1.0
@@ -97,6 +102,30 @@ public class GeometryDrawerFrame extends JFrame implements ActionListener {
         this.shapeDrawingPanel.translateAll(source.x, source.y);
         break;
       }
+      case "Apply Union": {
+        this.combine(e, PolygonClipper.Operation.UNION);
+        break;
+      }
+      case "Apply Intersect": {
+        this.combine(e, PolygonClipper.Operation.INTERSECTION);
+        break;
+      }
+      case "Apply Subtract": {
+        this.combine(e, PolygonClipper.Operation.DIFFERENCE);
+        break;
+      }
+      case "Apply XOR": {
+        this.combine(e, PolygonClipper.Operation.XOR);
+        break;
+      }
     }
   }
+
+  @SuppressWarnings("unchecked")
+  private void combine(ActionEvent e, PolygonClipper.Operation operation) {
+    this.shapeDrawingPanel.combine(
+      (LinkedHashSet<Shape>)(e.getSource()),
+      operation
+    );
+  }
 }
@@ -0,0 +1,211 @@
+package geometrygraphics;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import javax.swing.SwingWorker;
+
+import shapes.SceneFileReader;
+import shapes.SceneParser;
+import shapes.Shape;
+import shapes.ShapeFactory;
+
+/**
+ * Reads a file of shapes off the event dispatch thread and
+ * adds them to a ShapeDrawingPanel in batches as they are
+ * read, so the panel stays responsive and draws the scene
+ * as it loads.
+ * <p>
+ * Files ending in .scene are parsed as scene text
+ * (SceneParser), scene files are read a block at a time
+ * (SceneFileReader), and any other file is read as
+ * serialized shapes, which can only be added once the whole
+ * file has been read.
+ * <p>
+ * Events:
+ * <p>
+ * The "progress" property is the percentage of the file
+ * read so far. stop() ends the load at the next batch or
+ * read, keeping the shapes already added; the worker then
+ * finishes normally, so the "state" property only becomes
+ * DONE once the background thread has stopped reading.
+ * get() returns the number of shapes added.
+ * <p>
+ * A large scene load adds the shapes to the panel's large
+ * scene instead, so that each batch can be collected once it
+ * has been stored.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+class SceneLoader extends SwingWorker<Long, List<Shape>> {
+
+  private static final String SCENE_EXTENSION = ".scene";
+  private static final int BATCH_SIZE = 16384;
+
+  private final File file;
+  private final ShapeDrawingPanel drawingPanel;
+  private final boolean largeScene;
+  private long numBytes;
+  private long numShapes;
+  private volatile boolean stopped;
+
+  SceneLoader(File file, ShapeDrawingPanel drawingPanel, boolean largeScene) {
+    this.file = file;
+    this.drawingPanel = drawingPanel;
+    this.largeScene = largeScene;
+  }
+
+  void stop() {
+    this.stopped = true;
+  }
+
+  @Override
+  protected Long doInBackground() throws IOException, ClassNotFoundException {
+    this.numBytes = Math.max(1, this.file.length());
+    try (FileInputStream in = new FileInputStream(this.file)) {
+      if (this.file.getName().endsWith(SceneLoader.SCENE_EXTENSION)) {
+        this.readScene(new CountingInputStream(in));
+      } else if (SceneFileReader.isSceneFile(in.getChannel())) {
+        this.readSceneFile(in);
+      } else {
+        this.readSerializedShapes(new CountingInputStream(in));
+      }
+    } catch (CancellationException e) {
+      // stopped, which is not an error
+    }
+    return this.numShapes;
+  }
+
+  @Override
+  protected void process(List<List<Shape>> batches) {
+    // one scene update per batch, each of which repaints
+    // the panel once
+    for (List<Shape> batch : batches) {
+      if (this.largeScene) {
+        this.drawingPanel.addShapesToLargeScene(batch);
+      } else {
+        this.drawingPanel.addShapes(batch);
+      }
+    }
+  }
+
+  private void readScene(InputStream in) throws IOException {
+    ArrayList<Shape> batch = new ArrayList<>();
+    // the parser has no way to stop, so stopping is thrown
+    // through it from the sink
+    new SceneParser(new ShapeFactory()).parse(
+      new InputStreamReader(in, StandardCharsets.UTF_8),
+      shape -> {
+        batch.add(shape);
+        if (batch.size() == SceneLoader.BATCH_SIZE) {
+          this.publishBatch(batch);
+          batch.clear();
+        }
+      }
+    );
+    this.publishBatch(batch);
+  }
+
+  private void readSceneFile(FileInputStream in) throws IOException {
+    SceneFileReader reader = new SceneFileReader(in.getChannel());
+    ArrayList<Shape> batch = new ArrayList<>();
+    List<Shape> shapes;
+    while ((shapes = reader.readBlock()) != null) {
+      batch.addAll(shapes);
+      if (batch.size() >= SceneLoader.BATCH_SIZE) {
+        this.publishBatch(batch);
+        batch.clear();
+      }
+      this.updateProgress(reader.getByteCount());
+    }
+    this.updateProgress(reader.getByteCount());
+    this.publishBatch(batch);
+  }
+
+  private void readSerializedShapes(InputStream in) throws IOException, ClassNotFoundException {
+    Object o = new ObjectInputStream(new BufferedInputStream(in)).readObject();
+    if (!(o instanceof LinkedHashSet<?>)) {
+      throw new IOException("Could not read a shape list from the given input");
+    }
+
+    ArrayList<Shape> batch = new ArrayList<>();
+    for (Object shape : (LinkedHashSet<?>)o) {
+      batch.add((Shape)shape);
+      if (batch.size() == SceneLoader.BATCH_SIZE) {
+        this.publishBatch(batch);
+        batch.clear();
+      }
+    }
+    this.publishBatch(batch);
+  }
+
+  private void publishBatch(List<Shape> batch) {
+    if (this.stopped) {
+      throw new CancellationException();
+    }
+    if (!batch.isEmpty()) {
+      this.publish(new ArrayList<>(batch));
+      this.numShapes += batch.size();
+    }
+  }
+
+  private void updateProgress(long bytesRead) {
+    this.setProgress((int)Math.min(100, (100*bytesRead)/this.numBytes));
+  }
+
+  private class CountingInputStream extends FilterInputStream {
+
+    private long bytesRead;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        this.count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        this.count(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      this.count(skipped);
+      return skipped;
+    }
+
+    private void count(long n) {
+      // checked here too, since a file of serialized shapes
+      // is read in one call
+      if (SceneLoader.this.stopped) {
+        throw new CancellationException();
+      }
+      this.bytesRead += n;
+      SceneLoader.this.updateProgress(this.bytesRead);
+    }
+  }
+}
@@ -4,7 +4,7 @@ import javax.swing.JPanel;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
-import shapes.InvalidShapeException;
+import shapes.BuildCache;
 import shapes.Shape;
 import shapes.ShapeBuilder;
 
@@ -16,14 +16,19 @@ import shapes.ShapeBuilder;
  * When a slider within this panel is changed
  * (ChangeListener), the ShapeBuilder associated with this
  * panel builds a new Shape and emits a new ChangeEvent to
- * ShapeFactoryPanel after building.
+ * ShapeFactoryPanel after building. The arguments are
+ * validated first, and only built if valid. Built shapes
+ * come from a cache shared by every panel, since scrubbing
+ * a slider back and forth builds the same shapes again.
  *
  * @author Kevin Qiao
- * @version 1.0
+ * @version 1.1
  */
 public abstract class ShapeBuilderPanel extends JPanel implements
   ChangeListener {
 
+  private static final BuildCache PREVIEW_CACHE = new BuildCache(512);
+
   private final ChangeListener listener;
 
   private Shape product;
@@ -43,15 +48,22 @@ public abstract class ShapeBuilderPanel extends JPanel implements
   public void stateChanged(ChangeEvent e) {
     LabelledTextSliderPanel source = (LabelledTextSliderPanel)(e.getSource());
     ShapeBuilder builder = this.getBuilder();
-    builder.withArg(source.getLabel(), source.getValue());
-    try {
-      this.product = builder.build();
-    } catch (InvalidShapeException ex) {
+    // validated without exceptions, since invalid arguments
+    // are common while dragging a slider
+    ShapeBuilder.Validation validation = builder.trySetArg(
+      source.getLabel(),
+      source.getValue()
+    );
+    if (validation.isValid()) {
+      validation = builder.validate();
+    }
+    if (validation.isValid()) {
+      this.product = ShapeBuilderPanel.PREVIEW_CACHE.build(builder);
+    } else {
       this.product = null;
-      this.errorText = ex.getMessage();
-    } finally {
-      this.listener.stateChanged(new ChangeEvent(this));
+      this.errorText = validation.getMessage();
     }
+    this.listener.stateChanged(new ChangeEvent(this));
   }
 
   public Shape getProduct() {
@@ -59,7 +71,7 @@ public abstract class ShapeBuilderPanel extends JPanel implements
   }
 
   public Shape getNewProduct() {
-    return this.getBuilder().build();
+    return ShapeBuilderPanel.PREVIEW_CACHE.build(this.getBuilder());
   }
 
   public String getErrorText() {
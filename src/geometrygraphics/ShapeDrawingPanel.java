@@ -7,21 +7,33 @@ import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import shapes.Circle;
+import shapes.MappedScene;
+import shapes.OffHeapShapeStore;
+import shapes.PolygonClipper;
+import shapes.SceneFileWriter;
+import shapes.SceneStatistics;
 import shapes.Shape;
+import shapes.ShapeStore;
 
 /**
  * Holds the list of all Shapes to draw and draws them. This
- * panel also performs file IO.
+ * panel also writes files; files are read in the background
+ * by a SceneLoader, which adds the shapes to this panel.
  * <p>
  * Events:
  * <p>
@@ -29,18 +41,45 @@ import shapes.Shape;
  * set to the click location. In addition, any intersecting
  * shapes are selected.
  * <p>
- * Whenever shapes are selected through clicks or by calling
- * selectAll(), a new ChangeEvent is created containing the
- * set of selected shapes and emitted to the
- * ShapeSelectionPanel.
+ * Whenever shapes are selected through clicks, by calling
+ * selectAll(), or by combining shapes, a new ChangeEvent is
+ * created containing the set of selected shapes and emitted
+ * to the ShapeSelectionPanel. A combination with an empty
+ * result, like the intersection of shapes which do not
+ * overlap, selects nothing and keeps the combined shapes.
+ * <p>
+ * Indexed scene files can be opened as MappedScenes instead
+ * of being read. Their shapes are drawn beneath the others
+ * and are only created when they are in view; a click
+ * selects the shapes under it where they are, and a
+ * selected shape is only taken out of the mapped scene and
+ * added to the panel once it is edited, so selecting does
+ * not change what is drawn on top. Opening a file which is
+ * already open replaces its MappedScene, closing the old
+ * one.
+ * <p>
+ * Scenes too large to hold as shapes can be loaded into the
+ * large scene instead, an OffHeapShapeStore which is drawn
+ * between the mapped scenes and the other shapes. Like a
+ * mapped scene, its shapes are selected in place and taken
+ * out of it once they are edited. The large scene is
+ * closed, releasing its memory, by closeLargeScene().
  *
  * @author Kevin Qiao
- * @version 1.0
+ * @version 1.12
  */
 public class ShapeDrawingPanel extends CoordinatePlanePanel implements
   MouseListener {
 
-  private LinkedHashSet<Shape> shapes;
+  private ShapeStore shapes;
+  private final LinkedHashMap<Path, MappedScene> mappedScenes;
+  private OffHeapShapeStore largeScene;
+  private final SceneStatistics statistics;
+  // the shapes selected from the mapped scenes and the large
+  // scene, which stay there until they are edited; the same
+  // shape is selected every time by its store and index
+  private final HashMap<StoredShape, Shape> storedShapes;
+  private final IdentityHashMap<Shape, StoredShape> storedKeys;
   private ChangeListener listener;
   private Shape mousePin;
 
@@ -50,7 +89,11 @@ public class ShapeDrawingPanel extends CoordinatePlanePanel implements
     this.listener = listener;
     this.addMouseListener(this);
 
-    this.shapes = new LinkedHashSet<>();
+    this.shapes = new ShapeStore();
+    this.mappedScenes = new LinkedHashMap<>();
+    this.statistics = new SceneStatistics();
+    this.storedShapes = new HashMap<>();
+    this.storedKeys = new IdentityHashMap<>();
 
     this.mousePin = new Circle.Builder()
       .withDiameter(4)
@@ -61,9 +104,27 @@ public class ShapeDrawingPanel extends CoordinatePlanePanel implements
 
   @Override
   public void paintWithGraphics2D(Graphics2D g2d) {
-    for (Shape shape : this.shapes) {
-      shape.draw(g2d);
+    // only the mapped shapes in the area being repainted are
+    // created; the clip is in Cartesian coordinates with its
+    // y at the bottom edge, unlike Shape bounds
+    Rectangle clip = g2d.getClipBounds();
+    if (clip == null) {
+      clip = new Rectangle(
+        this.transformScreenToCartesianX(0),
+        this.transformScreenToCartesianY(this.getHeight()),
+        this.transformScreenToCartesianX(this.getWidth())-this.transformScreenToCartesianX(0),
+        this.transformScreenToCartesianY(0)-this.transformScreenToCartesianY(this.getHeight())
+      );
     }
+    Rectangle region = new Rectangle(clip.x, clip.y+clip.height, clip.width, clip.height);
+    for (MappedScene scene : this.mappedScenes.values()) {
+      this.fillInColourRuns(g2d, scene.shapesIn(region));
+    }
+    if (this.largeScene != null) {
+      this.largeScene.fill(g2d, region);
+    }
+
+    this.fillInColourRuns(g2d, this.shapes);
 
     this.mousePin.draw(g2d);
     Rectangle r = this.mousePin.getBounds();
@@ -71,11 +132,52 @@ public class ShapeDrawingPanel extends CoordinatePlanePanel implements
     g2d.drawRect(r.x, r.y-r.height, r.width, r.height);
   }
 
+  private void fillInColourRuns(Graphics2D g2d, Iterable<Shape> shapes) {
+    // shapes are drawn in order so that overlaps stay correct,
+    // but the colour is only set at the start of each run of
+    // shapes with the same colour
+    boolean colourSet = false;
+    int runColour = 0;
+    for (Shape shape : shapes) {
+      if (!colourSet || (shape.getRGB() != runColour)) {
+        runColour = shape.getRGB();
+        colourSet = true;
+        g2d.setColor(shape.getColor());
+      }
+      shape.fill(g2d);
+    }
+  }
+
   public void addShape(Shape s) {
-    this.shapes.add(s);
+    if (this.shapes.add(s)) {
+      this.statistics.add(s);
+    }
     this.repaint(this.getClipFromCartesian(s.getBounds()));
   }
 
+  public void addShapes(Collection<? extends Shape> shapes) {
+    // one repaint for the whole batch, since a generated or
+    // loaded batch can be too large to repaint shape by shape
+    for (Shape s : shapes) {
+      if (this.shapes.add(s)) {
+        this.statistics.add(s);
+      }
+    }
+    this.repaint();
+  }
+
+  public void addShapesToLargeScene(Collection<? extends Shape> shapes) {
+    // created on first use, so the panel only holds off-heap
+    // memory once a large scene is loaded
+    if (this.largeScene == null) {
+      this.largeScene = new OffHeapShapeStore();
+    }
+    for (Shape s : shapes) {
+      this.largeScene.add(s);
+    }
+    this.repaint();
+  }
+
   public void addShapeAtPin(Shape s) {
     s.translate(this.mousePin.getX()-s.getX(), this.mousePin.getY()-s.getY());
     this.addShape(s);
@@ -83,84 +185,226 @@ public class ShapeDrawingPanel extends CoordinatePlanePanel implements
 
   public void removeShape(Shape s) {
     Rectangle rectToClear = s.getBounds();
-    this.shapes.remove(s);
+    StoredShape stored = this.forgetStoredShape(s);
+    if (stored != null) {
+      stored.remove();
+    } else if (this.shapes.remove(s)) {
+      this.statistics.remove(s);
+    }
     this.repaint(this.getClipFromCartesian(rectToClear));
   }
 
   public void translate(Shape s, int dx, int dy) {
     Rectangle rectToClear = s.getBounds();
-    s.translate(dx, dy);
+    this.takeOutStoredShape(s);
+    this.shapes.translate(s, dx, dy);
+    this.statistics.update(s);
     this.repaint(this.getClipFromCartesian(rectToClear));
     this.repaint(this.getClipFromCartesian(s.getBounds()));
   }
 
   public void translateAll(int dx, int dy) {
-    for (Shape shape : this.shapes) {
-      shape.translate(dx, dy);
+    this.shapes.translateAll(dx, dy);
+    this.statistics.translateAll(dx, dy);
+    if (this.largeScene != null) {
+      this.largeScene.translateAll(dx, dy);
+    }
+    // the selected copies of shapes in the large scene move
+    // with it; mapped scenes are not moved
+    for (Map.Entry<StoredShape, Shape> entry : this.storedShapes.entrySet()) {
+      if (entry.getKey().store == this.largeScene) {
+        entry.getValue().translate(dx, dy);
+      }
     }
     this.repaint();
   }
 
   public void rotate(Shape s, int rotation) {
     Rectangle rectToClear = s.getBounds();
+    this.takeOutStoredShape(s);
     ((Rotateable)s).rotateBy(rotation);
+    this.shapes.update(s);
+    this.statistics.update(s);
     this.repaint(this.getClipFromCartesian(rectToClear));
     this.repaint(this.getClipFromCartesian(s.getBounds()));
   }
 
+  public void combine(Collection<Shape> shapes, PolygonClipper.Operation operation) {
+    if (shapes.size() < 2) {
+      return;
+    }
+    LinkedHashSet<Shape> results = new LinkedHashSet<>(
+      new PolygonClipper().apply(operation, shapes)
+    );
+    // an empty result is reported as an empty selection, and
+    // the shapes are kept rather than deleted
+    if (results.isEmpty()) {
+      this.listener.stateChanged(new ChangeEvent(results));
+      return;
+    }
+    for (Shape shape : shapes) {
+      this.removeShape(shape);
+    }
+    for (Shape shape : results) {
+      this.addShape(shape);
+    }
+
+    this.listener.stateChanged(new ChangeEvent(results));
+  }
+
+  public SceneStatistics getStatistics() {
+    return this.statistics;
+  }
+
+  public void zoomToFit() {
+    Rectangle bounds = this.statistics.getBounds();
+    for (MappedScene scene : this.mappedScenes.values()) {
+      bounds = ShapeDrawingPanel.unionBounds(bounds, scene.getBounds());
+    }
+    if (this.largeScene != null) {
+      bounds = ShapeDrawingPanel.unionBounds(bounds, this.largeScene.getSceneBounds());
+    }
+    if (bounds != null) {
+      this.zoomTo(bounds);
+    }
+  }
+
+  private static Rectangle unionBounds(Rectangle a, Rectangle b) {
+    if (a == null) {
+      return b;
+    } else if (b == null) {
+      return a;
+    }
+    // Shape bounds extend down from y, so they are flipped to
+    // be unioned as ordinary rectangles
+    Rectangle union = new Rectangle(a.x, a.y-a.height, a.width, a.height)
+      .union(new Rectangle(b.x, b.y-b.height, b.width, b.height));
+    return new Rectangle(union.x, union.y+union.height, union.width, union.height);
+  }
+
   public void writeSerializedShapes(OutputStream out) {
     try {
-      new ObjectOutputStream(out).writeObject(this.shapes);
+      // written as a LinkedHashSet so that the file format
+      // does not depend on how the shapes are stored
+      new ObjectOutputStream(out).writeObject(new LinkedHashSet<>(this.shapes));
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
-  @SuppressWarnings("unchecked")
-  public void readSerializedShapes(InputStream in) {
-    try {
-      Object o = new ObjectInputStream(in).readObject();
-      if (!(o instanceof LinkedHashSet<?>)) {
-        throw new IllegalArgumentException(
-          "Could not read a shape list from the given input"
-        );
+  public void writeSceneFile(WritableByteChannel out) {
+    // mapped shapes are written first, then the large scene,
+    // in the order they are drawn
+    try (SceneFileWriter writer = new SceneFileWriter(out, true)) {
+      for (MappedScene scene : this.mappedScenes.values()) {
+        scene.writeTo(writer);
+      }
+      if (this.largeScene != null) {
+        this.largeScene.writeTo(writer);
       }
+      writer.writeAll(this.shapes);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
 
-      LinkedHashSet<Shape> shapes = (LinkedHashSet<Shape>)o;
-      for (Shape shape : shapes) {
-        this.addShape(shape);
+  public void openMappedScene(Path path) {
+    // opening a file which is already open replaces it where
+    // it is drawn, rather than drawing a second copy
+    try {
+      Path key = path.toRealPath();
+      MappedScene old = this.mappedScenes.put(key, new MappedScene(path));
+      if (old != null) {
+        this.forgetStore(old);
+        old.close();
       }
-    } catch (ClassNotFoundException e) {
-      throw new IllegalArgumentException(
-        "Could not read a shape list from the given input"
-      );
     } catch (IOException e) {
       e.printStackTrace();
     }
+    this.repaint();
+  }
+
+  public void closeLargeScene() {
+    // the off-heap memory is released now rather than
+    // whenever the store would have been collected
+    if (this.largeScene != null) {
+      this.forgetStore(this.largeScene);
+      this.largeScene.close();
+      this.largeScene = null;
+    }
+    this.repaint();
+  }
+
+  private Shape getStoredShape(Object store, long index) {
+    StoredShape key = new StoredShape(store, index);
+    Shape shape = this.storedShapes.get(key);
+    if (shape == null) {
+      shape = key.get();
+      this.storedShapes.put(key, shape);
+      this.storedKeys.put(shape, key);
+    }
+    return shape;
+  }
+
+  private StoredShape forgetStoredShape(Shape s) {
+    StoredShape key = this.storedKeys.remove(s);
+    if (key != null) {
+      this.storedShapes.remove(key);
+    }
+    return key;
+  }
+
+  // a stored shape is moved into the panel when it is first
+  // edited, and is drawn above the stored shapes from then on
+  private void takeOutStoredShape(Shape s) {
+    StoredShape stored = this.forgetStoredShape(s);
+    if (stored != null) {
+      stored.remove();
+      if (this.shapes.add(s)) {
+        this.statistics.add(s);
+      }
+    }
+  }
+
+  private void forgetStore(Object store) {
+    this.storedShapes.keySet().removeIf(key -> key.store == store);
+    this.storedKeys.values().removeIf(key -> key.store == store);
   }
 
   @Override
   public void mouseReleased(MouseEvent e) {
     Rectangle rectToClear = this.getClipFromCartesian(this.mousePin.getBounds());
 
-    Point p = this.transformScreenToCartesian(e.getPoint());
+    int x = this.transformScreenToCartesianX(e.getX());
+    int y = this.transformScreenToCartesianY(e.getY());
 
-    this.mousePin.translate(p.x-this.mousePin.getX(), p.y-this.mousePin.getY());
+    this.mousePin.translate(x-this.mousePin.getX(), y-this.mousePin.getY());
     
     this.repaint(rectToClear);
     this.repaint(this.getClipFromCartesian(this.mousePin.getBounds()));
   
-    this.selectIntersecting(p);
+    this.selectIntersecting(x, y);
   }
 
   public void selectIntersecting(Point p) {
-    LinkedHashSet<Shape> selectedShapes = new LinkedHashSet<>();
+    this.selectIntersecting(p.x, p.y);
+  }
 
-    for (Shape shape : this.shapes) {
-      if (shape.contains(p)) {
-        selectedShapes.add(shape);
+  public void selectIntersecting(int x, int y) {
+    // selected in the order they are drawn, without moving
+    // any out of the scene they are in
+    LinkedHashSet<Shape> selectedShapes = new LinkedHashSet<>();
+    for (MappedScene scene : this.mappedScenes.values()) {
+      for (long index : scene.indicesAt(x, y)) {
+        selectedShapes.add(this.getStoredShape(scene, index));
+      }
+    }
+    if (this.largeScene != null) {
+      for (long index : this.largeScene.indicesAt(x, y)) {
+        selectedShapes.add(this.getStoredShape(this.largeScene, index));
       }
     }
+    selectedShapes.addAll(this.shapes.shapesAt(x, y));
 
     this.listener.stateChanged(new ChangeEvent(selectedShapes));
   }
@@ -186,4 +430,45 @@ public class ShapeDrawingPanel extends CoordinatePlanePanel implements
   @Override
   public void mouseExited(MouseEvent e) {
   }
+
+  // a shape in a mapped scene or the large scene, by its
+  // index there
+  private static final class StoredShape {
+    private final Object store;
+    private final long index;
+
+    StoredShape(Object store, long index) {
+      this.store = store;
+      this.index = index;
+    }
+
+    Shape get() {
+      if (this.store instanceof MappedScene) {
+        return ((MappedScene)this.store).get(this.index);
+      }
+      return ((OffHeapShapeStore)this.store).get(this.index);
+    }
+
+    void remove() {
+      if (this.store instanceof MappedScene) {
+        ((MappedScene)this.store).remove(this.index);
+      } else {
+        ((OffHeapShapeStore)this.store).remove(this.index);
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof StoredShape)) {
+        return false;
+      }
+      StoredShape other = (StoredShape)o;
+      return (other.store == this.store) && (other.index == this.index);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31*System.identityHashCode(this.store)+Long.hashCode(this.index);
+    }
+  }
 }
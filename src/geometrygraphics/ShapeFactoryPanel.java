@@ -29,7 +29,9 @@ import shapes.ShapeFactory;
  * <p>
  * When the JComboBox is changed (ItemListener), the
  * ShapeBuilderPanel is updated to show the correct
- * different panel.
+ * different panel. Each ShapeBuilderPanel is only created
+ * the first time its shape is selected, so that builders
+ * for shapes which are never used are never loaded.
  * <p>
  * When the ShapeBuilderPanel produces a new Shape
  * (ChangeListener), either the preview window is set to
@@ -42,7 +44,7 @@ import shapes.ShapeFactory;
  * source of the produced Shape.
  *
  * @author Kevin Qiao
- * @version 1.0
+ * @version 1.1
  */
 public class ShapeFactoryPanel extends JPanel implements
   ItemListener,
@@ -53,6 +55,8 @@ public class ShapeFactoryPanel extends JPanel implements
   private final JPanel shapeCardPanel;
   private final CardLayout shapeCards;
   private final HashMap<String, ShapeBuilderPanel> shapeBuilderPanels;
+  private final ShapeFactory factory;
+  private Dimension largestCard;
   private ShapeBuilderPanel currentBuilderPanel;
   private final ShapePreviewPanel shapePreviewPanel;
   private final JTextArea errorTextArea;
@@ -65,6 +69,7 @@ public class ShapeFactoryPanel extends JPanel implements
     this.setAlignmentX(JPanel.CENTER_ALIGNMENT);
 
     this.listener = listener;
+    this.factory = factory;
 
     this.shapeBuilderPanels = new HashMap<>();
 
@@ -75,42 +80,13 @@ public class ShapeFactoryPanel extends JPanel implements
     String[] shapeNames = new String[factory.getNumShapes()];
     Iterator<String> shapes = factory.getShapes().iterator();
 
-    Dimension largestCard = new Dimension();
+    this.largestCard = new Dimension();
 
     for (int i = 0; i < shapeNames.length; ++i) {
-      String shapeName = shapes.next();
-      int numVariations = factory.getNumVariations(shapeName);
-
-      shapeNames[i] = shapeName;
-
-      ShapeBuilderPanel panel;
-      if (numVariations == 1) {
-        panel = new SingleShapeBuilderPanel(
-          this,
-          factory.getBuilders(shapeName).iterator().next()
-        );
-      } else {
-        panel = new VariableShapeBuilderPanel(
-          this,
-          factory.getBuilders(shapeName),
-          numVariations
-        );
-      }
-
-      if (
-        panel.getPreferredSize().width*panel.getPreferredSize().height
-          > largestCard.width*largestCard.height
-      ) {
-        largestCard = panel.getPreferredSize();
-      }
-
-      this.shapeBuilderPanels.put(shapeName, panel);
-      this.shapeCardPanel.add(panel, shapeName);
+      shapeNames[i] = shapes.next();
     }
 
-    this.shapeCardPanel.setPreferredSize(largestCard);
-
-    this.currentBuilderPanel = this.shapeBuilderPanels.get(shapeNames[0]);
+    this.currentBuilderPanel = this.getBuilderPanel(shapeNames[0]);
     this.shapeCards.show(this.shapeCardPanel, shapeNames[0]);
 
     this.shapeComboBox = new JComboBox<>(shapeNames);
@@ -140,10 +116,56 @@ public class ShapeFactoryPanel extends JPanel implements
     this.add(createPinButton);
   }
 
+  /**
+   * Gets the ShapeBuilderPanel for the given shape, creating
+   * it and adding it as a card the first time. The card
+   * panel is kept as large as the largest card created.
+   *
+   * @param shapeName The name of the shape.
+   * @return ShapeBuilderPanel, the panel for the shape.
+   */
+  private ShapeBuilderPanel getBuilderPanel(String shapeName) {
+    ShapeBuilderPanel panel = this.shapeBuilderPanels.get(shapeName);
+    if (panel != null) {
+      return panel;
+    }
+
+    int numVariations = this.factory.getNumVariations(shapeName);
+    if (numVariations == 1) {
+      panel = new SingleShapeBuilderPanel(
+        this,
+        this.factory.getBuilders(shapeName).iterator().next()
+      );
+    } else {
+      panel = new VariableShapeBuilderPanel(
+        this,
+        this.factory.getBuilders(shapeName),
+        numVariations
+      );
+    }
+
+    if (
+      panel.getPreferredSize().width*panel.getPreferredSize().height
+        > this.largestCard.width*this.largestCard.height
+    ) {
+      this.largestCard = panel.getPreferredSize();
+      this.shapeCardPanel.setPreferredSize(this.largestCard);
+      this.shapeCardPanel.revalidate();
+    }
+
+    this.shapeBuilderPanels.put(shapeName, panel);
+    this.shapeCardPanel.add(panel, shapeName);
+    return panel;
+  }
+
   @Override
   public void itemStateChanged(ItemEvent e) {
-    this.shapeCards.show(this.shapeCardPanel, (String)(e.getItem()));
-    this.currentBuilderPanel = this.shapeBuilderPanels.get((String)(e.getItem()));
+    if (e.getStateChange() != ItemEvent.SELECTED) {
+      return;
+    }
+    String shapeName = (String)(e.getItem());
+    this.currentBuilderPanel = this.getBuilderPanel(shapeName);
+    this.shapeCards.show(this.shapeCardPanel, shapeName);
   }
 
   @Override
@@ -3,33 +3,69 @@ package geometrygraphics;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JTextField;
+import javax.swing.SwingWorker;
+
+import shapes.MappedScene;
 
 /**
  * Holds the main drawing panel, as well as the file IO
- * buttons and the select all button.
+ * buttons, the select all button, and the zoom to fit
+ * button.
  * <p>
  * Events:
  * <p>
  * When a button is clicked (ActionListener), the
  * corresponding action is performed with the main drawing
- * panel (ShapeDrawingPanel).
+ * panel (ShapeDrawingPanel). Shapes are written as scene
+ * files (SceneFileWriter). Files ending in .scene are read
+ * as scene text (SceneParser), and any other file as a scene
+ * file, or as serialized shapes if it was written before
+ * scene files. Indexed scene files are mapped rather than
+ * read (MappedScene), so they open at once whatever their
+ * size.
+ * <p>
+ * Other files are read in the background (SceneLoader),
+ * with a progress bar, while the shapes read so far are
+ * drawn. The read button cancels the read until it is done
+ * (PropertyChangeListener), keeping the shapes already read,
+ * and is disabled until the read has stopped. When the large
+ * scene box is ticked, they are read into a new large scene
+ * in the drawing panel, replacing the last one, rather than
+ * held as shapes.
  *
  * @author Kevin Qiao
- * @version 1.0
+ * @version 1.7
  */
-public class ShapePanel extends JPanel implements ActionListener {
+public class ShapePanel extends JPanel implements ActionListener,
+  PropertyChangeListener {
+
+  private static final String SCENE_EXTENSION = ".scene";
+  private static final String TEMPORARY_EXTENSION = ".tmp";
 
   ShapeDrawingPanel drawingPanel;
   JTextField fileNameField;
+  JButton readButton;
+  JCheckBox largeSceneBox;
+  JProgressBar progressBar;
+  SceneLoader loader;
 
   public ShapePanel(ShapeDrawingPanel drawingPanel) {
     super();
@@ -54,16 +90,29 @@ public class ShapePanel extends JPanel implements ActionListener {
     writeButton.setActionCommand("Write Shapes");
     writeButton.addActionListener(this);
     selectAllButton.setPreferredSize(new Dimension(150, 50));
-    JButton readButton = new JButton("Read Shapes");
-    readButton.setActionCommand("Read Shapes");
-    readButton.addActionListener(this);
+    this.readButton = new JButton("Read Shapes");
+    this.readButton.setActionCommand("Read Shapes");
+    this.readButton.addActionListener(this);
     selectAllButton.setPreferredSize(new Dimension(150, 50));
 
+    JButton zoomButton = new JButton("Zoom to Fit");
+    zoomButton.setActionCommand("Zoom to Fit");
+    zoomButton.addActionListener(this);
+
+    this.largeSceneBox = new JCheckBox("Large Scene");
+
     buttonPanel.add(writeButton);
-    buttonPanel.add(readButton);
+    buttonPanel.add(this.readButton);
+    buttonPanel.add(this.largeSceneBox);
     buttonPanel.add(selectAllButton);
+    buttonPanel.add(zoomButton);
 
     this.add(buttonPanel);
+
+    this.progressBar = new JProgressBar(0, 100);
+    this.progressBar.setStringPainted(true);
+    this.progressBar.setVisible(false);
+    this.add(this.progressBar);
   }
 
   @Override
@@ -78,21 +127,87 @@ public class ShapePanel extends JPanel implements ActionListener {
           this.drawingPanel.selectAll();
           break;
         }
+        case "Zoom to Fit": {
+          this.drawingPanel.zoomToFit();
+          break;
+        }
         case "Write Shapes": {
-          this.drawingPanel.writeSerializedShapes(
-            new FileOutputStream(new File(fileName))
-          );
+          // written beside the file and then moved over it, since
+          // the file may be mapped and must not be truncated
+          Path path = Paths.get(fileName);
+          Path temporary = Paths.get(fileName+ShapePanel.TEMPORARY_EXTENSION);
+          try (FileOutputStream out = new FileOutputStream(temporary.toFile())) {
+            this.drawingPanel.writeSceneFile(out.getChannel());
+          }
+          Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
           break;
         }
         case "Read Shapes": {
-          this.drawingPanel.readSerializedShapes(
-            new FileInputStream(new File(fileName))
+          if (this.loader != null) {
+            break;
+          }
+          if (!fileName.endsWith(ShapePanel.SCENE_EXTENSION)) {
+            try (FileChannel in = FileChannel.open(Paths.get(fileName))) {
+              if (MappedScene.isIndexed(in)) {
+                this.drawingPanel.openMappedScene(Paths.get(fileName));
+                break;
+              }
+            }
+          }
+          // anything else is read in the background, and the
+          // read button cancels it until it is done; a file read
+          // into the large scene replaces the one before it
+          if (this.largeSceneBox.isSelected()) {
+            this.drawingPanel.closeLargeScene();
+          }
+          this.loader = new SceneLoader(
+            new File(fileName),
+            this.drawingPanel,
+            this.largeSceneBox.isSelected()
           );
+          this.loader.addPropertyChangeListener(this);
+          this.readButton.setText("Cancel Read");
+          this.readButton.setActionCommand("Cancel Read");
+          this.progressBar.setValue(0);
+          this.progressBar.setVisible(true);
+          this.loader.execute();
+          break;
+        }
+        case "Cancel Read": {
+          // the button stays disabled until the loader has
+          // actually stopped, so a second read cannot start
+          // alongside it
+          this.loader.stop();
+          this.readButton.setEnabled(false);
           break;
         }
       }
-    } catch (FileNotFoundException ex) {
+    } catch (IOException ex) {
       this.fileNameField.setText("File could not be opened");
     }
   }
+
+  @Override
+  public void propertyChange(PropertyChangeEvent e) {
+    if (e.getSource() != this.loader) {
+      return;
+    }
+    if (e.getPropertyName().equals("progress")) {
+      this.progressBar.setValue((Integer)e.getNewValue());
+    } else if (
+      e.getPropertyName().equals("state")
+      && (e.getNewValue() == SwingWorker.StateValue.DONE)
+    ) {
+      try {
+        this.loader.get();
+      } catch (ExecutionException | InterruptedException ex) {
+        this.fileNameField.setText("File could not be opened");
+      }
+      this.loader = null;
+      this.readButton.setText("Read Shapes");
+      this.readButton.setActionCommand("Read Shapes");
+      this.readButton.setEnabled(true);
+      this.progressBar.setVisible(false);
+    }
+  }
 }
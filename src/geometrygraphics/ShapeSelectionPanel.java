@@ -4,7 +4,7 @@ import java.awt.Dimension;
 import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 
 import javax.swing.Box;
@@ -34,7 +34,9 @@ import shapes.Shape;
  * was a "select" button, the selected Shape is set as the
  * detailed selection Shape. Otherwise, the event is some
  * operation to complete in ShapeDrawingPanel and so the
- * event is forwarded to the GeometryDrawerFrame.
+ * event is forwarded to the GeometryDrawerFrame. The
+ * boolean operation buttons forward the selected shapes, in
+ * selection order, as the event source.
  *
  * @author Kevin Qiao
  * @version 1.0
@@ -44,7 +46,7 @@ public class ShapeSelectionPanel extends JPanel implements ChangeListener, Actio
 
   private final ActionListener listener;
   private final JPanel selectedShapesPanel;
-  private final HashMap<Shape, ShapeInfoPanel> selectedShapes;
+  private final LinkedHashMap<Shape, ShapeInfoPanel> selectedShapes;
   private final SingleShapeSelectionPanel singleSelectionPanel;
   
   private final LabelledTextSliderPanel translateAllXSlider;
@@ -54,7 +56,7 @@ public class ShapeSelectionPanel extends JPanel implements ChangeListener, Actio
     super();
 
     this.listener = listener;
-    this.selectedShapes = new HashMap<>();
+    this.selectedShapes = new LinkedHashMap<>();
 
     this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
 
@@ -95,11 +97,21 @@ public class ShapeSelectionPanel extends JPanel implements ChangeListener, Actio
     translateAllButton.setActionCommand("Apply Translate All");
     translateAllButton.addActionListener(this);
 
+    JPanel combinePanel = new JPanel();
+    combinePanel.setLayout(new BoxLayout(combinePanel, BoxLayout.X_AXIS));
+    for (String operation : new String[] {"Union", "Intersect", "Subtract", "XOR"}) {
+      JButton combineButton = new JButton(operation);
+      combineButton.setActionCommand("Apply "+operation);
+      combineButton.addActionListener(this);
+      combinePanel.add(combineButton);
+    }
+
     this.add(scrollPanel);
     this.add(this.singleSelectionPanel);
     this.add(this.translateAllXSlider);
     this.add(this.translateAllYSlider);
     this.add(translateAllButton);
+    this.add(combinePanel);
   }
 
   @Override
@@ -167,6 +179,21 @@ public class ShapeSelectionPanel extends JPanel implements ChangeListener, Actio
         this.listener.actionPerformed(newEvent);
         break;
       }
+      case "Apply Union":
+      case "Apply Intersect":
+      case "Apply Subtract":
+      case "Apply XOR": {
+        if (this.selectedShapes.containsKey(this.singleSelectionPanel.getShape())) {
+          this.singleSelectionPanel.clear(true);
+        }
+        ActionEvent newEvent = new ActionEvent(
+          new LinkedHashSet<>(this.selectedShapes.keySet()),
+          ActionEvent.ACTION_FIRST,
+          e.getActionCommand()
+        );
+        this.listener.actionPerformed(newEvent);
+        break;
+      }
     }
   }
 }
@@ -2,45 +2,79 @@ package shapes;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Polygon;
 import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Reader;
 import java.util.Arrays;
-import java.util.LinkedHashSet;
+import java.util.Iterator;
 
 import geometrygraphics.Rotateable;
 
 /**
  * A class to represent any arbitrary simple polygon. Stores
- * an array of points representing the connected line
- * segments which form a polygon. This class does not verify
+ * arrays of vertex coordinates representing the connected
+ * line segments which form a polygon. This class does not verify
  * whether the given point list produces a simple or complex
  * (self-intersecting) polygon. If a complex polygon is
  * given, perimeter will still be properly calculated,
  * drawing will occur by the even-odd rule, but area will
  * not be properly calculated.
+ * <p>
+ * The vertices are kept in local coordinates, and are only
+ * placed in the world by a rotation followed by a
+ * translation to {@code x} and {@code y}. Translating and
+ * rotating only change that transform, taking constant time
+ * however many vertices there are; the transformed vertices
+ * and bounds are computed when next needed and cached until
+ * the transform next changes.
+ * <p>
+ * The local vertices, and everything built from them for a
+ * given rotation, are held in an interned
+ * {@code PolygonGeometry}, so polygons with the same outline
+ * share them no matter where they are or what colour they
+ * are. Each polygon only stores its position, colour, and
+ * rotation.
  *
  * @author Kevin Qiao
- * @version 1.6
+ * @version 1.12
  */
 public class ArbitrarySimplePolygon extends Shape implements Rotateable {
   private static final long serialVersionUID = 1602472072L;
-
   /**
-   * The {@code Point}s which specify a path that forms a
-   * simple polygon. Each consecutive pair of {@code Point}s
-   * are the ends of a line segment of the Polygon, with an
-   * additional line segment between the first and last
-   * element. No guarantees are made that the points represent
-   * an actual simple polygon.
+   * The number of vertices at which point location switches
+   * from testing every edge to using an
+   * {@code EdgeIntervalTree}.
+   */
+  private static final int EDGE_TREE_THRESHOLD = 64;
+  /**
+   * The number of vertices at which drawing switches to using
+   * simplified versions of the polygon when it is small on
+   * screen.
    */
-  private final Point[] points;
+  private static final int DETAIL_LEVELS_THRESHOLD = 256;
   /**
-   * The {@code java.awt.Polygon} which holds an identical
-   * point list as {@code points}. Used only in
-   * {@link #draw(Graphics)}.
+   * The number of vertices at which hit tests first try to
+   * reject points with the bounding circle and convex hull
+   * before the exact test.
    */
-  private Polygon awtPolygon;
+  private static final int QUICK_REJECT_THRESHOLD = 16;
+
+  /**
+   * The vertices of this polygon in its own local
+   * coordinates, before rotation or translation, shared with
+   * every other polygon with the same outline. Each
+   * consecutive pair of vertices are the ends of a line
+   * segment of the polygon, with an additional line segment
+   * between the first and last vertex. No guarantees are made
+   * that the vertices represent an actual simple polygon. Not
+   * final only so that it can be read from older streams.
+   */
+  private PolygonGeometry geometry;
   /**
    * The amount, in degrees, this polygon is rotated from its
    * intial orientation. A positive value results in an
@@ -48,9 +82,38 @@ public class ArbitrarySimplePolygon extends Shape implements Rotateable {
    * to the origin, then translated back so that its {@code x}
    * and {@code y} still represent the coordinates of the top
    * left corner of its bounding (non-rotated) rectangle.
+   * <p>
+   * Together with {@code x} and {@code y}, the rotation is
+   * the whole transform from local to world coordinates, so
+   * rotating and translating only ever update it. Everything
+   * derived from the transformed vertices is built lazily.
    */
   private int rotation;
-
+  /**
+   * The local vertices rotated by {@link #rotation}, but not
+   * translated, along with everything built from them such as
+   * the convex hull. Shared with every other polygon with the
+   * same outline and rotation. Fetched lazily, and discarded
+   * on rotation.
+   */
+  private transient PolygonGeometry.Orientation orientation;
+  /**
+   * The vertices of this polygon in world coordinates, for
+   * calculations elsewhere in the package. Built lazily from
+   * the rotated vertices, discarded on rotation, and moved
+   * in place on the next access after a translation.
+   */
+  private transient Polygon worldPolygon;
+  /**
+   * The x offset from the rotated vertices that
+   * {@link #worldPolygon} was last moved to.
+   */
+  private transient int worldOffsetX;
+  /**
+   * The y offset from the rotated vertices that
+   * {@link #worldPolygon} was last moved to.
+   */
+  private transient int worldOffsetY;
   /**
    * Constructs a new {@code ArbitrarySimplePolygon} with the
    * given coodinates, color, {@code Point} array, and
@@ -81,34 +144,135 @@ public class ArbitrarySimplePolygon extends Shape implements Rotateable {
     Point[] points,
     int rotation
   ) {
-    super(x, y, color);
+    this(
+      x,
+      y,
+      color,
+      ArbitrarySimplePolygon.getXPoints(points),
+      ArbitrarySimplePolygon.getYPoints(points),
+      points.length,
+      rotation
+    );
+  }
 
-    this.points = new Point[points.length];
-    this.awtPolygon = new Polygon();
-    this.rotation = 0;
+  /**
+   * Constructs a new {@code ArbitrarySimplePolygon} with the
+   * given coodinates, color, vertex coordinate arrays, and
+   * rotation. The first {@code numPoints} coordinates are
+   * copied and translated so that the given coordinates equal
+   * the top left corner of the bounding box for the polygon
+   * specified by the arrays with the specified rotation. The
+   * first and last vertices are to be joined by a line
+   * segment, in addition to all consecutive vertices.
+   *
+   * @param x         The x coordinate of this
+   *                  {@code ArbitrarySimplePolygon}.
+   * @param y         The y coordinate of this
+   *                  {@code ArbitrarySimplePolygon}.
+   * @param color     The {@code Color} to draw this
+   *                  {@code ArbitrarySimplePolygon} with.
+   * @param xPoints   The x coordinates of the vertices which
+   *                  specify a path that forms a simple
+   *                  polygon.
+   * @param yPoints   The y coordinates of the vertices which
+   *                  specify a path that forms a simple
+   *                  polygon.
+   * @param numPoints The number of vertices to use from the
+   *                  coordinate arrays.
+   * @param rotation  The amount, in degrees, this polygon is
+   *                  rotated from its intial orientation. A
+   *                  positive value results in an
+   *                  anticlockwise rotation.
+   */
+  protected ArbitrarySimplePolygon(
+    int x,
+    int y,
+    Color color,
+    int[] xPoints,
+    int[] yPoints,
+    int numPoints,
+    int rotation
+  ) {
+    super(x, y, color);
+    if (numPoints < 3) {
+      throw new InvalidShapeException(
+        "A polygon requires at least 3 vertices: "+numPoints
+      );
+    }
+    // the arrays are copied when interning, so there are no
+    // references that can be modified externally
+    this.geometry = PolygonGeometry.intern(xPoints, yPoints, numPoints);
+    this.rotation = rotation%360;
+  }
 
-    // find top left bounding corner
-    int minX = Integer.MAX_VALUE;
-    int maxY = Integer.MIN_VALUE;
+  /**
+   * Gets the x coordinates of the given {@code Point}s.
+   *
+   * @param points The {@code Point}s to get coordinates of.
+   * @return int[], the x coordinates of the {@code Point}s.
+   */
+  private static int[] getXPoints(Point[] points) {
+    int[] xPoints = new int[points.length];
+    for (int i = 0; i < points.length; ++i) {
+      xPoints[i] = points[i].x;
+    }
+    return xPoints;
+  }
 
-    // copy the array of given points so that there are no
-    // references that can be modified externally
+  /**
+   * Gets the y coordinates of the given {@code Point}s.
+   *
+   * @param points The {@code Point}s to get coordinates of.
+   * @return int[], the y coordinates of the {@code Point}s.
+   */
+  private static int[] getYPoints(Point[] points) {
+    int[] yPoints = new int[points.length];
     for (int i = 0; i < points.length; ++i) {
-      this.points[i] = new Point(points[i]);
-      this.awtPolygon.addPoint(this.points[i].x, this.points[i].y);
+      yPoints[i] = points[i].y;
+    }
+    return yPoints;
+  }
 
-      if (points[i].x < minX) {
-        minX = points[i].x;
-      }
-      if (points[i].y > maxY) {
-        maxY = points[i].y;
+  /**
+   * Reads this polygon. Polygons written before outlines were
+   * shared saved their vertices as {@code Point}s in world
+   * coordinates, already rotated, so they are rotated back to
+   * get the local outline. Outside of multiples of 90 degrees
+   * this rounds each vertex again, which may move it by a
+   * unit, as rotating did in those versions.
+   *
+   * @param in The stream to read from.
+   * @throws IOException            If reading fails, or the
+   *                                polygon has no vertices.
+   * @throws ClassNotFoundException If a class of a
+   *                                serialized object cannot
+   *                                be found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    this.rotation = fields.get("rotation", 0);
+    if (fields.getObjectStreamClass().getField("geometry") != null) {
+      this.geometry = (PolygonGeometry)fields.get("geometry", null);
+    } else {
+      Object points = fields.get("points", null);
+      if ((points instanceof Point[]) && (((Point[])points).length >= 3)) {
+        int[] xPoints = ArbitrarySimplePolygon.getXPoints((Point[])points);
+        int[] yPoints = ArbitrarySimplePolygon.getYPoints((Point[])points);
+        if (this.rotation != 0) {
+          PolygonMetrics.rotate(
+            xPoints,
+            yPoints,
+            xPoints.length,
+            Math.sin(Math.toRadians(-this.rotation)),
+            Math.cos(Math.toRadians(-this.rotation))
+          );
+        }
+        this.geometry = PolygonGeometry.intern(xPoints, yPoints, xPoints.length);
       }
     }
-
-    this.updateCoords(minX, maxY);
-    // might do nothing, so coords still need to be updated
-    // above
-    this.rotateTo(rotation);
+    if (this.geometry == null) {
+      throw new InvalidObjectException("A polygon has no vertices");
+    }
   }
 
   /**
@@ -116,20 +280,15 @@ public class ArbitrarySimplePolygon extends Shape implements Rotateable {
    * <p>
    * The formula used is the shoelace formula:
    * https://en.wikipedia.org/wiki/Shoelace_formula, which
-   * only works on simple polygons.
+   * only works on simple polygons. Large polygons are summed
+   * in parallel, see {@code PolygonMetrics}. The area is
+   * calculated from the local vertices, since it does not
+   * depend on rotation, and is shared with every polygon with
+   * the same outline.
    */
   @Override
   protected double calculateArea() {
-    double areaSum = 0;
-
-    for (int i = 0; i < this.points.length-1; ++i) {
-      areaSum += this.points[i].x*this.points[i+1].y;
-      areaSum -= this.points[i].y*this.points[i+1].x;
-    }
-    areaSum += this.points[this.points.length-1].x*this.points[0].y;
-    areaSum -= this.points[this.points.length-1].y*this.points[0].x;
-
-    return Math.abs(areaSum)/2.0;
+    return this.geometry.getArea();
   }
 
   /**
@@ -137,116 +296,344 @@ public class ArbitrarySimplePolygon extends Shape implements Rotateable {
    * <p>
    * The calculation made is just a sum of all the distances
    * between each point in this
-   * {@code ArbitrarySimplePolygon}.
+   * {@code ArbitrarySimplePolygon}. Large polygons are summed
+   * in parallel, see {@code PolygonMetrics}. Like the area,
+   * the perimeter is calculated from the local vertices and
+   * shared.
    */
   @Override
   protected double calculatePerimeter() {
-    double perimeter = 0;
-    int dx, dy;
+    return this.geometry.getPerimeter();
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The test is the crossing number (even-odd) test, the
+   * same rule used for drawing. See
+   * {@link #crossingTest(int[], int[], int, int, int)}.
+   * Polygons with many vertices build an
+   * {@code EdgeIntervalTree} on the first call, so that only
+   * the edges near the point's y coordinate are tested.
+   * <p>
+   * Before the exact test, points are rejected in tiers of
+   * increasing cost: the bounding box, then (for polygons
+   * with enough vertices) the bounding circle and the convex
+   * hull.
+   */
+  @Override
+  public boolean contains(int x, int y) {
+    PolygonGeometry.Orientation orientation = this.getOrientation();
+    Polygon rotated = orientation.getPolygon();
+    int[] bounds = orientation.getBounds();
+    long dx = (long)x-this.getX();
+    long dy = (long)this.getY()-y;
+    if (
+      (dx < 0)
+      || (dx > (long)bounds[PolygonMetrics.MAX_X]-bounds[PolygonMetrics.MIN_X])
+      || (dy < 0)
+      || (dy > (long)bounds[PolygonMetrics.MAX_Y]-bounds[PolygonMetrics.MIN_Y])
+    ) {
+      return false;
+    }
+    if (rotated.npoints >= ArbitrarySimplePolygon.QUICK_REJECT_THRESHOLD) {
+      ConvexHull hull = orientation.getHull();
+      if (!hull.getBoundingCircle().contains(dx, -dy) || !hull.contains(dx, -dy)) {
+        return false;
+      }
+    }
+    if (rotated.npoints >= ArbitrarySimplePolygon.EDGE_TREE_THRESHOLD) {
+      return orientation.getEdgeTree().contains(dx, -dy);
+    }
+    // the point is within the bounding box, so it can be
+    // moved into rotated coordinates without overflow
+    return ArbitrarySimplePolygon.crossingTest(
+      rotated.xpoints,
+      rotated.ypoints,
+      rotated.npoints,
+      (int)(bounds[PolygonMetrics.MIN_X]+dx),
+      (int)(bounds[PolygonMetrics.MAX_Y]-dy)
+    );
+  }
 
-    for (int i = 0; i < this.points.length-1; ++i) {
-      dx = this.points[i+1].x-this.points[i].x;
-      dy = this.points[i+1].y-this.points[i].y;
-      perimeter += Math.sqrt(dx*dx+dy*dy);
+  /**
+   * Returns whether or not the given point is inside the
+   * polygon specified by the given coordinate arrays, by the
+   * even-odd rule. A horizontal ray is cast to the right of
+   * the point and the edges crossing it are counted, where
+   * an edge crosses the ray if the point's y coordinate lies
+   * in the half open range {@code [minY, maxY)} of the edge
+   * and the point is strictly left of the edge at that y.
+   * <p>
+   * The comparison against the edge is done with integer
+   * cross products rather than a division, and both sides of
+   * the branch are always evaluated so that the loop is
+   * mostly free of unpredictable branches. Each factor can
+   * take up to 33 bits once the polygon spans more than
+   * {@code Integer.MAX_VALUE}, so the products are compared
+   * in full with {@link #isProductLess(long, long, long, long)}
+   * and the test is exact for any {@code int} coordinates.
+   *
+   * @param xs The x coordinates of the polygon's vertices.
+   * @param ys The y coordinates of the polygon's vertices.
+   * @param n  The number of vertices in the polygon.
+   * @param px The x coordinate of the point to test.
+   * @param py The y coordinate of the point to test.
+   * @return boolean, true if the point is inside the
+   *         polygon, false otherwise.
+   */
+  static boolean crossingTest(int[] xs, int[] ys, int n, int px, int py) {
+    boolean inside = false;
+    long lastX = xs[n-1];
+    long lastY = ys[n-1];
+
+    for (int i = 0; i < n; ++i) {
+      long curX = xs[i];
+      long curY = ys[i];
+      // px < curX + (lastX-curX)*(py-curY)/(lastY-curY), with
+      // the comparison flipped when the edge points downwards
+      long a = px-curX;
+      long b = lastY-curY;
+      long c = lastX-curX;
+      long d = py-curY;
+      boolean crosses = (curY > py) != (lastY > py);
+      boolean left = (lastY > curY)
+        ? ArbitrarySimplePolygon.isProductLess(a, b, c, d)
+        : ArbitrarySimplePolygon.isProductLess(c, d, a, b);
+      inside ^= crosses & left;
+      lastX = curX;
+      lastY = curY;
     }
-    dx = this.points[0].x-this.points[this.points.length-1].x;
-    dy = this.points[0].y-this.points[this.points.length-1].y;
-    perimeter += Math.sqrt(dx*dx+dy*dy);
+    return inside;
+  }
 
-    return perimeter;
+  /**
+   * Returns whether or not {@code a*b < c*d}, comparing the
+   * full 128 bit products so that factors of up to 33 bits,
+   * like the differences of two {@code int} coordinates,
+   * cannot overflow.
+   *
+   * @param a The first factor of the left product.
+   * @param b The second factor of the left product.
+   * @param c The first factor of the right product.
+   * @param d The second factor of the right product.
+   * @return boolean, true if the left product is smaller.
+   */
+  static boolean isProductLess(long a, long b, long c, long d) {
+    long highL = Math.multiplyHigh(a, b);
+    long highR = Math.multiplyHigh(c, d);
+    return (highL < highR)
+      | ((highL == highR) & (Long.compareUnsigned(a*b, c*d) < 0));
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Polygons with many vertices are drawn with the most
+   * simplified version of the polygon which is within half a
+   * pixel of the full outline, at the scale of the given
+   * {@code Graphics}. See {@link #getDetailLevel(Graphics)}.
+   * Either way, the vertices are drawn in rotated coordinates
+   * with the translation applied to the {@code Graphics}, so
+   * nothing is built per translation.
+   */
   @Override
-  public boolean contains(Point p) {
-    return this.awtPolygon.contains(p);
+  public void fill(Graphics g) {
+    Polygon level = this.getDetailLevel(g);
+    if (level == null) {
+      PolygonGeometry.Orientation orientation = this.getOrientation();
+      int offsetX = this.getX()-orientation.getBounds()[PolygonMetrics.MIN_X];
+      int offsetY = this.getY()-orientation.getBounds()[PolygonMetrics.MAX_Y];
+      g.translate(offsetX, offsetY);
+      g.fillPolygon(orientation.getPolygon());
+      g.translate(-offsetX, -offsetY);
+      return;
+    }
+    g.translate(this.getX(), this.getY());
+    g.fillPolygon(level);
+    g.translate(-this.getX(), -this.getY());
   }
 
-  @Override
-  public void draw(Graphics g) {
-    g.setColor(this.getColor());
-    g.fillPolygon(this.awtPolygon);
+  /**
+   * Gets the simplified version of this polygon to draw to
+   * the given {@code Graphics}, relative to the top left
+   * bounding corner, or {@code null} if the full polygon
+   * should be drawn. The scale is taken from the transform of
+   * the {@code Graphics}, which includes both the zoom of the
+   * panel being drawn on and any display scaling, so the
+   * error is measured in device pixels.
+   *
+   * @param g The {@code Graphics} object to be drawn to.
+   * @return Polygon, the simplified polygon, or {@code null}.
+   */
+  private Polygon getDetailLevel(Graphics g) {
+    if (
+      (this.geometry.getNumPoints() < ArbitrarySimplePolygon.DETAIL_LEVELS_THRESHOLD)
+      || !(g instanceof Graphics2D)
+    ) {
+      return null;
+    }
+    double scale = Math.sqrt(Math.abs(((Graphics2D)g).getTransform().getDeterminant()));
+    double maxError = 0.5/scale;
+    if (!(maxError >= 1)) {
+      return null;
+    }
+    return this.getOrientation().getDetailLevels().getLevel(maxError);
   }
 
   @Override
   public Rectangle getBounds() {
-    Rectangle r = this.awtPolygon.getBounds();
-    return new Rectangle(this.getX(), this.getY(), r.width, r.height);
+    int[] bounds = this.getOrientation().getBounds();
+    return new Rectangle(
+      this.getX(),
+      this.getY(),
+      bounds[PolygonMetrics.MAX_X]-bounds[PolygonMetrics.MIN_X],
+      bounds[PolygonMetrics.MAX_Y]-bounds[PolygonMetrics.MIN_Y]
+    );
   }
 
-  @Override
-  public void rotateTo(int degrees) {
-    if ((degrees-this.rotation)%360 == 0) {
-      return;
+  /**
+   * Gets the shared local vertices of this polygon, before
+   * rotation or translation.
+   *
+   * @return PolygonGeometry, the local vertices of this
+   *         polygon.
+   */
+  PolygonGeometry getGeometry() {
+    return this.geometry;
+  }
+
+  /**
+   * Gets the local vertices of this polygon rotated by its
+   * rotation, from the shared geometry.
+   *
+   * @return PolygonGeometry.Orientation, the rotated vertices
+   *         of this polygon.
+   */
+  private PolygonGeometry.Orientation getOrientation() {
+    if (this.orientation == null) {
+      this.orientation = this.geometry.getOrientation(this.rotation);
     }
-    this.rotateBy(degrees-this.rotation);
+    return this.orientation;
   }
 
-  @Override
-  public void rotateBy(int degreeChange) {
-    double sinT = Math.sin(Math.toRadians(degreeChange));
-    double cosT = Math.cos(Math.toRadians(degreeChange));
-
-    int minX = Integer.MAX_VALUE;
-    int maxY = Integer.MIN_VALUE;
-
-    Polygon newPolygon = new Polygon();
-    for (int i = 0; i < this.points.length; ++i) {
-      int x = this.points[i].x;
-      int y = this.points[i].y;
-      this.points[i].x = (int)Math.round(x*cosT-y*sinT);
-      this.points[i].y = (int)Math.round(x*sinT+y*cosT);
-      newPolygon.addPoint(this.points[i].x, this.points[i].y);
-
-      if (this.points[i].x < minX) {
-        minX = this.points[i].x;
-      }
-      if (this.points[i].y > maxY) {
-        maxY = this.points[i].y;
-      }
+  /**
+   * Gets the {@code java.awt.Polygon} holding the vertices of
+   * this polygon in world coordinates, for calculations
+   * elsewhere in the package which read the coordinate arrays
+   * directly. It is built on first use and moved in place
+   * after translations, so it is not copied, must not be
+   * modified, and is only valid until this polygon is next
+   * translated or rotated.
+   *
+   * @return Polygon, the vertices of this polygon.
+   */
+  Polygon getAwtPolygon() {
+    PolygonGeometry.Orientation orientation = this.getOrientation();
+    Polygon rotated = orientation.getPolygon();
+    int offsetX = this.getX()-orientation.getBounds()[PolygonMetrics.MIN_X];
+    int offsetY = this.getY()-orientation.getBounds()[PolygonMetrics.MAX_Y];
+    if (this.worldPolygon == null) {
+      this.worldPolygon = new Polygon(rotated.xpoints, rotated.ypoints, rotated.npoints);
+      this.worldPolygon.translate(offsetX, offsetY);
+    } else if ((offsetX != this.worldOffsetX) || (offsetY != this.worldOffsetY)) {
+      this.worldPolygon.translate(offsetX-this.worldOffsetX, offsetY-this.worldOffsetY);
     }
+    this.worldOffsetX = offsetX;
+    this.worldOffsetY = offsetY;
+    return this.worldPolygon;
+  }
 
-    this.awtPolygon = newPolygon;
-    this.updateCoords(minX, maxY);
-    this.rotation += degreeChange;
-    this.rotation %= 360;
+  /**
+   * Gets the convex hull of this polygon, relative to the top
+   * left bounding corner, from the shared geometry.
+   *
+   * @return ConvexHull, the convex hull of this polygon.
+   */
+  private ConvexHull getHull() {
+    return this.getOrientation().getHull();
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The circle is the smallest circle enclosing the vertices
+   * of this polygon, found from its convex hull.
+   */
   @Override
-  public void translate(int dx, int dy) {
-    super.translate(dx, dy);
-    this.translateSelf(dx, dy);
+  public BoundingCircle getBoundingCircle() {
+    return this.getHull().getBoundingCircle().translated(this.getX(), this.getY());
   }
 
   /**
-   * Translates the internal point representations of this
-   * {@code ArbitrarySimplePolygon}.
-   *
-   * @param dx The change in x coordinates to apply to this
-   *           shape.
-   * @param dy The change in y coordinates to apply to this
-   *           shape.
-   */
-  private void translateSelf(int dx, int dy) {
-    for (int i = 0; i < this.points.length; ++i) {
-      this.points[i].translate(dx, dy);
+   * {@inheritDoc}
+   * <p>
+   * Polygons and ellipses which pass the bounding box and
+   * circle tests are then tested for a separating axis
+   * against the edges of the convex hull of this polygon
+   * (and of the other polygon).
+   */
+  @Override
+  public boolean mayOverlap(Shape other) {
+    if (!super.mayOverlap(other)) {
+      return false;
+    }
+    long dx = (long)other.getX()-this.getX();
+    long dy = (long)other.getY()-this.getY();
+    if (other instanceof ArbitrarySimplePolygon) {
+      ConvexHull otherHull = ((ArbitrarySimplePolygon)other).getHull();
+      return !this.getHull().separates(otherHull, dx, dy)
+        && !otherHull.separates(this.getHull(), -dx, -dy);
+    } else if (other instanceof Ellipse) {
+      Ellipse ellipse = (Ellipse)other;
+      return !this.getHull().separatesEllipse(
+        dx+ellipse.getWidth()/2.0,
+        dy-ellipse.getHeight()/2.0,
+        ellipse.getWidth()/2.0,
+        ellipse.getHeight()/2.0
+      );
+    }
+    return true;
+  }
+
+  @Override
+  public void rotateTo(int degrees) {
+    if ((degrees-this.rotation)%360 == 0) {
+      return;
     }
-    this.awtPolygon.translate(dx, dy);
+    this.rotateBy(degrees-this.rotation);
   }
 
   /**
-   * Translates the internal point representation to be
-   * consistent with the coordinates of this
-   * {@code ArbitrarySimplePolygon}, given the coordinates of
-   * the top-left bounding corner.
-   *
-   * @param minX The x coordinate of the leftmost point.
-   * @param maxY The y coordinate of the topmost point.
+   * {@inheritDoc}
+   * <p>
+   * Only the rotation is updated, and everything built from
+   * the rotated vertices is discarded to be fetched from the
+   * shared geometry on next use, so this takes constant
+   * time.
    */
-  private void updateCoords(int minX, int maxY) {
-    if ((minX == this.getX()) && (maxY == this.getY())) {
+  @Override
+  public void rotateBy(int degreeChange) {
+    if (degreeChange%360 == 0) {
       return;
     }
-    this.translateSelf(this.getX()-minX, this.getY()-maxY);
+    this.rotation += degreeChange;
+    this.rotation %= 360;
+
+    this.orientation = null;
+    this.worldPolygon = null;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The world polygon is translated in place as this polygon
+   * moves, so a copy must build its own. The geometry and
+   * orientation are immutable and shared.
+   */
+  @Override
+  void clearCopiedCaches() {
+    this.worldPolygon = null;
   }
 
   /**
@@ -264,44 +651,39 @@ public class ArbitrarySimplePolygon extends Shape implements Rotateable {
    * {@code ShapeBuilder}.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.1
    */
   public abstract static class RotationBuilder extends ShapeBuilder {
     /** The {@code String} to represent the argument of rotation. */
     private static final String ROTATION = "Rotation";
     /**
-     * The set of arguments this {@code RotationBuilder}
-     * requires in addition to inherited arguments.
+     * The arguments this {@code RotationBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(RotationBuilder.ROTATION, 0, 359))
-      );
+    protected static final Schema SCHEMA =
+      ShapeBuilder.SCHEMA.extend(new Arg(RotationBuilder.ROTATION, 0, 359));
+    /** The slot of the rotation argument. */
+    private static final int ROTATION_SLOT =
+      RotationBuilder.SCHEMA.getSlot(RotationBuilder.ROTATION);
 
     /**
-     * Constructs a {@code RotationBuilder} with the given
-     * target {@code Shape} name, variation name, and with the
-     * given required arguments in addition to the ones
-     * specified in this class and superclasses.
+     * Constructs a {@code RotationBuilder} with the given target
+     * {@code Shape} name, variation name, and compiled
+     * required arguments.
      *
      * @param targetShape The name of the {@code Shape} to be
      *                    built.
      * @param variation   The name of the build variation to be
      *                    used. See {@link #getVariation()}.
-     * @param args        The required args specified by
-     *                    subclasses to use when building the
-     *                    product, in addition to the arguments
-     *                    from this class.
+     * @param schema      The required arguments of the
+     *                    builder class, which must extend the
+     *                    arguments of this class.
      */
-    public RotationBuilder(
-      String targetShape,
-      String variation,
-      LinkedHashSet<Arg> args
-    ) {
+    protected RotationBuilder(String targetShape, String variation, Schema schema) {
       super(
         targetShape,
         variation,
-        ShapeBuilder.mergeArgs(REQUIRED_ARGS, args)
+        ShapeBuilder.checkExtends(schema, RotationBuilder.SCHEMA)
       );
     }
 
@@ -315,7 +697,7 @@ public class ArbitrarySimplePolygon extends Shape implements Rotateable {
      *         {@code RotationBuilder}.
      */
     public RotationBuilder withRotation(int rotation) {
-      this.withArg(RotationBuilder.ROTATION, rotation);
+      this.setArg(RotationBuilder.ROTATION_SLOT, rotation);
       return this;
     }
 
@@ -327,7 +709,291 @@ public class ArbitrarySimplePolygon extends Shape implements Rotateable {
      *         {@code RotationBuilder}.
      */
     public int getRotation() {
-      return this.getArg(RotationBuilder.ROTATION);
+      return this.getArg(RotationBuilder.ROTATION_SLOT);
+    }
+  }
+
+  /**
+   * A builder for an {@code ArbitrarySimplePolygon} which
+   * accepts vertices incrementally, for polygons too large to
+   * comfortably hold as a {@code Point} array. Vertices are
+   * appended to growable primitive buffers, from individual
+   * calls, an {@code Iterator}, or text read from a
+   * {@code Reader}.
+   * <p>
+   * Unlike a {@code ShapeBuilder}, this builder has no named
+   * arguments and cannot be used through a
+   * {@code ShapeFactory}. By default, the built polygon is
+   * positioned where its vertices are, rather than being
+   * translated to a given position.
+   *
+   * @author Kevin Qiao
+   * @version 1.1
+   */
+  public static class StreamBuilder {
+    /** The initial capacity of the vertex buffers. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The x coordinates of the vertices added so far. */
+    private int[] xPoints;
+    /** The y coordinates of the vertices added so far. */
+    private int[] yPoints;
+    /** The number of vertices added so far. */
+    private int numPoints;
+    /** The smallest x coordinate of the vertices added so far. */
+    private int minX;
+    /** The largest y coordinate of the vertices added so far. */
+    private int maxY;
+
+    /** Whether or not a position was given with {@link #withPosition}. */
+    private boolean positioned;
+    /** The x coordinate to build the polygon at, if positioned. */
+    private int x;
+    /** The y coordinate to build the polygon at, if positioned. */
+    private int y;
+    /** The {@code Color} to build the polygon with. */
+    private Color color;
+    /** The rotation to build the polygon with. */
+    private int rotation;
+
+    /**
+     * Creates an empty {@code StreamBuilder}, which builds a
+     * black polygon with no rotation by default.
+     */
+    public StreamBuilder() {
+      this.xPoints = new int[StreamBuilder.INITIAL_CAPACITY];
+      this.yPoints = new int[StreamBuilder.INITIAL_CAPACITY];
+      this.numPoints = 0;
+      this.minX = Integer.MAX_VALUE;
+      this.maxY = Integer.MIN_VALUE;
+      this.positioned = false;
+      this.color = new Color(0, 0, 0);
+      this.rotation = 0;
+    }
+
+    /**
+     * Appends a vertex to the polygon to build.
+     *
+     * @param x The x coordinate of the vertex.
+     * @param y The y coordinate of the vertex.
+     * @return {@code StreamBuilder}, this
+     *         {@code StreamBuilder}.
+     */
+    public StreamBuilder addVertex(int x, int y) {
+      if (this.numPoints == this.xPoints.length) {
+        int capacity = this.xPoints.length*2;
+        this.xPoints = Arrays.copyOf(this.xPoints, capacity);
+        this.yPoints = Arrays.copyOf(this.yPoints, capacity);
+      }
+      this.xPoints[this.numPoints] = x;
+      this.yPoints[this.numPoints] = y;
+      ++this.numPoints;
+
+      if (x < this.minX) {
+        this.minX = x;
+      }
+      if (y > this.maxY) {
+        this.maxY = y;
+      }
+      return this;
+    }
+
+    /**
+     * Appends all remaining vertices of the given
+     * {@code Iterator} to the polygon to build.
+     *
+     * @param vertices The vertices to append.
+     * @return {@code StreamBuilder}, this
+     *         {@code StreamBuilder}.
+     */
+    public StreamBuilder addVertices(Iterator<? extends Point> vertices) {
+      while (vertices.hasNext()) {
+        Point p = vertices.next();
+        this.addVertex(p.x, p.y);
+      }
+      return this;
+    }
+
+    /**
+     * Reads vertices from the given {@code Reader} until the
+     * end of input, and appends them to the polygon to build.
+     * The input is a list of integer coordinates, alternating
+     * x and y, separated by any amount of whitespace and
+     * commas, such as {@code "0 0, 10 0, 10 10"}. An
+     * {@code IllegalArgumentException} is thrown if the input
+     * contains anything else, a coordinate out of the range of
+     * an {@code int}, or an odd number of coordinates.
+     * <p>
+     * The input is parsed directly from a character buffer,
+     * so no objects are created per coordinate.
+     *
+     * @param in The {@code Reader} to read vertices from.
+     * @return {@code StreamBuilder}, this
+     *         {@code StreamBuilder}.
+     * @throws IOException If reading from the {@code Reader}
+     *                     fails.
+     */
+    public StreamBuilder readVertices(Reader in) throws IOException {
+      CoordinateParser parser = new CoordinateParser();
+      char[] buffer = new char[8192];
+      int numRead;
+      while ((numRead = in.read(buffer)) != -1) {
+        for (int i = 0; i < numRead; ++i) {
+          parser.accept(buffer[i]);
+        }
+      }
+      parser.finish();
+      return this;
+    }
+
+    /**
+     * Sets the position of the polygon to build, the top left
+     * corner of its bounding box. If no position is set, the
+     * polygon is built where its vertices are.
+     *
+     * @param x The x coordinate of the polygon to build.
+     * @param y The y coordinate of the polygon to build.
+     * @return {@code StreamBuilder}, this
+     *         {@code StreamBuilder}.
+     */
+    public StreamBuilder withPosition(int x, int y) {
+      this.positioned = true;
+      this.x = x;
+      this.y = y;
+      return this;
+    }
+
+    /**
+     * Sets the color of the polygon to build.
+     *
+     * @param r The red channel of the RGB color.
+     * @param g The green channel of the RGB color.
+     * @param b The blue channel of the RGB color.
+     * @return {@code StreamBuilder}, this
+     *         {@code StreamBuilder}.
+     */
+    public StreamBuilder withColour(int r, int g, int b) {
+      this.color = new Color(r, g, b);
+      return this;
+    }
+
+    /**
+     * Sets the rotation of the polygon to build.
+     *
+     * @param rotation The rotation, in degrees, of the polygon
+     *                 to build.
+     * @return {@code StreamBuilder}, this
+     *         {@code StreamBuilder}.
+     */
+    public StreamBuilder withRotation(int rotation) {
+      this.rotation = rotation;
+      return this;
+    }
+
+    /**
+     * Gets the number of vertices added so far.
+     *
+     * @return int, the number of vertices added so far.
+     */
+    public int getNumVertices() {
+      return this.numPoints;
+    }
+
+    /**
+     * Creates a new {@code ArbitrarySimplePolygon} from the
+     * vertices added so far. The vertices are copied, so this
+     * builder can continue to be used afterwards.
+     *
+     * @return ArbitrarySimplePolygon, a new polygon with the
+     *         vertices added so far.
+     */
+    public ArbitrarySimplePolygon build() {
+      return new ArbitrarySimplePolygon(
+        this.positioned ? this.x : this.minX,
+        this.positioned ? this.y : this.maxY,
+        this.color,
+        this.xPoints,
+        this.yPoints,
+        this.numPoints,
+        this.rotation
+      );
+    }
+
+    /**
+     * A parser for the text format read by
+     * {@link StreamBuilder#readVertices(Reader)}, which is fed
+     * one character at a time and appends each complete pair
+     * of coordinates to the enclosing {@code StreamBuilder}.
+     */
+    private class CoordinateParser {
+      /** The magnitude of the coordinate being parsed. */
+      private long value;
+      /** Whether or not any digits of a coordinate have been read. */
+      private boolean inNumber;
+      /** Whether or not the coordinate being parsed is negative. */
+      private boolean negative;
+      /** Whether or not an x coordinate is waiting for its y. */
+      private boolean haveX;
+      /** The x coordinate waiting for its y, if any. */
+      private int pendingX;
+
+      /**
+       * Parses the next character of input.
+       *
+       * @param c The next character of input.
+       */
+      void accept(char c) {
+        if ((c >= '0') && (c <= '9')) {
+          this.value = this.value*10+(c-'0');
+          if (this.value > (long)Integer.MAX_VALUE+1) {
+            throw new IllegalArgumentException("Coordinate out of range");
+          }
+          this.inNumber = true;
+        } else if ((c == '-') && !this.inNumber && !this.negative) {
+          this.negative = true;
+        } else if (Character.isWhitespace(c) || (c == ',')) {
+          this.endCoordinate();
+        } else {
+          throw new IllegalArgumentException("Unexpected character: "+c);
+        }
+      }
+
+      /**
+       * Finishes parsing at the end of input, checking that
+       * every x coordinate had a matching y coordinate.
+       */
+      void finish() {
+        this.endCoordinate();
+        if (this.haveX) {
+          throw new IllegalArgumentException(
+            "Odd number of coordinates, last x has no y: "+this.pendingX
+          );
+        }
+      }
+
+      /**
+       * Completes the coordinate being parsed, if any, pairing
+       * it up with the previous coordinate as needed.
+       */
+      private void endCoordinate() {
+        if (this.inNumber) {
+          long coordinate = this.negative ? -this.value : this.value;
+          if (coordinate > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Coordinate out of range");
+          }
+          if (this.haveX) {
+            StreamBuilder.this.addVertex(this.pendingX, (int)coordinate);
+          } else {
+            this.pendingX = (int)coordinate;
+          }
+          this.haveX = !this.haveX;
+        } else if (this.negative) {
+          throw new IllegalArgumentException("Expected digits after '-'");
+        }
+        this.value = 0;
+        this.inNumber = false;
+        this.negative = false;
+      }
     }
   }
 }
@@ -0,0 +1,255 @@
+package shapes;
+
+import java.util.Random;
+
+/**
+ * An immutable class to represent a circle which encloses
+ * some {@code Shape}, used as a cheap test to rule out
+ * points or other shapes before testing the exact geometry
+ * of a {@code Shape}. Unlike {@code Circle}, the centre and
+ * radius are not restricted to integers, and a
+ * {@code BoundingCircle} is not drawable.
+ * <p>
+ * All tests are inclusive of the circle's edge, with a
+ * small tolerance for floating point error, since a
+ * {@code BoundingCircle} must never reject anything its
+ * {@code Shape} could contain.
+ *
+ * @author Kevin Qiao
+ * @version 1.1
+ */
+public final class BoundingCircle {
+  /**
+   * The relative tolerance added to the radius in all tests,
+   * to account for floating point error.
+   */
+  private static final double TOLERANCE = 1e-9;
+
+  /** The x coordinate of the centre of this circle. */
+  private final double centerX;
+  /** The y coordinate of the centre of this circle. */
+  private final double centerY;
+  /** The radius of this circle. */
+  private final double radius;
+
+  /**
+   * Constructs a new {@code BoundingCircle} with the given
+   * centre and radius.
+   *
+   * @param centerX The x coordinate of the centre.
+   * @param centerY The y coordinate of the centre.
+   * @param radius  The radius.
+   */
+  public BoundingCircle(double centerX, double centerY, double radius) {
+    this.centerX = centerX;
+    this.centerY = centerY;
+    this.radius = radius;
+  }
+
+  /**
+   * Finds the smallest circle enclosing all the given
+   * points, using the randomized incremental algorithm:
+   * https://en.wikipedia.org/wiki/Smallest-circle_problem.
+   * The points are visited in a fixed pseudorandom order,
+   * so the result is deterministic.
+   *
+   * @param xs The x coordinates of the points.
+   * @param ys The y coordinates of the points.
+   * @param n  The number of points.
+   * @return BoundingCircle, the smallest enclosing circle.
+   */
+  static BoundingCircle enclosing(int[] xs, int[] ys, int n) {
+    int[] order = new int[n];
+    for (int i = 0; i < n; ++i) {
+      order[i] = i;
+    }
+    // a fixed seed keeps the result reproducible while still
+    // giving the expected linear running time
+    Random random = new Random(n);
+    for (int i = n-1; i > 0; --i) {
+      int j = random.nextInt(i+1);
+      int swap = order[i];
+      order[i] = order[j];
+      order[j] = swap;
+    }
+
+    BoundingCircle circle = new BoundingCircle(xs[order[0]], ys[order[0]], 0);
+    for (int i = 1; i < n; ++i) {
+      int p = order[i];
+      if (circle.contains(xs[p], ys[p])) {
+        continue;
+      }
+      circle = new BoundingCircle(xs[p], ys[p], 0);
+      for (int j = 0; j < i; ++j) {
+        int q = order[j];
+        if (circle.contains(xs[q], ys[q])) {
+          continue;
+        }
+        circle = BoundingCircle.fromDiameter(xs[p], ys[p], xs[q], ys[q]);
+        for (int k = 0; k < j; ++k) {
+          int r = order[k];
+          if (!circle.contains(xs[r], ys[r])) {
+            circle = BoundingCircle.fromTriangle(
+              xs[p],
+              ys[p],
+              xs[q],
+              ys[q],
+              xs[r],
+              ys[r]
+            );
+          }
+        }
+      }
+    }
+    return circle;
+  }
+
+  /**
+   * Creates the circle with the given two points at opposite
+   * ends of a diameter.
+   *
+   * @param ax The x coordinate of the first point.
+   * @param ay The y coordinate of the first point.
+   * @param bx The x coordinate of the second point.
+   * @param by The y coordinate of the second point.
+   * @return BoundingCircle, the circle.
+   */
+  private static BoundingCircle fromDiameter(double ax, double ay, double bx, double by) {
+    return new BoundingCircle(
+      (ax+bx)/2,
+      (ay+by)/2,
+      Math.hypot(ax-bx, ay-by)/2
+    );
+  }
+
+  /**
+   * Creates the circle passing through the three given
+   * points. If the points are collinear, the circle with the
+   * two furthest apart points as a diameter is returned
+   * instead.
+   *
+   * @param ax The x coordinate of the first point.
+   * @param ay The y coordinate of the first point.
+   * @param bx The x coordinate of the second point.
+   * @param by The y coordinate of the second point.
+   * @param cx The x coordinate of the third point.
+   * @param cy The y coordinate of the third point.
+   * @return BoundingCircle, the circle.
+   */
+  private static BoundingCircle fromTriangle(
+    double ax,
+    double ay,
+    double bx,
+    double by,
+    double cx,
+    double cy
+  ) {
+    // work relative to a to keep the numbers small
+    double ux = bx-ax;
+    double uy = by-ay;
+    double vx = cx-ax;
+    double vy = cy-ay;
+    double d = 2*(ux*vy-uy*vx);
+    if (d == 0) {
+      double ab = Math.hypot(ux, uy);
+      double ac = Math.hypot(vx, vy);
+      double bc = Math.hypot(cx-bx, cy-by);
+      if ((ab >= ac) && (ab >= bc)) {
+        return BoundingCircle.fromDiameter(ax, ay, bx, by);
+      } else if (ac >= bc) {
+        return BoundingCircle.fromDiameter(ax, ay, cx, cy);
+      }
+      return BoundingCircle.fromDiameter(bx, by, cx, cy);
+    }
+    double u = ux*ux+uy*uy;
+    double v = vx*vx+vy*vy;
+    double ox = (vy*u-uy*v)/d;
+    double oy = (ux*v-vx*u)/d;
+    return new BoundingCircle(ax+ox, ay+oy, Math.hypot(ox, oy));
+  }
+
+  /**
+   * Gets the radius, including the tolerance for floating
+   * point error.
+   *
+   * @return double, the radius used in tests.
+   */
+  private double getTestRadius() {
+    return this.radius*(1+BoundingCircle.TOLERANCE)+BoundingCircle.TOLERANCE;
+  }
+
+  /**
+   * Returns whether or not the given point is inside or on
+   * this circle.
+   *
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return boolean, true if the point is inside this
+   *         circle, false otherwise.
+   */
+  public boolean contains(double x, double y) {
+    double dx = x-this.centerX;
+    double dy = y-this.centerY;
+    double r = this.getTestRadius();
+    return dx*dx+dy*dy <= r*r;
+  }
+
+  /**
+   * Returns whether or not this circle and the given circle
+   * overlap or touch.
+   *
+   * @param other The other {@code BoundingCircle}.
+   * @return boolean, true if the circles intersect, false
+   *         otherwise.
+   */
+  public boolean intersects(BoundingCircle other) {
+    double dx = other.centerX-this.centerX;
+    double dy = other.centerY-this.centerY;
+    double r = this.getTestRadius()+other.getTestRadius();
+    return dx*dx+dy*dy <= r*r;
+  }
+
+  /**
+   * Creates a copy of this {@code BoundingCircle} translated
+   * by the given amounts.
+   *
+   * @param dx The change in x coordinates.
+   * @param dy The change in y coordinates.
+   * @return BoundingCircle, the translated circle.
+   */
+  public BoundingCircle translated(double dx, double dy) {
+    return new BoundingCircle(this.centerX+dx, this.centerY+dy, this.radius);
+  }
+
+  /**
+   * Gets the x coordinate of the centre of this circle.
+   *
+   * @return double, the x coordinate of the centre.
+   */
+  public double getCenterX() {
+    return this.centerX;
+  }
+
+  /**
+   * Gets the y coordinate of the centre of this circle.
+   *
+   * @return double, the y coordinate of the centre.
+   */
+  public double getCenterY() {
+    return this.centerY;
+  }
+
+  /**
+   * Gets the radius of this circle.
+   *
+   * @return double, the radius.
+   */
+  public double getRadius() {
+    return this.radius;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString()+"[centre: ("+this.centerX+", "+this.centerY+"), radius: "+this.radius+"]";
+  }
+}
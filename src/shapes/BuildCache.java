@@ -0,0 +1,224 @@
+package shapes;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of built {@code Shape}s, in front of
+ * {@link ShapeBuilder#build()}, for callers which build the
+ * same shapes over and over, like a live preview while a
+ * slider is scrubbed back and forth.
+ * <p>
+ * Shapes are cached by the class of their builder and the
+ * values of every argument except position, since the
+ * position only translates the built shape. On a hit, a copy
+ * of the cached shape is moved to the builder's position and
+ * returned, sharing any immutable geometry with the cached
+ * shape, so nothing is recalculated. The least recently used
+ * shapes are evicted once the cache is full.
+ * <p>
+ * A {@code BuildCache} is thread safe. Failed builds are not
+ * cached.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+public final class BuildCache {
+  /** The largest number of shapes to keep. */
+  private final int capacity;
+  /** The cached shapes, in order of least recent use. */
+  private final LinkedHashMap<Key, Shape> shapes;
+  /** The number of builds answered from the cache. */
+  private long hits;
+  /** The number of builds not answered from the cache. */
+  private long misses;
+  /** The number of shapes evicted from the cache. */
+  private long evictions;
+
+  /**
+   * Creates a new, empty {@code BuildCache} which keeps up to
+   * the given number of shapes.
+   *
+   * @param capacity The largest number of shapes to keep.
+   */
+  public BuildCache(int capacity) {
+    Shape.checkDimension(capacity);
+    this.capacity = capacity;
+    this.shapes = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Shape> eldest) {
+        if (this.size() > BuildCache.this.capacity) {
+          ++BuildCache.this.evictions;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Builds a {@code Shape} with the given builder, or copies
+   * the cached {@code Shape} if one was built from the same
+   * arguments. The returned {@code Shape} always belongs to
+   * the caller, and can be moved without affecting the
+   * cache. Exceptions from the builder are not caught.
+   *
+   * @param builder The builder to build with.
+   * @return Shape, the built {@code Shape}.
+   */
+  public Shape build(ShapeBuilder builder) {
+    Key key = new Key(builder.getClass(), builder.copyArgsExceptPosition());
+    Shape cached;
+    synchronized (this) {
+      cached = this.shapes.get(key);
+      if (cached != null) {
+        ++this.hits;
+      } else {
+        ++this.misses;
+      }
+    }
+
+    if (cached != null) {
+      Shape copy = cached.copy();
+      copy.translate(builder.getX()-copy.getX(), builder.getY()-copy.getY());
+      return copy;
+    }
+
+    // built outside the lock, so one slow build does not
+    // hold up other threads
+    Shape shape = builder.build();
+    Shape copy = shape.copy();
+    synchronized (this) {
+      this.shapes.put(key, copy);
+    }
+    return shape;
+  }
+
+  /**
+   * Removes every shape from this cache. The metrics are not
+   * reset.
+   */
+  public synchronized void clear() {
+    this.shapes.clear();
+  }
+
+  /**
+   * Gets the number of shapes in this cache.
+   *
+   * @return int, the number of cached shapes.
+   */
+  public synchronized int size() {
+    return this.shapes.size();
+  }
+
+  /**
+   * Gets the largest number of shapes this cache keeps.
+   *
+   * @return int, the capacity of this cache.
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Gets the number of builds answered from this cache.
+   *
+   * @return long, the number of hits.
+   */
+  public synchronized long getHitCount() {
+    return this.hits;
+  }
+
+  /**
+   * Gets the number of builds not answered from this cache,
+   * which were built by the builder.
+   *
+   * @return long, the number of misses.
+   */
+  public synchronized long getMissCount() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the number of shapes evicted to make room for
+   * others.
+   *
+   * @return long, the number of evictions.
+   */
+  public synchronized long getEvictionCount() {
+    return this.evictions;
+  }
+
+  /**
+   * Gets the fraction of builds answered from this cache.
+   *
+   * @return double, the hit rate from 0 to 1, or 0 if nothing
+   *         has been built.
+   */
+  public synchronized double getHitRate() {
+    long total = this.hits+this.misses;
+    if (total == 0) {
+      return 0;
+    }
+    return (double)this.hits/total;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "BuildCache[size: "+this.shapes.size()+"/"+this.capacity
+      +", hits: "+this.hits
+      +", misses: "+this.misses
+      +", evictions: "+this.evictions+"]";
+  }
+
+  /**
+   * The key of a cached shape: the class of its builder and
+   * the values of every argument except position.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  private static final class Key {
+    /** The class of the builder. */
+    private final Class<?> builderClass;
+    /** The argument values, which are never modified. */
+    private final int[] args;
+    /** The hash of the class and values, calculated once. */
+    private final int hash;
+
+    /**
+     * Creates a new {@code Key}.
+     *
+     * @param builderClass The class of the builder.
+     * @param args         The argument values, which must not
+     *                     be modified afterwards.
+     */
+    private Key(Class<?> builderClass, int[] args) {
+      this.builderClass = builderClass;
+      this.args = args;
+      this.hash = 31*builderClass.hashCode()+Arrays.hashCode(args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key)o;
+      return (this.hash == other.hash)
+        && (this.builderClass == other.builderClass)
+        && Arrays.equals(this.args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+}
@@ -1,8 +1,6 @@
 package shapes;
 
 import java.awt.Color;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
 
 /**
  * A class to represent any circle, a special case of an
@@ -59,6 +57,26 @@ public class Circle extends Ellipse {
     return Math.PI*this.getWidth();
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The test is done in fixed point, using coordinates
+   * doubled and relative to the centre: with
+   * {@code u = 2*dx - diameter} and
+   * {@code v = 2*dy - diameter}, the point is inside when
+   * {@code u*u + v*v < diameter*diameter}.
+   */
+  @Override
+  public boolean contains(int x, int y) {
+    long d = this.getWidth();
+    long u = 2*((long)x-this.getX())-d;
+    long v = 2*((long)this.getY()-y)-d;
+    if ((u < -d) || (u >= d) || (v < -d) || (v >= d)) {
+      return false;
+    }
+    return u*u+v*v < d*d;
+  }
+
   /**
    * Gets the diameter of this {@code Circle}. Equal to both
    * the width and height of the parent {@code Ellipse}.
@@ -74,26 +92,25 @@ public class Circle extends Ellipse {
    * diameter in addition to those from {@code ShapeBuilder}.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public static class Builder extends ShapeBuilder {
     /** The {@code String} to represent the argument of diameter. */
     private static final String DIAMETER = "Diameter";
     /**
-     * The set of arguments this {@code Builder} requires in
-     * addition to inherited arguments.
+     * The arguments this {@code Builder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(Builder.DIAMETER, 0))
-      );
+    private static final Schema SCHEMA = ShapeBuilder.SCHEMA.extend(new Arg(Builder.DIAMETER, 0));
+    /** The slot of the diameter argument. */
+    private static final int DIAMETER_SLOT = Builder.SCHEMA.getSlot(Builder.DIAMETER);
 
     /**
      * Creates a {@code Circle} builder which uses diameter to
      * construct a {@code Circle}.
      */
     public Builder() {
-      super("Circle", "Lengths", Builder.REQUIRED_ARGS);
+      super("Circle", "Lengths", Builder.SCHEMA);
     }
 
     @Override
@@ -101,11 +118,16 @@ public class Circle extends Ellipse {
       return new Circle(
         this.getX(),
         this.getY(),
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
-        this.getArg(Builder.DIAMETER)
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
+        this.getArg(Builder.DIAMETER_SLOT)
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      return ShapeBuilder.checkDimension(Builder.DIAMETER, this.getDiameter());
+    }
+
     /**
      * Sets the diameter argument of this {@code Builder}.
      *
@@ -114,7 +136,7 @@ public class Circle extends Ellipse {
      * @return {@code Builder}, this {@code Builder}.
      */
     public Builder withDiameter(int diameter) {
-      this.withArg(Builder.DIAMETER, diameter);
+      this.setArg(Builder.DIAMETER_SLOT, diameter);
       return this;
     }
 
@@ -125,7 +147,7 @@ public class Circle extends Ellipse {
      *         {@code Builder}.
      */
     public int getDiameter() {
-      return this.getArg(Builder.DIAMETER);
+      return this.getArg(Builder.DIAMETER_SLOT);
     }
   }
 }
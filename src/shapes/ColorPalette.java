@@ -0,0 +1,195 @@
+package shapes;
+
+import java.awt.Color;
+
+/**
+ * The global palette of the {@code Color}s used by
+ * {@code Shape}s. Each distinct colour is interned once and
+ * given a small index, so shapes of the same colour draw
+ * with the very same {@code Color}.
+ * <p>
+ * Colours are never removed, so the palette only interns
+ * the first {@link #MAX_COLORS} distinct colours, which is
+ * plenty for scenes drawn by hand. Past that, a colour has
+ * no index, and a {@code Shape} of that colour keeps only
+ * its packed ARGB value and makes a {@code Color} from it
+ * whenever it is drawn, so a scene with millions of colours
+ * doesn't hold on to a {@code Color} for each of them.
+ * <p>
+ * The indices are kept in an open addressing table of
+ * primitive {@code int}s, big enough for every colour the
+ * palette can hold, so it never grows. Looking up a colour
+ * by index, or the index of a colour already in the
+ * palette, never locks, so it is cheap enough to do on
+ * every draw and threads building shapes at once don't
+ * contend; only adding a new colour is synchronized.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+public final class ColorPalette {
+  /** The most colours the palette interns. */
+  public static final int MAX_COLORS = 4096;
+  /** The index of a colour which is not in the palette. */
+  public static final int NOT_INTERNED = -1;
+
+  /**
+   * The number of slots in the table of indices, a power of
+   * 2 at least twice {@code MAX_COLORS}, so probes stay
+   * short.
+   */
+  private static final int TABLE_SIZE = 2*ColorPalette.MAX_COLORS;
+
+  /**
+   * The packed ARGB value of the colour in each slot of the
+   * table. Only written while holding the lock.
+   */
+  private static final int[] KEYS = new int[ColorPalette.TABLE_SIZE];
+  /**
+   * The index plus one of the colour in each slot of the
+   * table, or 0 if the slot is empty. Only written while
+   * holding the lock, after the slot's key.
+   */
+  private static final int[] VALUES = new int[ColorPalette.TABLE_SIZE];
+  /** The interned colours, by index. */
+  private static final Color[] COLORS = new Color[ColorPalette.MAX_COLORS];
+  /**
+   * The number of interned colours. It is written last when
+   * a colour is added, so a thread which reads it sees every
+   * colour and slot written before it.
+   */
+  private static volatile int numColors = 0;
+
+  /**
+   * Don't let anyone instantiate this class.
+   */
+  private ColorPalette() {
+  }
+
+  /**
+   * Gets the index of the given packed ARGB colour in the
+   * palette, interning it if it is not in the palette yet
+   * and the palette is not full.
+   *
+   * @param argb The colour, packed as by
+   *             {@link Color#getRGB()}.
+   * @return int, the index of the colour, or
+   *         {@link #NOT_INTERNED} if the palette is full.
+   */
+  public static int indexOf(int argb) {
+    int index = ColorPalette.find(argb, ColorPalette.numColors);
+    if (index != ColorPalette.NOT_INTERNED) {
+      return index;
+    }
+    synchronized (ColorPalette.KEYS) {
+      // another thread may have added it since
+      int size = ColorPalette.numColors;
+      index = ColorPalette.find(argb, size);
+      if ((index != ColorPalette.NOT_INTERNED) || (size == ColorPalette.MAX_COLORS)) {
+        return index;
+      }
+      ColorPalette.COLORS[size] = new Color(argb, true);
+      int slot = ColorPalette.slotOf(argb);
+      while (ColorPalette.VALUES[slot] != 0) {
+        slot = (slot+1) & (ColorPalette.TABLE_SIZE-1);
+      }
+      ColorPalette.KEYS[slot] = argb;
+      ColorPalette.VALUES[slot] = size+1;
+      ColorPalette.numColors = size+1;
+      return size;
+    }
+  }
+
+  /**
+   * Gets the index of the given {@code Color} in the palette,
+   * interning it if it is not in the palette yet and the
+   * palette is not full.
+   *
+   * @param color The colour to look up.
+   * @return int, the index of the colour, or
+   *         {@link #NOT_INTERNED} if the palette is full.
+   */
+  public static int indexOf(Color color) {
+    return ColorPalette.indexOf(color.getRGB());
+  }
+
+  /**
+   * Gets the interned {@code Color} at the given index.
+   *
+   * @param index The index of the colour, as returned by
+   *              {@link #indexOf(int)}.
+   * @return Color, the interned colour.
+   */
+  public static Color get(int index) {
+    return ColorPalette.COLORS[index];
+  }
+
+  /**
+   * Gets the interned {@code Color} with the given
+   * components, which are opaque, interning it if needed.
+   * Used by builders instead of creating a new {@code Color}
+   * for every {@code Shape}. If the palette is full, a new
+   * {@code Color} is made instead.
+   *
+   * @param r The red component, from 0 to 255.
+   * @param g The green component, from 0 to 255.
+   * @param b The blue component, from 0 to 255.
+   * @return Color, the colour.
+   */
+  public static Color get(int r, int g, int b) {
+    int argb = 0xFF000000 | ((r&0xFF) << 16) | ((g&0xFF) << 8) | (b&0xFF);
+    int index = ColorPalette.indexOf(argb);
+    if (index == ColorPalette.NOT_INTERNED) {
+      return new Color(argb, true);
+    }
+    return ColorPalette.get(index);
+  }
+
+  /**
+   * Gets the number of colours in the palette.
+   *
+   * @return int, the number of interned colours.
+   */
+  public static int size() {
+    return ColorPalette.numColors;
+  }
+
+  /**
+   * Finds the index of a colour among the first colours
+   * interned, without locking. A slot written after the
+   * given number of colours was read may not be seen in
+   * full, so any index past it is not trusted.
+   *
+   * @param argb The colour, packed as by
+   *             {@link Color#getRGB()}.
+   * @param size The number of colours, as read before the
+   *             table.
+   * @return int, the index of the colour, or
+   *         {@link #NOT_INTERNED} if it was not found.
+   */
+  private static int find(int argb, int size) {
+    int slot = ColorPalette.slotOf(argb);
+    int value;
+    while ((value = ColorPalette.VALUES[slot]) != 0) {
+      if ((value <= size) && (ColorPalette.KEYS[slot] == argb)) {
+        return value-1;
+      }
+      slot = (slot+1) & (ColorPalette.TABLE_SIZE-1);
+    }
+    return ColorPalette.NOT_INTERNED;
+  }
+
+  /**
+   * Gets the slot of the table a colour's probe starts at.
+   *
+   * @param argb The colour, packed as by
+   *             {@link Color#getRGB()}.
+   * @return int, the first slot to probe.
+   */
+  private static int slotOf(int argb) {
+    // spread the bits, since nearby colours differ only in
+    // their low bits
+    int hash = argb*0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (ColorPalette.TABLE_SIZE-1);
+  }
+}
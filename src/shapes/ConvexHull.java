@@ -0,0 +1,279 @@
+package shapes;
+
+import java.util.Arrays;
+
+/**
+ * The convex hull of a polygon, used to rule out points and
+ * other shapes before testing the exact geometry of a
+ * polygon with many vertices. Anything outside the hull is
+ * outside the polygon, whether or not the polygon is
+ * simple. The hull is found with Andrew's monotone chain
+ * algorithm:
+ * https://en.wikibooks.org/wiki/Algorithm_Implementation/Geometry/Convex_hull/Monotone_chain.
+ * <p>
+ * Like {@code EdgeIntervalTree}, the hull is stored
+ * relative to an origin given when building, so it stays
+ * valid when the polygon is translated. All tests are
+ * inclusive of the hull's edges, since a hull must never
+ * reject anything its polygon could contain.
+ *
+ * @author Kevin Qiao
+ * @version 1.1
+ */
+final class ConvexHull {
+  /** The x coordinates of the hull's vertices, anticlockwise. */
+  private final int[] xs;
+  /** The y coordinates of the hull's vertices, anticlockwise. */
+  private final int[] ys;
+  /** The number of vertices in the hull. */
+  private final int n;
+  /** The smallest circle enclosing the hull, found lazily. */
+  private BoundingCircle boundingCircle;
+
+  /**
+   * Builds the convex hull of the polygon given by the
+   * coordinate arrays, with all coordinates stored relative
+   * to the given origin.
+   *
+   * @param xs      The x coordinates of the polygon's
+   *                vertices.
+   * @param ys      The y coordinates of the polygon's
+   *                vertices.
+   * @param n       The number of vertices in the polygon.
+   * @param originX The x coordinate to store vertices
+   *                relative to.
+   * @param originY The y coordinate to store vertices
+   *                relative to.
+   */
+  ConvexHull(int[] xs, int[] ys, int n, int originX, int originY) {
+    // sort by x then y, packed into longs so that primitive
+    // sorting can be used
+    long[] sorted = new long[n];
+    for (int i = 0; i < n; ++i) {
+      sorted[i] = ConvexHull.pack(xs[i]-originX, ys[i]-originY);
+    }
+    Arrays.sort(sorted);
+
+    int[] hullXs = new int[n+1];
+    int[] hullYs = new int[n+1];
+    int size = 0;
+
+    // lower hull, then upper hull, each popping vertices that
+    // would make a clockwise (or straight) turn
+    for (int pass = 0; pass < 2; ++pass) {
+      int chainStart = size;
+      for (int k = 0; k < n; ++k) {
+        long point = sorted[(pass == 0) ? k : n-1-k];
+        if ((k > 0) && (point == sorted[(pass == 0) ? k-1 : n-k])) {
+          continue;
+        }
+        int x = ConvexHull.unpackX(point);
+        int y = ConvexHull.unpackY(point);
+        while (
+          (size >= chainStart+2)
+          && (ConvexHull.cross(
+            hullXs[size-2],
+            hullYs[size-2],
+            hullXs[size-1],
+            hullYs[size-1],
+            x,
+            y
+          ) <= 0)
+        ) {
+          --size;
+        }
+        hullXs[size] = x;
+        hullYs[size] = y;
+        ++size;
+      }
+      // the last vertex of each chain is the first of the next
+      --size;
+    }
+
+    this.xs = Arrays.copyOf(hullXs, Math.max(size, 1));
+    this.ys = Arrays.copyOf(hullYs, Math.max(size, 1));
+    this.n = Math.max(size, 1);
+  }
+
+  /**
+   * Packs a pair of coordinates into a {@code long} which
+   * sorts by x, then by y.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return long, the packed coordinates.
+   */
+  private static long pack(int x, int y) {
+    return ((long)x << 32)+((long)y-Integer.MIN_VALUE);
+  }
+
+  /**
+   * Gets the x coordinate from a packed pair of coordinates.
+   *
+   * @param packed The packed coordinates.
+   * @return int, the x coordinate.
+   */
+  private static int unpackX(long packed) {
+    // the low half is never negative, so never borrows from x
+    return (int)(packed >> 32);
+  }
+
+  /**
+   * Gets the y coordinate from a packed pair of coordinates.
+   *
+   * @param packed The packed coordinates.
+   * @return int, the y coordinate.
+   */
+  private static int unpackY(long packed) {
+    return (int)((packed & 0xffffffffL)+Integer.MIN_VALUE);
+  }
+
+  /**
+   * Calculates the sign of the cross product of
+   * {@code (b-a)} and {@code (c-a)}, which is positive when
+   * {@code a, b, c} make an anticlockwise turn. The product
+   * itself can take more than 64 bits, so only its sign is
+   * found.
+   *
+   * @param ax The x coordinate of a.
+   * @param ay The y coordinate of a.
+   * @param bx The x coordinate of b.
+   * @param by The y coordinate of b.
+   * @param cx The x coordinate of c.
+   * @param cy The y coordinate of c.
+   * @return int, the sign of the cross product.
+   */
+  private static int cross(long ax, long ay, long bx, long by, long cx, long cy) {
+    if (ArbitrarySimplePolygon.isProductLess(bx-ax, cy-ay, by-ay, cx-ax)) {
+      return -1;
+    } else if (ArbitrarySimplePolygon.isProductLess(by-ay, cx-ax, bx-ax, cy-ay)) {
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Returns whether or not the given point, relative to the
+   * origin this hull was built with, is inside or on the
+   * hull. Runs in {@code O(log h)} time for a hull with
+   * {@code h} vertices, by binary searching the fan of
+   * triangles around the first vertex.
+   *
+   * @param px The x coordinate of the point, relative to the
+   *           origin.
+   * @param py The y coordinate of the point, relative to the
+   *           origin.
+   * @return boolean, true if the point is inside or on the
+   *         hull, false otherwise.
+   */
+  boolean contains(long px, long py) {
+    if (this.n < 3) {
+      // degenerate hulls are only used to reject, and a point
+      // or segment can be left to the exact test
+      return true;
+    }
+    long x0 = this.xs[0];
+    long y0 = this.ys[0];
+    if (
+      (ConvexHull.cross(x0, y0, this.xs[1], this.ys[1], px, py) < 0)
+      || (ConvexHull.cross(x0, y0, this.xs[this.n-1], this.ys[this.n-1], px, py) > 0)
+    ) {
+      return false;
+    }
+
+    // find the wedge from vertex 0 which contains the point
+    int low = 1;
+    int high = this.n-1;
+    while (high-low > 1) {
+      int mid = (low+high) >>> 1;
+      if (ConvexHull.cross(x0, y0, this.xs[mid], this.ys[mid], px, py) >= 0) {
+        low = mid;
+      } else {
+        high = mid;
+      }
+    }
+    return ConvexHull.cross(
+      this.xs[low],
+      this.ys[low],
+      this.xs[high],
+      this.ys[high],
+      px,
+      py
+    ) >= 0;
+  }
+
+  /**
+   * Gets the smallest circle enclosing this hull, and so the
+   * polygon, relative to the origin this hull was built with.
+   *
+   * @return BoundingCircle, the smallest enclosing circle.
+   */
+  BoundingCircle getBoundingCircle() {
+    if (this.boundingCircle == null) {
+      this.boundingCircle = BoundingCircle.enclosing(this.xs, this.ys, this.n);
+    }
+    return this.boundingCircle;
+  }
+
+  /**
+   * Returns whether or not one of this hull's edges is a
+   * separating axis between this hull and the given hull, so
+   * the two cannot overlap. Only this hull's edges are tried,
+   * so the test should be made both ways around.
+   *
+   * @param other The other hull.
+   * @param dx    The x offset of the other hull's origin from
+   *              this hull's origin.
+   * @param dy    The y offset of the other hull's origin from
+   *              this hull's origin.
+   * @return boolean, true if the hulls are separated.
+   */
+  boolean separates(ConvexHull other, long dx, long dy) {
+    for (int i = 0; i < this.n; ++i) {
+      int j = (i+1 == this.n) ? 0 : i+1;
+      long ex = (long)this.xs[j]-this.xs[i];
+      long ey = (long)this.ys[j]-this.ys[i];
+      // the outward normal of an anticlockwise edge is (ey, -ex),
+      // and all of this hull is at or behind the edge
+      boolean allAhead = true;
+      for (int k = 0; (k < other.n) && allAhead; ++k) {
+        long ox = other.xs[k]+dx-this.xs[i];
+        long oy = other.ys[k]+dy-this.ys[i];
+        allAhead = ArbitrarySimplePolygon.isProductLess(oy, ex, ox, ey);
+      }
+      if (allAhead) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether or not one of this hull's edges is a
+   * separating axis between this hull and the given
+   * axis-aligned ellipse, so the two cannot overlap.
+   *
+   * @param centerX The x coordinate of the ellipse's centre,
+   *                relative to this hull's origin.
+   * @param centerY The y coordinate of the ellipse's centre,
+   *                relative to this hull's origin.
+   * @param a       The horizontal semi-axis of the ellipse.
+   * @param b       The vertical semi-axis of the ellipse.
+   * @return boolean, true if the hull and ellipse are
+   *         separated.
+   */
+  boolean separatesEllipse(double centerX, double centerY, double a, double b) {
+    for (int i = 0; i < this.n; ++i) {
+      int j = (i+1 == this.n) ? 0 : i+1;
+      double nx = (double)this.ys[j]-this.ys[i];
+      double ny = (double)this.xs[i]-this.xs[j];
+      // support distance of the ellipse along the normal
+      double extent = Math.sqrt(a*a*nx*nx+b*b*ny*ny);
+      double distance = (centerX-this.xs[i])*nx+(centerY-this.ys[i])*ny;
+      if (distance-extent > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
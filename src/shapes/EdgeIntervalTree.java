@@ -0,0 +1,294 @@
+package shapes;
+
+import java.util.Arrays;
+
+/**
+ * A point location structure for polygons with many
+ * vertices. The non-horizontal edges of a polygon are
+ * stored in a centered interval tree keyed on their y
+ * ranges, so that the edges which a horizontal ray at some
+ * y coordinate crosses can be found in
+ * {@code O(log n + k)} time, where {@code k} is the number
+ * of edges actually crossed, instead of testing all
+ * {@code n} edges.
+ * <p>
+ * Edges are stored relative to an origin given when
+ * building, so a polygon which is translated can keep using
+ * the same tree by querying relative to its new position.
+ * The tree is immutable once built.
+ * <p>
+ * Insideness follows the same even-odd rule and half open
+ * edge ranges as
+ * {@link ArbitrarySimplePolygon#crossingTest(int[], int[], int, int, int)}.
+ *
+ * @author Kevin Qiao
+ * @version 1.1
+ */
+final class EdgeIntervalTree {
+  /** The x coordinates of the lower end of each edge. */
+  private final int[] lowX;
+  /** The y coordinates of the lower end of each edge. */
+  private final int[] lowY;
+  /** The x coordinates of the upper end of each edge. */
+  private final int[] highX;
+  /** The y coordinates of the upper end of each edge. */
+  private final int[] highY;
+
+  /**
+   * Edge indices, grouped by node, where each node's group is
+   * sorted by ascending lower y coordinate.
+   */
+  private final int[] byLowY;
+  /**
+   * Edge indices, grouped by node, where each node's group is
+   * sorted by descending upper y coordinate.
+   */
+  private final int[] byHighY;
+
+  /** The y coordinate each node's edges all span. */
+  private final int[] nodeCenter;
+  /** The index of each node's lower child, or -1. */
+  private final int[] nodeBelow;
+  /** The index of each node's upper child, or -1. */
+  private final int[] nodeAbove;
+  /** The start of each node's group in the sorted indices. */
+  private final int[] nodeStart;
+  /** The number of edges in each node's group. */
+  private final int[] nodeCount;
+  /** The number of nodes in this tree. */
+  private int numNodes;
+  /** The index of the root node, or -1 if there are no edges. */
+  private final int root;
+
+  /**
+   * Builds a new {@code EdgeIntervalTree} for the polygon
+   * given by the coordinate arrays, with all coordinates
+   * stored relative to the given origin.
+   *
+   * @param xs      The x coordinates of the polygon's
+   *                vertices.
+   * @param ys      The y coordinates of the polygon's
+   *                vertices.
+   * @param n       The number of vertices in the polygon.
+   * @param originX The x coordinate to store edges relative
+   *                to.
+   * @param originY The y coordinate to store edges relative
+   *                to.
+   */
+  EdgeIntervalTree(int[] xs, int[] ys, int n, int originX, int originY) {
+    this.lowX = new int[n];
+    this.lowY = new int[n];
+    this.highX = new int[n];
+    this.highY = new int[n];
+
+    // horizontal edges can never cross a horizontal ray, so
+    // they are left out entirely
+    int numEdges = 0;
+    int lastX = xs[n-1]-originX;
+    int lastY = ys[n-1]-originY;
+    for (int i = 0; i < n; ++i) {
+      int curX = xs[i]-originX;
+      int curY = ys[i]-originY;
+      if (curY < lastY) {
+        this.lowX[numEdges] = curX;
+        this.lowY[numEdges] = curY;
+        this.highX[numEdges] = lastX;
+        this.highY[numEdges] = lastY;
+        ++numEdges;
+      } else if (curY > lastY) {
+        this.lowX[numEdges] = lastX;
+        this.lowY[numEdges] = lastY;
+        this.highX[numEdges] = curX;
+        this.highY[numEdges] = curY;
+        ++numEdges;
+      }
+      lastX = curX;
+      lastY = curY;
+    }
+
+    this.byLowY = new int[numEdges];
+    this.byHighY = new int[numEdges];
+    // a centered interval tree has at most one node per edge
+    this.nodeCenter = new int[numEdges];
+    this.nodeBelow = new int[numEdges];
+    this.nodeAbove = new int[numEdges];
+    this.nodeStart = new int[numEdges];
+    this.nodeCount = new int[numEdges];
+    this.numNodes = 0;
+
+    int[] edges = new int[numEdges];
+    for (int i = 0; i < numEdges; ++i) {
+      edges[i] = i;
+    }
+    this.root = this.buildNode(edges, 0, numEdges, new int[numEdges], 0);
+  }
+
+  /**
+   * Recursively builds the node containing the edges in the
+   * given range of {@code edges}, and returns its index.
+   * Edges which lie entirely below the node's center are
+   * moved to the front of the range and built into the lower
+   * child, and edges entirely above are moved to the back and
+   * built into the upper child.
+   *
+   * @param edges    The edge indices to build from, which
+   *                 will be reordered.
+   * @param from     The start (inclusive) of the range.
+   * @param to       The end (exclusive) of the range.
+   * @param scratch  A scratch array at least as long as
+   *                 {@code edges}.
+   * @param outStart The next free position in the sorted
+   *                 index arrays.
+   * @return int, the index of the built node, or -1 if the
+   *         range was empty.
+   */
+  private int buildNode(int[] edges, int from, int to, int[] scratch, int outStart) {
+    if (from >= to) {
+      return -1;
+    }
+
+    // the median midpoint is always spanned by at least one
+    // edge, so every node is non-empty and the tree is
+    // balanced by edge count
+    long[] midpoints = new long[to-from];
+    for (int i = from; i < to; ++i) {
+      midpoints[i-from] = ((long)this.lowY[edges[i]]+this.highY[edges[i]]) >> 1;
+    }
+    Arrays.sort(midpoints);
+    int center = (int)midpoints[midpoints.length/2];
+
+    int numBelow = 0;
+    int numSpanning = 0;
+    int numAbove = 0;
+    for (int i = from; i < to; ++i) {
+      int edge = edges[i];
+      if (this.highY[edge] <= center) {
+        edges[from+numBelow] = edge;
+        ++numBelow;
+      } else if (this.lowY[edge] > center) {
+        scratch[numAbove] = edge;
+        ++numAbove;
+      } else {
+        this.byLowY[outStart+numSpanning] = edge;
+        ++numSpanning;
+      }
+    }
+    System.arraycopy(scratch, 0, edges, to-numAbove, numAbove);
+
+    int node = this.numNodes;
+    ++this.numNodes;
+    this.nodeCenter[node] = center;
+    this.nodeStart[node] = outStart;
+    this.nodeCount[node] = numSpanning;
+    this.sortGroup(outStart, numSpanning);
+
+    int nextStart = outStart+numSpanning;
+    this.nodeBelow[node] = this.buildNode(edges, from, from+numBelow, scratch, nextStart);
+    this.nodeAbove[node] = this.buildNode(
+      edges,
+      to-numAbove,
+      to,
+      scratch,
+      nextStart+numBelow
+    );
+    return node;
+  }
+
+  /**
+   * Sorts a node's group of edge indices, by ascending lower
+   * y into {@code byLowY} and descending upper y into
+   * {@code byHighY}. The group must already be present in
+   * {@code byLowY}.
+   *
+   * @param start The start of the group.
+   * @param count The number of edges in the group.
+   */
+  private void sortGroup(int start, int count) {
+    // pack (key, index) pairs into longs so that primitive
+    // sorting can be used
+    long[] keys = new long[count];
+    for (int i = 0; i < count; ++i) {
+      int edge = this.byLowY[start+i];
+      keys[i] = ((long)this.lowY[edge] << 32) | edge;
+    }
+    Arrays.sort(keys);
+    for (int i = 0; i < count; ++i) {
+      this.byLowY[start+i] = (int)keys[i];
+    }
+
+    for (int i = 0; i < count; ++i) {
+      int edge = this.byLowY[start+i];
+      keys[i] = ((long)this.highY[edge] << 32) | edge;
+    }
+    Arrays.sort(keys);
+    for (int i = 0; i < count; ++i) {
+      this.byHighY[start+count-1-i] = (int)keys[i];
+    }
+  }
+
+  /**
+   * Returns whether or not the given point, relative to the
+   * origin this tree was built with, is inside the polygon by
+   * the even-odd rule.
+   *
+   * @param px The x coordinate of the point to test, relative
+   *           to the origin.
+   * @param py The y coordinate of the point to test, relative
+   *           to the origin.
+   * @return boolean, true if the point is inside the
+   *         polygon, false otherwise.
+   */
+  boolean contains(long px, long py) {
+    boolean inside = false;
+    int node = this.root;
+
+    while (node != -1) {
+      int start = this.nodeStart[node];
+      int end = start+this.nodeCount[node];
+      int center = this.nodeCenter[node];
+
+      if (py < center) {
+        // every edge here reaches above py, so only the lower
+        // ends need checking
+        for (int i = start; (i < end) && (this.lowY[this.byLowY[i]] <= py); ++i) {
+          inside ^= this.isLeftOf(this.byLowY[i], px, py);
+        }
+        node = this.nodeBelow[node];
+      } else {
+        // every edge here reaches down to py, so only the
+        // upper ends need checking
+        for (int i = start; (i < end) && (this.highY[this.byHighY[i]] > py); ++i) {
+          inside ^= this.isLeftOf(this.byHighY[i], px, py);
+        }
+        if (py == center) {
+          break;
+        }
+        node = this.nodeAbove[node];
+      }
+    }
+    return inside;
+  }
+
+  /**
+   * Returns whether or not the given point lies strictly left
+   * of the given edge, at the point's y coordinate. The edge
+   * must span the point's y coordinate.
+   *
+   * @param edge The index of the edge.
+   * @param px   The x coordinate of the point.
+   * @param py   The y coordinate of the point.
+   * @return boolean, true if the point is left of the edge.
+   */
+  private boolean isLeftOf(int edge, long px, long py) {
+    long x0 = this.lowX[edge];
+    long y0 = this.lowY[edge];
+    // the edge always points upwards, so the cross product
+    // comparison never needs flipping
+    return ArbitrarySimplePolygon.isProductLess(
+      px-x0,
+      this.highY[edge]-y0,
+      this.highX[edge]-x0,
+      py-y0
+    );
+  }
+}
@@ -2,20 +2,25 @@ package shapes;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Point;
 import java.awt.Rectangle;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
 
 /**
  * A class to represent any ellipse. Stores the width and
  * height (the length of the horizontal and vertical axes).
  *
  * @author Kevin Qiao
- * @version 1.3
+ * @version 1.4
  */
 public class Ellipse extends Shape {
   private static final long serialVersionUID = 1602471616L;
+  /**
+   * The largest {@code width*height} for which the fixed
+   * point test in {@link #contains(int, int)} cannot
+   * overflow, i.e. {@code floor(sqrt(Long.MAX_VALUE))}. Each
+   * side of the test is a single product of at most
+   * {@code width*width*height*height}.
+   */
+  private static final long FIXED_POINT_LIMIT = 3037000499L;
 
   /** The width of this {@code Ellipse}. */
   private final int width;
@@ -73,21 +78,78 @@ public class Ellipse extends Shape {
     return Math.PI*(a+b)*(1+(h/(10+Math.sqrt(4-h))));
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The test is done in fixed point, using coordinates
+   * doubled and relative to the centre so that everything
+   * stays integral: with {@code u = 2*dx - width} and
+   * {@code v = 2*dy - height}, the point is inside when
+   * {@code u*u*height*height + v*v*width*width <
+   * width*width*height*height}. That is rearranged to
+   * {@code u*u*height*height < (height*height -
+   * v*v)*width*width}, so no sum of products is ever formed,
+   * and neither side can exceed
+   * {@code width*width*height*height}. Ellipses too large for
+   * that to fit in a {@code long} fall back to floating
+   * point.
+   */
   @Override
-  public boolean contains(Point p) {
-    int dx = p.x - this.getX();
-    int dy = this.getY() - p.y;
-    return (dx >= 0) && (dx < this.width) && (dy >= 0) && (dy < this.height);
+  public boolean contains(int x, int y) {
+    long w = this.width;
+    long h = this.height;
+    long u = 2*((long)x-this.getX())-w;
+    long v = 2*((long)this.getY()-y)-h;
+    if ((u < -w) || (u >= w) || (v < -h) || (v >= h)) {
+      return false;
+    }
+    if (w*h > Ellipse.FIXED_POINT_LIMIT) {
+      double du = u/(double)w;
+      double dv = v/(double)h;
+      return du*du+dv*dv < 1;
+    }
+    // |u| <= w and |v| <= h here, so both sides are at most
+    // w*w*h*h, which fits below the limit
+    return u*u*h*h < (h*h-v*v)*w*w;
   }
 
   @Override
-  public void draw(Graphics g) {
-    g.setColor(this.getColor());
+  public void fill(Graphics g) {
     g.translate(0, -this.height);
     g.fillOval(this.getX(), this.getY(), this.width, this.height);
     g.translate(0, this.height);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The circle is centred on the centre of this
+   * {@code Ellipse}, with a radius of its larger semi-axis.
+   */
+  @Override
+  public BoundingCircle getBoundingCircle() {
+    return new BoundingCircle(
+      this.getX()+this.width/2.0,
+      this.getY()-this.height/2.0,
+      Math.max(this.width, this.height)/2.0
+    );
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Tests against polygons are left to the polygon, which
+   * can also test its convex hull against this
+   * {@code Ellipse}.
+   */
+  @Override
+  public boolean mayOverlap(Shape other) {
+    if (other instanceof ArbitrarySimplePolygon) {
+      return other.mayOverlap(this);
+    }
+    return super.mayOverlap(other);
+  }
+
   @Override
   public Rectangle getBounds() {
     return new Rectangle(this.getX(), this.getY(), this.getWidth(), this.getHeight());
@@ -117,7 +179,7 @@ public class Ellipse extends Shape {
    * {@code ShapeBuilder}.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public static class Builder extends ShapeBuilder {
     /** The {@code String} to represent the argument of width. */
@@ -125,23 +187,24 @@ public class Ellipse extends Shape {
     /** The {@code String} to represent the argument of height. */
     private static final String HEIGHT = "Height";
     /**
-     * The set of arguments this {@code Builder} requires in
-     * addition to inherited arguments.
+     * The arguments this {@code Builder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(
-          new Arg(Builder.WIDTH, 0),
-          new Arg(Builder.HEIGHT, 0)
-        )
-      );
+    private static final Schema SCHEMA = ShapeBuilder.SCHEMA.extend(
+      new Arg(Builder.WIDTH, 0),
+      new Arg(Builder.HEIGHT, 0)
+    );
+    /** The slot of the width argument. */
+    private static final int WIDTH_SLOT = Builder.SCHEMA.getSlot(Builder.WIDTH);
+    /** The slot of the height argument. */
+    private static final int HEIGHT_SLOT = Builder.SCHEMA.getSlot(Builder.HEIGHT);
 
     /**
      * Creates an {@code Ellipse} builder which uses width
      * and height to construct an {@code Ellipse}.
      */
     public Builder() {
-      super("Ellipse", "Lengths", Builder.REQUIRED_ARGS);
+      super("Ellipse", "Lengths", Builder.SCHEMA);
     }
 
     @Override
@@ -149,12 +212,21 @@ public class Ellipse extends Shape {
       return new Ellipse(
         this.getX(),
         this.getY(),
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
-        this.getArg(Builder.WIDTH),
-        this.getArg(Builder.HEIGHT)
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
+        this.getArg(Builder.WIDTH_SLOT),
+        this.getArg(Builder.HEIGHT_SLOT)
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      Validation validation = ShapeBuilder.checkDimension(Builder.WIDTH, this.getWidth());
+      if (!validation.isValid()) {
+        return validation;
+      }
+      return ShapeBuilder.checkDimension(Builder.HEIGHT, this.getHeight());
+    }
+
     /**
      * Sets the width argument of this {@code Builder}.
      *
@@ -162,7 +234,7 @@ public class Ellipse extends Shape {
      * @return {@code Builder}, this {@code Builder}.
      */
     public Builder withWidth(int width) {
-      this.withArg(Builder.WIDTH, width);
+      this.setArg(Builder.WIDTH_SLOT, width);
       return this;
     }
 
@@ -173,7 +245,7 @@ public class Ellipse extends Shape {
      * @return {@code Builder}, this {@code Builder}.
      */
     public Builder withHeight(int height) {
-      this.withArg(Builder.HEIGHT, height);
+      this.setArg(Builder.HEIGHT_SLOT, height);
       return this;
     }
 
@@ -183,7 +255,7 @@ public class Ellipse extends Shape {
      * @return int, the width argument of this {@code Builder}.
      */
     public int getWidth() {
-      return this.getArg(Builder.WIDTH);
+      return this.getArg(Builder.WIDTH_SLOT);
     }
 
     /**
@@ -192,7 +264,7 @@ public class Ellipse extends Shape {
      * @return int, the height argument of this {@code Builder}.
      */
     public int getHeight() {
-      return this.getArg(Builder.HEIGHT);
+      return this.getArg(Builder.HEIGHT_SLOT);
     }
   }
 }
@@ -0,0 +1,635 @@
+package shapes;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A read-only view of an indexed scene file, written by a
+ * {@code SceneFileWriter}, which is memory-mapped rather
+ * than read. Opening only reads the index at the end of the
+ * file, so it takes the same time for a file of any size.
+ * <p>
+ * {@code Shape}s are only created when a query, such as the
+ * shapes in a region or at a point, touches them. Queries
+ * scan the bounding boxes stored in the file, skipping every
+ * block whose bounds miss, and only the shapes which match
+ * are created. The rest of the file stays in the operating
+ * system's page cache, and is never copied onto the heap.
+ * The shapes of the most recently used blocks are kept, so
+ * repeated queries of the same area, such as repainting a
+ * viewport, return the same {@code Shape}s without creating
+ * them again.
+ * <p>
+ * Changes to the returned {@code Shape}s are not written
+ * back. Shapes can be found by index, and removed from the
+ * view, for example to be edited elsewhere, which also only
+ * happens in memory.
+ * <p>
+ * A {@code MappedScene} is thread safe. It must be closed
+ * once it is no longer needed, after which it cannot be
+ * used; the mapped memory is released once the buffers
+ * mapping it are collected.
+ *
+ * @author Kevin Qiao
+ * @version 1.1
+ */
+public final class MappedScene implements AutoCloseable {
+  /** The most bytes to map in one buffer. */
+  private static final long MAX_SEGMENT_BYTES = 1L << 30;
+  /** The default number of blocks to keep the shapes of. */
+  private static final int DEFAULT_CACHE_BLOCKS = 256;
+
+  /** The mapped file. */
+  private FileChannel channel;
+  /** The mapped segments of the file, each of whole blocks. */
+  private MappedByteBuffer[] segments;
+  /** The offset in the file of each segment. */
+  private final long[] segmentOffsets;
+  /** The segment of each block. */
+  private final int[] blockSegments;
+  /** The offset in the file of each block's data. */
+  private final long[] blockOffsets;
+  /** The length of each block's data. */
+  private final int[] blockLengths;
+  /** The index of the first shape of each block, and the total. */
+  private final long[] firstIndices;
+  /** The bounds of each block, 4 ints each. */
+  private final int[] blockBounds;
+  /** The bounds of every shape, or {@code null} if empty. */
+  private final Rectangle bounds;
+  /** The decoder of the blocks. */
+  private final SceneBlockDecoder decoder;
+  /** The shapes created of recently used blocks, by block. */
+  private final LinkedHashMap<Integer, Shape[]> materialised;
+  /** One bit for each shape, set if it has been removed. */
+  private long[] removed;
+  /** The number of shapes removed. */
+  private long numRemoved;
+
+  /**
+   * Opens and maps the given indexed scene file, keeping the
+   * shapes of up to 256 blocks.
+   *
+   * @param path The path of the scene file.
+   * @throws IOException If the file could not be opened, or
+   *                     is not an indexed scene file.
+   */
+  public MappedScene(Path path) throws IOException {
+    this(path, MappedScene.DEFAULT_CACHE_BLOCKS);
+  }
+
+  /**
+   * Opens and maps the given indexed scene file.
+   *
+   * @param path        The path of the scene file.
+   * @param cacheBlocks The number of blocks to keep the
+   *                    created shapes of.
+   * @throws IOException If the file could not be opened, or
+   *                     is not an indexed scene file.
+   */
+  public MappedScene(Path path, int cacheBlocks) throws IOException {
+    Shape.checkDimension(cacheBlocks);
+    this.decoder = new SceneBlockDecoder();
+    this.materialised = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Shape[]> eldest) {
+        return this.size() > cacheBlocks;
+      }
+    };
+
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      if (!MappedScene.isIndexed(this.channel)) {
+        throw new IOException("Not an indexed scene file: "+path);
+      }
+      long size = this.channel.size();
+      ByteBuffer trailer = MappedScene.read(
+        this.channel,
+        size-SceneFile.TRAILER_BYTES,
+        SceneFile.TRAILER_BYTES
+      );
+      long indexOffset = trailer.getLong();
+      int numBlocks = trailer.getInt();
+      if (
+        (trailer.getInt() != SceneFile.MAGIC)
+        || (numBlocks < 0)
+        || (indexOffset < SceneFile.HEADER_BYTES)
+        || (indexOffset+(long)SceneFile.INDEX_ENTRY_BYTES*numBlocks != size-SceneFile.TRAILER_BYTES)
+      ) {
+        throw new StreamCorruptedException("Corrupt scene file index");
+      }
+
+      ByteBuffer index = MappedScene.read(
+        this.channel,
+        indexOffset,
+        SceneFile.INDEX_ENTRY_BYTES*numBlocks
+      );
+      this.blockOffsets = new long[numBlocks];
+      this.blockLengths = new int[numBlocks];
+      this.firstIndices = new long[numBlocks+1];
+      this.blockBounds = new int[4*numBlocks];
+      long end = SceneFile.HEADER_BYTES;
+      long minX = Long.MAX_VALUE;
+      long minY = Long.MAX_VALUE;
+      long maxX = Long.MIN_VALUE;
+      long maxY = Long.MIN_VALUE;
+      for (int i = 0; i < numBlocks; ++i) {
+        long offset = index.getLong();
+        int length = index.getInt();
+        int count = index.getInt();
+        if (
+          (offset < end)
+          || (count <= 0)
+          || (length < (long)SceneFile.BOUNDS_BYTES*count)
+          || (offset+SceneFile.BLOCK_HEADER_BYTES+length > indexOffset)
+        ) {
+          throw new StreamCorruptedException("Corrupt scene file index");
+        }
+        this.blockOffsets[i] = offset+SceneFile.BLOCK_HEADER_BYTES;
+        this.blockLengths[i] = length;
+        this.firstIndices[i+1] = this.firstIndices[i]+count;
+        for (int j = 0; j < 4; ++j) {
+          this.blockBounds[4*i+j] = index.getInt();
+        }
+        minX = Math.min(minX, this.blockBounds[4*i]);
+        maxY = Math.max(maxY, this.blockBounds[4*i+1]);
+        maxX = Math.max(maxX, (long)this.blockBounds[4*i]+this.blockBounds[4*i+2]);
+        minY = Math.min(minY, (long)this.blockBounds[4*i+1]-this.blockBounds[4*i+3]);
+        end = this.blockOffsets[i]+length;
+      }
+      this.bounds = (numBlocks == 0) ? null : new Rectangle(
+        (int)minX,
+        (int)maxY,
+        (int)Math.min(Integer.MAX_VALUE, maxX-minX),
+        (int)Math.min(Integer.MAX_VALUE, maxY-minY)
+      );
+
+      // each segment holds whole blocks, so that a block can
+      // always be read from a single buffer
+      this.blockSegments = new int[numBlocks];
+      ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+      ArrayList<Long> segmentOffsets = new ArrayList<>();
+      int first = 0;
+      while (first < numBlocks) {
+        long start = this.blockOffsets[first];
+        int last = first;
+        while (
+          (last+1 < numBlocks)
+          && (this.blockOffsets[last+1]+this.blockLengths[last+1]-start <= MappedScene.MAX_SEGMENT_BYTES)
+        ) {
+          ++last;
+        }
+        long length = this.blockOffsets[last]+this.blockLengths[last]-start;
+        segments.add(this.channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+        segmentOffsets.add(start);
+        for (int i = first; i <= last; ++i) {
+          this.blockSegments[i] = segments.size()-1;
+        }
+        first = last+1;
+      }
+      this.segments = segments.toArray(new MappedByteBuffer[0]);
+      this.segmentOffsets = new long[segmentOffsets.size()];
+      for (int i = 0; i < this.segmentOffsets.length; ++i) {
+        this.segmentOffsets[i] = segmentOffsets.get(i);
+      }
+    } catch (IOException | RuntimeException e) {
+      this.channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Checks whether a file is a scene file with an index,
+   * which can be opened as a {@code MappedScene}, without
+   * moving the channel's position.
+   *
+   * @param channel The file to check.
+   * @return boolean, whether the file is an indexed scene
+   *         file.
+   * @throws IOException If the file could not be read.
+   */
+  public static boolean isIndexed(FileChannel channel) throws IOException {
+    if (channel.size() < SceneFile.HEADER_BYTES+SceneFile.TRAILER_BYTES) {
+      return false;
+    }
+    ByteBuffer header = MappedScene.read(channel, 0, SceneFile.HEADER_BYTES);
+    return (header.getInt() == SceneFile.MAGIC)
+      && (header.getShort() >= 2)
+      && ((header.getShort() & SceneFile.INDEXED) != 0);
+  }
+
+  /**
+   * Gets the number of shapes in this scene, not including
+   * removed shapes.
+   *
+   * @return long, the number of shapes.
+   */
+  public synchronized long size() {
+    return this.firstIndices[this.firstIndices.length-1]-this.numRemoved;
+  }
+
+  /**
+   * Gets the bounding box of every shape in the file, in the
+   * same form as {@link Shape#getBounds()}, including removed
+   * shapes.
+   *
+   * @return Rectangle, the bounds of the scene, or
+   *         {@code null} if it has no shapes.
+   */
+  public Rectangle getBounds() {
+    return (this.bounds == null) ? null : new Rectangle(this.bounds);
+  }
+
+  /**
+   * Gets the bounding box of the shape at the given index,
+   * without creating it.
+   *
+   * @param index The index of the shape, in the order it was
+   *              written.
+   * @return Rectangle, the bounds of the shape.
+   */
+  public synchronized Rectangle getBounds(long index) {
+    int block = this.getBlock(index);
+    ByteBuffer data = this.getBlockData(block);
+    int base = SceneFile.BOUNDS_BYTES*(int)(index-this.firstIndices[block]);
+    return new Rectangle(
+      data.getInt(base),
+      data.getInt(base+4),
+      data.getInt(base+8),
+      data.getInt(base+12)
+    );
+  }
+
+  /**
+   * Gets the shape at the given index, creating it if it has
+   * not been created or has been forgotten.
+   *
+   * @param index The index of the shape, in the order it was
+   *              written.
+   * @return Shape, the shape, or {@code null} if it has been
+   *         removed.
+   */
+  public synchronized Shape get(long index) {
+    int block = this.getBlock(index);
+    if (this.isRemoved(index)) {
+      return null;
+    }
+    int count = this.getCount(block);
+    boolean[] wanted = new boolean[count];
+    int i = (int)(index-this.firstIndices[block]);
+    wanted[i] = true;
+    return this.materialise(block, this.getBlockData(block), wanted)[i];
+  }
+
+  /**
+   * Gets the shapes whose bounding boxes intersect the given
+   * rectangle, in the order they were written, creating
+   * them if needed.
+   *
+   * @param region The region to search, in the same form as
+   *               {@link Shape#getBounds()}.
+   * @return ArrayList&lt;Shape&gt;, the shapes whose bounding
+   *         boxes intersect the region.
+   */
+  public synchronized ArrayList<Shape> shapesIn(Rectangle region) {
+    return this.search(region, null, null);
+  }
+
+  /**
+   * Gets the shapes which contain the given point, in the
+   * order they were written. Only shapes whose bounding box
+   * contains the point are created and tested exactly.
+   *
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return ArrayList&lt;Shape&gt;, the shapes which contain
+   *         the point.
+   */
+  public synchronized ArrayList<Shape> shapesAt(int x, int y) {
+    return this.search(new Rectangle(x, y, 0, 0), new Point(x, y), null);
+  }
+
+  /**
+   * Gets the indices of the shapes which contain the given
+   * point, so that they can be found again with
+   * {@link #get(long)} or removed with {@link #remove(long)}.
+   *
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return long[], the indices of the shapes which contain
+   *         the point, in the order they were written.
+   */
+  public synchronized long[] indicesAt(int x, int y) {
+    ArrayList<Long> indices = new ArrayList<>();
+    this.search(new Rectangle(x, y, 0, 0), new Point(x, y), indices);
+    long[] found = new long[indices.size()];
+    for (int i = 0; i < found.length; ++i) {
+      found[i] = indices.get(i);
+    }
+    return found;
+  }
+
+  /**
+   * Removes the shape at the given index from this scene.
+   * The indices of other shapes do not change.
+   *
+   * @param index The index of the shape.
+   * @return boolean, whether or not a shape was removed.
+   */
+  public synchronized boolean remove(long index) {
+    this.getBlock(index);
+    if (this.isRemoved(index)) {
+      return false;
+    }
+    if (this.removed == null) {
+      this.removed = new long[(int)((this.firstIndices[this.firstIndices.length-1]+63)/64)];
+    }
+    this.removed[(int)(index >>> 6)] |= 1L << index;
+    ++this.numRemoved;
+    return true;
+  }
+
+  /**
+   * Writes every shape which has not been removed to the
+   * given writer, in the order they were written, a block at
+   * a time. Shapes which are not already created are created
+   * only while their block is written, and not kept.
+   *
+   * @param writer The writer to write to.
+   * @throws IOException If the shapes could not be written.
+   */
+  public synchronized void writeTo(SceneFileWriter writer) throws IOException {
+    this.checkOpen();
+    for (int block = 0; block < this.blockOffsets.length; ++block) {
+      Shape[] shapes = this.materialised.get(block);
+      if (shapes == null) {
+        shapes = new Shape[this.getCount(block)];
+      } else {
+        shapes = shapes.clone();
+      }
+      ByteBuffer data = this.getBlockData(block);
+      data.position(SceneFile.BOUNDS_BYTES*shapes.length);
+      this.decoder.decode(data, shapes, null);
+      for (int i = 0; i < shapes.length; ++i) {
+        if (!this.isRemoved(this.firstIndices[block]+i)) {
+          writer.write(shapes[i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the number of blocks whose created shapes are kept.
+   *
+   * @return int, the number of blocks kept.
+   */
+  public synchronized int getMaterialisedBlockCount() {
+    return this.materialised.size();
+  }
+
+  /**
+   * Closes the file and forgets every shape. The mapped
+   * memory is released once it is collected.
+   *
+   * @throws IOException If the file could not be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.channel != null) {
+      this.channel.close();
+      this.channel = null;
+      this.segments = null;
+      this.materialised.clear();
+    }
+  }
+
+  /**
+   * Finds the shapes whose bounding boxes intersect a region,
+   * creating them if needed.
+   *
+   * @param region The region to search, in the same form as
+   *               {@link Shape#getBounds()}.
+   * @param point  A point the shapes must contain, or
+   *               {@code null} to keep every shape found.
+   * @param indices The list to add the index of each shape
+   *                found to, or {@code null}.
+   * @return ArrayList&lt;Shape&gt;, the shapes found, in the
+   *         order they were written.
+   */
+  private ArrayList<Shape> search(Rectangle region, Point point, ArrayList<Long> indices) {
+    this.checkOpen();
+    ArrayList<Shape> found = new ArrayList<>();
+    long minX = region.x;
+    long maxX = (long)region.x+region.width;
+    long maxY = region.y;
+    long minY = (long)region.y-region.height;
+    for (int block = 0; block < this.blockOffsets.length; ++block) {
+      if (!MappedScene.intersects(this.blockBounds, 4*block, minX, maxX, minY, maxY)) {
+        continue;
+      }
+      ByteBuffer data = this.getBlockData(block);
+      int count = this.getCount(block);
+      boolean[] wanted = null;
+      for (int i = 0; i < count; ++i) {
+        if (
+          MappedScene.intersects(data, SceneFile.BOUNDS_BYTES*i, minX, maxX, minY, maxY)
+          && !this.isRemoved(this.firstIndices[block]+i)
+        ) {
+          if (wanted == null) {
+            wanted = new boolean[count];
+          }
+          wanted[i] = true;
+        }
+      }
+      if (wanted == null) {
+        continue;
+      }
+
+      Shape[] shapes = this.materialise(block, data, wanted);
+      for (int i = 0; i < count; ++i) {
+        if (
+          wanted[i]
+          && ((point == null) || shapes[i].contains(point.x, point.y))
+        ) {
+          found.add(shapes[i]);
+          if (indices != null) {
+            indices.add(this.firstIndices[block]+i);
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Creates the wanted shapes of a block which are not
+   * already kept, and keeps them.
+   *
+   * @param block  The block.
+   * @param data   The data of the block.
+   * @param wanted Whether each shape of the block is wanted.
+   * @return Shape[], the kept shapes of the block, including
+   *         every wanted shape.
+   */
+  private Shape[] materialise(int block, ByteBuffer data, boolean[] wanted) {
+    Shape[] shapes = this.materialised.get(block);
+    if (shapes == null) {
+      shapes = new Shape[wanted.length];
+      this.materialised.put(block, shapes);
+    }
+    for (int i = 0; i < wanted.length; ++i) {
+      if (wanted[i] && (shapes[i] == null)) {
+        data.position(SceneFile.BOUNDS_BYTES*wanted.length);
+        try {
+          this.decoder.decode(data, shapes, wanted);
+        } catch (StreamCorruptedException e) {
+          throw new UncheckedIOException(e);
+        }
+        break;
+      }
+    }
+    return shapes;
+  }
+
+  /**
+   * Gets the data of a block, after its header, as a buffer
+   * of its own.
+   *
+   * @param block The block.
+   * @return ByteBuffer, the data of the block, from its
+   *         bounds to the end of its shapes.
+   */
+  private ByteBuffer getBlockData(int block) {
+    this.checkOpen();
+    int segment = this.blockSegments[block];
+    ByteBuffer data = this.segments[segment].duplicate();
+    int start = (int)(this.blockOffsets[block]-this.segmentOffsets[segment]);
+    data.limit(start+this.blockLengths[block]);
+    data.position(start);
+    return data.slice();
+  }
+
+  /**
+   * Gets the block holding the shape at the given index,
+   * checking that the index is valid.
+   *
+   * @param index The index of the shape.
+   * @return int, the block holding the shape.
+   */
+  private int getBlock(long index) {
+    this.checkOpen();
+    if ((index < 0) || (index >= this.firstIndices[this.firstIndices.length-1])) {
+      throw new IndexOutOfBoundsException("No shape at index "+index);
+    }
+    int block = Arrays.binarySearch(this.firstIndices, index);
+    // an index inside a block is not found, and gives the
+    // insertion point after the block's first index
+    return (block >= 0) ? block : -block-2;
+  }
+
+  /**
+   * Gets the number of shapes in a block.
+   *
+   * @param block The block.
+   * @return int, the number of shapes.
+   */
+  private int getCount(int block) {
+    return (int)(this.firstIndices[block+1]-this.firstIndices[block]);
+  }
+
+  /**
+   * Checks whether the shape at the given index has been
+   * removed.
+   *
+   * @param index The index of the shape.
+   * @return boolean, whether the shape has been removed.
+   */
+  private boolean isRemoved(long index) {
+    return (this.removed != null) && ((this.removed[(int)(index >>> 6)] & (1L << index)) != 0);
+  }
+
+  /**
+   * Checks whether bounds, in the same form as
+   * {@link Shape#getBounds()}, intersect a region.
+   *
+   * @param bounds The array holding the bounds.
+   * @param base   The position of the bounds in the array.
+   * @param minX   The left edge of the region.
+   * @param maxX   The right edge of the region.
+   * @param minY   The bottom edge of the region.
+   * @param maxY   The top edge of the region.
+   * @return boolean, whether the bounds intersect the region.
+   */
+  private static boolean intersects(int[] bounds, int base, long minX, long maxX, long minY, long maxY) {
+    return ((long)bounds[base] <= maxX)
+      && ((long)bounds[base]+bounds[base+2] >= minX)
+      && ((long)bounds[base+1] >= minY)
+      && ((long)bounds[base+1]-bounds[base+3] <= maxY);
+  }
+
+  /**
+   * Checks whether the bounds of a shape, as stored in a
+   * block, intersect a region.
+   *
+   * @param data The data of the block.
+   * @param base The position of the bounds in the block.
+   * @param minX The left edge of the region.
+   * @param maxX The right edge of the region.
+   * @param minY The bottom edge of the region.
+   * @param maxY The top edge of the region.
+   * @return boolean, whether the bounds intersect the region.
+   */
+  private static boolean intersects(ByteBuffer data, int base, long minX, long maxX, long minY, long maxY) {
+    int x = data.getInt(base);
+    int y = data.getInt(base+4);
+    return ((long)x <= maxX)
+      && ((long)x+data.getInt(base+8) >= minX)
+      && ((long)y >= minY)
+      && ((long)y-data.getInt(base+12) <= maxY);
+  }
+
+  /**
+   * Throws an {@code IllegalStateException} if this scene has
+   * been closed.
+   */
+  private void checkOpen() {
+    if (this.channel == null) {
+      throw new IllegalStateException("The scene has been closed");
+    }
+  }
+
+  /**
+   * Reads part of a file, without moving the channel's
+   * position.
+   *
+   * @param channel  The file to read.
+   * @param position The offset to read from.
+   * @param length   The number of bytes to read.
+   * @return ByteBuffer, the bytes read, ready to be read.
+   * @throws IOException If the file ends first.
+   */
+  private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position+buffer.position()) < 0) {
+        throw new StreamCorruptedException("Unexpected end of scene file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
@@ -0,0 +1,673 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+/**
+ * A store of {@code Shape}s kept outside of the Java heap,
+ * for scenes too large to hold as {@code Shape} objects. Each
+ * {@code Shape} is written as a fixed-width record of
+ * primitive values into one off-heap region, and the
+ * vertices of polygons are written into a second region,
+ * with each distinct polygon outline written only once.
+ * <p>
+ * The garbage collector only ever sees the handful of
+ * buffers backing the regions and one entry per distinct
+ * outline, so its work does not grow with the number of
+ * {@code Shape}s. {@code Shape} objects are only created when
+ * asked for with {@link #get(long)}, such as at the indices
+ * found by {@link #indicesAt(int, int)}, and are copies:
+ * changes to them are not written back. Translation,
+ * bounding box queries, and drawing work on the records
+ * directly.
+ * <p>
+ * Only the {@code Shape} types in this package can be
+ * stored, since each needs its own record layout.
+ * <p>
+ * A store must be closed once it is no longer needed, after
+ * which it cannot be used. Closing releases every reference
+ * to the regions, so their memory is returned as soon as the
+ * buffers are collected, rather than whenever the store
+ * itself would have been.
+ *
+ * @author Kevin Qiao
+ * @version 1.3
+ */
+public final class OffHeapShapeStore implements AutoCloseable {
+  /** The type tag of a removed record. */
+  private static final int REMOVED = 0;
+
+  // the fields of a record, as int offsets from its start;
+  // the dimensions are the width and height for ellipses,
+  // and the base, height, and opposite base for polygons
+  private static final int TYPE = 0;
+  private static final int X = 1;
+  private static final int Y = 2;
+  private static final int WIDTH = 3;
+  private static final int HEIGHT = 4;
+  private static final int RGB = 5;
+  private static final int ROTATION = 6;
+  private static final int DIMENSION_A = 7;
+  private static final int DIMENSION_B = 8;
+  private static final int DIMENSION_C = 9;
+  private static final int VERTEX_OFFSET = 10;
+  private static final int VERTEX_COUNT = 11;
+  private static final int OUTLINE = 12;
+  /** The number of ints in a record. */
+  private static final int RECORD_INTS = 13;
+
+  /** The fixed-width records, one for each {@code Shape}. */
+  private IntRegion records;
+  /**
+   * The vertices of every distinct polygon outline, as
+   * consecutive x and y pairs relative to the top left corner
+   * of the unrotated bounding box.
+   */
+  private IntRegion vertices;
+  /** The number of records written, including removed ones. */
+  private long numRecords;
+  /** The number of {@code Shape}s stored. */
+  private long numShapes;
+  /** The number of vertices written. */
+  private long numVertices;
+  /** The index of each distinct outline written so far. */
+  private HashMap<PolygonGeometry, Integer> outlineIndices;
+  /** Every distinct outline written so far, by index. */
+  private ArrayList<PolygonGeometry> outlines;
+  /** The vertex offset of each distinct outline, by index. */
+  private ArrayList<Integer> outlineOffsets;
+  /** Whether or not this store has been closed. */
+  private boolean closed;
+
+  /**
+   * Constructs a new, empty {@code OffHeapShapeStore}.
+   */
+  public OffHeapShapeStore() {
+    this.records = new IntRegion();
+    this.vertices = new IntRegion();
+    this.numRecords = 0;
+    this.numShapes = 0;
+    this.numVertices = 0;
+    this.outlineIndices = new HashMap<>();
+    this.outlines = new ArrayList<>();
+    this.outlineOffsets = new ArrayList<>();
+    this.closed = false;
+  }
+
+  /**
+   * Writes a {@code Shape} to the end of this store.
+   *
+   * @param shape The {@code Shape} to write.
+   * @return long, the index of the {@code Shape} in this
+   *         store.
+   * @throws IllegalArgumentException If the {@code Shape} is
+   *                                  not one of the types in
+   *                                  this package.
+   */
+  public long add(Shape shape) {
+    this.checkOpen();
+    int type = SceneFile.getType(shape);
+    long index = this.numRecords;
+    long base = index*OffHeapShapeStore.RECORD_INTS;
+    Rectangle bounds = shape.getBounds();
+
+    this.records.ensureCapacity(base+OffHeapShapeStore.RECORD_INTS);
+    this.records.set(base+OffHeapShapeStore.TYPE, type);
+    this.records.set(base+OffHeapShapeStore.X, bounds.x);
+    this.records.set(base+OffHeapShapeStore.Y, bounds.y);
+    this.records.set(base+OffHeapShapeStore.WIDTH, bounds.width);
+    this.records.set(base+OffHeapShapeStore.HEIGHT, bounds.height);
+    this.records.set(base+OffHeapShapeStore.RGB, shape.getRGB());
+
+    if (shape instanceof Ellipse) {
+      Ellipse ellipse = (Ellipse)shape;
+      this.records.set(base+OffHeapShapeStore.ROTATION, 0);
+      this.records.set(base+OffHeapShapeStore.DIMENSION_A, ellipse.getWidth());
+      this.records.set(base+OffHeapShapeStore.DIMENSION_B, ellipse.getHeight());
+      this.records.set(base+OffHeapShapeStore.DIMENSION_C, 0);
+      this.records.set(base+OffHeapShapeStore.VERTEX_OFFSET, 0);
+      this.records.set(base+OffHeapShapeStore.VERTEX_COUNT, 0);
+      this.records.set(base+OffHeapShapeStore.OUTLINE, 0);
+    } else {
+      ArbitrarySimplePolygon polygon = (ArbitrarySimplePolygon)shape;
+      PolygonGeometry geometry = polygon.getGeometry();
+      int a = 0;
+      int b = 0;
+      int c = 0;
+      if (polygon instanceof OrientedPolygon) {
+        a = ((OrientedPolygon)polygon).getBase();
+        b = ((OrientedPolygon)polygon).getHeight();
+      }
+      if (polygon instanceof Trapezoid) {
+        c = ((Trapezoid)polygon).getOppositeBase();
+      }
+      this.records.set(base+OffHeapShapeStore.ROTATION, polygon.getRotation());
+      this.records.set(base+OffHeapShapeStore.DIMENSION_A, a);
+      this.records.set(base+OffHeapShapeStore.DIMENSION_B, b);
+      this.records.set(base+OffHeapShapeStore.DIMENSION_C, c);
+      int outline = this.writeOutline(geometry);
+      this.records.set(base+OffHeapShapeStore.VERTEX_OFFSET, this.outlineOffsets.get(outline));
+      this.records.set(base+OffHeapShapeStore.VERTEX_COUNT, geometry.getNumPoints());
+      this.records.set(base+OffHeapShapeStore.OUTLINE, outline);
+    }
+
+    ++this.numRecords;
+    ++this.numShapes;
+    return index;
+  }
+
+  /**
+   * Creates a {@code Shape} from the record at the given
+   * index. The {@code Shape} is a new copy, so changes to it
+   * are not written back to this store.
+   *
+   * @param index The index of the {@code Shape}.
+   * @return Shape, a copy of the stored {@code Shape}.
+   * @throws NoSuchElementException If the {@code Shape} has
+   *                                been removed.
+   */
+  public Shape get(long index) {
+    long base = this.getLiveRecordBase(index);
+    int type = this.records.get(base+OffHeapShapeStore.TYPE);
+    int x = this.records.get(base+OffHeapShapeStore.X);
+    int y = this.records.get(base+OffHeapShapeStore.Y);
+    Color color = new Color(this.records.get(base+OffHeapShapeStore.RGB), true);
+    int a = this.records.get(base+OffHeapShapeStore.DIMENSION_A);
+    int b = this.records.get(base+OffHeapShapeStore.DIMENSION_B);
+    int c = this.records.get(base+OffHeapShapeStore.DIMENSION_C);
+
+    switch (type) {
+      case SceneFile.CIRCLE:
+        return new Circle(x, y, color, a);
+      case SceneFile.ELLIPSE:
+        return new Ellipse(x, y, color, a, b);
+      default:
+        break;
+    }
+
+    int rotation = this.records.get(base+OffHeapShapeStore.ROTATION);
+    long offset = this.records.get(base+OffHeapShapeStore.VERTEX_OFFSET);
+    int n = this.records.get(base+OffHeapShapeStore.VERTEX_COUNT);
+    if (type == SceneFile.POLYGON) {
+      int[] xs = new int[n];
+      int[] ys = new int[n];
+      for (int i = 0; i < n; ++i) {
+        xs[i] = this.vertices.get(2*(offset+i));
+        ys[i] = this.vertices.get(2*(offset+i)+1);
+      }
+      return new ArbitrarySimplePolygon(x, y, color, xs, ys, n, rotation);
+    }
+
+    Point[] points = new Point[n];
+    for (int i = 0; i < n; ++i) {
+      points[i] = new Point(
+        this.vertices.get(2*(offset+i)),
+        this.vertices.get(2*(offset+i)+1)
+      );
+    }
+    switch (type) {
+      case SceneFile.TRIANGLE:
+        return new Triangle(x, y, color, points, rotation, a, b);
+      case SceneFile.TRAPEZOID:
+        return new Trapezoid(x, y, color, points, rotation, a, b, c);
+      case SceneFile.PARALLELOGRAM:
+        return new Parallelogram(x, y, color, points, rotation, a, b);
+      case SceneFile.RHOMBUS:
+        return new Rhombus(x, y, color, points, rotation, a, b);
+      case SceneFile.RECTANGLE:
+        return new shapes.Rectangle(x, y, color, points, rotation, a, b);
+      default:
+        return new Square(x, y, color, points, rotation, a);
+    }
+  }
+
+  /**
+   * Removes the {@code Shape} at the given index. The indices
+   * of other {@code Shape}s do not change, and the space of
+   * the record is not reused.
+   *
+   * @param index The index of the {@code Shape}.
+   * @return boolean, whether or not a {@code Shape} was
+   *         removed.
+   */
+  public boolean remove(long index) {
+    long base = this.getRecordBase(index);
+    if (this.records.get(base+OffHeapShapeStore.TYPE) == OffHeapShapeStore.REMOVED) {
+      return false;
+    }
+    this.records.set(base+OffHeapShapeStore.TYPE, OffHeapShapeStore.REMOVED);
+    --this.numShapes;
+    return true;
+  }
+
+  /**
+   * Checks whether or not the {@code Shape} at the given index
+   * has been removed.
+   *
+   * @param index The index of the {@code Shape}.
+   * @return boolean, whether or not it has been removed.
+   */
+  public boolean isRemoved(long index) {
+    long base = this.getRecordBase(index);
+    return this.records.get(base+OffHeapShapeStore.TYPE) == OffHeapShapeStore.REMOVED;
+  }
+
+  /**
+   * Translates the {@code Shape} at the given index, in
+   * place.
+   *
+   * @param index The index of the {@code Shape}.
+   * @param dx    The change in x coordinates.
+   * @param dy    The change in y coordinates.
+   * @throws NoSuchElementException If the {@code Shape} has
+   *                                been removed.
+   */
+  public void translate(long index, int dx, int dy) {
+    long base = this.getLiveRecordBase(index);
+    this.records.add(base+OffHeapShapeStore.X, dx);
+    this.records.add(base+OffHeapShapeStore.Y, dy);
+  }
+
+  /**
+   * Translates every {@code Shape} in this store, in place.
+   *
+   * @param dx The change in x coordinates.
+   * @param dy The change in y coordinates.
+   */
+  public void translateAll(int dx, int dy) {
+    this.checkOpen();
+    for (long i = 0; i < this.numRecords; ++i) {
+      long base = i*OffHeapShapeStore.RECORD_INTS;
+      this.records.add(base+OffHeapShapeStore.X, dx);
+      this.records.add(base+OffHeapShapeStore.Y, dy);
+    }
+  }
+
+  /**
+   * Gets the bounding box of the {@code Shape} at the given
+   * index, in the same form as {@link Shape#getBounds()},
+   * without creating the {@code Shape}.
+   *
+   * @param index The index of the {@code Shape}.
+   * @return Rectangle, the bounding box of the {@code Shape}.
+   * @throws NoSuchElementException If the {@code Shape} has
+   *                                been removed.
+   */
+  public Rectangle getBounds(long index) {
+    long base = this.getLiveRecordBase(index);
+    return new Rectangle(
+      this.records.get(base+OffHeapShapeStore.X),
+      this.records.get(base+OffHeapShapeStore.Y),
+      this.records.get(base+OffHeapShapeStore.WIDTH),
+      this.records.get(base+OffHeapShapeStore.HEIGHT)
+    );
+  }
+
+  /**
+   * Gets the bounding box of every {@code Shape} in this
+   * store, in the same form as {@link Shape#getBounds()}, by
+   * scanning the records.
+   *
+   * @return Rectangle, the bounding box of the scene, or
+   *         {@code null} if there are no {@code Shape}s.
+   */
+  public Rectangle getSceneBounds() {
+    this.checkOpen();
+    long minX = Long.MAX_VALUE;
+    long maxX = Long.MIN_VALUE;
+    long minY = Long.MAX_VALUE;
+    long maxY = Long.MIN_VALUE;
+    for (long i = 0; i < this.numRecords; ++i) {
+      long base = i*OffHeapShapeStore.RECORD_INTS;
+      if (this.records.get(base+OffHeapShapeStore.TYPE) == OffHeapShapeStore.REMOVED) {
+        continue;
+      }
+      long x = this.records.get(base+OffHeapShapeStore.X);
+      long y = this.records.get(base+OffHeapShapeStore.Y);
+      minX = Math.min(minX, x);
+      maxX = Math.max(maxX, x+this.records.get(base+OffHeapShapeStore.WIDTH));
+      maxY = Math.max(maxY, y);
+      minY = Math.min(minY, y-this.records.get(base+OffHeapShapeStore.HEIGHT));
+    }
+    if (minX > maxX) {
+      return null;
+    }
+    return new Rectangle((int)minX, (int)maxY, (int)(maxX-minX), (int)(maxY-minY));
+  }
+
+  /**
+   * Fills every {@code Shape} whose bounding box intersects
+   * the given region onto the given {@code Graphics}, in the
+   * order they were added, straight from the records without
+   * creating any {@code Shape}s. The colour is only set at the
+   * start of each run of {@code Shape}s of the same colour.
+   *
+   * @param g      The {@code Graphics} object to fill onto.
+   * @param region The region to draw, in the same form as
+   *               {@link Shape#getBounds()}.
+   */
+  public void fill(Graphics g, Rectangle region) {
+    this.checkOpen();
+    long minX = region.x;
+    long maxX = (long)region.x+region.width;
+    long maxY = region.y;
+    long minY = (long)region.y-region.height;
+    // the colour is made from the record when it changes,
+    // without looking it up in the palette
+    Color colour = null;
+    for (long i = 0; i < this.numRecords; ++i) {
+      long base = i*OffHeapShapeStore.RECORD_INTS;
+      int type = this.records.get(base+OffHeapShapeStore.TYPE);
+      if (type == OffHeapShapeStore.REMOVED) {
+        continue;
+      }
+      int x = this.records.get(base+OffHeapShapeStore.X);
+      int y = this.records.get(base+OffHeapShapeStore.Y);
+      int width = this.records.get(base+OffHeapShapeStore.WIDTH);
+      int height = this.records.get(base+OffHeapShapeStore.HEIGHT);
+      if (
+        ((long)x > maxX)
+        || ((long)x+width < minX)
+        || ((long)y < minY)
+        || ((long)y-height > maxY)
+      ) {
+        continue;
+      }
+
+      int shapeRgb = this.records.get(base+OffHeapShapeStore.RGB);
+      if ((colour == null) || (shapeRgb != colour.getRGB())) {
+        colour = new Color(shapeRgb, true);
+        g.setColor(colour);
+      }
+      if ((type == SceneFile.CIRCLE) || (type == SceneFile.ELLIPSE)) {
+        g.fillOval(x, y-height, width, height);
+        continue;
+      }
+      // drawn like ArbitrarySimplePolygon, from the rotated
+      // vertices shared with every polygon of the same outline
+      PolygonGeometry.Orientation orientation = this.outlines
+        .get(this.records.get(base+OffHeapShapeStore.OUTLINE))
+        .getOrientation(this.records.get(base+OffHeapShapeStore.ROTATION));
+      int offsetX = x-orientation.getBounds()[PolygonMetrics.MIN_X];
+      int offsetY = y-orientation.getBounds()[PolygonMetrics.MAX_Y];
+      g.translate(offsetX, offsetY);
+      g.fillPolygon(orientation.getPolygon());
+      g.translate(-offsetX, -offsetY);
+    }
+  }
+
+  /**
+   * Gets the indices of every {@code Shape} which contains the
+   * given point, so that they can be copied with
+   * {@link #get(long)} or removed with {@link #remove(long)}.
+   * Only the {@code Shape}s whose bounding box contains the
+   * point are created and tested exactly.
+   *
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return long[], the indices of the {@code Shape}s which
+   *         contain the point, in the order they were added.
+   */
+  public long[] indicesAt(int x, int y) {
+    this.checkOpen();
+    long[] found = new long[4];
+    int numFound = 0;
+    for (long i = 0; i < this.numRecords; ++i) {
+      long base = i*OffHeapShapeStore.RECORD_INTS;
+      if (this.records.get(base+OffHeapShapeStore.TYPE) == OffHeapShapeStore.REMOVED) {
+        continue;
+      }
+      long left = this.records.get(base+OffHeapShapeStore.X);
+      long top = this.records.get(base+OffHeapShapeStore.Y);
+      if (
+        (x < left)
+        || (x > left+this.records.get(base+OffHeapShapeStore.WIDTH))
+        || (y > top)
+        || (y < top-this.records.get(base+OffHeapShapeStore.HEIGHT))
+      ) {
+        continue;
+      }
+      if (this.get(i).contains(x, y)) {
+        if (numFound == found.length) {
+          found = Arrays.copyOf(found, numFound*2);
+        }
+        found[numFound++] = i;
+      }
+    }
+    return Arrays.copyOf(found, numFound);
+  }
+
+  /**
+   * Writes every {@code Shape} which has not been removed to
+   * the given writer, in the order they were added. Each
+   * {@code Shape} is only created while it is written.
+   *
+   * @param writer The writer to write to.
+   * @throws IOException If the {@code Shape}s could not be
+   *                     written.
+   */
+  public void writeTo(SceneFileWriter writer) throws IOException {
+    this.checkOpen();
+    for (long i = 0; i < this.numRecords; ++i) {
+      long base = i*OffHeapShapeStore.RECORD_INTS;
+      if (this.records.get(base+OffHeapShapeStore.TYPE) != OffHeapShapeStore.REMOVED) {
+        writer.write(this.get(i));
+      }
+    }
+  }
+
+  /**
+   * Gets the number of records in this store, which is one
+   * more than the largest index, including removed
+   * {@code Shape}s.
+   *
+   * @return long, the number of records.
+   */
+  public long getRecordCount() {
+    return this.numRecords;
+  }
+
+  /**
+   * Gets the number of {@code Shape}s in this store, not
+   * including removed {@code Shape}s.
+   *
+   * @return long, the number of {@code Shape}s.
+   */
+  public long getShapeCount() {
+    return this.numShapes;
+  }
+
+  /**
+   * Closes this store, releasing its off-heap regions. Any
+   * further use of this store throws an
+   * {@code IllegalStateException}. Closing more than once has
+   * no effect.
+   */
+  @Override
+  public void close() {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    this.records.release();
+    this.vertices.release();
+    this.records = null;
+    this.vertices = null;
+    this.outlineIndices = null;
+    this.outlines = null;
+    this.outlineOffsets = null;
+  }
+
+  /**
+   * Writes the vertices of a polygon outline to the vertex
+   * region, unless they have already been written.
+   *
+   * @param geometry The outline to write.
+   * @return int, the index of the outline, which gives its
+   *         geometry and the offset of its first vertex in the
+   *         vertex region.
+   */
+  private int writeOutline(PolygonGeometry geometry) {
+    Integer outline = this.outlineIndices.get(geometry);
+    if (outline == null) {
+      int n = geometry.getNumPoints();
+      if (this.numVertices+n > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Too many distinct vertices to store");
+      }
+      long offset = this.numVertices;
+      this.vertices.ensureCapacity(2*(this.numVertices+n));
+      for (int i = 0; i < n; ++i) {
+        this.vertices.set(2*(offset+i), geometry.getX(i));
+        this.vertices.set(2*(offset+i)+1, geometry.getY(i));
+      }
+      this.numVertices += n;
+      outline = this.outlines.size();
+      this.outlines.add(geometry);
+      this.outlineOffsets.add((int)offset);
+      this.outlineIndices.put(geometry, outline);
+    }
+    return outline;
+  }
+
+  /**
+   * Gets the position of the record at the given index in the
+   * record region, checking that the index is valid.
+   *
+   * @param index The index of the record.
+   * @return long, the position of the first int of the
+   *         record.
+   */
+  private long getRecordBase(long index) {
+    this.checkOpen();
+    if ((index < 0) || (index >= this.numRecords)) {
+      throw new IndexOutOfBoundsException("No shape at index "+index);
+    }
+    return index*OffHeapShapeStore.RECORD_INTS;
+  }
+
+  /**
+   * Gets the position of the record at the given index in the
+   * record region, checking that the index is valid and its
+   * {@code Shape} has not been removed.
+   *
+   * @param index The index of the record.
+   * @return long, the position of the first int of the
+   *         record.
+   * @throws NoSuchElementException If the {@code Shape} has
+   *                                been removed.
+   */
+  private long getLiveRecordBase(long index) {
+    long base = this.getRecordBase(index);
+    if (this.records.get(base+OffHeapShapeStore.TYPE) == OffHeapShapeStore.REMOVED) {
+      throw new NoSuchElementException("The shape at index "+index+" has been removed");
+    }
+    return base;
+  }
+
+  /**
+   * Throws an {@code IllegalStateException} if this store has
+   * been closed.
+   */
+  private void checkOpen() {
+    if (this.closed) {
+      throw new IllegalStateException("The store has been closed");
+    }
+  }
+
+  /**
+   * A growable array of ints outside of the Java heap,
+   * indexed by {@code long}. It is split into direct buffers
+   * of a fixed size, since a single buffer cannot hold more
+   * than {@code Integer.MAX_VALUE} bytes, and grows by adding
+   * buffers so that nothing is ever copied.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  private static final class IntRegion {
+    /** The log base 2 of the number of ints in each chunk. */
+    private static final int CHUNK_SHIFT = 22;
+    /** The number of ints in each chunk, 16 MiB worth. */
+    private static final int CHUNK_INTS = 1 << IntRegion.CHUNK_SHIFT;
+    /** The mask to get an int's position within its chunk. */
+    private static final long CHUNK_MASK = IntRegion.CHUNK_INTS-1;
+
+    /** The chunks of this region. */
+    private final ArrayList<IntBuffer> chunks;
+
+    /**
+     * Constructs a new, empty {@code IntRegion}.
+     */
+    private IntRegion() {
+      this.chunks = new ArrayList<>();
+    }
+
+    /**
+     * Adds chunks until this region can hold the given number
+     * of ints.
+     *
+     * @param capacity The number of ints to hold.
+     */
+    private void ensureCapacity(long capacity) {
+      while ((long)this.chunks.size()*IntRegion.CHUNK_INTS < capacity) {
+        this.chunks.add(
+          ByteBuffer.allocateDirect(IntRegion.CHUNK_INTS*Integer.BYTES)
+            .order(ByteOrder.nativeOrder())
+            .asIntBuffer()
+        );
+      }
+    }
+
+    /**
+     * Gets the int at the given position.
+     *
+     * @param i The position of the int.
+     * @return int, the int at the position.
+     */
+    private int get(long i) {
+      return this.chunks.get((int)(i >>> IntRegion.CHUNK_SHIFT))
+        .get((int)(i & IntRegion.CHUNK_MASK));
+    }
+
+    /**
+     * Sets the int at the given position.
+     *
+     * @param i     The position of the int.
+     * @param value The new value of the int.
+     */
+    private void set(long i, int value) {
+      this.chunks.get((int)(i >>> IntRegion.CHUNK_SHIFT))
+        .put((int)(i & IntRegion.CHUNK_MASK), value);
+    }
+
+    /**
+     * Adds to the int at the given position.
+     *
+     * @param i      The position of the int.
+     * @param change The amount to add.
+     */
+    private void add(long i, int change) {
+      IntBuffer chunk = this.chunks.get((int)(i >>> IntRegion.CHUNK_SHIFT));
+      int position = (int)(i & IntRegion.CHUNK_MASK);
+      chunk.put(position, chunk.get(position)+change);
+    }
+
+    /**
+     * Drops every chunk of this region, so that their memory
+     * can be returned.
+     */
+    private void release() {
+      this.chunks.clear();
+    }
+  }
+}
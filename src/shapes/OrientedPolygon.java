@@ -2,8 +2,6 @@ package shapes;
 
 import java.awt.Color;
 import java.awt.Point;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
 
 /**
  * An abstract class to represent any polygon with a base
@@ -139,19 +137,19 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
    * {@code RotationBuilder}.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public abstract static class BaseBuilder extends ArbitrarySimplePolygon.RotationBuilder {
     /** The {@code String} to represent the argument of angle. */
     private static final String BASE = "Base Length";
     /**
-     * The set of arguments this {@code BaseBuilder} requires in
-     * addition to inherited arguments.
+     * The arguments this {@code BaseBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(BaseBuilder.BASE, 0))
-      );
+    protected static final Schema SCHEMA =
+      ArbitrarySimplePolygon.RotationBuilder.SCHEMA.extend(new Arg(BaseBuilder.BASE, 0));
+    /** The slot of the base length argument. */
+    private static final int BASE_SLOT = BaseBuilder.SCHEMA.getSlot(BaseBuilder.BASE);
 
     /**
      * Constructs a {@code BaseBuilder} with the given target
@@ -163,23 +161,23 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *                    built.
      * @param variation   The name of the build variation to be
      *                    used. See {@link #getVariation()}.
-     * @param args        The required args specified by
-     *                    subclasses to use when building the
-     *                    product, in addition to the arguments
-     *                    from this class.
+     * @param schema      The required arguments of the
+     *                    builder class, which must extend the
+     *                    arguments of this class.
      */
-    public BaseBuilder(
-      String targetShape,
-      String variation,
-      LinkedHashSet<Arg> args
-    ) {
+    protected BaseBuilder(String targetShape, String variation, Schema schema) {
       super(
         targetShape,
         variation,
-        ShapeBuilder.mergeArgs(BaseBuilder.REQUIRED_ARGS, args)
+        ShapeBuilder.checkExtends(schema, BaseBuilder.SCHEMA)
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      return ShapeBuilder.checkDimension(BaseBuilder.BASE, this.getBase());
+    }
+
     /**
      * Sets the base length argument of this
      * {@code BaseBuilder}.
@@ -189,7 +187,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *         {@code BaseBuilder}.
      */
     public BaseBuilder withBase(int base) {
-      this.withArg(BaseBuilder.BASE, base);
+      this.setArg(BaseBuilder.BASE_SLOT, base);
       return this;
     }
 
@@ -201,7 +199,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *         {@code BaseBuilder}.
      */
     public int getBase() {
-      return this.getArg(BaseBuilder.BASE);
+      return this.getArg(BaseBuilder.BASE_SLOT);
     }
   }
 
@@ -210,19 +208,19 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
    * {@code BaseBuilder}.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public abstract static class HeightBuilder extends BaseBuilder {
     /** The {@code String} to represent the argument of height. */
     private static final String HEIGHT = "Height";
     /**
-     * The set of arguments this {@code HeightBuilder} requires
-     * in addition to inherited arguments.
+     * The arguments this {@code HeightBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(HeightBuilder.HEIGHT, 0))
-      );
+    protected static final Schema SCHEMA =
+      BaseBuilder.SCHEMA.extend(new Arg(HeightBuilder.HEIGHT, 0));
+    /** The slot of the height argument. */
+    private static final int HEIGHT_SLOT = HeightBuilder.SCHEMA.getSlot(HeightBuilder.HEIGHT);
 
     /**
      * Constructs a {@code HeightBuilder} with the given target
@@ -234,23 +232,27 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *                    built.
      * @param variation   The name of the build variation to be
      *                    used. See {@link #getVariation()}.
-     * @param args        The required args specified by
-     *                    subclasses to use when building the
-     *                    product, in addition to the arguments
-     *                    from this class.
+     * @param schema      The required arguments of the
+     *                    builder class, which must extend the
+     *                    arguments of this class.
      */
-    public HeightBuilder(
-      String targetShape,
-      String variation,
-      LinkedHashSet<Arg> args
-    ) {
+    protected HeightBuilder(String targetShape, String variation, Schema schema) {
       super(
         targetShape,
         variation,
-        ShapeBuilder.mergeArgs(HeightBuilder.REQUIRED_ARGS, args)
+        ShapeBuilder.checkExtends(schema, HeightBuilder.SCHEMA)
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      Validation validation = super.validateDimensions();
+      if (!validation.isValid()) {
+        return validation;
+      }
+      return ShapeBuilder.checkDimension(HeightBuilder.HEIGHT, this.getHeight());
+    }
+
     /**
      * Sets the height argument of this {@code HeightBuilder}.
      *
@@ -259,7 +261,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *         {@code HeightBuilder}.
      */
     public HeightBuilder withHeight(int height) {
-      this.withArg(HeightBuilder.HEIGHT, height);
+      this.setArg(HeightBuilder.HEIGHT_SLOT, height);
       return this;
     }
 
@@ -270,7 +272,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *         {@code HeightBuilder}.
      */
     public int getHeight() {
-      return this.getArg(HeightBuilder.HEIGHT);
+      return this.getArg(HeightBuilder.HEIGHT_SLOT);
     }
   }
 
@@ -281,19 +283,19 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
    * of a {@code Shape} (with rotation of 0).
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.1
    */
   public abstract static class OffsetBuilder extends HeightBuilder {
     /** The {@code String} to represent the argument of base offset. */
     private static final String OFFSET = "Base Offset";
     /**
-     * The set of arguments this {@code OffsetBuilder} requires
-     * in addition to inherited arguments.
+     * The arguments this {@code OffsetBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(OffsetBuilder.OFFSET))
-      );
+    protected static final Schema SCHEMA =
+      HeightBuilder.SCHEMA.extend(new Arg(OffsetBuilder.OFFSET));
+    /** The slot of the base offset argument. */
+    private static final int OFFSET_SLOT = OffsetBuilder.SCHEMA.getSlot(OffsetBuilder.OFFSET);
 
     /**
      * Constructs an {@code OffsetBuilder} with the given target
@@ -305,20 +307,15 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *                    built.
      * @param variation   The name of the build variation to be
      *                    used. See {@link #getVariation()}.
-     * @param args        The required args specified by
-     *                    subclasses to use when building the
-     *                    product, in addition to the arguments
-     *                    from this class.
+     * @param schema      The required arguments of the
+     *                    builder class, which must extend the
+     *                    arguments of this class.
      */
-    public OffsetBuilder(
-      String targetShape,
-      String variation,
-      LinkedHashSet<Arg> args
-    ) {
+    protected OffsetBuilder(String targetShape, String variation, Schema schema) {
       super(
         targetShape,
         variation,
-        ShapeBuilder.mergeArgs(OffsetBuilder.REQUIRED_ARGS, args)
+        ShapeBuilder.checkExtends(schema, OffsetBuilder.SCHEMA)
       );
     }
 
@@ -330,7 +327,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *         {@code OffsetBuilder}.
      */
     public OffsetBuilder withOffset(int offset) {
-      this.withArg(OffsetBuilder.OFFSET, offset);
+      this.setArg(OffsetBuilder.OFFSET_SLOT, offset);
       return this;
     }
 
@@ -341,7 +338,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *         {@code OffsetBuilder}.
      */
     public int getOffset() {
-      return this.getArg(OffsetBuilder.OFFSET);
+      return this.getArg(OffsetBuilder.OFFSET_SLOT);
     }
   }
 
@@ -350,19 +347,19 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
    * of 0) angle argument to {@code HeightBuilder}.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.1
    */
   public abstract static class AngleBuilder extends HeightBuilder {
     /** The {@code String} to represent the argument of angle. */
     private static final String ANGLE = "Angle";
     /**
-     * The set of arguments this {@code AngleBuilder} requires
-     * in addition to inherited arguments.
+     * The arguments this {@code AngleBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(AngleBuilder.ANGLE, 1, 179))
-      );
+    protected static final Schema SCHEMA =
+      HeightBuilder.SCHEMA.extend(new Arg(AngleBuilder.ANGLE, 1, 179));
+    /** The slot of the angle argument. */
+    private static final int ANGLE_SLOT = AngleBuilder.SCHEMA.getSlot(AngleBuilder.ANGLE);
 
     /**
      * Constructs an {@code AngleBuilder} with the given target
@@ -374,20 +371,15 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *                    built.
      * @param variation   The name of the build variation to be
      *                    used. See {@link #getVariation()}.
-     * @param args        The required args specified by
-     *                    subclasses to use when building the
-     *                    product, in addition to the arguments
-     *                    from this class.
+     * @param schema      The required arguments of the
+     *                    builder class, which must extend the
+     *                    arguments of this class.
      */
-    public AngleBuilder(
-      String targetShape,
-      String variation,
-      LinkedHashSet<Arg> args
-    ) {
+    protected AngleBuilder(String targetShape, String variation, Schema schema) {
       super(
         targetShape,
         variation,
-        ShapeBuilder.mergeArgs(AngleBuilder.REQUIRED_ARGS, args)
+        ShapeBuilder.checkExtends(schema, AngleBuilder.SCHEMA)
       );
     }
 
@@ -398,7 +390,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      * @return {@code AngleBuilder}, this {@code AngleBuilder}.
      */
     public AngleBuilder withAngle(int angle) {
-      this.withArg(AngleBuilder.ANGLE, angle);
+      this.setArg(AngleBuilder.ANGLE_SLOT, angle);
       return this;
     }
 
@@ -409,7 +401,7 @@ public abstract class OrientedPolygon extends ArbitrarySimplePolygon {
      *         {@code AngleBuilder}.
      */
     public int getAngle() {
-      return this.getArg(AngleBuilder.ANGLE);
+      return this.getArg(AngleBuilder.ANGLE_SLOT);
     }
   }
 }
@@ -74,7 +74,7 @@ public class Parallelogram extends Trapezoid {
    * offset. No arguments are added.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.1
    */
   public static class OffsetBuilder extends OrientedPolygon.OffsetBuilder {
     /**
@@ -84,7 +84,7 @@ public class Parallelogram extends Trapezoid {
      * {@code Parallelogram}.
      */
     public OffsetBuilder() {
-      super("Parallelogram", "Offset", null);
+      super("Parallelogram", "Offset", OrientedPolygon.OffsetBuilder.SCHEMA);
     }
 
     @Override
@@ -104,7 +104,7 @@ public class Parallelogram extends Trapezoid {
       return new Parallelogram(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         base,
@@ -118,7 +118,7 @@ public class Parallelogram extends Trapezoid {
    * angle. No arguments are added.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.1
    */
   public static class AngleBuilder extends OrientedPolygon.AngleBuilder {
     /**
@@ -128,7 +128,7 @@ public class Parallelogram extends Trapezoid {
      * {@code Parallelogram}.
      */
     public AngleBuilder() {
-      super("Parallelogram", "Angle", null);
+      super("Parallelogram", "Angle", OrientedPolygon.AngleBuilder.SCHEMA);
     }
 
     @Override
@@ -155,7 +155,7 @@ public class Parallelogram extends Trapezoid {
       return new Parallelogram(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         base,
@@ -0,0 +1,1312 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * A class to combine {@code Shape}s with boolean operations
+ * (union, intersection, difference, and exclusive or),
+ * producing {@code ArbitrarySimplePolygon}s.
+ * <p>
+ * All the inputs are clipped at once with a single sweep
+ * line, following the algorithm of Martinez, Rueda and
+ * Feito: https://doi.org/10.1016/j.advengsoft.2013.04.004,
+ * which runs in {@code O((n + k) log n)} time for {@code n}
+ * edges with {@code k} intersections. Rather than tracking
+ * whether each edge is inside one other polygon, every input
+ * is oriented anticlockwise and each edge tracks how many
+ * inputs cover the region just below it, so any number of
+ * inputs can be combined in one pass. Inputs are treated as
+ * simple polygons.
+ * <p>
+ * Ellipses are first flattened to polygons, with no point of
+ * the outline further than the tolerance from the true
+ * ellipse before rounding to integer vertices.
+ * <p>
+ * Each result is a single ring, since that is all an
+ * {@code ArbitrarySimplePolygon} can hold: holes are joined
+ * to their outer ring by a zero width bridge, which draws and
+ * hit tests correctly by the even-odd rule and cancels out of
+ * the area, but is counted twice in the perimeter. Results
+ * are drawn with the colour of the first input.
+ * <p>
+ * Inputs which cannot affect the result are found with
+ * {@link Shape#mayOverlap(Shape)} before sweeping: an
+ * intersection with an input which cannot overlap the first
+ * is empty, and clips which cannot overlap the subject of a
+ * difference are left out of the sweep.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+public final class PolygonClipper {
+  /** The boolean operations which can be applied. */
+  public enum Operation {
+    /** The area covered by any input. */
+    UNION,
+    /** The area covered by every input. */
+    INTERSECTION,
+    /** The area covered by the first input and no other. */
+    DIFFERENCE,
+    /** The area covered by an odd number of inputs. */
+    XOR
+  }
+
+  /** The default tolerance for flattening ellipses. */
+  public static final double DEFAULT_TOLERANCE = 0.5;
+  /**
+   * The squared sine of the angle below which two edges are
+   * treated as parallel.
+   */
+  private static final double EPSILON = 1e-18;
+  /**
+   * The fraction of an edge's length within which an
+   * intersection is snapped to the end of the edge.
+   */
+  private static final double SNAP_TOLERANCE = 1e-9;
+  /** The fewest vertices a flattened ellipse can have. */
+  private static final int MIN_ELLIPSE_VERTICES = 8;
+
+  /** The tolerance for flattening ellipses. */
+  private final double tolerance;
+
+  /**
+   * Constructs a new {@code PolygonClipper} which flattens
+   * ellipses with the default tolerance.
+   */
+  public PolygonClipper() {
+    this(PolygonClipper.DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Constructs a new {@code PolygonClipper} which flattens
+   * ellipses with the given tolerance.
+   *
+   * @param tolerance The largest allowed distance between an
+   *                  ellipse and its flattened outline.
+   * @throws IllegalArgumentException If the tolerance is not
+   *                                  positive.
+   */
+  public PolygonClipper(double tolerance) {
+    if (!(tolerance > 0)) {
+      throw new IllegalArgumentException("Tolerance must be positive: "+tolerance);
+    }
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Calculates the union of the given {@code Shape}s.
+   *
+   * @param shapes The {@code Shape}s to combine.
+   * @return List&lt;ArbitrarySimplePolygon&gt;, the
+   *         polygons covering the union.
+   */
+  public List<ArbitrarySimplePolygon> union(Collection<? extends Shape> shapes) {
+    return this.apply(Operation.UNION, shapes);
+  }
+
+  /**
+   * Calculates the intersection of the given {@code Shape}s.
+   *
+   * @param shapes The {@code Shape}s to combine.
+   * @return List&lt;ArbitrarySimplePolygon&gt;, the
+   *         polygons covering the intersection.
+   */
+  public List<ArbitrarySimplePolygon> intersection(Collection<? extends Shape> shapes) {
+    return this.apply(Operation.INTERSECTION, shapes);
+  }
+
+  /**
+   * Calculates the given {@code Shape} with all the other
+   * given {@code Shape}s removed from it.
+   *
+   * @param subject The {@code Shape} to remove from.
+   * @param clips   The {@code Shape}s to remove.
+   * @return List&lt;ArbitrarySimplePolygon&gt;, the
+   *         polygons covering the difference.
+   */
+  public List<ArbitrarySimplePolygon> difference(
+    Shape subject,
+    Collection<? extends Shape> clips
+  ) {
+    ArrayList<Shape> shapes = new ArrayList<>(clips.size()+1);
+    shapes.add(subject);
+    shapes.addAll(clips);
+    return this.apply(Operation.DIFFERENCE, shapes);
+  }
+
+  /**
+   * Calculates the exclusive or of the given {@code Shape}s.
+   *
+   * @param shapes The {@code Shape}s to combine.
+   * @return List&lt;ArbitrarySimplePolygon&gt;, the
+   *         polygons covering the area covered by an odd
+   *         number of {@code Shape}s.
+   */
+  public List<ArbitrarySimplePolygon> xor(Collection<? extends Shape> shapes) {
+    return this.apply(Operation.XOR, shapes);
+  }
+
+  /**
+   * Applies the given operation to the given {@code Shape}s.
+   * For {@link Operation#DIFFERENCE}, the first
+   * {@code Shape} in iteration order is the one removed
+   * from.
+   *
+   * @param operation The operation to apply.
+   * @param shapes    The {@code Shape}s to combine.
+   * @return List&lt;ArbitrarySimplePolygon&gt;, the
+   *         resulting polygons.
+   * @throws IllegalArgumentException If a {@code Shape} is
+   *                                  not a polygon or an
+   *                                  ellipse.
+   */
+  public List<ArbitrarySimplePolygon> apply(
+    Operation operation,
+    Collection<? extends Shape> shapes
+  ) {
+    if (shapes.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    // only pairs with the first input matter: every input must
+    // overlap it for an intersection, and only clips which
+    // overlap it can change a difference
+    Shape first = null;
+    ArrayList<Shape> inputs = new ArrayList<>(shapes.size());
+    for (Shape shape : shapes) {
+      if ((first == null) || first.mayOverlap(shape)) {
+        inputs.add(shape);
+      } else if (operation == Operation.INTERSECTION) {
+        return Collections.emptyList();
+      } else if (operation != Operation.DIFFERENCE) {
+        inputs.add(shape);
+      }
+      if (first == null) {
+        first = shape;
+      }
+    }
+
+    Sweep sweep = new Sweep(operation, inputs.size());
+    for (int i = 0; i < inputs.size(); ++i) {
+      boolean subject = (operation != Operation.DIFFERENCE) || (i == 0);
+      Polygon ring = this.flatten(inputs.get(i));
+      sweep.addRing(ring.xpoints, ring.ypoints, ring.npoints, subject);
+    }
+    sweep.run();
+    Color color = first.getColor();
+
+    ArrayList<ArbitrarySimplePolygon> results = new ArrayList<>();
+    for (int[][] ring : PolygonClipper.assembleRings(sweep.getOutput(), sweep.getNumOutput())) {
+      results.add(
+        new ArbitrarySimplePolygon(
+          PolygonClipper.min(ring[0]),
+          PolygonClipper.max(ring[1]),
+          color,
+          ring[0],
+          ring[1],
+          ring[0].length,
+          0
+        )
+      );
+    }
+    return results;
+  }
+
+  /**
+   * Gets the outline of the given {@code Shape} as a
+   * polygon, flattening ellipses.
+   *
+   * @param shape The {@code Shape}.
+   * @return Polygon, the outline of the {@code Shape}.
+   * @throws IllegalArgumentException If the {@code Shape} is
+   *                                  not a polygon or an
+   *                                  ellipse.
+   */
+  Polygon flatten(Shape shape) {
+    if (shape instanceof ArbitrarySimplePolygon) {
+      return ((ArbitrarySimplePolygon)shape).getAwtPolygon();
+    } else if (!(shape instanceof Ellipse)) {
+      throw new IllegalArgumentException(
+        "Cannot clip shape: "+shape.getClass().getName()
+      );
+    }
+
+    Ellipse ellipse = (Ellipse)shape;
+    double a = ellipse.getWidth()/2.0;
+    double b = ellipse.getHeight()/2.0;
+    double centerX = ellipse.getX()+a;
+    double centerY = ellipse.getY()-b;
+    // a chord spanning angle t of a circle of radius r is at
+    // most r*(1-cos(t/2)) from the arc, so the larger
+    // semi-axis bounds the error of both
+    double r = Math.max(a, b);
+    int n = PolygonClipper.MIN_ELLIPSE_VERTICES;
+    if (this.tolerance < r) {
+      double step = 2*Math.acos(1-this.tolerance/r);
+      n = Math.max(n, (int)Math.ceil(2*Math.PI/step));
+    }
+
+    Polygon ring = new Polygon();
+    for (int i = 0; i < n; ++i) {
+      double angle = 2*Math.PI*i/n;
+      int x = (int)Math.round(centerX+a*Math.cos(angle));
+      int y = (int)Math.round(centerY+b*Math.sin(angle));
+      if (
+        (ring.npoints == 0)
+        || (x != ring.xpoints[ring.npoints-1])
+        || (y != ring.ypoints[ring.npoints-1])
+      ) {
+        ring.addPoint(x, y);
+      }
+    }
+    return ring;
+  }
+
+  /**
+   * Gets the smallest element of the given array.
+   *
+   * @param values The array, which must not be empty.
+   * @return int, the smallest element.
+   */
+  private static int min(int[] values) {
+    int min = values[0];
+    for (int value : values) {
+      min = Math.min(min, value);
+    }
+    return min;
+  }
+
+  /**
+   * Gets the largest element of the given array.
+   *
+   * @param values The array, which must not be empty.
+   * @return int, the largest element.
+   */
+  private static int max(int[] values) {
+    int max = values[0];
+    for (int value : values) {
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+
+  /**
+   * Packs a pair of coordinates into a {@code long}, for use
+   * as a map key.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return long, the packed coordinates.
+   */
+  private static long pack(int x, int y) {
+    return ((long)x << 32) | (y & 0xffffffffL);
+  }
+
+  /**
+   * Calculates twice the signed area of the triangle
+   * {@code p0, p1, p2}, which is positive when the points
+   * are in anticlockwise order. Points which are collinear
+   * up to rounding give exactly 0, since the ends of split
+   * edges are rounded.
+   *
+   * @param x0 The x coordinate of p0.
+   * @param y0 The y coordinate of p0.
+   * @param x1 The x coordinate of p1.
+   * @param y1 The y coordinate of p1.
+   * @param x2 The x coordinate of p2.
+   * @param y2 The y coordinate of p2.
+   * @return double, twice the signed area.
+   */
+  private static double signedArea(
+    double x0,
+    double y0,
+    double x1,
+    double y1,
+    double x2,
+    double y2
+  ) {
+    double area = (x0-x2)*(y1-y2)-(x1-x2)*(y0-y2);
+    double length1 = (x1-x0)*(x1-x0)+(y1-y0)*(y1-y0);
+    double length2 = (x2-x0)*(x2-x0)+(y2-y0)*(y2-y0);
+    if (area*area <= PolygonClipper.EPSILON*length1*length2) {
+      return 0;
+    }
+    return area;
+  }
+
+  /**
+   * Joins the directed boundary segments produced by the
+   * sweep into rings, and joins holes into the rings around
+   * them. Segments which exactly cancel out (the same
+   * segment in both directions) are dropped first, and
+   * collinear vertices are removed from each ring.
+   *
+   * @param segments    The segments, as
+   *                    {@code startX, startY, endX, endY}
+   *                    quadruples.
+   * @param numSegments The number of segments.
+   * @return List&lt;int[][]&gt;, the x and y coordinates of
+   *         each resulting ring.
+   */
+  private static List<int[][]> assembleRings(int[] segments, int numSegments) {
+    HashMap<Long, ArrayList<Integer>> outgoing = new HashMap<>();
+    boolean[] used = new boolean[numSegments];
+    for (int i = 0; i < numSegments; ++i) {
+      long start = PolygonClipper.pack(segments[4*i], segments[4*i+1]);
+      outgoing.computeIfAbsent(start, k -> new ArrayList<>()).add(i);
+    }
+
+    for (int i = 0; i < numSegments; ++i) {
+      if (used[i]) {
+        continue;
+      }
+      ArrayList<Integer> reverse = outgoing.get(PolygonClipper.pack(segments[4*i+2], segments[4*i+3]));
+      if (reverse == null) {
+        continue;
+      }
+      for (int j : reverse) {
+        if (
+          !used[j]
+          && (segments[4*j+2] == segments[4*i])
+          && (segments[4*j+3] == segments[4*i+1])
+        ) {
+          used[i] = true;
+          used[j] = true;
+          break;
+        }
+      }
+    }
+
+    ArrayList<int[][]> outers = new ArrayList<>();
+    ArrayList<int[][]> holes = new ArrayList<>();
+    int[] ringXs = new int[16];
+    int[] ringYs = new int[16];
+    for (int i = 0; i < numSegments; ++i) {
+      if (used[i]) {
+        continue;
+      }
+      int size = 0;
+      int segment = i;
+      long start = PolygonClipper.pack(segments[4*i], segments[4*i+1]);
+      while (segment != -1) {
+        used[segment] = true;
+        if (size == ringXs.length) {
+          ringXs = Arrays.copyOf(ringXs, size*2);
+          ringYs = Arrays.copyOf(ringYs, size*2);
+        }
+        ringXs[size] = segments[4*segment];
+        ringYs[size] = segments[4*segment+1];
+        ++size;
+
+        long end = PolygonClipper.pack(segments[4*segment+2], segments[4*segment+3]);
+        segment = -1;
+        if (end != start) {
+          ArrayList<Integer> candidates = outgoing.get(end);
+          for (int k = 0; (candidates != null) && (k < candidates.size()); ++k) {
+            if (!used[candidates.get(k)]) {
+              segment = candidates.get(k);
+              break;
+            }
+          }
+        }
+      }
+
+      int[][] ring = PolygonClipper.simplifyRing(ringXs, ringYs, size);
+      if (ring != null) {
+        long area = PolygonClipper.doubleArea(ring[0], ring[1]);
+        if (area > 0) {
+          outers.add(ring);
+        } else if (area < 0) {
+          holes.add(ring);
+        }
+      }
+    }
+
+    return PolygonClipper.joinHoles(outers, holes);
+  }
+
+  /**
+   * Removes duplicate and collinear vertices from a ring.
+   *
+   * @param xs   The x coordinates of the ring.
+   * @param ys   The y coordinates of the ring.
+   * @param size The number of vertices in the ring.
+   * @return int[][], the x and y coordinates of the
+   *         simplified ring, or {@code null} if fewer than 3
+   *         vertices remain.
+   */
+  private static int[][] simplifyRing(int[] xs, int[] ys, int size) {
+    int[] outXs = new int[size];
+    int[] outYs = new int[size];
+    int n = 0;
+    for (int i = 0; i < size; ++i) {
+      outXs[n] = xs[i];
+      outYs[n] = ys[i];
+      ++n;
+      while ((n >= 3) && PolygonClipper.isCollinear(outXs, outYs, n-3, n-2, n-1)) {
+        outXs[n-2] = outXs[n-1];
+        outYs[n-2] = outYs[n-1];
+        --n;
+      }
+    }
+
+    // the start and end of the ring were never checked
+    // against each other
+    int first = 0;
+    boolean changed = true;
+    while (changed && (n-first >= 3)) {
+      changed = false;
+      if (PolygonClipper.isCollinear(outXs, outYs, n-2, n-1, first)) {
+        --n;
+        changed = true;
+      } else if (PolygonClipper.isCollinear(outXs, outYs, n-1, first, first+1)) {
+        ++first;
+        changed = true;
+      }
+    }
+    if (n-first < 3) {
+      return null;
+    }
+    return new int[][] {
+      Arrays.copyOfRange(outXs, first, n),
+      Arrays.copyOfRange(outYs, first, n)
+    };
+  }
+
+  /**
+   * Returns whether or not three vertices lie on one line,
+   * including when any of them are equal.
+   *
+   * @param xs The x coordinates.
+   * @param ys The y coordinates.
+   * @param a  The index of the first vertex.
+   * @param b  The index of the second vertex.
+   * @param c  The index of the third vertex.
+   * @return boolean, true if the vertices are collinear.
+   */
+  private static boolean isCollinear(int[] xs, int[] ys, int a, int b, int c) {
+    long ux = (long)xs[b]-xs[a];
+    long uy = (long)ys[b]-ys[a];
+    long vx = (long)xs[c]-xs[a];
+    long vy = (long)ys[c]-ys[a];
+    return !ArbitrarySimplePolygon.isProductLess(ux, vy, uy, vx)
+      && !ArbitrarySimplePolygon.isProductLess(uy, vx, ux, vy);
+  }
+
+  /**
+   * Calculates twice the signed area of a ring, which is
+   * positive when the ring is anticlockwise.
+   *
+   * @param xs The x coordinates of the ring.
+   * @param ys The y coordinates of the ring.
+   * @return long, twice the signed area.
+   */
+  private static long doubleArea(int[] xs, int[] ys) {
+    return PolygonMetrics.crossSum(xs, ys, xs.length, 0, xs.length);
+  }
+
+  /**
+   * Joins each hole into the smallest outer ring containing
+   * it, with a bridge from the hole's rightmost vertex to the
+   * nearest vertex of the outer ring.
+   *
+   * @param outers The anticlockwise outer rings.
+   * @param holes  The clockwise holes.
+   * @return List&lt;int[][]&gt;, the outer rings with their
+   *         holes joined in.
+   */
+  private static List<int[][]> joinHoles(List<int[][]> outers, List<int[][]> holes) {
+    long[] areas = new long[outers.size()];
+    int[][] bounds = new int[outers.size()][];
+    for (int i = 0; i < areas.length; ++i) {
+      areas[i] = PolygonClipper.doubleArea(outers.get(i)[0], outers.get(i)[1]);
+      bounds[i] = PolygonClipper.bounds(outers.get(i));
+    }
+
+    for (int[][] hole : holes) {
+      int[] holeBounds = PolygonClipper.bounds(hole);
+      int container = -1;
+      for (int i = 0; i < outers.size(); ++i) {
+        if (
+          (holeBounds[0] < bounds[i][0])
+          || (holeBounds[1] < bounds[i][1])
+          || (holeBounds[2] > bounds[i][2])
+          || (holeBounds[3] > bounds[i][3])
+        ) {
+          continue;
+        }
+        int[][] outer = outers.get(i);
+        boolean inside = false;
+        // a hole can touch its outer ring, so any vertex
+        // inside is enough
+        for (int v = 0; (v < hole[0].length) && !inside; ++v) {
+          inside = ArbitrarySimplePolygon.crossingTest(
+            outer[0],
+            outer[1],
+            outer[0].length,
+            hole[0][v],
+            hole[1][v]
+          );
+        }
+        if (inside && ((container == -1) || (areas[i] < areas[container]))) {
+          container = i;
+        }
+      }
+      if (container != -1) {
+        outers.set(container, PolygonClipper.bridge(outers.get(container), hole));
+      }
+    }
+    return outers;
+  }
+
+  /**
+   * Gets the bounding box of a ring.
+   *
+   * @param ring The x and y coordinates of the ring.
+   * @return int[], the smallest x, smallest y, largest x
+   *         and largest y of the ring.
+   */
+  private static int[] bounds(int[][] ring) {
+    return new int[] {
+      PolygonClipper.min(ring[0]),
+      PolygonClipper.min(ring[1]),
+      PolygonClipper.max(ring[0]),
+      PolygonClipper.max(ring[1])
+    };
+  }
+
+  /**
+   * Joins a hole into a ring with a zero width bridge.
+   *
+   * @param outer The ring.
+   * @param hole  The hole.
+   * @return int[][], the x and y coordinates of the joined
+   *         ring.
+   */
+  private static int[][] bridge(int[][] outer, int[][] hole) {
+    int holeVertex = 0;
+    for (int i = 1; i < hole[0].length; ++i) {
+      if (hole[0][i] > hole[0][holeVertex]) {
+        holeVertex = i;
+      }
+    }
+    int outerVertex = 0;
+    long nearest = Long.MAX_VALUE;
+    for (int i = 0; i < outer[0].length; ++i) {
+      long dx = (long)outer[0][i]-hole[0][holeVertex];
+      long dy = (long)outer[1][i]-hole[1][holeVertex];
+      if (dx*dx+dy*dy < nearest) {
+        nearest = dx*dx+dy*dy;
+        outerVertex = i;
+      }
+    }
+
+    int outerSize = outer[0].length;
+    int holeSize = hole[0].length;
+    int[][] joined = new int[2][outerSize+holeSize+2];
+    for (int c = 0; c < 2; ++c) {
+      int n = 0;
+      for (int i = 0; i <= outerVertex; ++i) {
+        joined[c][n++] = outer[c][i];
+      }
+      for (int i = 0; i <= holeSize; ++i) {
+        joined[c][n++] = hole[c][(holeVertex+i)%holeSize];
+      }
+      for (int i = outerVertex; i < outerSize; ++i) {
+        joined[c][n++] = outer[c][i];
+      }
+    }
+    return joined;
+  }
+
+  /**
+   * The state of a single sweep over a set of input rings.
+   */
+  private static final class Sweep {
+    /** The operation being applied. */
+    private final Operation operation;
+    /** The number of inputs. */
+    private final int numInputs;
+    /** The events left to process, in sweep order. */
+    private final PriorityQueue<SweepEvent> queue;
+    /**
+     * The edges crossing the sweep line, ordered from bottom
+     * to top, as their left events.
+     */
+    private final TreeSet<SweepEvent> status;
+    /** The next unused edge id. */
+    private int nextId;
+
+    /** The first intersection point found, x coordinate. */
+    private double intersectionX0;
+    /** The first intersection point found, y coordinate. */
+    private double intersectionY0;
+    /** The second intersection point found, x coordinate. */
+    private double intersectionX1;
+    /** The second intersection point found, y coordinate. */
+    private double intersectionY1;
+
+    /**
+     * The boundary segments of the result, as
+     * {@code startX, startY, endX, endY} quadruples.
+     */
+    private int[] output;
+    /** The number of boundary segments of the result. */
+    private int numOutput;
+
+    /**
+     * Creates a sweep applying the given operation.
+     *
+     * @param operation The operation to apply.
+     * @param numInputs The number of inputs.
+     */
+    Sweep(Operation operation, int numInputs) {
+      this.operation = operation;
+      this.numInputs = numInputs;
+      this.queue = new PriorityQueue<>(Sweep::compareEvents);
+      this.status = new TreeSet<>(Sweep::compareSegments);
+      this.output = new int[64];
+    }
+
+    /**
+     * Adds the edges of a ring to be swept. The ring is
+     * oriented anticlockwise first, so that each edge's
+     * direction tells which side the ring's interior is on.
+     *
+     * @param xs      The x coordinates of the ring.
+     * @param ys      The y coordinates of the ring.
+     * @param n       The number of vertices in the ring.
+     * @param subject Whether the ring belongs to the subject
+     *                of a difference, which is always true
+     *                for other operations.
+     */
+    void addRing(int[] xs, int[] ys, int n, boolean subject) {
+      long area = PolygonMetrics.crossSum(xs, ys, n, 0, n);
+      if (area == 0) {
+        return;
+      }
+      int orientation = (area > 0) ? 1 : -1;
+      for (int i = 0; i < n; ++i) {
+        int j = (i+1 == n) ? 0 : i+1;
+        int fromX = xs[i];
+        int fromY = ys[i];
+        int toX = xs[j];
+        int toY = ys[j];
+        if ((fromX == toX) && (fromY == toY)) {
+          continue;
+        }
+        // an edge running from its left end to its right end
+        // has the interior of an anticlockwise ring above it,
+        // so crossing it upwards enters the ring
+        boolean forwards = (fromX < toX) || ((fromX == toX) && (fromY < toY));
+        int wind = forwards ? orientation : -orientation;
+        SweepEvent left;
+        SweepEvent right;
+        int id = this.nextId++;
+        if (forwards) {
+          left = new SweepEvent(fromX, fromY, true, id);
+          right = new SweepEvent(toX, toY, false, id);
+        } else {
+          left = new SweepEvent(toX, toY, true, id);
+          right = new SweepEvent(fromX, fromY, false, id);
+        }
+        left.other = right;
+        right.other = left;
+        left.subjectWind = subject ? wind : 0;
+        left.clipWind = subject ? 0 : wind;
+        right.subjectWind = left.subjectWind;
+        right.clipWind = left.clipWind;
+        this.queue.add(left);
+        this.queue.add(right);
+      }
+    }
+
+    /**
+     * Processes every event, splitting edges where they
+     * intersect and writing the edges which bound the result
+     * to the output.
+     */
+    void run() {
+      while (!this.queue.isEmpty()) {
+        SweepEvent event = this.queue.poll();
+        if (event.left) {
+          this.status.add(event);
+          SweepEvent prev = this.status.lower(event);
+          SweepEvent next = this.status.higher(event);
+          this.computeFields(event, prev);
+          if ((next != null) && (this.possibleIntersection(event, next) == 2)) {
+            this.computeFields(event, prev);
+            this.computeFields(next, event);
+          }
+          if ((prev != null) && (this.possibleIntersection(prev, event) == 2)) {
+            this.computeFields(prev, this.status.lower(prev));
+            this.computeFields(event, prev);
+          }
+        } else {
+          SweepEvent left = event.other;
+          SweepEvent prev = this.status.lower(left);
+          SweepEvent next = this.status.higher(left);
+          if (this.status.remove(left)) {
+            if ((prev != null) && (next != null)) {
+              this.possibleIntersection(prev, next);
+            }
+          } else {
+            // only reachable if rounding has left the status
+            // out of order
+            this.status.removeIf(e -> e == left);
+          }
+          this.emitIfBoundary(left);
+        }
+      }
+    }
+
+    /**
+     * Sets the number of inputs covering the region just
+     * below an edge, from the edge just below it.
+     *
+     * @param event The left event of the edge.
+     * @param prev  The left event of the edge below, or
+     *              {@code null}.
+     */
+    private void computeFields(SweepEvent event, SweepEvent prev) {
+      if (prev == null) {
+        event.subjectBelow = 0;
+        event.clipBelow = 0;
+      } else if ((prev.x == prev.other.x) && (event.x != event.other.x)) {
+        // an edge can only be above a vertical edge at the
+        // same x if it starts on or above it, where the region
+        // below it is the region right of the vertical edge,
+        // which is below the lowest of any coincident copies
+        SweepEvent lowest = prev;
+        SweepEvent lower = this.status.lower(lowest);
+        while ((lower != null) && (lower.x == lowest.x) && (lower.other.x == lowest.x)) {
+          lowest = lower;
+          lower = this.status.lower(lowest);
+        }
+        event.subjectBelow = lowest.subjectBelow;
+        event.clipBelow = lowest.clipBelow;
+      } else {
+        event.subjectBelow = prev.subjectBelow+prev.subjectWind;
+        event.clipBelow = prev.clipBelow+prev.clipWind;
+      }
+    }
+
+    /**
+     * Returns whether or not a region covered by the given
+     * numbers of inputs is in the result.
+     *
+     * @param subjects The number of subject inputs covering
+     *                 the region.
+     * @param clips    The number of clip inputs covering the
+     *                 region.
+     * @return boolean, true if the region is in the result.
+     */
+    private boolean isInResult(int subjects, int clips) {
+      switch (this.operation) {
+        case UNION:
+          return subjects > 0;
+        case INTERSECTION:
+          return subjects == this.numInputs;
+        case DIFFERENCE:
+          return (subjects > 0) && (clips == 0);
+        default:
+          return (subjects%2) != 0;
+      }
+    }
+
+    /**
+     * Writes an edge to the output if the result is on
+     * exactly one side of it, directed so that the result is
+     * on its left.
+     *
+     * @param left The left event of the edge.
+     */
+    private void emitIfBoundary(SweepEvent left) {
+      boolean below = this.isInResult(left.subjectBelow, left.clipBelow);
+      boolean above = this.isInResult(
+        left.subjectBelow+left.subjectWind,
+        left.clipBelow+left.clipWind
+      );
+      if (below == above) {
+        return;
+      }
+      SweepEvent from = above ? left : left.other;
+      SweepEvent to = above ? left.other : left;
+      int fromX = (int)Math.round(from.x);
+      int fromY = (int)Math.round(from.y);
+      int toX = (int)Math.round(to.x);
+      int toY = (int)Math.round(to.y);
+      if ((fromX == toX) && (fromY == toY)) {
+        return;
+      }
+      if (4*this.numOutput+4 > this.output.length) {
+        this.output = Arrays.copyOf(this.output, this.output.length*2);
+      }
+      int i = 4*this.numOutput;
+      this.output[i] = fromX;
+      this.output[i+1] = fromY;
+      this.output[i+2] = toX;
+      this.output[i+3] = toY;
+      ++this.numOutput;
+    }
+
+    /**
+     * Gets the boundary segments of the result.
+     *
+     * @return int[], the segments as
+     *         {@code startX, startY, endX, endY} quadruples.
+     */
+    int[] getOutput() {
+      return this.output;
+    }
+
+    /**
+     * Gets the number of boundary segments of the result.
+     *
+     * @return int, the number of segments.
+     */
+    int getNumOutput() {
+      return this.numOutput;
+    }
+
+    /**
+     * Splits two edges which are adjacent in the status where
+     * they intersect or overlap.
+     *
+     * @param e1 The left event of the lower edge.
+     * @param e2 The left event of the upper edge.
+     * @return int, 0 if nothing was split, 1 if the edges
+     *         crossed, 2 if they overlap from the same left
+     *         point, or 3 if they overlap otherwise.
+     */
+    private int possibleIntersection(SweepEvent e1, SweepEvent e2) {
+      int numIntersections = this.intersect(e1, e2);
+      if (numIntersections == 0) {
+        return 0;
+      }
+      if (
+        (numIntersections == 1)
+        && (e1.isAt(e2.x, e2.y) || e1.other.isAt(e2.other.x, e2.other.y))
+      ) {
+        return 0;
+      }
+
+      if (numIntersections == 1) {
+        double x = this.intersectionX0;
+        double y = this.intersectionY0;
+        if (!e1.isAt(x, y) && !e1.other.isAt(x, y)) {
+          this.divideSegment(e1, x, y);
+        }
+        if (!e2.isAt(x, y) && !e2.other.isAt(x, y)) {
+          this.divideSegment(e2, x, y);
+        }
+        return 1;
+      }
+
+      // the edges overlap, so they are split at each other's
+      // ends until the overlapping parts are identical
+      SweepEvent[] events = new SweepEvent[4];
+      int numEvents = 0;
+      boolean leftCoincide = e1.isAt(e2.x, e2.y);
+      boolean rightCoincide = e1.other.isAt(e2.other.x, e2.other.y);
+      if (!leftCoincide) {
+        boolean e1First = Sweep.compareEvents(e1, e2) < 0;
+        events[numEvents++] = e1First ? e1 : e2;
+        events[numEvents++] = e1First ? e2 : e1;
+      }
+      if (!rightCoincide) {
+        boolean e1First = Sweep.compareEvents(e1.other, e2.other) < 0;
+        events[numEvents++] = e1First ? e1.other : e2.other;
+        events[numEvents++] = e1First ? e2.other : e1.other;
+      }
+
+      if (leftCoincide) {
+        if (!rightCoincide) {
+          this.divideSegment(events[1].other, events[0].x, events[0].y);
+        }
+        return 2;
+      }
+      if (rightCoincide) {
+        this.divideSegment(events[0], events[1].x, events[1].y);
+        return 3;
+      }
+      if (events[0] != events[3].other) {
+        // neither edge contains the other
+        this.divideSegment(events[0], events[1].x, events[1].y);
+        this.divideSegment(events[1], events[2].x, events[2].y);
+        return 3;
+      }
+      // one edge contains the other
+      this.divideSegment(events[0], events[1].x, events[1].y);
+      this.divideSegment(events[3].other, events[2].x, events[2].y);
+      return 3;
+    }
+
+    /**
+     * Splits an edge in two at the given point, queueing the
+     * events of the new right part.
+     *
+     * @param left The left event of the edge.
+     * @param x    The x coordinate of the point.
+     * @param y    The y coordinate of the point.
+     */
+    private void divideSegment(SweepEvent left, double x, double y) {
+      SweepEvent oldRight = left.other;
+      SweepEvent newRight = new SweepEvent(x, y, false, left.id);
+      SweepEvent newLeft = new SweepEvent(x, y, true, this.nextId++);
+      newRight.other = left;
+      newRight.subjectWind = left.subjectWind;
+      newRight.clipWind = left.clipWind;
+      newLeft.other = oldRight;
+      newLeft.subjectWind = left.subjectWind;
+      newLeft.clipWind = left.clipWind;
+      oldRight.other = newLeft;
+      oldRight.id = newLeft.id;
+      left.other = newRight;
+
+      // rounding can put the split point past the old right
+      // end, in which case the new part runs backwards
+      if (Sweep.compareEvents(newLeft, oldRight) > 0) {
+        oldRight.left = true;
+        newLeft.left = false;
+        newLeft.subjectWind = -newLeft.subjectWind;
+        newLeft.clipWind = -newLeft.clipWind;
+        oldRight.subjectWind = newLeft.subjectWind;
+        oldRight.clipWind = newLeft.clipWind;
+      }
+      this.queue.add(newLeft);
+      this.queue.add(newRight);
+    }
+
+    /**
+     * Finds the intersection of two edges, storing the
+     * intersection points found.
+     *
+     * @param e1 The left event of the first edge.
+     * @param e2 The left event of the second edge.
+     * @return int, 0 if the edges do not intersect, 1 if they
+     *         intersect at a point, or 2 if they overlap.
+     */
+    private int intersect(SweepEvent e1, SweepEvent e2) {
+      if (Sweep.compareGeometry(e1, e2) > 0) {
+        // the same pair of lines always gives the same point,
+        // so coincident copies of an edge are split alike
+        return this.intersect(e2, e1);
+      }
+      double ax = e1.x;
+      double ay = e1.y;
+      double vax = e1.other.x-ax;
+      double vay = e1.other.y-ay;
+      double vbx = e2.other.x-e2.x;
+      double vby = e2.other.y-e2.y;
+      double ex = e2.x-ax;
+      double ey = e2.y-ay;
+      double lengthA = vax*vax+vay*vay;
+      double lengthB = vbx*vbx+vby*vby;
+
+      double kross = vax*vby-vay*vbx;
+      if (kross*kross > PolygonClipper.EPSILON*lengthA*lengthB) {
+        double s = (ex*vby-ey*vbx)/kross;
+        double t = (ex*vay-ey*vax)/kross;
+        double tolerance = PolygonClipper.SNAP_TOLERANCE;
+        if ((s < -tolerance) || (s > 1+tolerance) || (t < -tolerance) || (t > 1+tolerance)) {
+          return 0;
+        }
+        // snap to the exact ends where possible, since a point
+        // computed from a split piece of an edge will not lie
+        // exactly on the end of that piece
+        // the inputs' vertices are all integral, so a point
+        // within rounding of an integral point is taken to be
+        // exactly on it, since it may be another edge's end
+        double x = Sweep.snapToGrid(ax+s*vax);
+        double y = Sweep.snapToGrid(ay+s*vay);
+        if ((s <= tolerance) || (s >= 1-tolerance)) {
+          x = (s <= tolerance) ? e1.x : e1.other.x;
+          y = (s <= tolerance) ? e1.y : e1.other.y;
+        } else if ((t <= tolerance) || (t >= 1-tolerance)) {
+          x = (t <= tolerance) ? e2.x : e2.other.x;
+          y = (t <= tolerance) ? e2.y : e2.other.y;
+        }
+        // keep the point inside both edges' bounding boxes, so
+        // that splitting a vertical or horizontal edge leaves
+        // it vertical or horizontal
+        this.intersectionX0 = Sweep.clamp(
+          x,
+          Math.max(Math.min(e1.x, e1.other.x), Math.min(e2.x, e2.other.x)),
+          Math.min(Math.max(e1.x, e1.other.x), Math.max(e2.x, e2.other.x))
+        );
+        this.intersectionY0 = Sweep.clamp(
+          y,
+          Math.max(Math.min(e1.y, e1.other.y), Math.min(e2.y, e2.other.y)),
+          Math.min(Math.max(e1.y, e1.other.y), Math.max(e2.y, e2.other.y))
+        );
+        return 1;
+      }
+
+      // parallel, so check for overlap along the line
+      double lengthE = ex*ex+ey*ey;
+      kross = ex*vay-ey*vax;
+      if (kross*kross > PolygonClipper.EPSILON*lengthA*lengthE) {
+        return 0;
+      }
+      double sa = (vax*ex+vay*ey)/lengthA;
+      double sb = sa+(vax*vbx+vay*vby)/lengthA;
+      SweepEvent startB = (sa <= sb) ? e2 : e2.other;
+      SweepEvent endB = (sa <= sb) ? e2.other : e2;
+      double sMin = Math.min(sa, sb);
+      double sMax = Math.max(sa, sb);
+      if ((sMin > 1) || (sMax < 0)) {
+        return 0;
+      }
+      this.setIntersection0((sMin <= 0) ? e1 : startB);
+      if (sMin == 1) {
+        return 1;
+      }
+      if (sMax == 0) {
+        return 1;
+      }
+      SweepEvent end = (sMax >= 1) ? e1.other : endB;
+      this.intersectionX1 = end.x;
+      this.intersectionY1 = end.y;
+      if ((this.intersectionX0 == this.intersectionX1) && (this.intersectionY0 == this.intersectionY1)) {
+        return 1;
+      }
+      return 2;
+    }
+
+    /**
+     * Rounds a coordinate to the nearest integer if it is
+     * within rounding error of it.
+     *
+     * @param value The coordinate.
+     * @return double, the possibly rounded coordinate.
+     */
+    private static double snapToGrid(double value) {
+      double rounded = Math.rint(value);
+      if (Math.abs(value-rounded) <= PolygonClipper.SNAP_TOLERANCE*Math.max(1, Math.abs(value))) {
+        return rounded;
+      }
+      return value;
+    }
+
+    /**
+     * Clamps a value to a range.
+     *
+     * @param value The value.
+     * @param min   The smallest value of the range.
+     * @param max   The largest value of the range.
+     * @return double, the closest value to {@code value}
+     *         within the range.
+     */
+    private static double clamp(double value, double min, double max) {
+      return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Compares edges by their end coordinates alone.
+     *
+     * @param e1 The left event of the first edge.
+     * @param e2 The left event of the second edge.
+     * @return int, the order of the edges' coordinates.
+     */
+    private static int compareGeometry(SweepEvent e1, SweepEvent e2) {
+      int result = Double.compare(e1.x, e2.x);
+      if (result == 0) {
+        result = Double.compare(e1.y, e2.y);
+      }
+      if (result == 0) {
+        result = Double.compare(e1.other.x, e2.other.x);
+      }
+      if (result == 0) {
+        result = Double.compare(e1.other.y, e2.other.y);
+      }
+      return result;
+    }
+
+    /**
+     * Sets the first intersection point to an event's point.
+     *
+     * @param event The event.
+     */
+    private void setIntersection0(SweepEvent event) {
+      this.intersectionX0 = event.x;
+      this.intersectionY0 = event.y;
+    }
+
+    /**
+     * Compares events in the order they are processed: from
+     * left to right, then bottom to top, with right events
+     * before left events at the same point, and lower edges
+     * before upper edges.
+     *
+     * @param e1 The first event.
+     * @param e2 The second event.
+     * @return int, negative if {@code e1} is processed first,
+     *         positive if {@code e2} is, or 0 if they are the
+     *         same.
+     */
+    private static int compareEvents(SweepEvent e1, SweepEvent e2) {
+      if (e1 == e2) {
+        return 0;
+      }
+      if (e1.x != e2.x) {
+        return (e1.x > e2.x) ? 1 : -1;
+      }
+      if (e1.y != e2.y) {
+        return (e1.y > e2.y) ? 1 : -1;
+      }
+      if (e1.left != e2.left) {
+        return e1.left ? 1 : -1;
+      }
+      if (PolygonClipper.signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.other.x, e2.other.y) != 0) {
+        return e1.isBelow(e2.other.x, e2.other.y) ? -1 : 1;
+      }
+      return Integer.compare(e1.id, e2.id);
+    }
+
+    /**
+     * Returns whether or not an edge is above another edge
+     * which is on the sweep line where it starts. An edge
+     * starting on the other edge is placed by its right end
+     * instead.
+     *
+     * @param edge  The left event of the edge to place.
+     * @param other The left event of the other edge.
+     * @return boolean, true if the edge is above the other.
+     */
+    private static boolean isAbove(SweepEvent edge, SweepEvent other) {
+      double area = PolygonClipper.signedArea(
+        other.x, other.y, other.other.x, other.other.y, edge.x, edge.y
+      );
+      if (area == 0) {
+        area = PolygonClipper.signedArea(
+          other.x, other.y, other.other.x, other.other.y, edge.other.x, edge.other.y
+        );
+      }
+      return area > 0;
+    }
+
+    /**
+     * Compares the edges of two left events by their order
+     * on the sweep line, from bottom to top.
+     *
+     * @param e1 The left event of the first edge.
+     * @param e2 The left event of the second edge.
+     * @return int, negative if the first edge is below,
+     *         positive if it is above, or 0 if they are the
+     *         same edge.
+     */
+    private static int compareSegments(SweepEvent e1, SweepEvent e2) {
+      if (e1 == e2) {
+        return 0;
+      }
+      if (
+        (PolygonClipper.signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.x, e2.y) != 0)
+        || (PolygonClipper.signedArea(e1.x, e1.y, e1.other.x, e1.other.y, e2.other.x, e2.other.y) != 0)
+      ) {
+        if (e1.isAt(e2.x, e2.y)) {
+          return e1.isBelow(e2.other.x, e2.other.y) ? -1 : 1;
+        }
+        if (e1.x == e2.x) {
+          return (e1.y < e2.y) ? -1 : 1;
+        }
+        // compare against whichever edge was inserted first
+        if (Sweep.compareEvents(e1, e2) > 0) {
+          return Sweep.isAbove(e1, e2) ? 1 : -1;
+        }
+        return Sweep.isAbove(e2, e1) ? -1 : 1;
+      }
+      // collinear
+      if (e1.isAt(e2.x, e2.y)) {
+        return Integer.compare(e1.id, e2.id);
+      }
+      return Sweep.compareEvents(e1, e2);
+    }
+  }
+
+  /**
+   * An end of an edge being swept. The left event of an edge
+   * also holds the number of inputs covering the region just
+   * below it.
+   */
+  private static final class SweepEvent {
+    /** The x coordinate of this end. */
+    private final double x;
+    /** The y coordinate of this end. */
+    private final double y;
+    /**
+     * Whether this is the left (first processed) end of its
+     * edge.
+     */
+    private boolean left;
+    /** The other end of the edge. */
+    private SweepEvent other;
+    /** The id of the edge, which breaks ties in ordering. */
+    private int id;
+    /**
+     * The change in the number of subject inputs covering a
+     * point crossing this edge upwards.
+     */
+    private int subjectWind;
+    /**
+     * The change in the number of clip inputs covering a
+     * point crossing this edge upwards.
+     */
+    private int clipWind;
+    /** The number of subject inputs just below this edge. */
+    private int subjectBelow;
+    /** The number of clip inputs just below this edge. */
+    private int clipBelow;
+
+    /**
+     * Creates a new event.
+     *
+     * @param x    The x coordinate of the end.
+     * @param y    The y coordinate of the end.
+     * @param left Whether this is the left end.
+     * @param id   The id of the edge.
+     */
+    SweepEvent(double x, double y, boolean left, int id) {
+      this.x = x;
+      this.y = y;
+      this.left = left;
+      this.id = id;
+    }
+
+    /**
+     * Returns whether or not this event is at the given
+     * point.
+     *
+     * @param px The x coordinate of the point.
+     * @param py The y coordinate of the point.
+     * @return boolean, true if the points are equal.
+     */
+    boolean isAt(double px, double py) {
+      return (this.x == px) && (this.y == py);
+    }
+
+    /**
+     * Returns whether or not this event's edge is below the
+     * given point.
+     *
+     * @param px The x coordinate of the point.
+     * @param py The y coordinate of the point.
+     * @return boolean, true if the edge is below the point.
+     */
+    boolean isBelow(double px, double py) {
+      if (this.left) {
+        return PolygonClipper.signedArea(this.x, this.y, this.other.x, this.other.y, px, py) > 0;
+      }
+      return PolygonClipper.signedArea(this.other.x, this.other.y, this.x, this.y, px, py) > 0;
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package shapes;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+
+/**
+ * A set of progressively simplified versions of a polygon,
+ * for drawing polygons with many vertices at a lower level
+ * of detail when they are small on screen. Level {@code k}
+ * is simplified with a tolerance of {@code 2^k} units,
+ * meaning no removed vertex is further than that from the
+ * simplified outline, until a level would have too few
+ * vertices to be worth simplifying further.
+ * <p>
+ * Simplification uses the Douglas-Peucker algorithm:
+ * https://en.wikipedia.org/wiki/Ramer%E2%80%93Douglas%E2%80%93Peucker_algorithm.
+ * The recursion splits on the same vertex regardless of
+ * tolerance, so it is run once to give every vertex a
+ * significance (the smallest split distance on its path
+ * through the recursion), and each level is then just the
+ * vertices more significant than its tolerance.
+ * <p>
+ * Like {@code EdgeIntervalTree}, the levels are stored
+ * relative to an origin given when building, so they stay
+ * valid when the polygon is translated.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class PolygonDetailLevels {
+  /**
+   * The number of vertices below which no more levels are
+   * made, since drawing that many vertices is already cheap.
+   */
+  private static final int MIN_LEVEL_VERTICES = 16;
+  /** The largest tolerance exponent a level can have. */
+  private static final int MAX_LEVELS = 30;
+
+  /**
+   * The simplified polygons, where the polygon at index
+   * {@code k} has a tolerance of {@code 2^k}.
+   */
+  private final Polygon[] levels;
+
+  /**
+   * Builds the levels of detail for the polygon given by the
+   * coordinate arrays, with all coordinates stored relative
+   * to the given origin.
+   *
+   * @param xs      The x coordinates of the polygon's
+   *                vertices.
+   * @param ys      The y coordinates of the polygon's
+   *                vertices.
+   * @param n       The number of vertices in the polygon.
+   * @param originX The x coordinate to store vertices
+   *                relative to.
+   * @param originY The y coordinate to store vertices
+   *                relative to.
+   */
+  PolygonDetailLevels(int[] xs, int[] ys, int n, int originX, int originY) {
+    double[] significance = PolygonDetailLevels.significance(xs, ys, n);
+
+    Polygon[] levels = new Polygon[PolygonDetailLevels.MAX_LEVELS];
+    int numLevels = 0;
+    int[] levelXs = new int[n];
+    int[] levelYs = new int[n];
+    int previousCount = n;
+
+    while (numLevels < PolygonDetailLevels.MAX_LEVELS) {
+      double tolerance = (double)(1L << numLevels);
+      int count = 0;
+      for (int i = 0; i < n; ++i) {
+        if (significance[i] > tolerance) {
+          levelXs[count] = xs[i]-originX;
+          levelYs[count] = ys[i]-originY;
+          ++count;
+        }
+      }
+      if (count < 3) {
+        break;
+      }
+      // a level that is no simpler than the last reuses it,
+      // where null means the full polygon
+      if (count == previousCount) {
+        levels[numLevels] = (numLevels == 0) ? null : levels[numLevels-1];
+      } else {
+        levels[numLevels] = new Polygon(levelXs, levelYs, count);
+      }
+      ++numLevels;
+      previousCount = count;
+      if (count < PolygonDetailLevels.MIN_LEVEL_VERTICES) {
+        break;
+      }
+    }
+
+    this.levels = Arrays.copyOf(levels, numLevels);
+  }
+
+  /**
+   * Calculates the significance of every vertex of the given
+   * polygon: the largest tolerance at which Douglas-Peucker
+   * simplification would keep the vertex. The ring is split
+   * into two chains at the first vertex and the vertex
+   * furthest from it, which are always kept.
+   *
+   * @param xs The x coordinates of the polygon's vertices.
+   * @param ys The y coordinates of the polygon's vertices.
+   * @param n  The number of vertices in the polygon.
+   * @return double[], the significance of each vertex.
+   */
+  private static double[] significance(int[] xs, int[] ys, int n) {
+    double[] significance = new double[n];
+
+    int furthest = 0;
+    double furthestDistance = -1;
+    for (int i = 1; i < n; ++i) {
+      double dx = (double)xs[i]-xs[0];
+      double dy = (double)ys[i]-ys[0];
+      if (dx*dx+dy*dy > furthestDistance) {
+        furthestDistance = dx*dx+dy*dy;
+        furthest = i;
+      }
+    }
+    significance[0] = Double.POSITIVE_INFINITY;
+    significance[furthest] = Double.POSITIVE_INFINITY;
+
+    // explicit stack of (start, end) chains, since recursion
+    // could go as deep as the number of vertices; the second
+    // chain wraps past the end of the arrays
+    int[] starts = new int[64];
+    int[] ends = new int[64];
+    double[] limits = new double[64];
+    int size = 0;
+    starts[size] = 0;
+    ends[size] = furthest;
+    limits[size] = Double.POSITIVE_INFINITY;
+    ++size;
+    starts[size] = furthest;
+    ends[size] = n;
+    limits[size] = Double.POSITIVE_INFINITY;
+    ++size;
+
+    while (size > 0) {
+      --size;
+      int start = starts[size];
+      int end = ends[size];
+      double limit = limits[size];
+      if (end-start < 2) {
+        continue;
+      }
+
+      double ax = xs[start];
+      double ay = ys[start];
+      double bx = xs[end%n];
+      double by = ys[end%n];
+      int split = -1;
+      double splitDistance = -1;
+      for (int i = start+1; i < end; ++i) {
+        double distance = PolygonDetailLevels.segmentDistanceSquared(
+          xs[i],
+          ys[i],
+          ax,
+          ay,
+          bx,
+          by
+        );
+        if (distance > splitDistance) {
+          splitDistance = distance;
+          split = i;
+        }
+      }
+
+      double splitSignificance = Math.min(limit, Math.sqrt(splitDistance));
+      significance[split] = splitSignificance;
+
+      if (size+2 > starts.length) {
+        starts = Arrays.copyOf(starts, starts.length*2);
+        ends = Arrays.copyOf(ends, ends.length*2);
+        limits = Arrays.copyOf(limits, limits.length*2);
+      }
+      starts[size] = start;
+      ends[size] = split;
+      limits[size] = splitSignificance;
+      ++size;
+      starts[size] = split;
+      ends[size] = end;
+      limits[size] = splitSignificance;
+      ++size;
+    }
+    return significance;
+  }
+
+  /**
+   * Calculates the squared distance from a point to a line
+   * segment.
+   *
+   * @param px The x coordinate of the point.
+   * @param py The y coordinate of the point.
+   * @param ax The x coordinate of the start of the segment.
+   * @param ay The y coordinate of the start of the segment.
+   * @param bx The x coordinate of the end of the segment.
+   * @param by The y coordinate of the end of the segment.
+   * @return double, the squared distance.
+   */
+  private static double segmentDistanceSquared(
+    double px,
+    double py,
+    double ax,
+    double ay,
+    double bx,
+    double by
+  ) {
+    double dx = bx-ax;
+    double dy = by-ay;
+    double lengthSquared = dx*dx+dy*dy;
+    double t = 0;
+    if (lengthSquared > 0) {
+      t = Math.max(0, Math.min(1, ((px-ax)*dx+(py-ay)*dy)/lengthSquared));
+    }
+    double ex = px-(ax+t*dx);
+    double ey = py-(ay+t*dy);
+    return ex*ex+ey*ey;
+  }
+
+  /**
+   * Gets the most simplified level whose tolerance is no more
+   * than the given error, or {@code null} if no level is
+   * within it and the full polygon should be used.
+   *
+   * @param maxError The largest allowed distance between the
+   *                 simplified and full outlines.
+   * @return Polygon, the simplified polygon relative to the
+   *         origin given when building, or {@code null}.
+   */
+  Polygon getLevel(double maxError) {
+    if ((maxError < 1) || (this.levels.length == 0)) {
+      return null;
+    }
+    int level = Math.getExponent(maxError);
+    return this.levels[Math.min(level, this.levels.length-1)];
+  }
+}
@@ -0,0 +1,404 @@
+package shapes;
+
+import java.awt.Polygon;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
+
+/**
+ * The immutable vertices of a polygon, shared by every
+ * {@code ArbitrarySimplePolygon} with the same outline
+ * regardless of position, colour, or rotation. Each distinct
+ * outline is interned, so a scene with many copies of the
+ * same polygon only stores its vertices, area, perimeter,
+ * and everything built from its rotated vertices once.
+ * <p>
+ * The vertices are stored relative to the top left corner of
+ * their bounding box, so two polygons which only differ by a
+ * translation have the same geometry. Everything which
+ * depends on rotation is kept in an {@link Orientation} for
+ * each rotation in use, which is also shared.
+ * <p>
+ * Interned geometries are only weakly held, so a geometry
+ * no longer used by any polygon can be garbage collected.
+ * Deserialized geometries are interned as well.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class PolygonGeometry implements Serializable {
+  private static final long serialVersionUID = 1792800000L;
+
+  /**
+   * The interned geometries. The values are weak references
+   * to the keys themselves, so that the table does not keep
+   * its keys alive.
+   */
+  private static final WeakHashMap<PolygonGeometry, WeakReference<PolygonGeometry>> INTERNED =
+    new WeakHashMap<>();
+
+  /**
+   * The x coordinates of the vertices, relative to the left
+   * edge of their bounding box. Never modified.
+   */
+  private final int[] xPoints;
+  /**
+   * The y coordinates of the vertices, relative to the top
+   * edge of their bounding box. Never modified.
+   */
+  private final int[] yPoints;
+  /** The hash of the vertices, calculated once. */
+  private final int hash;
+
+  /** The area of this polygon, or negative if not calculated yet. */
+  private transient volatile double area;
+  /** The perimeter of this polygon, or negative if not calculated yet. */
+  private transient volatile double perimeter;
+  /**
+   * The orientations of this polygon which have been built,
+   * by rotation in degrees from 0 to 359. Only weakly held,
+   * since each polygon holds its own orientation.
+   */
+  private transient HashMap<Integer, WeakReference<Orientation>> orientations;
+
+  /**
+   * Constructs a new {@code PolygonGeometry} with the given
+   * vertices, which must already be relative to the top left
+   * corner of their bounding box and must not be referenced
+   * anywhere else.
+   *
+   * @param xPoints The x coordinates of the vertices.
+   * @param yPoints The y coordinates of the vertices.
+   */
+  private PolygonGeometry(int[] xPoints, int[] yPoints) {
+    this.xPoints = xPoints;
+    this.yPoints = yPoints;
+    this.hash = 31*Arrays.hashCode(xPoints)+Arrays.hashCode(yPoints);
+    this.initializeCaches();
+  }
+
+  /**
+   * Gets the interned geometry with the same outline as the
+   * polygon given by the first {@code numPoints} coordinates
+   * of the given arrays, creating it if there is none. The
+   * arrays are not modified or referenced afterwards.
+   *
+   * @param xPoints   The x coordinates of the vertices.
+   * @param yPoints   The y coordinates of the vertices.
+   * @param numPoints The number of vertices to use from the
+   *                  coordinate arrays.
+   * @return PolygonGeometry, the interned geometry.
+   */
+  static PolygonGeometry intern(int[] xPoints, int[] yPoints, int numPoints) {
+    int[] xs = Arrays.copyOf(xPoints, numPoints);
+    int[] ys = Arrays.copyOf(yPoints, numPoints);
+    int[] bounds = PolygonMetrics.bounds(xs, ys, numPoints);
+    int minX = bounds[PolygonMetrics.MIN_X];
+    int maxY = bounds[PolygonMetrics.MAX_Y];
+    if ((minX != 0) || (maxY != 0)) {
+      for (int i = 0; i < numPoints; ++i) {
+        xs[i] -= minX;
+        ys[i] -= maxY;
+      }
+    }
+    return PolygonGeometry.intern(new PolygonGeometry(xs, ys));
+  }
+
+  /**
+   * Gets the interned geometry equal to the given geometry,
+   * interning the given geometry if there is none.
+   *
+   * @param geometry The geometry to intern.
+   * @return PolygonGeometry, the interned geometry.
+   */
+  private static PolygonGeometry intern(PolygonGeometry geometry) {
+    synchronized (PolygonGeometry.INTERNED) {
+      WeakReference<PolygonGeometry> ref = PolygonGeometry.INTERNED.get(geometry);
+      PolygonGeometry interned = (ref == null) ? null : ref.get();
+      if (interned == null) {
+        PolygonGeometry.INTERNED.put(geometry, new WeakReference<>(geometry));
+        interned = geometry;
+      }
+      return interned;
+    }
+  }
+
+  /**
+   * Replaces a deserialized geometry with the interned
+   * geometry with the same outline.
+   *
+   * @return Object, the interned geometry.
+   * @throws ObjectStreamException Never.
+   */
+  private Object readResolve() throws ObjectStreamException {
+    this.initializeCaches();
+    return PolygonGeometry.intern(this);
+  }
+
+  /**
+   * Sets the transient caches to their empty state, since
+   * they are not set on deserialization.
+   */
+  private void initializeCaches() {
+    this.area = -1;
+    this.perimeter = -1;
+    this.orientations = new HashMap<>();
+  }
+
+  /**
+   * Gets the number of vertices of this polygon.
+   *
+   * @return int, the number of vertices.
+   */
+  int getNumPoints() {
+    return this.xPoints.length;
+  }
+
+  /**
+   * Gets the x coordinate of a vertex, relative to the left
+   * edge of the bounding box.
+   *
+   * @param i The index of the vertex.
+   * @return int, the x coordinate of the vertex.
+   */
+  int getX(int i) {
+    return this.xPoints[i];
+  }
+
+  /**
+   * Gets the y coordinate of a vertex, relative to the top
+   * edge of the bounding box.
+   *
+   * @param i The index of the vertex.
+   * @return int, the y coordinate of the vertex.
+   */
+  int getY(int i) {
+    return this.yPoints[i];
+  }
+
+  /**
+   * Gets the area of this polygon, by the shoelace formula,
+   * calculating it on first use.
+   *
+   * @return double, the area of this polygon.
+   */
+  double getArea() {
+    if (this.area < 0) {
+      this.area = PolygonMetrics.area(this.xPoints, this.yPoints, this.xPoints.length);
+    }
+    return this.area;
+  }
+
+  /**
+   * Gets the perimeter of this polygon, calculating it on
+   * first use.
+   *
+   * @return double, the perimeter of this polygon.
+   */
+  double getPerimeter() {
+    if (this.perimeter < 0) {
+      this.perimeter = PolygonMetrics.perimeter(
+        this.xPoints,
+        this.yPoints,
+        this.xPoints.length
+      );
+    }
+    return this.perimeter;
+  }
+
+  /**
+   * Gets this polygon rotated by the given number of degrees,
+   * building it if no polygon currently holds it.
+   *
+   * @param rotation The rotation, in degrees. A positive
+   *                 value results in an anticlockwise
+   *                 rotation.
+   * @return Orientation, the rotated polygon.
+   */
+  Orientation getOrientation(int rotation) {
+    Integer key = ((rotation%360)+360)%360;
+    synchronized (this.orientations) {
+      WeakReference<Orientation> ref = this.orientations.get(key);
+      Orientation orientation = (ref == null) ? null : ref.get();
+      if (orientation == null) {
+        orientation = new Orientation(this, key);
+        this.orientations.put(key, new WeakReference<>(orientation));
+      }
+      return orientation;
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof PolygonGeometry)) {
+      return false;
+    }
+    PolygonGeometry other = (PolygonGeometry)o;
+    return (this.hash == other.hash)
+      && Arrays.equals(this.xPoints, other.xPoints)
+      && Arrays.equals(this.yPoints, other.yPoints);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  /**
+   * A {@code PolygonGeometry} rotated by some number of
+   * degrees, along with the structures built from the rotated
+   * vertices. Those structures are stored relative to the top
+   * left corner of the rotated bounding box, so they are
+   * valid for every polygon with this geometry and rotation,
+   * wherever it is.
+   * <p>
+   * The structures are built lazily. They may be built twice
+   * if two threads ask at once, which is harmless since they
+   * are identical, and they are volatile so that a structure
+   * built on one thread is fully visible on another.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  static final class Orientation {
+    /**
+     * The rotated vertices, with the coordinate arrays used
+     * directly for calculations and the
+     * {@code java.awt.Polygon} itself used for drawing. Never
+     * modified.
+     */
+    private final Polygon polygon;
+    /**
+     * The bounds of the rotated vertices, as returned by
+     * {@code PolygonMetrics.bounds}.
+     */
+    private final int[] bounds;
+    /** The point location structure, built lazily. */
+    private volatile EdgeIntervalTree edgeTree;
+    /** The simplified versions for drawing, built lazily. */
+    private volatile PolygonDetailLevels detailLevels;
+    /** The convex hull, built lazily. */
+    private volatile ConvexHull hull;
+
+    /**
+     * Rotates the given geometry. The rotation is always
+     * applied to the original vertices, so rounding errors do
+     * not build up over repeated rotations.
+     *
+     * @param geometry The geometry to rotate.
+     * @param rotation The rotation, in degrees, from 0 to 359.
+     */
+    private Orientation(PolygonGeometry geometry, int rotation) {
+      int n = geometry.xPoints.length;
+      int[] xs = Arrays.copyOf(geometry.xPoints, n);
+      int[] ys = Arrays.copyOf(geometry.yPoints, n);
+      if (rotation == 0) {
+        this.bounds = PolygonMetrics.bounds(xs, ys, n);
+      } else {
+        this.bounds = PolygonMetrics.rotate(
+          xs,
+          ys,
+          n,
+          Math.sin(Math.toRadians(rotation)),
+          Math.cos(Math.toRadians(rotation))
+        );
+      }
+      // the arrays are already copies, so they are not copied
+      // again by Polygon's constructor
+      this.polygon = new Polygon();
+      this.polygon.xpoints = xs;
+      this.polygon.ypoints = ys;
+      this.polygon.npoints = n;
+    }
+
+    /**
+     * Gets the rotated vertices. The returned polygon must not
+     * be modified.
+     *
+     * @return Polygon, the rotated vertices.
+     */
+    Polygon getPolygon() {
+      return this.polygon;
+    }
+
+    /**
+     * Gets the bounds of the rotated vertices, indexed by
+     * {@code PolygonMetrics.MIN_X} and so on. The returned
+     * array must not be modified.
+     *
+     * @return int[], the bounds of the rotated vertices.
+     */
+    int[] getBounds() {
+      return this.bounds;
+    }
+
+    /**
+     * Gets the point location structure for the rotated
+     * vertices, building it if needed.
+     *
+     * @return EdgeIntervalTree, the point location structure.
+     */
+    EdgeIntervalTree getEdgeTree() {
+      EdgeIntervalTree edgeTree = this.edgeTree;
+      if (edgeTree == null) {
+        edgeTree = new EdgeIntervalTree(
+          this.polygon.xpoints,
+          this.polygon.ypoints,
+          this.polygon.npoints,
+          this.bounds[PolygonMetrics.MIN_X],
+          this.bounds[PolygonMetrics.MAX_Y]
+        );
+        this.edgeTree = edgeTree;
+      }
+      return edgeTree;
+    }
+
+    /**
+     * Gets the simplified versions of the rotated vertices,
+     * building them if needed.
+     *
+     * @return PolygonDetailLevels, the simplified versions.
+     */
+    PolygonDetailLevels getDetailLevels() {
+      PolygonDetailLevels detailLevels = this.detailLevels;
+      if (detailLevels == null) {
+        detailLevels = new PolygonDetailLevels(
+          this.polygon.xpoints,
+          this.polygon.ypoints,
+          this.polygon.npoints,
+          this.bounds[PolygonMetrics.MIN_X],
+          this.bounds[PolygonMetrics.MAX_Y]
+        );
+        this.detailLevels = detailLevels;
+      }
+      return detailLevels;
+    }
+
+    /**
+     * Gets the convex hull of the rotated vertices, building
+     * it if needed.
+     *
+     * @return ConvexHull, the convex hull.
+     */
+    ConvexHull getHull() {
+      ConvexHull hull = this.hull;
+      if (hull == null) {
+        hull = new ConvexHull(
+          this.polygon.xpoints,
+          this.polygon.ypoints,
+          this.polygon.npoints,
+          this.bounds[PolygonMetrics.MIN_X],
+          this.bounds[PolygonMetrics.MAX_Y]
+        );
+        this.hull = hull;
+      }
+      return hull;
+    }
+  }
+}
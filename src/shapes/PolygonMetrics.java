@@ -0,0 +1,422 @@
+package shapes;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class containing area, perimeter, bounds, and rotation
+ * calculations over polygons stored as primitive coordinate
+ * arrays. Each calculation is split into fixed size ranges
+ * of vertices (leaves), whose partial results are reduced
+ * at the end. Polygons with enough vertices have their
+ * leaves computed in parallel on the common
+ * {@code ForkJoinPool}; small polygons are computed on the
+ * calling thread with the same code.
+ * <p>
+ * All products of coordinates are made in {@code long}, so
+ * no calculation overflows for any {@code int} coordinates,
+ * except where noted.
+ * <p>
+ * Rotations use a vector kernel from the separate
+ * {@code src-vector} sources when it has been compiled and
+ * the {@code jdk.incubator.vector} module is added at run
+ * time (see {@code VectorRotationKernel}). It is loaded by
+ * name, so this class builds and runs without it, using the
+ * scalar loop in {@link #rotateRange}, which gives the same
+ * results.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+final class PolygonMetrics {
+  /** The number of vertices in each leaf range. */
+  private static final int LEAF_SIZE = 1 << 12;
+  /**
+   * The number of vertices at which calculations are split
+   * across the {@code ForkJoinPool}.
+   */
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+  /** The name of the vector rotation kernel. */
+  private static final String VECTOR_KERNEL = "shapes.VectorRotationKernel";
+  /** The kernel which rotates each leaf of vertices. */
+  private static final RotationKernel ROTATION_KERNEL = PolygonMetrics.loadRotationKernel();
+
+  /** Index of the smallest x coordinate in a bounds array. */
+  static final int MIN_X = 0;
+  /** Index of the largest x coordinate in a bounds array. */
+  static final int MAX_X = 1;
+  /** Index of the smallest y coordinate in a bounds array. */
+  static final int MIN_Y = 2;
+  /** Index of the largest y coordinate in a bounds array. */
+  static final int MAX_Y = 3;
+
+  /**
+   * Do not allow instantiation of {@code PolygonMetrics},
+   * which only contains static methods.
+   */
+  private PolygonMetrics() {
+  }
+
+  /**
+   * Calculates the area of the polygon given by the
+   * coordinate arrays with the shoelace formula:
+   * https://en.wikipedia.org/wiki/Shoelace_formula. Each
+   * leaf is summed exactly in {@code long}, and the leaf sums
+   * are combined with compensated (Neumaier) summation. A
+   * leaf sum can only overflow if coordinates exceed roughly
+   * {@code 2^25} in magnitude.
+   *
+   * @param xs The x coordinates of the polygon's vertices.
+   * @param ys The y coordinates of the polygon's vertices.
+   * @param n  The number of vertices in the polygon.
+   * @return double, the area of the polygon.
+   */
+  static double area(int[] xs, int[] ys, int n) {
+    long[] partials = new long[PolygonMetrics.numLeaves(n)];
+    PolygonMetrics.forEachLeaf(n, (leaf, from, to) -> {
+      partials[leaf] = PolygonMetrics.crossSum(xs, ys, n, from, to);
+    });
+
+    double sum = 0;
+    double compensation = 0;
+    for (long partial : partials) {
+      double term = partial;
+      double newSum = sum+term;
+      if (Math.abs(sum) >= Math.abs(term)) {
+        compensation += (sum-newSum)+term;
+      } else {
+        compensation += (term-newSum)+sum;
+      }
+      sum = newSum;
+    }
+    return Math.abs(sum+compensation)/2.0;
+  }
+
+  /**
+   * Calculates the sum of the cross products of each pair of
+   * consecutive vertices in the given range, wrapping around
+   * to the first vertex after the last.
+   *
+   * @param xs   The x coordinates of the polygon's vertices.
+   * @param ys   The y coordinates of the polygon's vertices.
+   * @param n    The number of vertices in the polygon.
+   * @param from The first vertex (inclusive) of the range.
+   * @param to   The last vertex (exclusive) of the range.
+   * @return long, the sum of the cross products.
+   */
+  static long crossSum(int[] xs, int[] ys, int n, int from, int to) {
+    long sum = 0;
+    int last = Math.min(to, n-1);
+    for (int i = from; i < last; ++i) {
+      sum += (long)xs[i]*ys[i+1]-(long)ys[i]*xs[i+1];
+    }
+    if (to == n) {
+      sum += (long)xs[n-1]*ys[0]-(long)ys[n-1]*xs[0];
+    }
+    return sum;
+  }
+
+  /**
+   * Calculates the perimeter of the polygon given by the
+   * coordinate arrays, the sum of the distances between each
+   * pair of consecutive vertices, including the last and
+   * first.
+   *
+   * @param xs The x coordinates of the polygon's vertices.
+   * @param ys The y coordinates of the polygon's vertices.
+   * @param n  The number of vertices in the polygon.
+   * @return double, the perimeter of the polygon.
+   */
+  static double perimeter(int[] xs, int[] ys, int n) {
+    double[] partials = new double[PolygonMetrics.numLeaves(n)];
+    PolygonMetrics.forEachLeaf(n, (leaf, from, to) -> {
+      partials[leaf] = PolygonMetrics.edgeLengthSum(xs, ys, n, from, to);
+    });
+
+    double sum = 0;
+    for (double partial : partials) {
+      sum += partial;
+    }
+    return sum;
+  }
+
+  /**
+   * Calculates the sum of the distances between each pair of
+   * consecutive vertices in the given range, wrapping around
+   * to the first vertex after the last.
+   *
+   * @param xs   The x coordinates of the polygon's vertices.
+   * @param ys   The y coordinates of the polygon's vertices.
+   * @param n    The number of vertices in the polygon.
+   * @param from The first vertex (inclusive) of the range.
+   * @param to   The last vertex (exclusive) of the range.
+   * @return double, the sum of the edge lengths.
+   */
+  static double edgeLengthSum(int[] xs, int[] ys, int n, int from, int to) {
+    double sum = 0;
+    int last = Math.min(to, n-1);
+    for (int i = from; i < last; ++i) {
+      double dx = (long)xs[i+1]-xs[i];
+      double dy = (long)ys[i+1]-ys[i];
+      sum += Math.sqrt(dx*dx+dy*dy);
+    }
+    if (to == n) {
+      double dx = (long)xs[0]-xs[n-1];
+      double dy = (long)ys[0]-ys[n-1];
+      sum += Math.sqrt(dx*dx+dy*dy);
+    }
+    return sum;
+  }
+
+  /**
+   * Calculates the bounding box of the polygon given by the
+   * coordinate arrays. The returned array is indexed by
+   * {@link #MIN_X}, {@link #MAX_X}, {@link #MIN_Y}, and
+   * {@link #MAX_Y}.
+   *
+   * @param xs The x coordinates of the polygon's vertices.
+   * @param ys The y coordinates of the polygon's vertices.
+   * @param n  The number of vertices in the polygon.
+   * @return int[], the bounds of the polygon.
+   */
+  static int[] bounds(int[] xs, int[] ys, int n) {
+    int[] partials = new int[PolygonMetrics.numLeaves(n)*4];
+    PolygonMetrics.forEachLeaf(n, (leaf, from, to) -> {
+      PolygonMetrics.rangeBounds(xs, ys, from, to, partials, leaf*4);
+    });
+    return PolygonMetrics.reduceBounds(partials);
+  }
+
+  /**
+   * Calculates the bounding box of the vertices in the given
+   * range, and stores it in the given array at the given
+   * offset, in the same order as {@link #bounds}.
+   *
+   * @param xs     The x coordinates of the polygon's
+   *               vertices.
+   * @param ys     The y coordinates of the polygon's
+   *               vertices.
+   * @param from   The first vertex (inclusive) of the range.
+   * @param to     The last vertex (exclusive) of the range.
+   * @param out    The array to store the bounds in.
+   * @param offset The index in {@code out} to store the
+   *               bounds at.
+   */
+  static void rangeBounds(int[] xs, int[] ys, int from, int to, int[] out, int offset) {
+    int minX = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (int i = from; i < to; ++i) {
+      minX = Math.min(minX, xs[i]);
+      maxX = Math.max(maxX, xs[i]);
+      minY = Math.min(minY, ys[i]);
+      maxY = Math.max(maxY, ys[i]);
+    }
+    out[offset+MIN_X] = minX;
+    out[offset+MAX_X] = maxX;
+    out[offset+MIN_Y] = minY;
+    out[offset+MAX_Y] = maxY;
+  }
+
+  /**
+   * Rotates every vertex of the polygon given by the
+   * coordinate arrays about the origin, in place, rounding
+   * the results to the nearest integer, and returns the
+   * bounding box of the rotated polygon. The bounds of each
+   * leaf are found in the same pass as its rotation, while
+   * the leaf is still in cache. The returned array is
+   * indexed like {@link #bounds}.
+   *
+   * @param xs   The x coordinates of the polygon's vertices.
+   * @param ys   The y coordinates of the polygon's vertices.
+   * @param n    The number of vertices in the polygon.
+   * @param sinT The sine of the angle to rotate by.
+   * @param cosT The cosine of the angle to rotate by.
+   * @return int[], the bounds of the rotated polygon.
+   */
+  static int[] rotate(int[] xs, int[] ys, int n, double sinT, double cosT) {
+    int[] partials = new int[PolygonMetrics.numLeaves(n)*4];
+    PolygonMetrics.forEachLeaf(n, (leaf, from, to) -> {
+      PolygonMetrics.ROTATION_KERNEL.rotateRange(xs, ys, from, to, sinT, cosT);
+      PolygonMetrics.rangeBounds(xs, ys, from, to, partials, leaf*4);
+    });
+    return PolygonMetrics.reduceBounds(partials);
+  }
+
+  /**
+   * Rotates the vertices in the given range about the origin,
+   * in place, rounding the results to the nearest integer.
+   *
+   * @param xs   The x coordinates of the polygon's vertices.
+   * @param ys   The y coordinates of the polygon's vertices.
+   * @param from The first vertex (inclusive) of the range.
+   * @param to   The last vertex (exclusive) of the range.
+   * @param sinT The sine of the angle to rotate by.
+   * @param cosT The cosine of the angle to rotate by.
+   */
+  static void rotateRange(int[] xs, int[] ys, int from, int to, double sinT, double cosT) {
+    for (int i = from; i < to; ++i) {
+      double x = xs[i];
+      double y = ys[i];
+      xs[i] = (int)Math.round(x*cosT-y*sinT);
+      ys[i] = (int)Math.round(x*sinT+y*cosT);
+    }
+  }
+
+  /**
+   * Gets the kernel used to rotate each leaf of vertices.
+   *
+   * @return RotationKernel, the vector kernel if it was
+   *         loaded, or else {@link #rotateRange}.
+   */
+  static RotationKernel getRotationKernel() {
+    return PolygonMetrics.ROTATION_KERNEL;
+  }
+
+  /**
+   * Loads the vector rotation kernel if the
+   * {@code jdk.incubator.vector} module is present and the
+   * kernel was compiled, or else falls back to the scalar
+   * loop.
+   *
+   * @return RotationKernel, the kernel to rotate leaves with.
+   */
+  private static RotationKernel loadRotationKernel() {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      try {
+        return (RotationKernel)Class.forName(PolygonMetrics.VECTOR_KERNEL)
+          .getDeclaredConstructor()
+          .newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // not compiled, or the CPU has no vector shape with
+        // as many ints as doubles
+      }
+    }
+    return PolygonMetrics::rotateRange;
+  }
+
+  /**
+   * Combines the bounds of each leaf, stored consecutively in
+   * the given array, into the bounds of the whole polygon.
+   *
+   * @param partials The bounds of each leaf.
+   * @return int[], the bounds of the whole polygon.
+   */
+  private static int[] reduceBounds(int[] partials) {
+    int[] bounds = {
+      Integer.MAX_VALUE,
+      Integer.MIN_VALUE,
+      Integer.MAX_VALUE,
+      Integer.MIN_VALUE
+    };
+    for (int i = 0; i < partials.length; i += 4) {
+      bounds[MIN_X] = Math.min(bounds[MIN_X], partials[i+MIN_X]);
+      bounds[MAX_X] = Math.max(bounds[MAX_X], partials[i+MAX_X]);
+      bounds[MIN_Y] = Math.min(bounds[MIN_Y], partials[i+MIN_Y]);
+      bounds[MAX_Y] = Math.max(bounds[MAX_Y], partials[i+MAX_Y]);
+    }
+    return bounds;
+  }
+
+  /**
+   * Gets the number of leaf ranges a polygon with the given
+   * number of vertices is split into.
+   *
+   * @param n The number of vertices in the polygon.
+   * @return int, the number of leaves.
+   */
+  private static int numLeaves(int n) {
+    return Math.max(1, (n+PolygonMetrics.LEAF_SIZE-1)/PolygonMetrics.LEAF_SIZE);
+  }
+
+  /**
+   * Runs the given computation on every leaf range of a
+   * polygon with the given number of vertices, in parallel
+   * if the polygon is large enough. Returns once every leaf
+   * has been computed.
+   *
+   * @param n    The number of vertices in the polygon.
+   * @param leaf The computation to run on each leaf.
+   */
+  private static void forEachLeaf(int n, LeafComputation leaf) {
+    int numLeaves = PolygonMetrics.numLeaves(n);
+    if (n < PolygonMetrics.PARALLEL_THRESHOLD) {
+      for (int i = 0; i < numLeaves; ++i) {
+        leaf.compute(
+          i,
+          i*PolygonMetrics.LEAF_SIZE,
+          Math.min(n, (i+1)*PolygonMetrics.LEAF_SIZE)
+        );
+      }
+      return;
+    }
+    ForkJoinPool.commonPool().invoke(new LeafTask(leaf, n, 0, numLeaves));
+  }
+
+  /**
+   * A computation over one leaf range of vertices, which
+   * stores its result by leaf index.
+   */
+  @FunctionalInterface
+  private interface LeafComputation {
+    /**
+     * Computes the result for a single leaf.
+     *
+     * @param leaf The index of the leaf.
+     * @param from The first vertex (inclusive) of the leaf.
+     * @param to   The last vertex (exclusive) of the leaf.
+     */
+    void compute(int leaf, int from, int to);
+  }
+
+  /**
+   * A {@code RecursiveAction} which splits a range of leaves
+   * in half until a single leaf is left to compute.
+   */
+  private static final class LeafTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /** The computation to run on each leaf. */
+    private final transient LeafComputation leaf;
+    /** The number of vertices in the polygon. */
+    private final int n;
+    /** The first leaf (inclusive) of this task's range. */
+    private final int fromLeaf;
+    /** The last leaf (exclusive) of this task's range. */
+    private final int toLeaf;
+
+    /**
+     * Creates a task computing the given range of leaves.
+     *
+     * @param leaf     The computation to run on each leaf.
+     * @param n        The number of vertices in the polygon.
+     * @param fromLeaf The first leaf (inclusive) to compute.
+     * @param toLeaf   The last leaf (exclusive) to compute.
+     */
+    LeafTask(LeafComputation leaf, int n, int fromLeaf, int toLeaf) {
+      this.leaf = leaf;
+      this.n = n;
+      this.fromLeaf = fromLeaf;
+      this.toLeaf = toLeaf;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.toLeaf-this.fromLeaf == 1) {
+        this.leaf.compute(
+          this.fromLeaf,
+          this.fromLeaf*PolygonMetrics.LEAF_SIZE,
+          Math.min(this.n, (this.fromLeaf+1)*PolygonMetrics.LEAF_SIZE)
+        );
+        return;
+      }
+      int mid = (this.fromLeaf+this.toLeaf) >>> 1;
+      RecursiveAction.invokeAll(
+        new LeafTask(this.leaf, this.n, this.fromLeaf, mid),
+        new LeafTask(this.leaf, this.n, mid, this.toLeaf)
+      );
+    }
+  }
+}
@@ -85,7 +85,7 @@ public class Rectangle extends Parallelogram {
    * added.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.1
    */
   public static class Builder extends OrientedPolygon.HeightBuilder {
     /**
@@ -94,7 +94,7 @@ public class Rectangle extends Parallelogram {
      * {@code Rectangle}.
      */
     public Builder() {
-      super("Rectangle", "Lengths", null);
+      super("Rectangle", "Lengths", OrientedPolygon.HeightBuilder.SCHEMA);
     }
 
     @Override
@@ -113,7 +113,7 @@ public class Rectangle extends Parallelogram {
       return new Rectangle(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         width,
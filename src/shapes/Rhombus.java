@@ -2,8 +2,6 @@ package shapes;
 
 import java.awt.Color;
 import java.awt.Point;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
 
 /**
  * A class to represent a rhombus: a parallelogram with
@@ -85,26 +83,26 @@ public class Rhombus extends Parallelogram {
    * base length.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public static class Builder extends OrientedPolygon.BaseBuilder {
     /** The {@code String} to represent the argument of angle. */
     private static final String ANGLE = "Angle";
     /**
-     * The set of arguments this {@code Builder} requires in
-     * addition to inherited arguments.
+     * The arguments this {@code Builder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(Builder.ANGLE, 1, 179))
-      );
+    private static final Schema SCHEMA =
+      OrientedPolygon.BaseBuilder.SCHEMA.extend(new Arg(Builder.ANGLE, 1, 179));
+    /** The slot of the angle argument. */
+    private static final int ANGLE_SLOT = Builder.SCHEMA.getSlot(Builder.ANGLE);
 
     /**
      * Creates a {@code Rhombus} builder which uses base length
      * and angle to construct a {@code Rhombus}.
      */
     public Builder() {
-      super("Rhombus", "Angle", Builder.REQUIRED_ARGS);
+      super("Rhombus", "Angle", Builder.SCHEMA);
     }
 
     @Override
@@ -113,9 +111,8 @@ public class Rhombus extends Parallelogram {
       int y = this.getY();
       int size = this.getBase();
 
-      double angle = Math.toRadians(this.getAngle());
-      int height = (int)(size*Math.sin(angle));
-      int offset = (int)(size*Math.cos(angle));
+      int height = this.calculateHeight();
+      int offset = (int)(size*Math.cos(Math.toRadians(this.getAngle())));
 
       Point[] points = new Point[4];
       points[0] = new Point(x, y-height);
@@ -126,7 +123,7 @@ public class Rhombus extends Parallelogram {
       return new Rhombus(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         size,
@@ -134,6 +131,28 @@ public class Rhombus extends Parallelogram {
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      Validation validation = super.validateDimensions();
+      if (!validation.isValid()) {
+        return validation;
+      }
+      // the height is rounded down, so a small rhombus with a
+      // sharp angle can have no height, which is put down to
+      // the angle
+      return ShapeBuilder.checkDimension(Builder.ANGLE, this.calculateHeight());
+    }
+
+    /**
+     * Calculates the height of the {@code Rhombus} to build,
+     * from its side length and angle.
+     *
+     * @return int, the height of the {@code Rhombus}.
+     */
+    private int calculateHeight() {
+      return (int)(this.getBase()*Math.sin(Math.toRadians(this.getAngle())));
+    }
+
     /**
      * Sets the angle argument of this {@code Builder}.
      *
@@ -141,7 +160,7 @@ public class Rhombus extends Parallelogram {
      * @return {@code Builder}, this {@code Builder}.
      */
     public Builder withAngle(int angle) {
-      this.withArg(Builder.ANGLE, angle);
+      this.setArg(Builder.ANGLE_SLOT, angle);
       return this;
     }
 
@@ -151,7 +170,7 @@ public class Rhombus extends Parallelogram {
      * @return int, the angle argument of this {@code Builder}.
      */
     public int getAngle() {
-      return this.getArg(Builder.ANGLE);
+      return this.getArg(Builder.ANGLE_SLOT);
     }
   }
 }
@@ -0,0 +1,28 @@
+package shapes;
+
+/**
+ * A loop rotating a range of polygon vertices in place, so
+ * that {@code PolygonMetrics} can use a vector kernel where
+ * one is available, and its own scalar loop otherwise.
+ * <p>
+ * Every kernel gives exactly the same results as
+ * {@link PolygonMetrics#rotateRange}.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+@FunctionalInterface
+interface RotationKernel {
+  /**
+   * Rotates the vertices in the given range about the origin,
+   * in place, rounding the results to the nearest integer.
+   *
+   * @param xs   The x coordinates of the polygon's vertices.
+   * @param ys   The y coordinates of the polygon's vertices.
+   * @param from The first vertex (inclusive) of the range.
+   * @param to   The last vertex (exclusive) of the range.
+   * @param sinT The sine of the angle to rotate by.
+   * @param cosT The cosine of the angle to rotate by.
+   */
+  public void rotateRange(int[] xs, int[] ys, int from, int to, double sinT, double cosT);
+}
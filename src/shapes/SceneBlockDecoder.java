@@ -0,0 +1,236 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Decodes the shape records of one block of a scene file,
+ * as described by {@link SceneFile}, for both
+ * {@code SceneFileReader} and {@code MappedScene}. Shapes
+ * can be created selectively: the records of the others are
+ * still read, since each record depends on the ones before
+ * it, but reading a record is far cheaper than creating its
+ * shape.
+ * <p>
+ * A {@code SceneBlockDecoder} is not thread safe, and can be
+ * used for any number of blocks one after another.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+final class SceneBlockDecoder {
+  /** The block being decoded. */
+  private ByteBuffer block;
+  /** The colours seen in the block being decoded. */
+  private final ArrayList<Color> colours;
+  /** The x coordinates of the outlines seen in the block. */
+  private final ArrayList<int[]> outlineXs;
+  /** The y coordinates of the outlines seen in the block. */
+  private final ArrayList<int[]> outlineYs;
+
+  /**
+   * Creates a new {@code SceneBlockDecoder}.
+   */
+  SceneBlockDecoder() {
+    this.colours = new ArrayList<>();
+    this.outlineXs = new ArrayList<>();
+    this.outlineYs = new ArrayList<>();
+  }
+
+  /**
+   * Decodes the records of a block, from the position to the
+   * limit of the given buffer, creating the shape of each
+   * record which is wanted and not already created.
+   *
+   * @param block  The records of the block. Its position is
+   *               moved to its limit.
+   * @param shapes The shape of each record, filled in as they
+   *               are created. Its length is the number of
+   *               records.
+   * @param wanted Whether each record's shape is wanted, or
+   *               {@code null} if all of them are.
+   * @throws StreamCorruptedException If the records are
+   *                                  corrupt.
+   */
+  void decode(ByteBuffer block, Shape[] shapes, boolean[] wanted) throws StreamCorruptedException {
+    this.block = block;
+    this.colours.clear();
+    this.outlineXs.clear();
+    this.outlineYs.clear();
+    int x = 0;
+    int y = 0;
+    try {
+      for (int i = 0; i < shapes.length; ++i) {
+        int type = block.get();
+        Color colour = this.getColour();
+        x += SceneFile.getSignedVarint(block);
+        y += SceneFile.getSignedVarint(block);
+        boolean create = ((wanted == null) || wanted[i]) && (shapes[i] == null);
+        Shape shape = this.getShape(type, x, y, colour, create);
+        if (create) {
+          shapes[i] = shape;
+        }
+      }
+    } catch (
+      BufferUnderflowException
+      | IllegalArgumentException
+      | IndexOutOfBoundsException
+      | InvalidShapeException e
+    ) {
+      throw new StreamCorruptedException("Corrupt block: "+e.getMessage());
+    } finally {
+      this.block = null;
+    }
+    if (block.hasRemaining()) {
+      throw new StreamCorruptedException("Corrupt block: unexpected trailing bytes");
+    }
+  }
+
+  /**
+   * Decodes the dimensions of a shape, and creates it if
+   * asked to.
+   *
+   * @param type   The type tag of the shape.
+   * @param x      The x coordinate of the shape.
+   * @param y      The y coordinate of the shape.
+   * @param colour The colour of the shape.
+   * @param create Whether to create the shape, rather than
+   *               only moving past it.
+   * @return Shape, the decoded shape, or {@code null} if it
+   *         was not created.
+   * @throws StreamCorruptedException If the type tag is not
+   *                                  known.
+   */
+  private Shape getShape(
+    int type,
+    int x,
+    int y,
+    Color colour,
+    boolean create
+  ) throws StreamCorruptedException {
+    ByteBuffer block = this.block;
+    if (type == SceneFile.CIRCLE) {
+      int diameter = SceneFile.getVarint(block);
+      return create ? new Circle(x, y, colour, diameter) : null;
+    } else if (type == SceneFile.ELLIPSE) {
+      int width = SceneFile.getVarint(block);
+      int height = SceneFile.getVarint(block);
+      return create ? new Ellipse(x, y, colour, width, height) : null;
+    } else if ((type < SceneFile.POLYGON) || (type > SceneFile.SQUARE)) {
+      throw new StreamCorruptedException("Unknown shape type: "+type);
+    }
+
+    int rotation = SceneFile.getSignedVarint(block);
+    int numDimensions = SceneFile.getNumDimensions(type);
+    int a = (numDimensions > 0) ? SceneFile.getVarint(block) : 0;
+    int b = (numDimensions > 1) ? SceneFile.getVarint(block) : 0;
+    int c = (numDimensions > 2) ? SceneFile.getVarint(block) : 0;
+    int outline = this.getOutline();
+    int[] xs = this.outlineXs.get(outline);
+    int[] ys = this.outlineYs.get(outline);
+    if (!create) {
+      return null;
+    }
+    if (type == SceneFile.POLYGON) {
+      return new ArbitrarySimplePolygon(x, y, colour, xs, ys, xs.length, rotation);
+    }
+
+    Point[] points = new Point[xs.length];
+    for (int i = 0; i < xs.length; ++i) {
+      points[i] = new Point(xs[i], ys[i]);
+    }
+    switch (type) {
+      case SceneFile.TRIANGLE:
+        return new Triangle(x, y, colour, points, rotation, a, b);
+      case SceneFile.TRAPEZOID:
+        return new Trapezoid(x, y, colour, points, rotation, a, b, c);
+      case SceneFile.PARALLELOGRAM:
+        return new Parallelogram(x, y, colour, points, rotation, a, b);
+      case SceneFile.RHOMBUS:
+        return new Rhombus(x, y, colour, points, rotation, a, b);
+      case SceneFile.RECTANGLE:
+        return new shapes.Rectangle(x, y, colour, points, rotation, a, b);
+      default:
+        return new Square(x, y, colour, points, rotation, a);
+    }
+  }
+
+  /**
+   * Decodes a colour, adding it to the colours of the block
+   * if it is new.
+   *
+   * @return Color, the decoded colour.
+   * @throws StreamCorruptedException If the colour code is not
+   *                                  a colour seen in the block
+   *                                  or a new colour.
+   */
+  private Color getColour() throws StreamCorruptedException {
+    // varints are unsigned, so a code past Integer.MAX_VALUE
+    // reads as negative
+    int code = SceneFile.getVarint(this.block);
+    if ((code < 0) || (code-SceneFile.FIRST_COLOUR >= this.colours.size())) {
+      throw new StreamCorruptedException("Unknown colour code: "+Integer.toUnsignedString(code));
+    } else if (code >= SceneFile.FIRST_COLOUR) {
+      return this.colours.get(code-SceneFile.FIRST_COLOUR);
+    }
+
+    int argb;
+    if (code == SceneFile.NEW_RGB) {
+      argb = 0xFF000000
+        | ((this.block.get() & 0xFF) << 16)
+        | ((this.block.get() & 0xFF) << 8)
+        | (this.block.get() & 0xFF);
+    } else {
+      argb = this.block.getInt();
+    }
+    Color colour = new Color(argb, true);
+    this.colours.add(colour);
+    return colour;
+  }
+
+  /**
+   * Decodes a polygon outline, adding it to the outlines of
+   * the block if it is new.
+   *
+   * @return int, the index of the outline in the block.
+   * @throws StreamCorruptedException If the outline is not one
+   *                                  seen in the block, or has
+   *                                  more vertices than the
+   *                                  block has bytes left for.
+   */
+  private int getOutline() throws StreamCorruptedException {
+    // varints are unsigned, so a count or index past
+    // Integer.MAX_VALUE reads as negative
+    int n = SceneFile.getVarint(this.block);
+    if (n == 0) {
+      int outline = SceneFile.getVarint(this.block);
+      if ((outline < 0) || (outline >= this.outlineXs.size())) {
+        throw new StreamCorruptedException("Unknown outline: "+Integer.toUnsignedString(outline));
+      }
+      return outline;
+    }
+
+    // each vertex takes at least one byte for each coordinate,
+    // which is checked before anything is allocated
+    if ((n < 0) || (n > this.block.remaining()/2)) {
+      throw new StreamCorruptedException("Too many vertices: "+Integer.toUnsignedString(n));
+    }
+    int[] xs = new int[n];
+    int[] ys = new int[n];
+    int lastX = 0;
+    int lastY = 0;
+    for (int i = 0; i < n; ++i) {
+      lastX += SceneFile.getSignedVarint(this.block);
+      lastY += SceneFile.getSignedVarint(this.block);
+      xs[i] = lastX;
+      ys[i] = lastY;
+    }
+    this.outlineXs.add(xs);
+    this.outlineYs.add(ys);
+    return this.outlineXs.size()-1;
+  }
+}
@@ -0,0 +1,1709 @@
+package shapes;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A class to calculate the area covered by a scene of
+ * {@code Shape}s, where area covered by more than one
+ * {@code Shape} is counted once, by sweeping a horizontal
+ * scanline up the scene.
+ * <p>
+ * The scanline only stops at events: the y coordinates of
+ * polygon vertices and of the tops and bottoms of ellipses.
+ * Between two events, the same polygon edges and ellipses
+ * cross the scanline, so the covered part of it is a union
+ * of spans whose ends move smoothly. Each slab between events
+ * is swept by keeping the edges and sides of ellipses in
+ * order along the scanline, and swapping neighbours at the
+ * heights where they cross, lowest first. The union only
+ * changes where two of them swap, so between swaps each of
+ * its spans is integrated exactly: edges give trapezoids,
+ * and the sides of ellipses are integrated analytically. The
+ * cost depends on the number of events, the number of
+ * {@code Shape}s crossing each slab, and how often they
+ * cross near the edge of the union, not on how tall the
+ * scene is.
+ * <p>
+ * Where two edges cross is found exactly, so scenes of
+ * polygons are measured to within rounding, and other
+ * crossings are found to the precision of a {@code double}.
+ * A polygon whose edges cross itself covers the points its
+ * outline goes around an odd number of times, as
+ * {@code java.awt.Polygon} does.
+ * <p>
+ * The slabs are grouped into bands of
+ * {@value #BAND_SLABS} slabs, which are swept
+ * independently. Scenes with enough edges have their bands
+ * swept in parallel on the common {@code ForkJoinPool}, and
+ * the band results are always summed in order, so the result
+ * does not depend on how the bands were scheduled.
+ * <p>
+ * The scene is read once when the calculation starts, and
+ * must not be modified during the calculation.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+public final class SceneCoverage {
+  /** The number of slabs in each band. */
+  private static final int BAND_SLABS = 64;
+  /**
+   * The most edges and ellipses, summed over all bands, that
+   * the bands are grouped into. Items crossing several bands
+   * are counted once for each, so bands are made bigger until
+   * the sum fits in an array.
+   */
+  private static final long MAX_BAND_ITEMS = Integer.MAX_VALUE-8;
+  /**
+   * The number of edges and ellipses, summed over all bands,
+   * at which bands are swept in parallel.
+   */
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  /**
+   * The number of steps of the golden section search for
+   * where the sides of two ellipses are furthest apart, which
+   * narrows it down to the precision of a {@code double}.
+   */
+  private static final int TURN_STEPS = 80;
+  /** The golden ratio, for the golden section search. */
+  private static final double GOLDEN_RATIO = (1+Math.sqrt(5))/2;
+  /** The boundary of a span cut off by the left of the region. */
+  private static final int CLIP_MIN = Integer.MIN_VALUE;
+  /** The boundary of a span cut off by the right of the region. */
+  private static final int CLIP_MAX = Integer.MAX_VALUE;
+
+  /** The smallest x coordinate of the region to measure. */
+  private final double clipMinX;
+  /** The largest x coordinate of the region to measure. */
+  private final double clipMaxX;
+  /** The smallest y coordinate of the region to measure. */
+  private final long clipMinY;
+  /** The largest y coordinate of the region to measure. */
+  private final long clipMaxY;
+  /** The y coordinate of each event, in increasing order. */
+  private long[] events;
+  /** The number of slabs between events. */
+  private int numSlabs;
+  /** The number of slabs in each band. */
+  private int bandSlabs;
+
+  /** The number of non-horizontal polygon edges. */
+  private int numEdges;
+  /** The first event of each edge, before it is an index. */
+  private final long[] edgeFromY;
+  /** The last event of each edge, before it is an index. */
+  private final long[] edgeToY;
+  /** The index of the first event of each edge. */
+  private final int[] edgeFrom;
+  /** The index of the last event of each edge. */
+  private final int[] edgeTo;
+  /** The index of the polygon each edge belongs to. */
+  private final int[] edgeOwner;
+  /** The x coordinate of the lower end of each edge. */
+  private final double[] edgeX;
+  /** The y coordinate of the lower end of each edge. */
+  private final double[] edgeY;
+  /** The change in x of each edge per unit of y. */
+  private final double[] edgeSlope;
+
+  /** The number of ellipses. */
+  private int numEllipses;
+  /** The first event of each ellipse, before it is an index. */
+  private final long[] ellipseFromY;
+  /** The last event of each ellipse, before it is an index. */
+  private final long[] ellipseToY;
+  /** The index of the first event of each ellipse. */
+  private final int[] ellipseFrom;
+  /** The index of the last event of each ellipse. */
+  private final int[] ellipseTo;
+  /** The x coordinate of the centre of each ellipse. */
+  private final double[] ellipseCenterX;
+  /** The y coordinate of the centre of each ellipse. */
+  private final double[] ellipseCenterY;
+  /** The horizontal semi-axis of each ellipse. */
+  private final double[] ellipseA;
+  /** The vertical semi-axis of each ellipse. */
+  private final double[] ellipseB;
+
+  /** The start of each band's edges in {@code bandEdges}. */
+  private int[] bandEdgeStart;
+  /** The indices of the edges crossing each band. */
+  private int[] bandEdges;
+  /**
+   * The start of each band's ellipses in
+   * {@code bandEllipses}.
+   */
+  private int[] bandEllipseStart;
+  /** The indices of the ellipses crossing each band. */
+  private int[] bandEllipses;
+
+  /**
+   * Reads the given {@code Shape}s into the edge and ellipse
+   * tables, keeping only the parts inside the given region.
+   *
+   * @param shapes The {@code Shape}s in the scene.
+   * @param region The region to measure, in cartesian
+   *               coordinates with {@code y} as the top edge,
+   *               or {@code null} to measure the whole scene.
+   */
+  private SceneCoverage(Collection<? extends Shape> shapes, Rectangle region) {
+    if (region == null) {
+      this.clipMinX = Double.NEGATIVE_INFINITY;
+      this.clipMaxX = Double.POSITIVE_INFINITY;
+      this.clipMinY = Long.MIN_VALUE;
+      this.clipMaxY = Long.MAX_VALUE;
+    } else {
+      this.clipMinX = region.x;
+      this.clipMaxX = (double)region.x+region.width;
+      this.clipMinY = (long)region.y-region.height;
+      this.clipMaxY = region.y;
+    }
+
+    int maxEdges = 0;
+    int maxEllipses = 0;
+    for (Shape shape : shapes) {
+      if (shape instanceof ArbitrarySimplePolygon) {
+        maxEdges += ((ArbitrarySimplePolygon)shape).getAwtPolygon().npoints;
+      } else if (shape instanceof Ellipse) {
+        ++maxEllipses;
+      } else {
+        throw new IllegalArgumentException(
+          "Cannot measure coverage of shape: "+shape.getClass().getName()
+        );
+      }
+    }
+
+    this.edgeFromY = new long[maxEdges];
+    this.edgeToY = new long[maxEdges];
+    this.edgeFrom = new int[maxEdges];
+    this.edgeTo = new int[maxEdges];
+    this.edgeOwner = new int[maxEdges];
+    this.edgeX = new double[maxEdges];
+    this.edgeY = new double[maxEdges];
+    this.edgeSlope = new double[maxEdges];
+    this.ellipseFromY = new long[maxEllipses];
+    this.ellipseToY = new long[maxEllipses];
+    this.ellipseFrom = new int[maxEllipses];
+    this.ellipseTo = new int[maxEllipses];
+    this.ellipseCenterX = new double[maxEllipses];
+    this.ellipseCenterY = new double[maxEllipses];
+    this.ellipseA = new double[maxEllipses];
+    this.ellipseB = new double[maxEllipses];
+
+    int owner = 0;
+    for (Shape shape : shapes) {
+      if (shape instanceof ArbitrarySimplePolygon) {
+        this.addPolygon(((ArbitrarySimplePolygon)shape).getAwtPolygon(), owner);
+        ++owner;
+      } else {
+        this.addEllipse((Ellipse)shape);
+      }
+    }
+    this.findEvents();
+  }
+
+  /**
+   * Calculates the area covered by the given {@code Shape}s,
+   * counting area covered by more than one {@code Shape}
+   * once.
+   *
+   * @param shapes The {@code Shape}s in the scene.
+   * @return double, the covered area.
+   * @throws IllegalArgumentException If a {@code Shape} is
+   *                                  not a polygon or an
+   *                                  ellipse.
+   */
+  public static double coveredArea(Collection<? extends Shape> shapes) {
+    return SceneCoverage.coveredArea(shapes, null);
+  }
+
+  /**
+   * Calculates the area covered by the given {@code Shape}s
+   * within the given region, counting area covered by more
+   * than one {@code Shape} once.
+   *
+   * @param shapes The {@code Shape}s in the scene.
+   * @param region The region to measure, in cartesian
+   *               coordinates with {@code y} as the top edge
+   *               (the same as {@link Shape#getBounds()}), or
+   *               {@code null} to measure the whole scene.
+   * @return double, the covered area within the region.
+   * @throws IllegalArgumentException If a {@code Shape} is
+   *                                  not a polygon or an
+   *                                  ellipse.
+   */
+  public static double coveredArea(Collection<? extends Shape> shapes, Rectangle region) {
+    return new SceneCoverage(shapes, region).sweep();
+  }
+
+  /**
+   * Adds the non-horizontal edges of the given polygon to the
+   * edge table, clipped to the region.
+   *
+   * @param polygon The polygon.
+   * @param owner   The index of the polygon.
+   */
+  private void addPolygon(Polygon polygon, int owner) {
+    int[] xs = polygon.xpoints;
+    int[] ys = polygon.ypoints;
+    int n = polygon.npoints;
+    int lastX = xs[n-1];
+    int lastY = ys[n-1];
+    for (int i = 0; i < n; ++i) {
+      int curX = xs[i];
+      int curY = ys[i];
+      if (curY != lastY) {
+        int lowX = (curY < lastY) ? curX : lastX;
+        int lowY = Math.min(curY, lastY);
+        int highX = (curY < lastY) ? lastX : curX;
+        int highY = Math.max(curY, lastY);
+        long fromY = Math.max(lowY, this.clipMinY);
+        long toY = Math.min(highY, this.clipMaxY);
+        if (fromY < toY) {
+          int e = this.numEdges;
+          this.edgeFromY[e] = fromY;
+          this.edgeToY[e] = toY;
+          this.edgeOwner[e] = owner;
+          this.edgeX[e] = lowX;
+          this.edgeY[e] = lowY;
+          this.edgeSlope[e] = ((double)highX-lowX)/((double)highY-lowY);
+          ++this.numEdges;
+        }
+      }
+      lastX = curX;
+      lastY = curY;
+    }
+  }
+
+  /**
+   * Adds the given ellipse to the ellipse table, clipped to
+   * the region.
+   *
+   * @param ellipse The ellipse.
+   */
+  private void addEllipse(Ellipse ellipse) {
+    long fromY = Math.max((long)ellipse.getY()-ellipse.getHeight(), this.clipMinY);
+    long toY = Math.min(ellipse.getY(), this.clipMaxY);
+    if (fromY >= toY) {
+      return;
+    }
+    int i = this.numEllipses;
+    this.ellipseFromY[i] = fromY;
+    this.ellipseToY[i] = toY;
+    this.ellipseA[i] = ellipse.getWidth()/2.0;
+    this.ellipseB[i] = ellipse.getHeight()/2.0;
+    this.ellipseCenterX[i] = ellipse.getX()+this.ellipseA[i];
+    this.ellipseCenterY[i] = ellipse.getY()-this.ellipseB[i];
+    ++this.numEllipses;
+  }
+
+  /**
+   * Sorts the distinct y coordinates where edges and
+   * ellipses start and end into the events, and replaces the
+   * coordinates of each edge and ellipse with the indices of
+   * its events.
+   */
+  private void findEvents() {
+    long[] ys = new long[2*(this.numEdges+this.numEllipses)];
+    int n = 0;
+    for (int e = 0; e < this.numEdges; ++e) {
+      ys[n++] = this.edgeFromY[e];
+      ys[n++] = this.edgeToY[e];
+    }
+    for (int i = 0; i < this.numEllipses; ++i) {
+      ys[n++] = this.ellipseFromY[i];
+      ys[n++] = this.ellipseToY[i];
+    }
+    Arrays.sort(ys);
+    int numEvents = 0;
+    for (int i = 0; i < n; ++i) {
+      if ((numEvents == 0) || (ys[i] != ys[numEvents-1])) {
+        ys[numEvents] = ys[i];
+        ++numEvents;
+      }
+    }
+    this.events = Arrays.copyOf(ys, numEvents);
+    this.numSlabs = Math.max(numEvents-1, 0);
+
+    for (int e = 0; e < this.numEdges; ++e) {
+      this.edgeFrom[e] = Arrays.binarySearch(this.events, this.edgeFromY[e]);
+      this.edgeTo[e] = Arrays.binarySearch(this.events, this.edgeToY[e]);
+    }
+    for (int i = 0; i < this.numEllipses; ++i) {
+      this.ellipseFrom[i] = Arrays.binarySearch(this.events, this.ellipseFromY[i]);
+      this.ellipseTo[i] = Arrays.binarySearch(this.events, this.ellipseToY[i]);
+    }
+  }
+
+  /**
+   * Sweeps every band of the scene and sums the covered
+   * area.
+   *
+   * @return double, the covered area.
+   */
+  private double sweep() {
+    if (this.numSlabs == 0) {
+      return 0;
+    }
+    this.bandSlabs = SceneCoverage.BAND_SLABS;
+    while (
+      (this.countBandItems(this.edgeFrom, this.edgeTo, this.numEdges)
+        + this.countBandItems(this.ellipseFrom, this.ellipseTo, this.numEllipses))
+      > SceneCoverage.MAX_BAND_ITEMS
+    ) {
+      this.bandSlabs *= 2;
+    }
+    int numBands = (this.numSlabs+this.bandSlabs-1)/this.bandSlabs;
+    this.bandEdgeStart = new int[numBands+1];
+    this.bandEllipseStart = new int[numBands+1];
+    this.bandEdges = this.bucket(this.edgeFrom, this.edgeTo, this.numEdges, this.bandEdgeStart);
+    this.bandEllipses = this.bucket(
+      this.ellipseFrom,
+      this.ellipseTo,
+      this.numEllipses,
+      this.bandEllipseStart
+    );
+
+    double[] bandAreas = new double[numBands];
+    if (this.bandEdges.length+this.bandEllipses.length < SceneCoverage.PARALLEL_THRESHOLD) {
+      for (int band = 0; band < numBands; ++band) {
+        bandAreas[band] = this.sweepBand(band);
+      }
+    } else {
+      ForkJoinPool.commonPool().invoke(new BandTask(this, bandAreas, 0, numBands));
+    }
+
+    double area = 0;
+    for (int band = 0; band < numBands; ++band) {
+      area += bandAreas[band];
+    }
+    return area;
+  }
+
+  /**
+   * Counts the items (edges or ellipses) in every band's
+   * group, where an item crossing several bands is counted
+   * once for each.
+   *
+   * @param from The index of the first event of each item.
+   * @param to   The index of the last event of each item.
+   * @param n    The number of items.
+   * @return long, the number of items in all the groups.
+   */
+  private long countBandItems(int[] from, int[] to, int n) {
+    long count = 0;
+    for (int i = 0; i < n; ++i) {
+      count += this.getBand(to[i]-1)-this.getBand(from[i])+1;
+    }
+    return count;
+  }
+
+  /**
+   * Groups items (edges or ellipses) by the bands their
+   * slabs are in, where an item crossing several bands is in
+   * each of their groups. Items are kept in order within each
+   * group.
+   *
+   * @param from   The index of the first event of each item.
+   * @param to     The index of the last event of each item.
+   * @param n      The number of items.
+   * @param starts The array to store the start of each
+   *               band's group in, with one extra element for
+   *               the end of the last group.
+   * @return int[], the item indices, grouped by band.
+   */
+  private int[] bucket(int[] from, int[] to, int n, int[] starts) {
+    for (int i = 0; i < n; ++i) {
+      int firstBand = this.getBand(from[i]);
+      int lastBand = this.getBand(to[i]-1);
+      for (int band = firstBand; band <= lastBand; ++band) {
+        ++starts[band+1];
+      }
+    }
+    for (int band = 1; band < starts.length; ++band) {
+      starts[band] += starts[band-1];
+    }
+
+    int[] items = new int[starts[starts.length-1]];
+    int[] next = Arrays.copyOf(starts, starts.length-1);
+    for (int i = 0; i < n; ++i) {
+      int firstBand = this.getBand(from[i]);
+      int lastBand = this.getBand(to[i]-1);
+      for (int band = firstBand; band <= lastBand; ++band) {
+        items[next[band]] = i;
+        ++next[band];
+      }
+    }
+    return items;
+  }
+
+  /**
+   * Gets the band containing the given slab.
+   *
+   * @param slab The index of the slab, which is also the
+   *             index of the event at its bottom.
+   * @return int, the index of the band.
+   */
+  private int getBand(int slab) {
+    return slab/this.bandSlabs;
+  }
+
+  /**
+   * Sweeps the slabs of a single band and sums their covered
+   * areas.
+   *
+   * @param band The index of the band.
+   * @return double, the covered area within the band.
+   */
+  private double sweepBand(int band) {
+    return new BandSweep(band).sweep();
+  }
+
+  /**
+   * Gets the x coordinate of a boundary of a span at the
+   * given height.
+   *
+   * @param boundary The boundary: an edge index, the
+   *                 complement of twice an ellipse index for
+   *                 its left side and one more for its right,
+   *                 or {@code CLIP_MIN} or {@code CLIP_MAX}.
+   * @param y        The height, within the boundary's
+   *                 events.
+   * @return double, the x coordinate.
+   */
+  private double getX(int boundary, double y) {
+    if (boundary == SceneCoverage.CLIP_MIN) {
+      return this.clipMinX;
+    } else if (boundary == SceneCoverage.CLIP_MAX) {
+      return this.clipMaxX;
+    } else if (boundary >= 0) {
+      return this.edgeX[boundary]+(y-this.edgeY[boundary])*this.edgeSlope[boundary];
+    }
+    int el = ~boundary >> 1;
+    double v = (y-this.ellipseCenterY[el])/this.ellipseB[el];
+    double halfWidth = this.ellipseA[el]*Math.sqrt(Math.max(0, 1-v*v));
+    return ((~boundary & 1) == 0)
+      ? this.ellipseCenterX[el]-halfWidth
+      : this.ellipseCenterX[el]+halfWidth;
+  }
+
+  /**
+   * Checks whether a boundary of a span is straight.
+   *
+   * @param boundary The boundary, as for
+   *                 {@link #getX(int, double)}.
+   * @return boolean, whether it is an edge or a side of the
+   *         region rather than the side of an ellipse.
+   */
+  private boolean isStraight(int boundary) {
+    return (boundary >= 0)
+      || (boundary == SceneCoverage.CLIP_MIN)
+      || (boundary == SceneCoverage.CLIP_MAX);
+  }
+
+  /**
+   * Gets the change in x per unit of y of a boundary at the
+   * given height.
+   *
+   * @param boundary The boundary, as for
+   *                 {@link #getX(int, double)}.
+   * @param y        The height, within the boundary.
+   * @return double, its slope, which is infinite at the top
+   *         and bottom of an ellipse.
+   */
+  private double getSlope(int boundary, double y) {
+    if ((boundary == SceneCoverage.CLIP_MIN) || (boundary == SceneCoverage.CLIP_MAX)) {
+      return 0;
+    } else if (boundary >= 0) {
+      return this.edgeSlope[boundary];
+    }
+    int el = ~boundary >> 1;
+    double v = (y-this.ellipseCenterY[el])/this.ellipseB[el];
+    // dx/dy on the left side is (a/b)*v/sqrt(1-v^2), and the
+    // opposite on the right side
+    return this.getCurvature(boundary)
+      *this.ellipseA[el]/this.ellipseB[el]*v/Math.sqrt(Math.max(0, 1-v*v));
+  }
+
+  /**
+   * Gets which way a boundary curves: the sign of the second
+   * derivative of its x coordinate with respect to y.
+   *
+   * @param boundary The boundary, as for
+   *                 {@link #getX(int, double)}.
+   * @return int, 1 for the left side of an ellipse, -1 for
+   *         the right side, and 0 for a straight boundary.
+   */
+  private int getCurvature(int boundary) {
+    if (this.isStraight(boundary)) {
+      return 0;
+    }
+    return ((~boundary & 1) == 0) ? 1 : -1;
+  }
+
+  /**
+   * Finds the lowest height in part of a slab where the
+   * first of two boundaries moves to the right of the
+   * second. Edges and the sides of the region are straight,
+   * so where two of them cross is found exactly, and other
+   * crossings are found to the precision of a
+   * {@code double}.
+   *
+   * @param first  The boundary on the left at the bottom.
+   * @param second The boundary on the right at the bottom.
+   * @param from   The bottom of the part.
+   * @param to     The top of the part.
+   * @return double, the height where they cross, or
+   *         {@code NaN} if they do not.
+   */
+  private double findCrossing(int first, int second, double from, double to) {
+    double bottom = this.getX(first, from)-this.getX(second, from);
+    double top = this.getX(first, to)-this.getX(second, to);
+    if (top > 0) {
+      if (bottom >= 0) {
+        // they meet here, or rounding put them out of order
+        // already
+        return from;
+      }
+    } else {
+      // the difference between two straight boundaries is
+      // straight, and it curves up if the first is a left
+      // side or the second is a right side, so then it cannot
+      // rise above 0 and fall back in between
+      if (
+        (bottom >= 0)
+        || (this.isStraight(first) && this.isStraight(second))
+        || (this.getCurvature(first)-this.getCurvature(second) > 0)
+      ) {
+        return Double.NaN;
+      }
+      // a side curving away from the other boundary can only
+      // pass its chord by a quarter of the change in its slope
+      // times the height, which is usually too little to reach
+      double height = to-from;
+      double peak = Math.max(bottom, top);
+      if (this.getCurvature(first) < 0) {
+        peak += height/4*(this.getSlope(first, from)-this.getSlope(first, to));
+      }
+      if (this.getCurvature(second) > 0) {
+        peak += height/4*(this.getSlope(second, to)-this.getSlope(second, from));
+      }
+      if (peak <= 0) {
+        return Double.NaN;
+      }
+      to = this.findTurn(first, second, from, to);
+      top = this.getX(first, to)-this.getX(second, to);
+      if (top <= 0) {
+        return Double.NaN;
+      }
+    }
+    if (this.isStraight(first) && this.isStraight(second)) {
+      return Math.min(to, from+(to-from)*bottom/(bottom-top));
+    }
+    double low = from;
+    double high = to;
+    // where an edge crosses the side of an ellipse can be
+    // solved for, and only rounding is left to narrow down
+    double y = this.findLineCrossing(first, second, low, high);
+    for (double step = Math.ulp(y); (y > low) && (y < high); step *= 2) {
+      double difference = this.getX(first, y)-this.getX(second, y);
+      if (difference > 0) {
+        high = y;
+        top = difference;
+        y -= step;
+      } else {
+        low = y;
+        bottom = difference;
+        y += step;
+      }
+    }
+    // the Illinois method: false position, halving the
+    // difference kept at one end whenever the other end moves
+    // twice in a row, so both ends close in on the crossing
+    int moved = 0;
+    while (true) {
+      double middle = high-top*(high-low)/(top-bottom);
+      if (!((middle > low) && (middle < high))) {
+        middle = low+(high-low)/2;
+        if ((middle <= low) || (middle >= high)) {
+          return high;
+        }
+      }
+      double difference = this.getX(first, middle)-this.getX(second, middle);
+      if (difference > 0) {
+        high = middle;
+        top = difference;
+        if (moved > 0) {
+          bottom /= 2;
+        }
+        moved = 1;
+      } else {
+        low = middle;
+        bottom = difference;
+        if (moved < 0) {
+          top /= 2;
+        }
+        moved = -1;
+      }
+    }
+  }
+
+  /**
+   * Solves for where a straight boundary crosses the side of
+   * an ellipse in part of a slab.
+   *
+   * @param first  The first boundary.
+   * @param second The second boundary.
+   * @param from   The bottom of the part.
+   * @param to     The top of the part.
+   * @return double, the lowest height in the part where the
+   *         line through the straight boundary meets the
+   *         ellipse, or {@code NaN} if there is none or both
+   *         boundaries are straight or sides of ellipses.
+   */
+  private double findLineCrossing(int first, int second, double from, double to) {
+    if (this.isStraight(first) == this.isStraight(second)) {
+      return Double.NaN;
+    }
+    int line = this.isStraight(first) ? first : second;
+    int el = ~(this.isStraight(first) ? second : first) >> 1;
+    double a = this.ellipseA[el];
+    double b = this.ellipseB[el];
+    double centerY = this.ellipseCenterY[el];
+    // with u = y-centerY, the line is x-centerX = k+s*u, and
+    // (k+s*u)^2/a^2+u^2/b^2 = 1 is a quadratic in u
+    double s = this.getSlope(line, centerY);
+    double k = this.getX(line, centerY)-this.ellipseCenterX[el];
+    double discriminant = a*a+s*s*b*b-k*k;
+    if (discriminant < 0) {
+      return Double.NaN;
+    }
+    double half = k*s*b*b;
+    double q = -(half+Math.copySign(a*b*Math.sqrt(discriminant), half));
+    double u0 = q/(s*s*b*b+a*a);
+    double u1 = b*b*(k*k-a*a)/q;
+    double y0 = centerY+Math.min(u0, u1);
+    double y1 = centerY+Math.max(u0, u1);
+    if ((y0 >= from) && (y0 <= to)) {
+      return y0;
+    }
+    return ((y1 >= from) && (y1 <= to)) ? y1 : Double.NaN;
+  }
+
+  /**
+   * Finds the height in part of a slab where the first of
+   * two boundaries is furthest to the right of the second,
+   * where at least one of them is the side of an ellipse and
+   * their difference does not curve up. Against a straight
+   * boundary, this is where the side is parallel to it. The
+   * difference between the sides of two ellipses is searched
+   * as if it had a single peak, which it does unless both
+   * are left sides or both are right sides.
+   *
+   * @param first  The first boundary.
+   * @param second The second boundary.
+   * @param from   The bottom of the part.
+   * @param to     The top of the part.
+   * @return double, the height of the peak.
+   */
+  private double findTurn(int first, int second, double from, double to) {
+    if (this.isStraight(first) || this.isStraight(second)) {
+      int side = this.isStraight(first) ? second : first;
+      double slope = this.getSlope(this.isStraight(first) ? first : second, from);
+      int el = ~side >> 1;
+      double a = this.ellipseA[el];
+      double b = this.ellipseB[el];
+      // the side is parallel where v/sqrt(1-v^2) is the slope
+      // scaled as in getSlope
+      double t = slope*b/a*this.getCurvature(side);
+      double y = this.ellipseCenterY[el]+b*t/Math.sqrt(1+t*t);
+      return Math.max(from, Math.min(to, y));
+    }
+    double low = from;
+    double high = to;
+    for (int i = 0; i < SceneCoverage.TURN_STEPS; ++i) {
+      double lower = high-(high-low)/SceneCoverage.GOLDEN_RATIO;
+      double upper = low+(high-low)/SceneCoverage.GOLDEN_RATIO;
+      if (
+        this.getX(first, lower)-this.getX(second, lower)
+        < this.getX(first, upper)-this.getX(second, upper)
+      ) {
+        low = lower;
+      } else {
+        high = upper;
+      }
+    }
+    return low+(high-low)/2;
+  }
+
+  /**
+   * Gets the area between a boundary of a span and the chord
+   * joining its ends over the given heights, which is zero
+   * for everything but the sides of ellipses. Adding this to
+   * the trapezoid under the ends gives the exact integral.
+   *
+   * @param boundary The boundary, as for
+   *                 {@link #getX(int, double)}.
+   * @param y0       The bottom of the slab.
+   * @param y1       The top of the slab.
+   * @return double, the signed area between the boundary
+   *         and its chord, positive to the right.
+   */
+  private double getBulge(int boundary, double y0, double y1) {
+    if (this.isStraight(boundary)) {
+      return 0;
+    }
+    int el = ~boundary >> 1;
+    double a = this.ellipseA[el];
+    double b = this.ellipseB[el];
+    double v0 = Math.max(-1, Math.min(1, (y0-this.ellipseCenterY[el])/b));
+    double v1 = Math.max(-1, Math.min(1, (y1-this.ellipseCenterY[el])/b));
+    double s0 = Math.sqrt(1-v0*v0);
+    double s1 = Math.sqrt(1-v1*v1);
+    // the integral of sqrt(1-v^2) is (v*sqrt(1-v^2)+asin(v))/2
+    double exact = a*b*(v1*s1+Math.asin(v1)-v0*s0-Math.asin(v0))/2;
+    double chord = a*(y1-y0)*(s0+s1)/2;
+    return ((~boundary & 1) == 0) ? chord-exact : exact-chord;
+  }
+
+  /**
+   * The sweep of a single band, holding the boundaries
+   * crossing the current slab sorted by x coordinate, which
+   * changes little from one slab to the next.
+   */
+  private final class BandSweep {
+    /** The index of the band. */
+    private final int band;
+    /** The first slab of the band. */
+    private final int firstSlab;
+    /** The slab after the last slab of the band. */
+    private final int lastSlab;
+    /** The boundaries crossing the current slab. */
+    private int[] boundaries;
+    /**
+     * The polygon or ellipse of each boundary, numbered
+     * within the band.
+     */
+    private int[] owners;
+    /**
+     * The arrays the boundaries are put in order at the top of
+     * each slab in, swapped with {@code boundaries} after.
+     */
+    private int[] nextBoundaries;
+    /** The owners of {@code nextBoundaries}. */
+    private int[] nextOwners;
+    /** The x coordinates of {@code nextBoundaries}. */
+    private double[] nextXs;
+    /**
+     * The number of boundaries kept from the last slab, which
+     * are first.
+     */
+    private int numKept;
+    /** The x coordinate of each boundary. */
+    private double[] xs;
+    /**
+     * Whether each boundary is where the scanline enters its
+     * owner, rather than where it leaves, in the current
+     * slab.
+     */
+    private final boolean[] entering;
+    /**
+     * How many owners the scanline is inside just before each
+     * boundary, kept up to date as the slab is swept.
+     */
+    private final int[] depths;
+    /** The x coordinate of each boundary at the top of the slab. */
+    private final double[] topXs;
+    /** The boundaries in order at the top of the slab. */
+    private final int[] order;
+    /** How many other boundaries each boundary crosses. */
+    private final int[] crossed;
+    /**
+     * Whether each boundary is deep inside the union for the
+     * whole slab, so that it cannot bound it.
+     */
+    private final boolean[] deep;
+    /** The position of each boundary in {@code order}. */
+    private final int[] topPositions;
+    /** The sides of ellipses crossing the slab. */
+    private final int[] curves;
+    /**
+     * How far each side of an ellipse strays from the chord
+     * joining its ends in the slab, at most.
+     */
+    private final double[] reaches;
+    /**
+     * How many boundaries could cross each boundary twice, at
+     * most, between an edge and the side of an ellipse.
+     */
+    private final int[] nearCounts;
+    /**
+     * Whether each side of an ellipse could cross another,
+     * which they can do up to four times.
+     */
+    private final boolean[] nearCurves;
+    /** The boundaries which are not deep, in order. */
+    private final int[] swept;
+    /** The position of each boundary in {@code swept}. */
+    private final int[] sweptPositions;
+    /** The number of boundaries which are not deep. */
+    private int numSwept;
+    /**
+     * The height each boundary has bounded the union from,
+     * with the same part, or {@code NaN} if it does not bound
+     * the union.
+     */
+    private final double[] since;
+    /** The left boundary of each pair which crosses in the slab. */
+    private int[] pairFirsts;
+    /** The right boundary of each pair which crosses in the slab. */
+    private int[] pairSeconds;
+    /** The number of pairs which cross in the slab. */
+    private int numPairs;
+    /** The number of boundaries crossing the current slab. */
+    private int numBoundaries;
+    /** Whether the scanline is inside each owner. */
+    private final boolean[] inside;
+    /** The x coordinate areas are measured from. */
+    private double reference;
+    /** The covered area of the current slab so far. */
+    private double area;
+    /**
+     * The height of each crossing of neighbouring boundaries
+     * waiting to be swept, in a binary heap.
+     */
+    private double[] crossingYs;
+    /**
+     * The position in {@code swept} of the left boundary of
+     * each crossing, or -1 for a boundary crossing a side of
+     * the region, or -2 for a deep boundary crossing one which
+     * is not.
+     */
+    private int[] crossingPositions;
+    /**
+     * The left boundary of each crossing, or the boundary
+     * which is not deep.
+     */
+    private int[] crossingFirsts;
+    /**
+     * The right boundary of each crossing, or the change in
+     * depth just before the boundary which is not deep, or 0
+     * if the boundaries have the same owner.
+     */
+    private int[] crossingSeconds;
+    /** The number of crossings waiting to be swept. */
+    private int numCrossings;
+
+    /**
+     * Sets up the sweep of the given band.
+     *
+     * @param band The index of the band.
+     */
+    private BandSweep(int band) {
+      SceneCoverage scene = SceneCoverage.this;
+      this.band = band;
+      this.firstSlab = band*scene.bandSlabs;
+      this.lastSlab = Math.min(scene.numSlabs, this.firstSlab+scene.bandSlabs);
+      int numBandEdges = scene.bandEdgeStart[band+1]-scene.bandEdgeStart[band];
+      int numBandEllipses = scene.bandEllipseStart[band+1]-scene.bandEllipseStart[band];
+      int maxBoundaries = numBandEdges+2*numBandEllipses;
+      this.boundaries = new int[maxBoundaries];
+      this.owners = new int[maxBoundaries];
+      this.nextBoundaries = new int[maxBoundaries];
+      this.nextOwners = new int[maxBoundaries];
+      this.xs = new double[maxBoundaries];
+      this.nextXs = new double[maxBoundaries];
+      this.entering = new boolean[maxBoundaries];
+      this.depths = new int[maxBoundaries];
+      this.topXs = new double[maxBoundaries];
+      this.order = new int[maxBoundaries];
+      this.crossed = new int[maxBoundaries];
+      this.deep = new boolean[maxBoundaries];
+      this.topPositions = new int[maxBoundaries];
+      this.curves = new int[maxBoundaries];
+      this.reaches = new double[maxBoundaries];
+      this.nearCounts = new int[maxBoundaries];
+      this.nearCurves = new boolean[maxBoundaries];
+      this.swept = new int[maxBoundaries];
+      this.sweptPositions = new int[maxBoundaries];
+      this.since = new double[maxBoundaries];
+      this.pairFirsts = new int[8];
+      this.pairSeconds = new int[8];
+      this.inside = new boolean[numBandEdges+numBandEllipses];
+      this.crossingYs = new double[8];
+      this.crossingPositions = new int[8];
+      this.crossingFirsts = new int[8];
+      this.crossingSeconds = new int[8];
+    }
+
+    /**
+     * Sweeps the slabs of the band.
+     *
+     * @return double, the covered area within the band.
+     */
+    private double sweep() {
+      SceneCoverage scene = SceneCoverage.this;
+      int edgesFrom = scene.bandEdgeStart[this.band];
+      int numBandEdges = scene.bandEdgeStart[this.band+1]-edgesFrom;
+      int ellipsesFrom = scene.bandEllipseStart[this.band];
+      int numBandEllipses = scene.bandEllipseStart[this.band+1]-ellipsesFrom;
+
+      // edges and ellipses waiting to start, ordered by the
+      // slab they start in, packed into longs so that
+      // primitive sorting can be used. Edges of the same
+      // polygon are next to each other in the band, so they
+      // are numbered by polygon as they are read
+      long[] pending = new long[numBandEdges+numBandEllipses];
+      int[] localOwners = new int[numBandEdges];
+      int numOwners = 0;
+      for (int i = 0; i < numBandEdges; ++i) {
+        int e = scene.bandEdges[edgesFrom+i];
+        if ((i == 0) || (scene.edgeOwner[e] != scene.edgeOwner[scene.bandEdges[edgesFrom+i-1]])) {
+          ++numOwners;
+        }
+        localOwners[i] = numOwners-1;
+        long startSlab = Math.max(scene.edgeFrom[e], this.firstSlab)-this.firstSlab;
+        pending[i] = (startSlab << 32) | i;
+      }
+      for (int i = 0; i < numBandEllipses; ++i) {
+        int el = scene.bandEllipses[ellipsesFrom+i];
+        long startSlab = Math.max(scene.ellipseFrom[el], this.firstSlab)-this.firstSlab;
+        pending[numBandEdges+i] = (startSlab << 32) | (numBandEdges+i);
+      }
+      Arrays.sort(pending);
+
+      int nextPending = 0;
+      double area = 0;
+      for (int slab = this.firstSlab; slab < this.lastSlab; ++slab) {
+        int kept = 0;
+        for (int i = 0; i < this.numBoundaries; ++i) {
+          int boundary = this.boundaries[i];
+          int to = (boundary >= 0) ? scene.edgeTo[boundary] : scene.ellipseTo[~boundary >> 1];
+          if (to > slab) {
+            this.boundaries[kept] = boundary;
+            this.owners[kept] = this.owners[i];
+            this.xs[kept] = this.xs[i];
+            ++kept;
+          }
+        }
+        this.numBoundaries = kept;
+        this.numKept = kept;
+        while (
+          (nextPending < pending.length)
+          && ((int)(pending[nextPending] >> 32) == slab-this.firstSlab)
+        ) {
+          int item = (int)pending[nextPending];
+          if (item < numBandEdges) {
+            this.addBoundary(scene.bandEdges[edgesFrom+item], localOwners[item]);
+          } else {
+            int el = scene.bandEllipses[ellipsesFrom+item-numBandEdges];
+            this.addBoundary(~(2*el), numOwners+item-numBandEdges);
+            this.addBoundary(~(2*el+1), numOwners+item-numBandEdges);
+          }
+          ++nextPending;
+        }
+
+        if (this.numBoundaries > 0) {
+          area += this.integrate(scene.events[slab], scene.events[slab+1]);
+        }
+      }
+      return area;
+    }
+
+    /**
+     * Adds a boundary to the ones crossing the current slab.
+     * Its x coordinate is set when the boundaries are next
+     * sorted.
+     *
+     * @param boundary The boundary.
+     * @param owner    The polygon or ellipse of the boundary.
+     */
+    private void addBoundary(int boundary, int owner) {
+      this.boundaries[this.numBoundaries] = boundary;
+      this.owners[this.numBoundaries] = owner;
+      this.xs[this.numBoundaries] = Double.NaN;
+      ++this.numBoundaries;
+    }
+
+    /**
+     * Integrates the covered length over a slab, by sweeping
+     * the boundaries up it and swapping neighbours where they
+     * cross, in order of height. Each boundary of the union
+     * adds the area to its left while it bounds the end of a
+     * span, and takes it away while it bounds the start of
+     * one. Only the two boundaries swapping can start or stop
+     * bounding the union, so each crossing takes constant
+     * time, however many spans there are.
+     * <p>
+     * The depth just before a boundary only changes where
+     * another boundary crosses it, so a straight boundary
+     * which starts deeper inside the union than the number of
+     * boundaries it crosses cannot bound it anywhere in the
+     * slab. Most boundaries of crowded scenes are deep, and
+     * they are left out of the sweep: where two of them cross
+     * makes no difference, and where one crosses a boundary in
+     * the sweep only changes that boundary's depth.
+     *
+     * @param y0 The bottom of the slab.
+     * @param y1 The top of the slab.
+     * @return double, the covered area of the slab.
+     */
+    private double integrate(double y0, double y1) {
+      SceneCoverage scene = SceneCoverage.this;
+      this.sortAt(y0, y1);
+      // areas are measured from the left of the slab, so they
+      // stay small relative to the union
+      this.reference = this.xs[0];
+      this.area = 0;
+      int depth = 0;
+      int numCurves = 0;
+      for (int i = 0; i < this.numBoundaries; ++i) {
+        int boundary = this.boundaries[i];
+        int owner = this.owners[i];
+        this.inside[owner] = !this.inside[owner];
+        this.entering[i] = this.inside[owner];
+        this.depths[i] = depth;
+        depth += this.entering[i] ? 1 : -1;
+        this.topXs[i] = scene.getX(boundary, y1);
+        this.nearCounts[i] = 0;
+        this.nearCurves[i] = false;
+        if (!scene.isStraight(boundary)) {
+          this.curves[numCurves] = i;
+          this.reaches[i] = this.getReach(i, y0, y1);
+          ++numCurves;
+        }
+      }
+      this.findCrossedPairs();
+      for (int k = 0; k < numCurves; ++k) {
+        this.visitNearCurve(this.curves[k], false, y0, y1);
+      }
+
+      this.numSwept = 0;
+      for (int i = 0; i < this.numBoundaries; ++i) {
+        int shallowest = this.entering[i] ? this.depths[i] : this.depths[i]-1;
+        this.deep[i] = !this.nearCurves[i]
+          && (shallowest-this.crossed[i]-2*this.nearCounts[i] >= 1);
+        if (!this.deep[i]) {
+          this.swept[this.numSwept] = i;
+          this.sweptPositions[i] = this.numSwept;
+          this.since[i] = (this.getRole(i) == 0) ? Double.NaN : y0;
+          ++this.numSwept;
+        }
+      }
+
+      this.numCrossings = 0;
+      for (int k = 0; k < this.numPairs; ++k) {
+        int first = this.pairFirsts[k];
+        int second = this.pairSeconds[k];
+        if (this.deep[first] != this.deep[second]) {
+          // they change order, so they cross once
+          this.addDeepCrossing(first, second, y0, y1);
+        }
+      }
+      for (int k = 0; k < numCurves; ++k) {
+        this.visitNearCurve(this.curves[k], true, y0, y1);
+      }
+      if (!Double.isInfinite(scene.clipMinX)) {
+        for (int k = 0; k < this.numSwept; ++k) {
+          this.addClipCrossings(this.swept[k], SceneCoverage.CLIP_MIN, y0, y1);
+          this.addClipCrossings(this.swept[k], SceneCoverage.CLIP_MAX, y0, y1);
+        }
+      }
+      for (int k = 0; k+1 < this.numSwept; ++k) {
+        this.addCrossing(k, y0, y1);
+      }
+
+      while (this.numCrossings > 0) {
+        double y = this.crossingYs[0];
+        int k = this.crossingPositions[0];
+        int first = this.crossingFirsts[0];
+        int second = this.crossingSeconds[0];
+        this.removeCrossing();
+        if (k == -1) {
+          // a boundary crossed a side of the region, so every
+          // boundary of the union is measured up to here
+          // before the part of it outside is cut off
+          for (int j = 0; j < this.numSwept; ++j) {
+            int i = this.swept[j];
+            this.setRole(i, this.getRole(i), y);
+          }
+          continue;
+        } else if (k == -2) {
+          int role = this.getRole(first);
+          if (second == 0) {
+            // an edge of the same polygon crossed it, as in
+            // the swap below
+            this.depths[first] += this.entering[first] ? 1 : -1;
+            this.entering[first] = !this.entering[first];
+          } else {
+            this.depths[first] += second;
+          }
+          if (this.getRole(first) != role) {
+            this.setRole(first, role, y);
+          }
+          continue;
+        }
+        // the pair may have been swapped or split up since
+        if ((this.swept[k] != first) || (this.swept[k+1] != second)) {
+          continue;
+        }
+        int firstRole = this.getRole(first);
+        int secondRole = this.getRole(second);
+        this.swept[k] = second;
+        this.swept[k+1] = first;
+        this.sweptPositions[second] = k;
+        this.sweptPositions[first] = k+1;
+        if (this.owners[first] == this.owners[second]) {
+          // the edges of a polygon which crosses itself swap
+          // which of them enters it, so the polygon covers the
+          // points it goes around an odd number of times, like
+          // java.awt.Polygon
+          int firstDepth = this.depths[first];
+          this.depths[first] = this.depths[second];
+          this.depths[second] = firstDepth;
+          boolean entering = this.entering[first];
+          this.entering[first] = this.entering[second];
+          this.entering[second] = entering;
+        } else {
+          // each only changes the depth before the other, so
+          // crossings at the same height can be taken in any
+          // order
+          this.depths[first] += this.entering[second] ? 1 : -1;
+          this.depths[second] -= this.entering[first] ? 1 : -1;
+        }
+        if (this.getRole(first) != firstRole) {
+          this.setRole(first, firstRole, y);
+        }
+        if (this.getRole(second) != secondRole) {
+          this.setRole(second, secondRole, y);
+        }
+        if (k > 0) {
+          this.addCrossing(k-1, y, y1);
+        }
+        if (k+2 < this.numSwept) {
+          this.addCrossing(k+1, y, y1);
+        }
+      }
+      for (int j = 0; j < this.numSwept; ++j) {
+        int i = this.swept[j];
+        this.setRole(i, this.getRole(i), y1);
+      }
+
+      // the next slab starts where this one ends, so the
+      // boundaries are left in order there
+      int[] sorted = this.nextBoundaries;
+      int[] sortedOwners = this.nextOwners;
+      for (int k = 0; k < this.numBoundaries; ++k) {
+        sorted[k] = this.boundaries[this.order[k]];
+        sortedOwners[k] = this.owners[this.order[k]];
+      }
+      this.nextBoundaries = this.boundaries;
+      this.nextOwners = this.owners;
+      this.boundaries = sorted;
+      this.owners = sortedOwners;
+      return this.area;
+    }
+
+    /**
+     * Queues where a deep boundary crosses one which is not,
+     * if they cross, as a change in the depth of the one which
+     * is not.
+     *
+     * @param first  The boundary on the left at the bottom.
+     * @param second The boundary on the right at the bottom.
+     * @param from   The height they are in that order at.
+     * @param to     The top of the slab.
+     * @return double, the height where they cross, or
+     *         {@code NaN} if they do not.
+     */
+    private double addDeepCrossing(int first, int second, double from, double to) {
+      double y = SceneCoverage.this.findCrossing(
+        this.boundaries[first],
+        this.boundaries[second],
+        from,
+        to
+      );
+      if (!Double.isNaN(y)) {
+        if (this.owners[first] == this.owners[second]) {
+          this.queueCrossing(y, -2, this.deep[first] ? second : first, 0);
+        } else if (this.deep[first]) {
+          this.queueCrossing(y, -2, second, this.entering[first] ? -1 : 1);
+        } else {
+          this.queueCrossing(y, -2, first, this.entering[second] ? 1 : -1);
+        }
+      }
+      return y;
+    }
+
+    /**
+     * Finds how far the side of an ellipse strays from the
+     * chord joining its ends in the slab, at most. Its slope
+     * only changes one way, so this is a quarter of the change
+     * in its slope times the height, which is small unless the
+     * slab reaches the top or bottom of the ellipse, and never
+     * more than its width in the slab.
+     *
+     * @param i  The side of the ellipse.
+     * @param y0 The bottom of the slab.
+     * @param y1 The top of the slab.
+     * @return double, the largest distance from its chord.
+     */
+    private double getReach(int i, double y0, double y1) {
+      SceneCoverage scene = SceneCoverage.this;
+      int boundary = this.boundaries[i];
+      double reach = (y1-y0)/4*Math.abs(scene.getSlope(boundary, y1)-scene.getSlope(boundary, y0));
+      double low = Math.min(this.xs[i], this.topXs[i]);
+      double high = Math.max(this.xs[i], this.topXs[i]);
+      // the side is widest where it passes the centre
+      double centerY = scene.ellipseCenterY[~boundary >> 1];
+      if ((centerY > y0) && (centerY < y1)) {
+        double x = scene.getX(boundary, centerY);
+        low = Math.min(low, x);
+        high = Math.max(high, x);
+      }
+      return (reach < high-low) ? reach : high-low;
+    }
+
+    /**
+     * Visits the boundaries which could cross the side of an
+     * ellipse without changing order with it. An edge which
+     * crosses it twice comes within its reach of its chord,
+     * which is straight too, so it does at the bottom or the
+     * top of the slab. Another side does within both of their
+     * reaches, so within twice the reach of one of them.
+     *
+     * @param curve The side of the ellipse.
+     * @param queue Whether to queue the crossings rather than
+     *              count the boundaries.
+     * @param y0    The bottom of the slab.
+     * @param y1    The top of the slab.
+     */
+    private void visitNearCurve(int curve, boolean queue, double y0, double y1) {
+      double reach = 2*this.reaches[curve];
+      double x = this.xs[curve];
+      for (int j = curve-1; (j >= 0) && (x-this.xs[j] <= reach); --j) {
+        this.visitNear(curve, j, queue, y0, y1);
+      }
+      for (int j = curve+1; (j < this.numBoundaries) && (this.xs[j]-x <= reach); ++j) {
+        this.visitNear(curve, j, queue, y0, y1);
+      }
+      // the boundaries near at the bottom were already visited
+      double topX = this.topXs[curve];
+      int position = this.topPositions[curve];
+      for (int k = position-1; (k >= 0) && (topX-this.topXs[this.order[k]] <= reach); --k) {
+        int j = this.order[k];
+        if (Math.abs(this.xs[j]-x) > reach) {
+          this.visitNear(curve, j, queue, y0, y1);
+        }
+      }
+      for (
+        int k = position+1;
+        (k < this.numBoundaries) && (this.topXs[this.order[k]]-topX <= reach);
+        ++k
+      ) {
+        int j = this.order[k];
+        if (Math.abs(this.xs[j]-x) > reach) {
+          this.visitNear(curve, j, queue, y0, y1);
+        }
+      }
+    }
+
+    /**
+     * Counts a boundary near the side of an ellipse, or queues
+     * where an edge crosses it twice if one of them is deep.
+     *
+     * @param curve The side of the ellipse.
+     * @param j     The boundary near it.
+     * @param queue Whether to queue the crossings rather than
+     *              count the boundary.
+     * @param y0    The bottom of the slab.
+     * @param y1    The top of the slab.
+     */
+    private void visitNear(int curve, int j, boolean queue, double y0, double y1) {
+      if (!SceneCoverage.this.isStraight(this.boundaries[j])) {
+        this.nearCurves[curve] = true;
+        this.nearCurves[j] = true;
+        return;
+      }
+      double reach = this.reaches[curve];
+      if (
+        (Math.abs(this.xs[j]-this.xs[curve]) > reach)
+        && (Math.abs(this.topXs[j]-this.topXs[curve]) > reach)
+      ) {
+        return;
+      } else if (!queue) {
+        ++this.nearCounts[curve];
+        ++this.nearCounts[j];
+        return;
+      }
+      int first = Math.min(curve, j);
+      int second = Math.max(curve, j);
+      // if they change order, they cross once, and are queued
+      // with the other pairs which do
+      if ((this.deep[curve] == this.deep[j]) || (this.topXs[first] > this.topXs[second])) {
+        return;
+      }
+      double y = this.addDeepCrossing(first, second, y0, y1);
+      if (!Double.isNaN(y)) {
+        this.addDeepCrossing(second, first, y, y1);
+      }
+    }
+
+    /**
+     * Finds every pair of boundaries in a different order at
+     * the top of the slab than at the bottom, and how many
+     * pairs each boundary is in, by an insertion sort of the
+     * boundaries at the top. Straight boundaries cross once
+     * for each pair they are in, and the sides of ellipses in
+     * a pair are marked as near a curve.
+     */
+    private void findCrossedPairs() {
+      SceneCoverage scene = SceneCoverage.this;
+      this.numPairs = 0;
+      for (int i = 0; i < this.numBoundaries; ++i) {
+        this.crossed[i] = 0;
+        double x = this.topXs[i];
+        int j = i-1;
+        while ((j >= 0) && (this.topXs[this.order[j]] > x)) {
+          int other = this.order[j];
+          if (
+            !scene.isStraight(this.boundaries[other])
+            && !scene.isStraight(this.boundaries[i])
+          ) {
+            this.nearCurves[other] = true;
+            this.nearCurves[i] = true;
+          }
+          if (this.numPairs == this.pairFirsts.length) {
+            this.pairFirsts = Arrays.copyOf(this.pairFirsts, 2*this.numPairs);
+            this.pairSeconds = Arrays.copyOf(this.pairSeconds, 2*this.numPairs);
+          }
+          this.pairFirsts[this.numPairs] = other;
+          this.pairSeconds[this.numPairs] = i;
+          ++this.numPairs;
+          ++this.crossed[other];
+          ++this.crossed[i];
+          this.order[j+1] = other;
+          --j;
+        }
+        this.order[j+1] = i;
+      }
+      for (int k = 0; k < this.numBoundaries; ++k) {
+        this.topPositions[this.order[k]] = k;
+      }
+    }
+
+    /**
+     * Gets the part a boundary plays in the union: whether it
+     * is at the start of a span, where the scanline enters
+     * the union, or at the end, where it leaves it.
+     *
+     * @param i The boundary.
+     * @return int, -1 at the start of a span, 1 at the end,
+     *         and 0 inside the union.
+     */
+    private int getRole(int i) {
+      if (this.entering[i]) {
+        return (this.depths[i] == 0) ? -1 : 0;
+      }
+      return (this.depths[i] == 1) ? 1 : 0;
+    }
+
+    /**
+     * Adds the area to the left of a boundary since it took
+     * on its last part in the union, if any, and notes that
+     * it plays its current part from the given height.
+     *
+     * @param i    The boundary.
+     * @param role The part the boundary played, as for
+     *             {@link #getRole(int)}.
+     * @param y    The height it played it up to.
+     */
+    private void setRole(int i, int role, double y) {
+      SceneCoverage scene = SceneCoverage.this;
+      double since = this.since[i];
+      if ((role != 0) && (y > since)) {
+        int boundary = this.boundaries[i];
+        double height = y-since;
+        double middle = scene.getX(boundary, since+height/2);
+        double x;
+        if (middle <= scene.clipMinX) {
+          x = height*(scene.clipMinX-this.reference);
+        } else if (middle >= scene.clipMaxX) {
+          x = height*(scene.clipMaxX-this.reference);
+        } else {
+          x = height*((scene.getX(boundary, since)+scene.getX(boundary, y))/2-this.reference)
+            +scene.getBulge(boundary, since, y);
+        }
+        this.area += role*x;
+      }
+      this.since[i] = (this.getRole(i) == 0) ? Double.NaN : y;
+    }
+
+    /**
+     * Queues every height where a boundary crosses a side of
+     * the region in a slab. The side of an ellipse may cross
+     * it twice.
+     *
+     * @param i    The boundary.
+     * @param clip The side of the region.
+     * @param y0   The bottom of the slab.
+     * @param y1   The top of the slab.
+     */
+    private void addClipCrossings(int i, int clip, double y0, double y1) {
+      SceneCoverage scene = SceneCoverage.this;
+      int boundary = this.boundaries[i];
+      boolean left = scene.getX(boundary, y0) <= scene.getX(clip, y0);
+      double from = y0;
+      for (int j = 0; j < 2; ++j) {
+        double y = left
+          ? scene.findCrossing(boundary, clip, from, y1)
+          : scene.findCrossing(clip, boundary, from, y1);
+        if (Double.isNaN(y) || ((j > 0) && (y <= from))) {
+          return;
+        }
+        this.queueCrossing(y, -1, i, clip);
+        left = !left;
+        from = y;
+      }
+    }
+
+    /**
+     * Queues the next crossing of a pair of neighbouring
+     * boundaries in the sweep, if they cross before the top
+     * of the slab.
+     *
+     * @param k    The position of the left boundary in
+     *             {@code swept}.
+     * @param from The height the boundaries are in order at.
+     * @param to   The top of the slab.
+     */
+    private void addCrossing(int k, double from, double to) {
+      int first = this.swept[k];
+      int second = this.swept[k+1];
+      double y = SceneCoverage.this.findCrossing(
+        this.boundaries[first],
+        this.boundaries[second],
+        from,
+        to
+      );
+      if (!Double.isNaN(y)) {
+        this.queueCrossing(y, k, first, second);
+      }
+    }
+
+    /**
+     * Adds a crossing to the queue, growing the arrays if
+     * needed.
+     *
+     * @param y      The height of the crossing.
+     * @param k      Its position, as for
+     *               {@code crossingPositions}.
+     * @param first  Its first boundary, as for
+     *               {@code crossingFirsts}.
+     * @param second Its second boundary, as for
+     *               {@code crossingSeconds}.
+     */
+    private void queueCrossing(double y, int k, int first, int second) {
+      if (this.numCrossings == this.crossingYs.length) {
+        int length = 2*this.numCrossings;
+        this.crossingYs = Arrays.copyOf(this.crossingYs, length);
+        this.crossingPositions = Arrays.copyOf(this.crossingPositions, length);
+        this.crossingFirsts = Arrays.copyOf(this.crossingFirsts, length);
+        this.crossingSeconds = Arrays.copyOf(this.crossingSeconds, length);
+      }
+      // sift up the binary heap
+      int child = this.numCrossings;
+      ++this.numCrossings;
+      while (child > 0) {
+        int parent = (child-1)/2;
+        if (this.crossingYs[parent] <= y) {
+          break;
+        }
+        this.moveCrossing(parent, child);
+        child = parent;
+      }
+      this.crossingYs[child] = y;
+      this.crossingPositions[child] = k;
+      this.crossingFirsts[child] = first;
+      this.crossingSeconds[child] = second;
+    }
+
+    /**
+     * Removes the lowest crossing from the queue.
+     */
+    private void removeCrossing() {
+      --this.numCrossings;
+      int last = this.numCrossings;
+      double y = this.crossingYs[last];
+      // sift the last crossing down the binary heap
+      int parent = 0;
+      while (2*parent+1 < last) {
+        int child = 2*parent+1;
+        if ((child+1 < last) && (this.crossingYs[child+1] < this.crossingYs[child])) {
+          ++child;
+        }
+        if (y <= this.crossingYs[child]) {
+          break;
+        }
+        this.moveCrossing(child, parent);
+        parent = child;
+      }
+      this.moveCrossing(last, parent);
+    }
+
+    /**
+     * Moves a crossing to another place in the queue.
+     *
+     * @param from The place of the crossing.
+     * @param to   The place to move it to.
+     */
+    private void moveCrossing(int from, int to) {
+      this.crossingYs[to] = this.crossingYs[from];
+      this.crossingPositions[to] = this.crossingPositions[from];
+      this.crossingFirsts[to] = this.crossingFirsts[from];
+      this.crossingSeconds[to] = this.crossingSeconds[from];
+    }
+
+    /**
+     * Sorts the boundaries by x coordinate at the given
+     * height. The order of the boundaries kept from the last
+     * slab changes little, so they are sorted with an
+     * insertion sort, which is close to linear, and the new
+     * ones are sorted on their own and merged in.
+     *
+     * @param y    The height, within the current slab.
+     * @param tieY Another height in the slab, to sort
+     *             boundaries which meet at {@code y} by.
+     */
+    private void sortAt(double y, double tieY) {
+      SceneCoverage scene = SceneCoverage.this;
+      for (int i = 0; i < this.numBoundaries; ++i) {
+        this.xs[i] = scene.getX(this.boundaries[i], y);
+      }
+      this.insertionSort(0, this.numKept, tieY);
+      this.insertionSort(this.numKept, this.numBoundaries, tieY);
+      if ((this.numKept == 0) || (this.numKept == this.numBoundaries)) {
+        return;
+      }
+      int[] sorted = this.nextBoundaries;
+      int[] sortedOwners = this.nextOwners;
+      double[] sortedXs = this.nextXs;
+      int i = 0;
+      int j = this.numKept;
+      for (int k = 0; k < this.numBoundaries; ++k) {
+        int from = (
+          (j == this.numBoundaries)
+          || ((i < this.numKept) && !this.isAfter(i, this.xs[j], this.boundaries[j], tieY))
+        ) ? i++ : j++;
+        sorted[k] = this.boundaries[from];
+        sortedOwners[k] = this.owners[from];
+        sortedXs[k] = this.xs[from];
+      }
+      this.nextBoundaries = this.boundaries;
+      this.nextOwners = this.owners;
+      this.nextXs = this.xs;
+      this.boundaries = sorted;
+      this.owners = sortedOwners;
+      this.xs = sortedXs;
+    }
+
+    /**
+     * Sorts a range of the boundaries by their x coordinates
+     * with an insertion sort.
+     *
+     * @param from The first boundary (inclusive) to sort.
+     * @param to   The last boundary (exclusive) to sort.
+     * @param tieY The height to sort boundaries with the same
+     *             x coordinate by.
+     */
+    private void insertionSort(int from, int to, double tieY) {
+      for (int i = from+1; i < to; ++i) {
+        int boundary = this.boundaries[i];
+        int owner = this.owners[i];
+        double x = this.xs[i];
+        int j = i-1;
+        while ((j >= from) && this.isAfter(j, x, boundary, tieY)) {
+          this.boundaries[j+1] = this.boundaries[j];
+          this.owners[j+1] = this.owners[j];
+          this.xs[j+1] = this.xs[j];
+          --j;
+        }
+        this.boundaries[j+1] = boundary;
+        this.owners[j+1] = owner;
+        this.xs[j+1] = x;
+      }
+    }
+
+    /**
+     * Checks whether a boundary belongs after another in
+     * order along the scanline.
+     *
+     * @param i        The position of the boundary.
+     * @param x        The x coordinate of the other boundary.
+     * @param boundary The other boundary.
+     * @param tieY     The height to order boundaries with the
+     *                 same x coordinate by.
+     * @return boolean, whether the boundary belongs after the
+     *         other.
+     */
+    private boolean isAfter(int i, double x, int boundary, double tieY) {
+      SceneCoverage scene = SceneCoverage.this;
+      return (this.xs[i] > x)
+        || (
+          (this.xs[i] == x)
+          && (scene.getX(this.boundaries[i], tieY) > scene.getX(boundary, tieY))
+        );
+    }
+  }
+
+  /**
+   * A task sweeping a range of bands, split in half until
+   * each task has a single band.
+   */
+  private static final class BandTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /** The scene being swept. */
+    private final transient SceneCoverage scene;
+    /** The array to store the area of each band in. */
+    private final double[] bandAreas;
+    /** The first band (inclusive) of this task's range. */
+    private final int fromBand;
+    /** The last band (exclusive) of this task's range. */
+    private final int toBand;
+
+    /**
+     * Creates a task sweeping the given range of bands.
+     *
+     * @param scene     The scene being swept.
+     * @param bandAreas The array to store the area of each
+     *                  band in.
+     * @param fromBand  The first band (inclusive) to sweep.
+     * @param toBand    The last band (exclusive) to sweep.
+     */
+    BandTask(SceneCoverage scene, double[] bandAreas, int fromBand, int toBand) {
+      this.scene = scene;
+      this.bandAreas = bandAreas;
+      this.fromBand = fromBand;
+      this.toBand = toBand;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.toBand-this.fromBand == 1) {
+        this.bandAreas[this.fromBand] = this.scene.sweepBand(this.fromBand);
+        return;
+      }
+      int mid = (this.fromBand+this.toBand) >>> 1;
+      RecursiveAction.invokeAll(
+        new BandTask(this.scene, this.bandAreas, this.fromBand, mid),
+        new BandTask(this.scene, this.bandAreas, mid, this.toBand)
+      );
+    }
+  }
+}
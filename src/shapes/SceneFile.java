@@ -0,0 +1,216 @@
+package shapes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary format of scene files, written by
+ * {@code SceneFileWriter} and read by
+ * {@code SceneFileReader}.
+ * <p>
+ * A scene file starts with a header of the magic number
+ * {@code SHPS}, a 2 byte version, and 2 reserved bytes. It
+ * is followed by blocks of shapes, each starting with its
+ * length in bytes and its number of shapes as 4 byte
+ * integers, and ends with an empty block. All fixed width
+ * integers are big-endian.
+ * <p>
+ * Each shape in a block is a type tag byte, its colour, its
+ * position, then its dimensions. Most numbers are varints,
+ * 7 bits to a byte with the high bit set on every byte but
+ * the last, and signed numbers are zigzag encoded first so
+ * that small negative numbers stay small. Positions are
+ * deltas from the previous shape in the block. A colour is
+ * either an index into the colours already seen in the
+ * block, or a packed RGB value which is added to them, and
+ * a polygon outline is likewise either an index into the
+ * outlines already seen in the block, or its vertices, each
+ * as a delta from the one before. Every block starts with
+ * no colours or outlines, so it can be decoded on its own.
+ * <p>
+ * Since version 2, the header's reserved bytes hold flags.
+ * In an indexed file, every block starts with the bounding
+ * box of each of its shapes, as 4 byte x, y, width, and
+ * height in the form of {@link Shape#getBounds()}, before
+ * its shapes. After the empty block comes the index: for
+ * each block, its offset from the start of the file as 8
+ * bytes, then its length, its number of shapes, and the
+ * bounding box of all of its shapes as 4 bytes each. The
+ * file ends with a trailer of the offset of the index as 8
+ * bytes, the number of blocks, and the magic number again,
+ * so the index can be found from the end of the file
+ * without reading anything else.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+final class SceneFile {
+  /** The magic number at the start of every scene file. */
+  static final int MAGIC = 0x53485053;
+  /** The version of the format written. */
+  static final short VERSION = 2;
+  /** The flag of a file with bounds and an index. */
+  static final short INDEXED = 1;
+  /** The number of bytes in the file header. */
+  static final int HEADER_BYTES = 8;
+  /** The number of bytes in the header of a block. */
+  static final int BLOCK_HEADER_BYTES = 8;
+  /** The number of bytes in the bounds of each shape. */
+  static final int BOUNDS_BYTES = 16;
+  /** The number of bytes in the index entry of each block. */
+  static final int INDEX_ENTRY_BYTES = 32;
+  /** The number of bytes in the trailer of an indexed file. */
+  static final int TRAILER_BYTES = 16;
+
+  // the type tags of the shapes in this package, which are
+  // also used in the records of OffHeapShapeStore
+  /** The type tag of a {@code Circle}. */
+  static final int CIRCLE = 1;
+  /** The type tag of an {@code Ellipse}. */
+  static final int ELLIPSE = 2;
+  /** The type tag of an {@code ArbitrarySimplePolygon}. */
+  static final int POLYGON = 3;
+  /** The type tag of a {@code Triangle}. */
+  static final int TRIANGLE = 4;
+  /** The type tag of a {@code Trapezoid}. */
+  static final int TRAPEZOID = 5;
+  /** The type tag of a {@code Parallelogram}. */
+  static final int PARALLELOGRAM = 6;
+  /** The type tag of a {@code Rhombus}. */
+  static final int RHOMBUS = 7;
+  /** The type tag of a {@code Rectangle}. */
+  static final int RECTANGLE = 8;
+  /** The type tag of a {@code Square}. */
+  static final int SQUARE = 9;
+
+  /** The colour code of an opaque colour written as RGB. */
+  static final int NEW_RGB = 0;
+  /** The colour code of a colour written as ARGB. */
+  static final int NEW_ARGB = 1;
+  /** The colour code of the first colour seen in the block. */
+  static final int FIRST_COLOUR = 2;
+
+  /** The most bytes a varint can take. */
+  static final int MAX_VARINT_BYTES = 5;
+  /**
+   * The fewest bytes a shape record can take: its type, colour
+   * code, and coordinates.
+   */
+  static final int MIN_RECORD_BYTES = 4;
+
+  /**
+   * Not to be instantiated.
+   */
+  private SceneFile() {
+  }
+
+  /**
+   * Gets the type tag of the given {@code Shape}.
+   *
+   * @param shape The {@code Shape}.
+   * @return int, the type tag.
+   * @throws IllegalArgumentException If the {@code Shape} is
+   *                                  not one of the types in
+   *                                  this package.
+   */
+  static int getType(Shape shape) {
+    Class<?> type = shape.getClass();
+    if (type == Circle.class) {
+      return SceneFile.CIRCLE;
+    } else if (type == Ellipse.class) {
+      return SceneFile.ELLIPSE;
+    } else if (type == ArbitrarySimplePolygon.class) {
+      return SceneFile.POLYGON;
+    } else if (type == Triangle.class) {
+      return SceneFile.TRIANGLE;
+    } else if (type == Trapezoid.class) {
+      return SceneFile.TRAPEZOID;
+    } else if (type == Parallelogram.class) {
+      return SceneFile.PARALLELOGRAM;
+    } else if (type == Rhombus.class) {
+      return SceneFile.RHOMBUS;
+    } else if (type == shapes.Rectangle.class) {
+      return SceneFile.RECTANGLE;
+    } else if (type == Square.class) {
+      return SceneFile.SQUARE;
+    }
+    throw new IllegalArgumentException(
+      "There is no type tag for a "+type.getName()
+    );
+  }
+
+  /**
+   * Gets the number of dimensions written for a polygon type,
+   * after its rotation: base, height, and opposite base, as
+   * many as the type needs.
+   *
+   * @param type The type tag of the polygon.
+   * @return int, the number of dimensions.
+   */
+  static int getNumDimensions(int type) {
+    switch (type) {
+      case SceneFile.POLYGON:
+        return 0;
+      case SceneFile.SQUARE:
+        return 1;
+      case SceneFile.TRAPEZOID:
+        return 3;
+      default:
+        return 2;
+    }
+  }
+
+  /**
+   * Writes an unsigned varint.
+   *
+   * @param buffer The buffer to write to.
+   * @param value  The value, treated as unsigned.
+   */
+  static void putVarint(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte)value);
+  }
+
+  /**
+   * Writes a signed varint, zigzag encoded.
+   *
+   * @param buffer The buffer to write to.
+   * @param value  The value.
+   */
+  static void putSignedVarint(ByteBuffer buffer, int value) {
+    SceneFile.putVarint(buffer, (value << 1)^(value >> 31));
+  }
+
+  /**
+   * Reads an unsigned varint.
+   *
+   * @param buffer The buffer to read from.
+   * @return int, the value, treated as unsigned.
+   * @throws IllegalArgumentException If the varint is longer
+   *                                  than an int.
+   */
+  static int getVarint(ByteBuffer buffer) {
+    int value = 0;
+    for (int shift = 0; shift < 7*SceneFile.MAX_VARINT_BYTES; shift += 7) {
+      byte b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  /**
+   * Reads a signed varint, zigzag encoded.
+   *
+   * @param buffer The buffer to read from.
+   * @return int, the value.
+   */
+  static int getSignedVarint(ByteBuffer buffer) {
+    int value = SceneFile.getVarint(buffer);
+    return (value >>> 1)^-(value & 1);
+  }
+}
@@ -0,0 +1,234 @@
+package shapes;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads {@code Shape}s from a channel in the binary scene
+ * file format described by {@link SceneFile}, as written by
+ * a {@code SceneFileWriter}.
+ * <p>
+ * The file is read a block at a time, and every shape of a
+ * block is decoded from the block in memory, so a scene can
+ * be consumed block by block without holding all of it. The
+ * index of an indexed file is not needed to read it in
+ * order, and is skipped; see {@code MappedScene} for random
+ * access.
+ * <p>
+ * A {@code SceneFileReader} is not thread safe, and does not
+ * close its channel.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+public final class SceneFileReader {
+  /** The channel to read from. */
+  private final ReadableByteChannel in;
+  /** The version of the file. */
+  private final int version;
+  /** The header of the block being read. */
+  private final ByteBuffer blockHeader;
+  /** The block being decoded. */
+  private ByteBuffer block;
+  /** Whether the blocks start with the bounds of their shapes. */
+  private final boolean indexed;
+  /** The decoder of the records of each block. */
+  private final SceneBlockDecoder decoder;
+  /** The number of bytes read from the channel. */
+  private long numBytes;
+  /** The number of shapes read. */
+  private long numShapes;
+  /** Whether the end of the file has been read. */
+  private boolean finished;
+
+  /**
+   * Creates a new {@code SceneFileReader} and reads the file
+   * header from the given channel, at its current position.
+   *
+   * @param in The channel to read from.
+   * @throws IOException If the header could not be read, or
+   *                     is not the header of a scene file of
+   *                     a supported version.
+   */
+  public SceneFileReader(ReadableByteChannel in) throws IOException {
+    this.in = in;
+    this.blockHeader = ByteBuffer.allocate(SceneFile.BLOCK_HEADER_BYTES);
+    this.block = ByteBuffer.allocate(1 << 16);
+    this.decoder = new SceneBlockDecoder();
+
+    ByteBuffer header = ByteBuffer.allocate(SceneFile.HEADER_BYTES);
+    this.readFully(header);
+    if (header.getInt() != SceneFile.MAGIC) {
+      throw new StreamCorruptedException("Not a scene file");
+    }
+    this.version = header.getShort();
+    if ((this.version < 1) || (this.version > SceneFile.VERSION)) {
+      throw new StreamCorruptedException("Unsupported scene file version: "+this.version);
+    }
+    this.indexed = (header.getShort() & SceneFile.INDEXED) != 0;
+  }
+
+  /**
+   * Checks whether a file starts with the scene file magic
+   * number, without moving the channel's position.
+   *
+   * @param channel The file to check.
+   * @return boolean, whether the file looks like a scene
+   *         file.
+   * @throws IOException If the file could not be read.
+   */
+  public static boolean isSceneFile(FileChannel channel) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(4);
+    while (magic.hasRemaining()) {
+      if (channel.read(magic, magic.position()) < 0) {
+        return false;
+      }
+    }
+    return magic.getInt(0) == SceneFile.MAGIC;
+  }
+
+  /**
+   * Reads the next block of shapes.
+   *
+   * @return List, the shapes of the block in the order they
+   *         were written, or {@code null} at the end of the
+   *         file.
+   * @throws IOException If the block could not be read, or is
+   *                     corrupt.
+   */
+  public List<Shape> readBlock() throws IOException {
+    if (this.finished) {
+      return null;
+    }
+
+    this.blockHeader.clear();
+    this.readFully(this.blockHeader);
+    int length = this.blockHeader.getInt();
+    int count = this.blockHeader.getInt();
+    if ((length < 0) || (count < 0)) {
+      throw new StreamCorruptedException("Corrupt block header");
+    }
+    if (count == 0) {
+      this.finished = true;
+      return null;
+    }
+    int recordBytes = SceneFile.MIN_RECORD_BYTES+(this.indexed ? SceneFile.BOUNDS_BYTES : 0);
+    if ((long)recordBytes*count > length) {
+      throw new StreamCorruptedException("Corrupt block header");
+    }
+
+    this.readBlockBytes(length);
+    if (this.indexed) {
+      // the bounds are only for random access
+      this.block.position(SceneFile.BOUNDS_BYTES*count);
+    }
+    Shape[] shapes = new Shape[count];
+    this.decoder.decode(this.block, shapes, null);
+    this.numShapes += count;
+    return Arrays.asList(shapes);
+  }
+
+  /**
+   * Reads every remaining shape, passing each to the given
+   * sink in the order they were written.
+   *
+   * @param sink Receives each shape.
+   * @return long, the number of shapes read.
+   * @throws IOException If a block could not be read, or is
+   *                     corrupt.
+   */
+  public long readAll(Consumer<? super Shape> sink) throws IOException {
+    long count = 0;
+    List<Shape> shapes;
+    while ((shapes = this.readBlock()) != null) {
+      shapes.forEach(sink);
+      count += shapes.size();
+    }
+    return count;
+  }
+
+  /**
+   * Gets the version of the file being read.
+   *
+   * @return int, the version of the file.
+   */
+  public int getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets the number of bytes read from the channel so far.
+   *
+   * @return long, the number of bytes read.
+   */
+  public long getByteCount() {
+    return this.numBytes;
+  }
+
+  /**
+   * Gets the number of shapes read so far.
+   *
+   * @return long, the number of shapes read.
+   */
+  public long getShapeCount() {
+    return this.numShapes;
+  }
+
+  /**
+   * Reads the given number of bytes into the block buffer.
+   * The buffer only grows as the bytes arrive, so a corrupt
+   * length fails at the end of the channel rather than
+   * allocating all of it first.
+   *
+   * @param length The number of bytes in the block.
+   * @throws IOException If the channel ends first.
+   */
+  private void readBlockBytes(int length) throws IOException {
+    ByteBuffer block = this.block;
+    block.clear();
+    block.limit(Math.min(length, block.capacity()));
+    while (true) {
+      while (block.hasRemaining()) {
+        int read = this.in.read(block);
+        if (read < 0) {
+          throw new StreamCorruptedException("Unexpected end of scene file");
+        }
+        this.numBytes += read;
+      }
+      if (block.position() == length) {
+        break;
+      }
+      ByteBuffer larger = ByteBuffer.allocate((int)Math.min(length, 2L*block.capacity()));
+      block.flip();
+      larger.put(block);
+      larger.limit(larger.capacity());
+      block = larger;
+    }
+    block.flip();
+    this.block = block;
+  }
+
+  /**
+   * Fills the rest of a buffer from the channel, then flips
+   * it for reading.
+   *
+   * @param buffer The buffer to fill.
+   * @throws IOException If the channel ends first.
+   */
+  private void readFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = this.in.read(buffer);
+      if (read < 0) {
+        throw new StreamCorruptedException("Unexpected end of scene file");
+      }
+      this.numBytes += read;
+    }
+    buffer.flip();
+  }
+}
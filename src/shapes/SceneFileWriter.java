@@ -0,0 +1,506 @@
+package shapes;
+
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Writes {@code Shape}s to a channel in the binary scene file
+ * format described by {@link SceneFile}, to be read back by
+ * a {@code SceneFileReader}.
+ * <p>
+ * Only what is needed to rebuild each {@code Shape} is
+ * written: no class descriptors, cached measurements, or
+ * vertices in world coordinates. Shapes are encoded into a
+ * block in memory, and each full block is written to the
+ * channel in one go, so a scene of any size can be written
+ * with a single block held at a time.
+ * <p>
+ * An indexed file also holds the bounding box of every
+ * shape and an index of its blocks, so that it can be opened
+ * as a {@code MappedScene} and queried without reading all
+ * of it. This costs 16 bytes per shape.
+ * <p>
+ * The file is only complete once the writer is closed.
+ * Closing does not close the channel. A
+ * {@code SceneFileWriter} is not thread safe.
+ *
+ * @author Kevin Qiao
+ * @version 1.2
+ */
+public final class SceneFileWriter implements Closeable {
+  /** The most shapes to put in one block. */
+  private static final int BLOCK_SHAPES = 4096;
+  /** The number of bytes after which a block is written. */
+  private static final int BLOCK_BYTES = 1 << 18;
+
+  /** The initial number of blocks the index has room for. */
+  private static final int INITIAL_INDEX_CAPACITY = 64;
+
+  /** The channel to write to. */
+  private final WritableByteChannel out;
+  /** Whether to write the bounds of each shape and an index. */
+  private final boolean indexed;
+  /** The header of the block being encoded, and its bounds. */
+  private final ByteBuffer blockHeader;
+  /** The shapes of the block being encoded. */
+  private ByteBuffer block;
+  /** The number of shapes in the block being encoded. */
+  private int blockShapes;
+  /** The x coordinate of the previous shape in the block. */
+  private int lastX;
+  /** The y coordinate of the previous shape in the block. */
+  private int lastY;
+  /**
+   * The packed colours seen in the block, in an open
+   * addressing table whose slots are only filled where
+   * {@link #colourBlocks} holds the current block number, so
+   * that nothing needs clearing per block.
+   */
+  private int[] colourKeys;
+  /** The colour code of the colour in each slot. */
+  private int[] colourCodes;
+  /** The block number each slot was filled in. */
+  private int[] colourBlocks;
+  /** The number of colours seen in the block. */
+  private int numColours;
+  /** The index of each outline seen in the block. */
+  private final IdentityHashMap<PolygonGeometry, Integer> outlines;
+  /** The number of the block being encoded, from 1. */
+  private int blockNumber;
+  /** The left edge of the bounds of the block's shapes. */
+  private long blockMinX;
+  /** The bottom edge of the bounds of the block's shapes. */
+  private long blockMinY;
+  /** The right edge of the bounds of the block's shapes. */
+  private long blockMaxX;
+  /** The top edge of the bounds of the block's shapes. */
+  private long blockMaxY;
+  /** The offset of each block written, for the index. */
+  private long[] blockOffsets;
+  /** The length and number of shapes of each block written. */
+  private int[] blockSizes;
+  /** The bounds of each block written, 4 ints each. */
+  private int[] blockBounds;
+  /** The number of blocks written, not including the last. */
+  private int numBlocks;
+  /** The number of shapes written. */
+  private long numShapes;
+  /** The number of bytes written to the channel. */
+  private long numBytes;
+  /** Whether this writer has been closed. */
+  private boolean closed;
+
+  /**
+   * Creates a new {@code SceneFileWriter} of a file without
+   * an index, and writes the file header to the given
+   * channel, at its current position.
+   *
+   * @param out The channel to write to.
+   * @throws IOException If the header could not be written.
+   */
+  public SceneFileWriter(WritableByteChannel out) throws IOException {
+    this(out, false);
+  }
+
+  /**
+   * Creates a new {@code SceneFileWriter} and writes the file
+   * header to the given channel, which must be at the start
+   * of the file if the file is indexed, since the index
+   * records offsets from there.
+   *
+   * @param out     The channel to write to.
+   * @param indexed Whether to write the bounds of each shape
+   *                and an index of the blocks.
+   * @throws IOException If the header could not be written.
+   */
+  public SceneFileWriter(WritableByteChannel out, boolean indexed) throws IOException {
+    this.out = out;
+    this.indexed = indexed;
+    this.blockHeader = ByteBuffer.allocate(
+      SceneFile.BLOCK_HEADER_BYTES
+      +(indexed ? SceneFile.BOUNDS_BYTES*SceneFileWriter.BLOCK_SHAPES : 0)
+    );
+    this.block = ByteBuffer.allocate(SceneFileWriter.BLOCK_BYTES+(1 << 12));
+    this.colourKeys = new int[16];
+    this.colourCodes = new int[16];
+    this.colourBlocks = new int[16];
+    this.outlines = new IdentityHashMap<>();
+
+    ByteBuffer header = ByteBuffer.allocate(SceneFile.HEADER_BYTES);
+    header.putInt(SceneFile.MAGIC);
+    header.putShort(SceneFile.VERSION);
+    header.putShort(indexed ? SceneFile.INDEXED : 0);
+    header.flip();
+    this.writeFully(header);
+    if (indexed) {
+      this.blockOffsets = new long[SceneFileWriter.INITIAL_INDEX_CAPACITY];
+      this.blockSizes = new int[2*SceneFileWriter.INITIAL_INDEX_CAPACITY];
+      this.blockBounds = new int[4*SceneFileWriter.INITIAL_INDEX_CAPACITY];
+    }
+    this.startBlock();
+  }
+
+  /**
+   * Writes a {@code Shape}.
+   *
+   * @param shape The {@code Shape} to write.
+   * @throws IOException              If a full block could not
+   *                                  be written.
+   * @throws IllegalArgumentException If the {@code Shape} is
+   *                                  not one of the types in
+   *                                  this package.
+   */
+  public void write(Shape shape) throws IOException {
+    if (this.closed) {
+      throw new IllegalStateException("The writer has been closed");
+    }
+    int type = SceneFile.getType(shape);
+    PolygonGeometry geometry = null;
+    int maxBytes = 8*SceneFile.MAX_VARINT_BYTES;
+    if (shape instanceof ArbitrarySimplePolygon) {
+      geometry = ((ArbitrarySimplePolygon)shape).getGeometry();
+      maxBytes += 2*SceneFile.MAX_VARINT_BYTES*geometry.getNumPoints();
+    }
+    this.ensureRemaining(maxBytes);
+
+    if (this.indexed) {
+      this.putBounds(shape.getBounds());
+    }
+
+    ByteBuffer block = this.block;
+    block.put((byte)type);
+    this.putColour(shape.getRGB());
+    SceneFile.putSignedVarint(block, shape.getX()-this.lastX);
+    SceneFile.putSignedVarint(block, shape.getY()-this.lastY);
+    this.lastX = shape.getX();
+    this.lastY = shape.getY();
+
+    if (type == SceneFile.CIRCLE) {
+      SceneFile.putVarint(block, ((Circle)shape).getDiameter());
+    } else if (type == SceneFile.ELLIPSE) {
+      SceneFile.putVarint(block, ((Ellipse)shape).getWidth());
+      SceneFile.putVarint(block, ((Ellipse)shape).getHeight());
+    } else {
+      SceneFile.putSignedVarint(block, ((ArbitrarySimplePolygon)shape).getRotation());
+      int numDimensions = SceneFile.getNumDimensions(type);
+      if (numDimensions > 0) {
+        SceneFile.putVarint(block, ((OrientedPolygon)shape).getBase());
+      }
+      if (numDimensions > 1) {
+        SceneFile.putVarint(block, ((OrientedPolygon)shape).getHeight());
+      }
+      if (numDimensions > 2) {
+        SceneFile.putVarint(block, ((Trapezoid)shape).getOppositeBase());
+      }
+      this.putOutline(geometry);
+    }
+
+    ++this.numShapes;
+    if (
+      (++this.blockShapes == SceneFileWriter.BLOCK_SHAPES)
+      || (block.position() >= SceneFileWriter.BLOCK_BYTES)
+    ) {
+      this.writeBlock();
+      this.startBlock();
+    }
+  }
+
+  /**
+   * Writes every {@code Shape} of the given collection, in
+   * iteration order.
+   *
+   * @param shapes The {@code Shape}s to write.
+   * @throws IOException If a full block could not be written.
+   */
+  public void writeAll(Iterable<? extends Shape> shapes) throws IOException {
+    for (Shape shape : shapes) {
+      this.write(shape);
+    }
+  }
+
+  /**
+   * Gets the number of {@code Shape}s written so far.
+   *
+   * @return long, the number of {@code Shape}s written.
+   */
+  public long getShapeCount() {
+    return this.numShapes;
+  }
+
+  /**
+   * Gets the number of bytes written to the channel so far,
+   * which does not include the block being encoded.
+   *
+   * @return long, the number of bytes written.
+   */
+  public long getByteCount() {
+    return this.numBytes;
+  }
+
+  /**
+   * Writes the last block and the end of the file. The
+   * channel is not closed.
+   *
+   * @throws IOException If the end of the file could not be
+   *                     written.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    if (this.blockShapes > 0) {
+      this.writeBlock();
+      this.startBlock();
+    }
+    // the empty block marks the end
+    this.writeBlock();
+    if (this.indexed) {
+      this.writeIndex();
+    }
+  }
+
+  /**
+   * Records the bounds of a shape in the block header, and
+   * grows the bounds of the block to include them.
+   *
+   * @param bounds The bounds of the shape.
+   */
+  private void putBounds(Rectangle bounds) {
+    this.blockHeader.putInt(bounds.x);
+    this.blockHeader.putInt(bounds.y);
+    this.blockHeader.putInt(bounds.width);
+    this.blockHeader.putInt(bounds.height);
+    this.blockMinX = Math.min(this.blockMinX, bounds.x);
+    this.blockMaxX = Math.max(this.blockMaxX, (long)bounds.x+bounds.width);
+    this.blockMaxY = Math.max(this.blockMaxY, bounds.y);
+    this.blockMinY = Math.min(this.blockMinY, (long)bounds.y-bounds.height);
+  }
+
+  /**
+   * Writes a colour, as its code in the block if it has been
+   * seen, otherwise as its value.
+   *
+   * @param argb The colour, packed as by
+   *             {@link java.awt.Color#getRGB()}.
+   */
+  private void putColour(int argb) {
+    int mask = this.colourKeys.length-1;
+    int slot = SceneFileWriter.hashColour(argb) & mask;
+    while (this.colourBlocks[slot] == this.blockNumber) {
+      if (this.colourKeys[slot] == argb) {
+        SceneFile.putVarint(this.block, this.colourCodes[slot]);
+        return;
+      }
+      slot = (slot+1) & mask;
+    }
+
+    this.colourKeys[slot] = argb;
+    this.colourCodes[slot] = SceneFile.FIRST_COLOUR+this.numColours;
+    this.colourBlocks[slot] = this.blockNumber;
+    ++this.numColours;
+    if (2*this.numColours > this.colourKeys.length) {
+      this.growColours();
+    }
+    if ((argb >>> 24) == 0xFF) {
+      this.block.put((byte)SceneFile.NEW_RGB);
+      this.block.put((byte)(argb >> 16));
+      this.block.put((byte)(argb >> 8));
+      this.block.put((byte)argb);
+    } else {
+      this.block.put((byte)SceneFile.NEW_ARGB);
+      this.block.putInt(argb);
+    }
+  }
+
+  /**
+   * Doubles the size of the table of colours seen in the
+   * block, keeping only the colours of the current block.
+   */
+  private void growColours() {
+    int[] keys = this.colourKeys;
+    int[] codes = this.colourCodes;
+    int[] blocks = this.colourBlocks;
+    this.colourKeys = new int[2*keys.length];
+    this.colourCodes = new int[2*keys.length];
+    this.colourBlocks = new int[2*keys.length];
+    int mask = this.colourKeys.length-1;
+    for (int i = 0; i < keys.length; ++i) {
+      if (blocks[i] != this.blockNumber) {
+        continue;
+      }
+      int slot = SceneFileWriter.hashColour(keys[i]) & mask;
+      while (this.colourBlocks[slot] == this.blockNumber) {
+        slot = (slot+1) & mask;
+      }
+      this.colourKeys[slot] = keys[i];
+      this.colourCodes[slot] = codes[i];
+      this.colourBlocks[slot] = this.blockNumber;
+    }
+  }
+
+  /**
+   * Spreads the bits of a packed colour, since nearby colours
+   * differ only in their low bits.
+   *
+   * @param argb The packed colour.
+   * @return int, the hash of the colour.
+   */
+  private static int hashColour(int argb) {
+    int hash = argb*0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Writes a polygon outline, as its index in the block if it
+   * has been seen, otherwise as its vertices.
+   *
+   * @param geometry The outline to write.
+   */
+  private void putOutline(PolygonGeometry geometry) {
+    // outlines are interned, so identity is equality
+    Integer index = this.outlines.get(geometry);
+    if (index != null) {
+      SceneFile.putVarint(this.block, 0);
+      SceneFile.putVarint(this.block, index);
+      return;
+    }
+
+    this.outlines.put(geometry, this.outlines.size());
+    int n = geometry.getNumPoints();
+    SceneFile.putVarint(this.block, n);
+    int lastX = 0;
+    int lastY = 0;
+    for (int i = 0; i < n; ++i) {
+      SceneFile.putSignedVarint(this.block, geometry.getX(i)-lastX);
+      SceneFile.putSignedVarint(this.block, geometry.getY(i)-lastY);
+      lastX = geometry.getX(i);
+      lastY = geometry.getY(i);
+    }
+  }
+
+  /**
+   * Makes sure the block has room for a number of bytes,
+   * growing it for shapes with many vertices.
+   *
+   * @param bytes The number of bytes needed.
+   */
+  private void ensureRemaining(int bytes) {
+    if (this.block.remaining() < bytes) {
+      ByteBuffer larger = ByteBuffer.allocate(
+        Math.max(2*this.block.capacity(), this.block.position()+bytes)
+      );
+      this.block.flip();
+      larger.put(this.block);
+      this.block = larger;
+    }
+  }
+
+  /**
+   * Starts a new, empty block.
+   */
+  private void startBlock() {
+    this.blockHeader.clear();
+    this.blockHeader.position(SceneFile.BLOCK_HEADER_BYTES);
+    this.block.clear();
+    this.blockMinX = Long.MAX_VALUE;
+    this.blockMinY = Long.MAX_VALUE;
+    this.blockMaxX = Long.MIN_VALUE;
+    this.blockMaxY = Long.MIN_VALUE;
+    this.blockShapes = 0;
+    this.lastX = 0;
+    this.lastY = 0;
+    ++this.blockNumber;
+    this.numColours = 0;
+    this.outlines.clear();
+  }
+
+  /**
+   * Fills in the header of the block being encoded and
+   * writes it.
+   *
+   * @throws IOException If the block could not be written.
+   */
+  private void writeBlock() throws IOException {
+    int length = this.blockHeader.position()-SceneFile.BLOCK_HEADER_BYTES+this.block.position();
+    if (this.indexed && (this.blockShapes > 0)) {
+      this.addIndexEntry(length);
+    }
+    this.blockHeader.putInt(0, length);
+    this.blockHeader.putInt(4, this.blockShapes);
+    this.blockHeader.flip();
+    this.writeFully(this.blockHeader);
+    this.block.flip();
+    this.writeFully(this.block);
+  }
+
+  /**
+   * Adds the index entry of the block about to be written.
+   *
+   * @param length The length of the block, not including its
+   *               header.
+   */
+  private void addIndexEntry(int length) {
+    if (this.numBlocks == this.blockOffsets.length) {
+      this.blockOffsets = Arrays.copyOf(this.blockOffsets, 2*this.numBlocks);
+      this.blockSizes = Arrays.copyOf(this.blockSizes, 4*this.numBlocks);
+      this.blockBounds = Arrays.copyOf(this.blockBounds, 8*this.numBlocks);
+    }
+    int i = this.numBlocks;
+    this.blockOffsets[i] = this.numBytes;
+    this.blockSizes[2*i] = length;
+    this.blockSizes[2*i+1] = this.blockShapes;
+    // the bounds of every shape fit in an int, so the union
+    // only overflows for a block spanning more than the whole
+    // int range, which is clamped
+    this.blockBounds[4*i] = (int)this.blockMinX;
+    this.blockBounds[4*i+1] = (int)this.blockMaxY;
+    this.blockBounds[4*i+2] = (int)Math.min(Integer.MAX_VALUE, this.blockMaxX-this.blockMinX);
+    this.blockBounds[4*i+3] = (int)Math.min(Integer.MAX_VALUE, this.blockMaxY-this.blockMinY);
+    ++this.numBlocks;
+  }
+
+  /**
+   * Writes the index of the blocks and the trailer, after
+   * the last block.
+   *
+   * @throws IOException If the index could not be written.
+   */
+  private void writeIndex() throws IOException {
+    long indexOffset = this.numBytes;
+    ByteBuffer index = ByteBuffer.allocate(
+      SceneFile.INDEX_ENTRY_BYTES*this.numBlocks+SceneFile.TRAILER_BYTES
+    );
+    for (int i = 0; i < this.numBlocks; ++i) {
+      index.putLong(this.blockOffsets[i]);
+      index.putInt(this.blockSizes[2*i]);
+      index.putInt(this.blockSizes[2*i+1]);
+      for (int j = 0; j < 4; ++j) {
+        index.putInt(this.blockBounds[4*i+j]);
+      }
+    }
+    index.putLong(indexOffset);
+    index.putInt(this.numBlocks);
+    index.putInt(SceneFile.MAGIC);
+    index.flip();
+    this.writeFully(index);
+  }
+
+  /**
+   * Writes the whole of a buffer to the channel.
+   *
+   * @param buffer The buffer to write.
+   * @throws IOException If the buffer could not be written.
+   */
+  private void writeFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      this.numBytes += this.out.write(buffer);
+    }
+  }
+}
@@ -0,0 +1,748 @@
+package shapes;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Generates scenes of random {@code Shape}s from a seed,
+ * through a {@code ShapeFactory}, for load testing. The mix
+ * of shape types, the range of sizes, rotations, and
+ * colours, and how shapes are laid out can all be
+ * configured.
+ * <p>
+ * Each shape is generated from its own random numbers,
+ * derived from the seed and its index in the scene, so a
+ * scene is the same for the same seed and configuration no
+ * matter how many threads generate it, and any range of a
+ * scene can be generated on its own. Shapes are generated
+ * in parallel and delivered in index order.
+ * <p>
+ * Every argument of a shape's builder is chosen at random:
+ * arguments with a bounded range, like angles, from their
+ * whole range; arguments with only a lower bound, like
+ * lengths, from the size range; and unbounded arguments,
+ * like offsets, from plus or minus half the maximum size.
+ * Combinations which would build an invalid shape are
+ * chosen again.
+ * <p>
+ * A {@code SceneGenerator} should be configured before it is
+ * used, and not changed while generating.
+ *
+ * @author Kevin Qiao
+ * @version 1.4
+ */
+public final class SceneGenerator {
+  /**
+   * How generated shapes are laid out within the area of the
+   * scene.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  public static enum Layout {
+    /** Spread evenly over the area. */
+    UNIFORM,
+    /** Spread normally around a number of cluster centres. */
+    CLUSTERED,
+    /**
+     * In a grid of cells as large as the largest shape, row
+     * by row from the top left corner of the area. A shape
+     * whose cell would be outside the range of {@code int}
+     * coordinates cannot be generated.
+     */
+    GRID;
+  }
+
+  /** The number of shapes generated by each task in parallel. */
+  private static final int CHUNK_SIZE = 1024;
+  /** The number of shapes delivered to a sink at a time. */
+  private static final int BATCH_SIZE = 64*SceneGenerator.CHUNK_SIZE;
+  /**
+   * The number of times the arguments of a shape are chosen
+   * before giving up on finding a valid combination.
+   */
+  private static final int MAX_ATTEMPTS = 100;
+
+  /** The factory to get builders from. */
+  private final ShapeFactory factory;
+  /** The seed of every scene generated. */
+  private final long seed;
+  /** The types of shape to generate, with their weights. */
+  private final ArrayList<TypeWeight> types;
+  /** The smallest length to generate. */
+  private int minSize;
+  /** The largest length to generate. */
+  private int maxSize;
+  /** The smallest rotation to generate, in degrees. */
+  private int minRotation;
+  /** The largest rotation to generate, in degrees. */
+  private int maxRotation;
+  /** The smallest value of each colour component. */
+  private int minColour;
+  /** The largest value of each colour component. */
+  private int maxColour;
+  /** The x coordinate of the left edge of the area. */
+  private int areaX;
+  /** The y coordinate of the top edge of the area. */
+  private int areaY;
+  /** The width of the area. */
+  private int areaWidth;
+  /** The height of the area. */
+  private int areaHeight;
+  /** How shapes are laid out. */
+  private Layout layout;
+  /** The number of clusters, for the clustered layout. */
+  private int numClusters;
+  /** The standard deviation from a cluster centre. */
+  private int clusterSpread;
+
+  /**
+   * Creates a new {@code SceneGenerator} which builds shapes
+   * through the given factory from the given seed. By
+   * default, every type of shape in the factory is equally
+   * likely, sizes are from 10 to 100, rotations are from 0
+   * to 359, colours are unrestricted, and shapes are spread
+   * uniformly over a 1000 by 1000 area with its top left
+   * corner at the origin.
+   *
+   * @param factory The factory to get builders from.
+   * @param seed    The seed of every scene generated.
+   */
+  public SceneGenerator(ShapeFactory factory, long seed) {
+    this.factory = factory;
+    this.seed = seed;
+    this.types = new ArrayList<>();
+    this.minSize = 10;
+    this.maxSize = 100;
+    this.minRotation = 0;
+    this.maxRotation = 359;
+    this.minColour = 0;
+    this.maxColour = 255;
+    this.areaX = 0;
+    this.areaY = 0;
+    this.areaWidth = 1000;
+    this.areaHeight = 1000;
+    this.layout = Layout.UNIFORM;
+    this.numClusters = 8;
+    this.clusterSpread = 50;
+  }
+
+  /**
+   * Adds a type of shape to generate, with the given weight
+   * relative to the other types added. Once any type is
+   * added, only the added types are generated.
+   *
+   * @param shape     The name of the {@code Shape}.
+   * @param variation The name of the builder variation.
+   * @param weight    The relative weight of the type.
+   * @return SceneGenerator, this {@code SceneGenerator}.
+   */
+  public SceneGenerator withType(String shape, String variation, double weight) {
+    if (!(weight > 0)) {
+      throw new IllegalArgumentException("Weight must be positive: "+weight);
+    }
+    // checks that the type exists
+    this.factory.getBuilder(shape, variation);
+    this.types.add(new TypeWeight(shape, variation, weight));
+    return this;
+  }
+
+  /**
+   * Sets the range of lengths to generate, inclusive.
+   *
+   * @param min The smallest length, at least 1.
+   * @param max The largest length.
+   * @return SceneGenerator, this {@code SceneGenerator}.
+   */
+  public SceneGenerator withSizeRange(int min, int max) {
+    SceneGenerator.checkRange(min, max, 1, Integer.MAX_VALUE);
+    this.minSize = min;
+    this.maxSize = max;
+    return this;
+  }
+
+  /**
+   * Sets the range of rotations to generate, inclusive, for
+   * shapes which can be rotated.
+   *
+   * @param min The smallest rotation, from 0 to 359.
+   * @param max The largest rotation, from 0 to 359.
+   * @return SceneGenerator, this {@code SceneGenerator}.
+   */
+  public SceneGenerator withRotationRange(int min, int max) {
+    SceneGenerator.checkRange(min, max, 0, 359);
+    this.minRotation = min;
+    this.maxRotation = max;
+    return this;
+  }
+
+  /**
+   * Sets the range of each colour component to generate,
+   * inclusive.
+   *
+   * @param min The smallest component, from 0 to 255.
+   * @param max The largest component, from 0 to 255.
+   * @return SceneGenerator, this {@code SceneGenerator}.
+   */
+  public SceneGenerator withColourRange(int min, int max) {
+    SceneGenerator.checkRange(min, max, 0, 255);
+    this.minColour = min;
+    this.maxColour = max;
+    return this;
+  }
+
+  /**
+   * Sets the area to lay shapes out in. The grid layout
+   * continues below the area if it runs out of rows.
+   *
+   * @param x      The x coordinate of the left edge.
+   * @param y      The y coordinate of the top edge.
+   * @param width  The width of the area.
+   * @param height The height of the area.
+   * @return SceneGenerator, this {@code SceneGenerator}.
+   */
+  public SceneGenerator withArea(int x, int y, int width, int height) {
+    Shape.checkDimension(width);
+    Shape.checkDimension(height);
+    this.areaX = x;
+    this.areaY = y;
+    this.areaWidth = width;
+    this.areaHeight = height;
+    return this;
+  }
+
+  /**
+   * Sets how shapes are laid out within the area.
+   *
+   * @param layout The layout.
+   * @return SceneGenerator, this {@code SceneGenerator}.
+   */
+  public SceneGenerator withLayout(Layout layout) {
+    this.layout = layout;
+    return this;
+  }
+
+  /**
+   * Sets the clusters of the clustered layout. The cluster
+   * centres are spread uniformly over the area.
+   *
+   * @param numClusters The number of clusters.
+   * @param spread      The standard deviation of a shape's
+   *                    position from its cluster's centre.
+   * @return SceneGenerator, this {@code SceneGenerator}.
+   */
+  public SceneGenerator withClusters(int numClusters, int spread) {
+    Shape.checkDimension(numClusters);
+    Shape.checkDimension(spread);
+    this.numClusters = numClusters;
+    this.clusterSpread = spread;
+    return this;
+  }
+
+  /**
+   * Generates the shape with the given index in the scene.
+   *
+   * @param index The index of the shape.
+   * @return Shape, the generated shape.
+   */
+  public Shape generate(long index) {
+    Plan plan = this.createPlan();
+    return plan.generate(plan.copyBuilders(), index);
+  }
+
+  /**
+   * Generates a range of the scene, in parallel.
+   *
+   * @param start The index of the first shape.
+   * @param count The number of shapes.
+   * @return Shape[], the generated shapes, in index order.
+   * @throws IllegalArgumentException If the grid layout is
+   *                                  used and a shape's cell is
+   *                                  outside the range of
+   *                                  {@code int} coordinates.
+   */
+  public Shape[] generate(long start, int count) {
+    Plan plan = this.createPlan();
+    plan.checkIndices(start, count);
+    return plan.generate(start, count);
+  }
+
+  /**
+   * Generates the first {@code count} shapes of the scene,
+   * delivering them to the given sink in index order, in
+   * batches. Each batch is generated in parallel while the
+   * previous batches have already been delivered, so only
+   * one batch is held at a time. The sink is called on the
+   * calling thread.
+   *
+   * @param count The number of shapes.
+   * @param sink  Receives each batch of shapes.
+   * @throws IllegalArgumentException If the grid layout is
+   *                                  used and a shape's cell is
+   *                                  outside the range of
+   *                                  {@code int} coordinates.
+   */
+  public void generate(long count, Consumer<? super List<Shape>> sink) {
+    Plan plan = this.createPlan();
+    // checked before any batch, so nothing is delivered
+    plan.checkIndices(0, count);
+    for (long start = 0; start < count; start += SceneGenerator.BATCH_SIZE) {
+      int size = (int)Math.min(SceneGenerator.BATCH_SIZE, count-start);
+      sink.accept(Arrays.asList(plan.generate(start, size)));
+    }
+  }
+
+  /**
+   * Generates the first {@code count} shapes of the scene and
+   * writes them to the given stream, in the format read by
+   * {@code ShapeDrawingPanel}. That format is a single
+   * serialized set, so the whole scene is held in memory
+   * while writing.
+   *
+   * @param count The number of shapes.
+   * @param out   The stream to write to.
+   * @throws IOException If the shapes could not be written.
+   */
+  public void writeSerializedShapes(int count, OutputStream out) throws IOException {
+    LinkedHashSet<Shape> shapes = new LinkedHashSet<>();
+    this.generate(count, shapes::addAll);
+    ObjectOutputStream objectOut = new ObjectOutputStream(out);
+    objectOut.writeObject(shapes);
+    objectOut.flush();
+  }
+
+  /**
+   * Generates the first {@code count} shapes of the scene and
+   * writes them as an indexed scene file, read by
+   * {@code SceneFileReader} or mapped by {@code MappedScene},
+   * in batches, so only one batch is held in memory at a
+   * time. The channel is not closed.
+   *
+   * @param count The number of shapes.
+   * @param out   The channel to write to.
+   * @throws IOException If the shapes could not be written.
+   */
+  public void writeSceneFile(long count, WritableByteChannel out) throws IOException {
+    try (SceneFileWriter writer = new SceneFileWriter(out, true)) {
+      this.generate(count, batch -> {
+        try {
+          writer.writeAll(batch);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Generates the first {@code count} shapes of the scene and
+   * writes them as text, in the language read by
+   * {@code SceneParser}, in batches, so only one batch is
+   * held in memory at a time. Reading the text back builds
+   * the same shapes. The writer is not closed.
+   *
+   * @param count The number of shapes.
+   * @param out   The writer to write to.
+   * @throws IOException If the text could not be written.
+   */
+  public void writeScene(long count, Writer out) throws IOException {
+    Plan plan = this.createPlan();
+    plan.checkIndices(0, count);
+    for (long start = 0; start < count; start += SceneGenerator.BATCH_SIZE) {
+      int size = (int)Math.min(SceneGenerator.BATCH_SIZE, count-start);
+      plan.writeScene(start, size, out);
+    }
+    out.flush();
+  }
+
+  /**
+   * Checks that a range is not empty and within the given
+   * limits, throwing an {@code IllegalArgumentException} if
+   * not.
+   *
+   * @param min      The start of the range.
+   * @param max      The end of the range.
+   * @param minLimit The smallest allowed start.
+   * @param maxLimit The largest allowed end.
+   */
+  private static void checkRange(int min, int max, int minLimit, int maxLimit) {
+    if ((min < minLimit) || (max > maxLimit) || (min > max)) {
+      throw new IllegalArgumentException(
+        "Invalid range: "+min+" "+max
+        +" (expected "+minLimit+"<=min<=max<="+maxLimit+")"
+      );
+    }
+  }
+
+  /**
+   * Scrambles the bits of a number, with the finalizer of
+   * MurmurHash3, so that nearby numbers give unrelated
+   * seeds.
+   *
+   * @param z The number to scramble.
+   * @return long, the scrambled number.
+   */
+  private static long mix(long z) {
+    z = (z^(z >>> 33))*0xFF51AFD7ED558CCDL;
+    z = (z^(z >>> 33))*0xC4CEB9FE1A85EC53L;
+    return z^(z >>> 33);
+  }
+
+  /**
+   * Picks a number uniformly from an inclusive range.
+   *
+   * @param random The source of random numbers.
+   * @param min    The start of the range.
+   * @param max    The end of the range.
+   * @return int, the number picked.
+   */
+  private static int nextInt(SplittableRandom random, int min, int max) {
+    return (int)(min+random.nextLong((long)max-min+1));
+  }
+
+  /**
+   * Captures the configuration of this generator, getting
+   * the builders of every type of shape and placing the
+   * cluster centres.
+   *
+   * @return Plan, the captured configuration.
+   */
+  private Plan createPlan() {
+    ArrayList<TypeWeight> types = new ArrayList<>(this.types);
+    if (types.isEmpty()) {
+      // every type, in a fixed order so that scenes do not
+      // depend on the order of the factory's maps
+      ArrayList<String> shapes = new ArrayList<>();
+      this.factory.getShapes().forEachRemaining(shapes::add);
+      shapes.sort(null);
+      for (String shape : shapes) {
+        ArrayList<String> variations = new ArrayList<>();
+        this.factory.getBuilders(shape).forEachRemaining(b -> variations.add(b.getVariation()));
+        variations.sort(null);
+        for (String variation : variations) {
+          types.add(new TypeWeight(shape, variation, 1));
+        }
+      }
+    }
+    return new Plan(types);
+  }
+
+  /**
+   * A type of shape to generate, and its weight relative to
+   * the other types.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  private static final class TypeWeight {
+    /** The name of the {@code Shape}. */
+    private final String shape;
+    /** The name of the builder variation. */
+    private final String variation;
+    /** The relative weight. */
+    private final double weight;
+
+    /**
+     * Creates a new {@code TypeWeight}.
+     *
+     * @param shape     The name of the {@code Shape}.
+     * @param variation The name of the builder variation.
+     * @param weight    The relative weight.
+     */
+    private TypeWeight(String shape, String variation, double weight) {
+      this.shape = shape;
+      this.variation = variation;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * The configuration of a {@code SceneGenerator} at the
+   * start of one generation, along with everything
+   * precalculated from it.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  private final class Plan {
+    /** The builder of each type, which are only copied. */
+    private final ShapeBuilder[] templates;
+    /** The running total of the weights, by type. */
+    private final double[] cumulativeWeights;
+    /** The x coordinate of each cluster centre. */
+    private final int[] clusterXs;
+    /** The y coordinate of each cluster centre. */
+    private final int[] clusterYs;
+    /** The number of columns in the grid layout. */
+    private final int gridColumns;
+
+    /**
+     * Captures the configuration of the enclosing generator
+     * with the given types.
+     *
+     * @param types The types of shape to generate.
+     */
+    private Plan(List<TypeWeight> types) {
+      SceneGenerator generator = SceneGenerator.this;
+      this.templates = new ShapeBuilder[types.size()];
+      this.cumulativeWeights = new double[types.size()];
+      double total = 0;
+      for (int i = 0; i < types.size(); ++i) {
+        TypeWeight type = types.get(i);
+        this.templates[i] = generator.factory.getBuilder(type.shape, type.variation);
+        total += type.weight;
+        this.cumulativeWeights[i] = total;
+      }
+
+      // the centres use their own random numbers, different
+      // from those of any shape
+      SplittableRandom random = new SplittableRandom(SceneGenerator.mix(~generator.seed));
+      this.clusterXs = new int[generator.numClusters];
+      this.clusterYs = new int[generator.numClusters];
+      for (int i = 0; i < generator.numClusters; ++i) {
+        this.clusterXs[i] = generator.areaX+random.nextInt(generator.areaWidth);
+        this.clusterYs[i] = generator.areaY-random.nextInt(generator.areaHeight);
+      }
+      this.gridColumns = Math.max(1, generator.areaWidth/generator.maxSize);
+    }
+
+    /**
+     * Copies the builder of each type, for one thread to use.
+     *
+     * @return ShapeBuilder[], the copied builders, by type.
+     */
+    private ShapeBuilder[] copyBuilders() {
+      ShapeBuilder[] builders = new ShapeBuilder[this.templates.length];
+      for (int i = 0; i < builders.length; ++i) {
+        builders[i] = this.templates[i].clone();
+      }
+      return builders;
+    }
+
+    /**
+     * Checks that every shape in the given range of indices
+     * can be placed, before any of them are generated. Only
+     * the grid layout can run out of coordinates, and its rows
+     * only move down the scene as the index grows, so only
+     * the first and last rows are checked; each shape's cell
+     * is still checked when it is placed.
+     *
+     * @param start The index of the first shape.
+     * @param count The number of shapes.
+     * @throws IllegalArgumentException If a shape's cell is
+     *                                  outside the range of
+     *                                  {@code int} coordinates.
+     */
+    private void checkIndices(long start, long count) {
+      SceneGenerator generator = SceneGenerator.this;
+      if ((generator.layout != Layout.GRID) || (count <= 0)) {
+        return;
+      }
+      long end = start+count-1;
+      this.getGridCoordinate(generator.areaY, start/this.gridColumns, -generator.maxSize, start);
+      this.getGridCoordinate(generator.areaY, end/this.gridColumns, -generator.maxSize, end);
+    }
+
+    /**
+     * Gets one coordinate of a grid cell, in {@code long}
+     * arithmetic so that it cannot wrap around.
+     *
+     * @param origin The coordinate of the first cell.
+     * @param cell   The number of cells from the first.
+     * @param step   The change in the coordinate per cell.
+     * @param index  The index of the shape, for the message.
+     * @return int, the coordinate of the cell.
+     * @throws IllegalArgumentException If the coordinate is
+     *                                  outside the range of
+     *                                  {@code int}.
+     */
+    private int getGridCoordinate(int origin, long cell, long step, long index) {
+      try {
+        return Math.toIntExact(Math.addExact(origin, Math.multiplyExact(cell, step)));
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException(
+          "The grid cell of shape "+index+" is outside the range of int coordinates"
+        );
+      }
+    }
+
+    /**
+     * Generates a range of the scene, in parallel chunks.
+     *
+     * @param start The index of the first shape.
+     * @param count The number of shapes.
+     * @return Shape[], the generated shapes, in index order.
+     */
+    private Shape[] generate(long start, int count) {
+      Shape[] shapes = new Shape[count];
+      int numChunks = (count+SceneGenerator.CHUNK_SIZE-1)/SceneGenerator.CHUNK_SIZE;
+      IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+        ShapeBuilder[] builders = this.copyBuilders();
+        int from = chunk*SceneGenerator.CHUNK_SIZE;
+        int to = Math.min(from+SceneGenerator.CHUNK_SIZE, count);
+        for (int i = from; i < to; ++i) {
+          shapes[i] = this.generate(builders, start+i);
+        }
+      });
+      return shapes;
+    }
+
+    /**
+     * Writes a range of the scene as text, with the chunks
+     * written in parallel and appended in index order.
+     *
+     * @param start The index of the first shape.
+     * @param count The number of shapes.
+     * @param out   The writer to write to.
+     * @throws IOException If the text could not be written.
+     */
+    private void writeScene(long start, int count, Writer out) throws IOException {
+      int numChunks = (count+SceneGenerator.CHUNK_SIZE-1)/SceneGenerator.CHUNK_SIZE;
+      StringBuilder[] texts = new StringBuilder[numChunks];
+      IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+        ShapeBuilder[] builders = this.copyBuilders();
+        int from = chunk*SceneGenerator.CHUNK_SIZE;
+        int to = Math.min(from+SceneGenerator.CHUNK_SIZE, count);
+        StringBuilder text = new StringBuilder(64*(to-from));
+        for (int i = from; i < to; ++i) {
+          SceneParser.appendStatement(this.prepare(builders, start+i), text);
+        }
+        texts[chunk] = text;
+      });
+      for (StringBuilder text : texts) {
+        out.append(text);
+      }
+    }
+
+    /**
+     * Generates the shape with the given index.
+     *
+     * @param builders The builders to use, by type, which
+     *                 belong to the calling thread.
+     * @param index    The index of the shape.
+     * @return Shape, the generated shape.
+     */
+    private Shape generate(ShapeBuilder[] builders, long index) {
+      return this.prepare(builders, index).build();
+    }
+
+    /**
+     * Sets up the builder for the shape with the given index,
+     * with arguments which are known to build a valid shape.
+     *
+     * @param builders The builders to use, by type, which
+     *                 belong to the calling thread.
+     * @param index    The index of the shape.
+     * @return ShapeBuilder, the builder of the shape's type,
+     *         ready to build it.
+     */
+    private ShapeBuilder prepare(ShapeBuilder[] builders, long index) {
+      SceneGenerator generator = SceneGenerator.this;
+      SplittableRandom random = new SplittableRandom(
+        SceneGenerator.mix(generator.seed+SceneGenerator.mix(index))
+      );
+
+      double pick = random.nextDouble()*this.cumulativeWeights[this.cumulativeWeights.length-1];
+      int type = 0;
+      while ((type < this.cumulativeWeights.length-1) && (pick >= this.cumulativeWeights[type])) {
+        ++type;
+      }
+      ShapeBuilder builder = builders[type];
+
+      int x;
+      int y;
+      switch (generator.layout) {
+        case CLUSTERED:
+          int cluster = random.nextInt(this.clusterXs.length);
+          x = this.clusterXs[cluster]+(int)(this.nextGaussian(random)*generator.clusterSpread);
+          y = this.clusterYs[cluster]+(int)(this.nextGaussian(random)*generator.clusterSpread);
+          break;
+        case GRID:
+          x = this.getGridCoordinate(generator.areaX, index%this.gridColumns, generator.maxSize, index);
+          y = this.getGridCoordinate(generator.areaY, index/this.gridColumns, -generator.maxSize, index);
+          break;
+        default:
+          x = generator.areaX+random.nextInt(generator.areaWidth);
+          y = generator.areaY-random.nextInt(generator.areaHeight);
+          break;
+      }
+      builder.withPosition(x, y);
+      builder.withColour(
+        SceneGenerator.nextInt(random, generator.minColour, generator.maxColour),
+        SceneGenerator.nextInt(random, generator.minColour, generator.maxColour),
+        SceneGenerator.nextInt(random, generator.minColour, generator.maxColour)
+      );
+
+      int firstSlot = ShapeBuilder.SCHEMA.getNumArgs();
+      if (builder instanceof ArbitrarySimplePolygon.RotationBuilder) {
+        ((ArbitrarySimplePolygon.RotationBuilder)builder).withRotation(
+          SceneGenerator.nextInt(random, generator.minRotation, generator.maxRotation)
+        );
+        firstSlot = ArbitrarySimplePolygon.RotationBuilder.SCHEMA.getNumArgs();
+      }
+
+      for (int attempt = 0; attempt < SceneGenerator.MAX_ATTEMPTS; ++attempt) {
+        for (int slot = firstSlot; slot < builder.getNumArgs(); ++slot) {
+          builder.setArgUnchecked(slot, this.nextArg(random, builder.getRequiredArg(slot)));
+        }
+        if (builder.validate().isValid()) {
+          return builder;
+        }
+      }
+      throw new IllegalStateException(
+        "Could not generate a valid "+builder.getTargetShape()
+        +" ("+builder.getVariation()+") within the size range: "
+        +builder.validate().getMessage()
+      );
+    }
+
+    /**
+     * Picks a value for a shape argument, from its own range
+     * if bounded, otherwise from the size range.
+     *
+     * @param random The source of random numbers.
+     * @param arg    The argument to pick a value for.
+     * @return int, the value picked.
+     */
+    private int nextArg(SplittableRandom random, ShapeBuilder.Arg arg) {
+      SceneGenerator generator = SceneGenerator.this;
+      if (arg.getMaxValue() != Integer.MAX_VALUE) {
+        return SceneGenerator.nextInt(random, arg.getMinValue(), arg.getMaxValue());
+      }
+      if (arg.getMinValue() != Integer.MIN_VALUE) {
+        return SceneGenerator.nextInt(
+          random,
+          Math.max(arg.getMinValue(), generator.minSize),
+          Math.max(arg.getMinValue(), generator.maxSize)
+        );
+      }
+      return SceneGenerator.nextInt(random, -generator.maxSize/2, generator.maxSize/2);
+    }
+
+    /**
+     * Picks a number from the standard normal distribution,
+     * by the Box-Muller transform, since
+     * {@code SplittableRandom} has no such method.
+     *
+     * @param random The source of random numbers.
+     * @return double, the number picked.
+     */
+    private double nextGaussian(SplittableRandom random) {
+      double u = 1-random.nextDouble();
+      return Math.sqrt(-2*Math.log(u))*Math.cos(2*Math.PI*random.nextDouble());
+    }
+  }
+}
@@ -0,0 +1,633 @@
+package shapes;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Parses scenes written in a compact text language, one
+ * statement per {@code Shape}, building each shape through
+ * a {@code ShapeFactory} as soon as its statement is read.
+ * <p>
+ * A statement names a shape and variation of the factory,
+ * followed by any of the builder's arguments, like:
+ * <pre>
+ * Trapezoid/Angle x=10 y=20 Base_Length=40 Height=15 Angle=60
+ * </pre>
+ * Statements end at the end of a line or at a {@code ;}, and
+ * a {@code #} starts a comment which runs to the end of the
+ * line. In a name, {@code _} stands for a space, and a name
+ * which cannot be written that way can be quoted, as in
+ * {@code "Base Length"=40}, with no escapes. Values are
+ * integers, with an optional sign. Any argument not given
+ * takes its default value, as with a new builder.
+ * <p>
+ * The input is read in large blocks and parsed in place.
+ * Each shape type is resolved to a builder, and its argument
+ * names to slots, once, when it is first seen; after that,
+ * names are matched against the characters in the block, so
+ * a statement allocates nothing but its built shape.
+ * <p>
+ * A {@code SceneParser} is not thread safe, but can be used
+ * for any number of scenes one after another.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+public final class SceneParser {
+  /** The initial number of characters read at a time. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The factory to find builders in. */
+  private final ShapeFactory factory;
+  /** The shape types seen so far, by {@code Shape/Variation}. */
+  private final NameTable<StatementType> types;
+  /** The characters being parsed. */
+  private char[] buffer;
+  /** The position of the next character to parse. */
+  private int position;
+  /** The end of the line being parsed. */
+  private int limit;
+  /** The number of the line being parsed, from 1. */
+  private long lineNumber;
+  /** The start of the last name read. */
+  private int nameStart;
+  /** The end of the last name read. */
+  private int nameEnd;
+  /** The hash of the last name read, as it would be named. */
+  private int nameHash;
+  /** Whether the last name read was bare, rather than quoted. */
+  private boolean nameBare;
+
+  /**
+   * Creates a new {@code SceneParser} which builds shapes
+   * with the builders of the given factory.
+   *
+   * @param factory The factory to find builders in.
+   */
+  public SceneParser(ShapeFactory factory) {
+    this.factory = factory;
+    this.types = new NameTable<>();
+  }
+
+  /**
+   * Parses a whole scene, passing each shape to the given
+   * sink as soon as it is built, in the order of the
+   * statements. The reader is not closed.
+   * <p>
+   * If a statement cannot be parsed or names an invalid
+   * shape, an {@code IllegalArgumentException} is thrown
+   * with the line number and the problem, after the shapes
+   * before it have been passed to the sink.
+   *
+   * @param in   The reader to read the scene from.
+   * @param sink Receives each built shape.
+   * @return long, the number of shapes built.
+   * @throws IOException If the scene could not be read.
+   */
+  public long parse(Reader in, Consumer<? super Shape> sink) throws IOException {
+    char[] buffer = new char[SceneParser.BUFFER_SIZE];
+    int start = 0;
+    int scan = 0;
+    int end = 0;
+    boolean endOfInput = false;
+    long count = 0;
+    this.lineNumber = 0;
+
+    while (true) {
+      int newline = scan;
+      while ((newline < end) && (buffer[newline] != '\n')) {
+        ++newline;
+      }
+
+      if (newline < end) {
+        ++this.lineNumber;
+        count += this.parseLine(buffer, start, newline, sink);
+        start = newline+1;
+        scan = start;
+      } else if (endOfInput) {
+        if (start < end) {
+          ++this.lineNumber;
+          count += this.parseLine(buffer, start, end, sink);
+        }
+        this.buffer = null;
+        return count;
+      } else {
+        // only the start of a line is left, so move it to the
+        // front and read more after it, growing the buffer
+        // only for lines longer than it
+        scan = end-start;
+        if (start > 0) {
+          System.arraycopy(buffer, start, buffer, 0, end-start);
+          end -= start;
+          start = 0;
+        } else if (end == buffer.length) {
+          buffer = Arrays.copyOf(buffer, 2*buffer.length);
+        }
+        int read = in.read(buffer, end, buffer.length-end);
+        if (read < 0) {
+          endOfInput = true;
+        } else {
+          end += read;
+        }
+      }
+    }
+  }
+
+  /**
+   * Appends a statement which builds the same {@code Shape}
+   * as the given builder, including the line break, to the
+   * given text. Arguments which have their default value are
+   * left out.
+   *
+   * @param builder The builder to describe.
+   * @param out     The text to append the statement to.
+   */
+  public static void appendStatement(ShapeBuilder builder, StringBuilder out) {
+    SceneParser.appendName(builder.getTargetShape()+"/"+builder.getVariation(), out);
+    for (int slot = 0; slot < builder.getNumArgs(); ++slot) {
+      int value = builder.getArg(slot);
+      if (value != builder.getDefaultArg(slot)) {
+        out.append(' ');
+        SceneParser.appendName(builder.getRequiredArg(slot).getName(), out);
+        out.append('=').append(value);
+      }
+    }
+    out.append('\n');
+  }
+
+  /**
+   * Appends a name to the given text, bare if it can be,
+   * otherwise quoted.
+   *
+   * @param name The name to append.
+   * @param out  The text to append the name to.
+   */
+  private static void appendName(String name, StringBuilder out) {
+    boolean bare = !name.isEmpty();
+    for (int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      if ((c == '"') || (c == '\n')) {
+        throw new IllegalArgumentException("Name cannot be written: "+name);
+      }
+      if ((c == '_') || ((c != ' ') && SceneParser.isDelimiter(c))) {
+        bare = false;
+      }
+    }
+
+    if (bare) {
+      out.append(name.replace(' ', '_'));
+    } else {
+      out.append('"').append(name).append('"');
+    }
+  }
+
+  /**
+   * Parses one line, passing each shape built from it to the
+   * given sink.
+   *
+   * @param buffer The characters being parsed.
+   * @param start  The start of the line.
+   * @param end    The end of the line, not including the line
+   *               break.
+   * @param sink   Receives each built shape.
+   * @return int, the number of shapes built.
+   */
+  private int parseLine(char[] buffer, int start, int end, Consumer<? super Shape> sink) {
+    this.buffer = buffer;
+    this.position = start;
+    this.limit = end;
+    int count = 0;
+    while (true) {
+      this.skipWhitespace();
+      if ((this.position == this.limit) || (buffer[this.position] == '#')) {
+        return count;
+      }
+      if (buffer[this.position] == ';') {
+        ++this.position;
+      } else {
+        sink.accept(this.parseStatement());
+        ++count;
+      }
+    }
+  }
+
+  /**
+   * Parses one statement, starting at its shape type, and
+   * builds its shape.
+   *
+   * @return Shape, the built shape.
+   */
+  private Shape parseStatement() {
+    this.readName("a shape type");
+    StatementType type = this.types.get(
+      this.buffer,
+      this.nameStart,
+      this.nameEnd,
+      this.nameHash,
+      this.nameBare
+    );
+    if (type == null) {
+      type = this.addType();
+    }
+
+    ShapeBuilder builder = type.builder;
+    builder.resetArgs();
+    while (true) {
+      this.skipWhitespace();
+      if (
+        (this.position == this.limit)
+        || (this.buffer[this.position] == ';')
+        || (this.buffer[this.position] == '#')
+      ) {
+        break;
+      }
+
+      this.readName("an argument name");
+      Integer slot = type.slots.get(
+        this.buffer,
+        this.nameStart,
+        this.nameEnd,
+        this.nameHash,
+        this.nameBare
+      );
+      if (slot == null) {
+        throw this.error("Unknown argument for "+type.name+": "+this.getName());
+      }
+      ShapeBuilder.Arg arg = builder.getRequiredArg(slot);
+      if ((this.position == this.limit) || (this.buffer[this.position] != '=')) {
+        throw this.error("Expected = after "+arg.getName());
+      }
+      ++this.position;
+
+      long value = this.readInteger(arg);
+      if ((value < arg.getMinValue()) || (value > arg.getMaxValue())) {
+        throw this.error(
+          arg.getName()+" must be between "+arg.getMinValue()+" and "+arg.getMaxValue()
+        );
+      }
+      builder.setArgUnchecked(slot, (int)value);
+    }
+
+    ShapeBuilder.Validation validation = builder.validate();
+    if (!validation.isValid()) {
+      throw this.error(validation.getMessage());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Resolves the shape type just read, which has not been
+   * seen before, through the factory.
+   *
+   * @return StatementType, the resolved shape type.
+   */
+  private StatementType addType() {
+    String name = this.getName();
+    int separator = name.indexOf('/');
+    if (separator < 0) {
+      throw this.error("Expected Shape/Variation: "+name);
+    }
+
+    ShapeBuilder builder;
+    try {
+      builder = this.factory.getBuilder(
+        name.substring(0, separator),
+        name.substring(separator+1)
+      );
+    } catch (IllegalArgumentException e) {
+      throw this.error(e.getMessage());
+    }
+    StatementType type = new StatementType(name, builder);
+    this.types.put(name, type);
+    return type;
+  }
+
+  /**
+   * Reads a bare or quoted name at the current position,
+   * recording where it is and its hash.
+   *
+   * @param expected What the name is, for error messages.
+   */
+  private void readName(String expected) {
+    char[] buffer = this.buffer;
+    int hash = 0;
+    if ((this.position < this.limit) && (buffer[this.position] == '"')) {
+      int start = this.position+1;
+      int end = start;
+      while ((end < this.limit) && (buffer[end] != '"')) {
+        hash = 31*hash+buffer[end];
+        ++end;
+      }
+      if (end == this.limit) {
+        throw this.error("Unterminated quoted name");
+      }
+      this.nameStart = start;
+      this.nameEnd = end;
+      this.nameBare = false;
+      this.position = end+1;
+    } else {
+      int start = this.position;
+      int end = start;
+      while ((end < this.limit) && !SceneParser.isDelimiter(buffer[end])) {
+        hash = 31*hash+SceneParser.unescape(buffer[end]);
+        ++end;
+      }
+      this.nameStart = start;
+      this.nameEnd = end;
+      this.nameBare = true;
+      this.position = end;
+    }
+
+    if (this.nameStart == this.nameEnd) {
+      throw this.error("Expected "+expected);
+    }
+    this.nameHash = hash;
+  }
+
+  /**
+   * Gets the last name read, as it would be named. Only
+   * used when the name is not already known.
+   *
+   * @return String, the last name read.
+   */
+  private String getName() {
+    String name = new String(this.buffer, this.nameStart, this.nameEnd-this.nameStart);
+    if (this.nameBare) {
+      return name.replace('_', ' ');
+    }
+    return name;
+  }
+
+  /**
+   * Reads an integer at the current position, which must be
+   * followed by the end of the argument.
+   *
+   * @param arg The argument the integer is for.
+   * @return long, the integer read, which may be outside the
+   *         range of an {@code int}.
+   */
+  private long readInteger(ShapeBuilder.Arg arg) {
+    char[] buffer = this.buffer;
+    boolean negative = false;
+    if (this.position < this.limit) {
+      char sign = buffer[this.position];
+      if ((sign == '-') || (sign == '+')) {
+        negative = (sign == '-');
+        ++this.position;
+      }
+    }
+
+    int start = this.position;
+    long value = 0;
+    while (this.position < this.limit) {
+      char c = buffer[this.position];
+      if ((c < '0') || (c > '9')) {
+        break;
+      }
+      // anything past the range of an int is out of range
+      // anyway, so stop growing before a long can overflow
+      if (value <= Integer.MAX_VALUE) {
+        value = 10*value+(c-'0');
+      }
+      ++this.position;
+    }
+
+    if (
+      (this.position == start)
+      || ((this.position < this.limit) && !SceneParser.isEndOfValue(buffer[this.position]))
+    ) {
+      throw this.error("Expected an integer for "+arg.getName());
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Moves the current position past any spaces and tabs.
+   */
+  private void skipWhitespace() {
+    while ((this.position < this.limit) && SceneParser.isWhitespace(this.buffer[this.position])) {
+      ++this.position;
+    }
+  }
+
+  /**
+   * Creates an exception for a problem on the current line.
+   *
+   * @param message The problem.
+   * @return IllegalArgumentException, the exception to throw.
+   */
+  private IllegalArgumentException error(String message) {
+    return new IllegalArgumentException("Line "+this.lineNumber+": "+message);
+  }
+
+  /**
+   * Checks whether a character is whitespace within a line.
+   *
+   * @param c The character to check.
+   * @return boolean, whether the character is whitespace.
+   */
+  private static boolean isWhitespace(char c) {
+    return (c == ' ') || (c == '\t') || (c == '\r');
+  }
+
+  /**
+   * Checks whether a character ends a bare name.
+   *
+   * @param c The character to check.
+   * @return boolean, whether the character ends a bare name.
+   */
+  private static boolean isDelimiter(char c) {
+    return SceneParser.isWhitespace(c) || (c == '=') || (c == '"') || SceneParser.isEndOfValue(c);
+  }
+
+  /**
+   * Checks whether a character can follow an argument value.
+   *
+   * @param c The character to check.
+   * @return boolean, whether the character can follow a
+   *         value.
+   */
+  private static boolean isEndOfValue(char c) {
+    return SceneParser.isWhitespace(c) || (c == ';') || (c == '#');
+  }
+
+  /**
+   * Gets the character a character of a bare name stands
+   * for.
+   *
+   * @param c The character in the bare name.
+   * @return char, the character it stands for.
+   */
+  private static char unescape(char c) {
+    return (c == '_') ? ' ' : c;
+  }
+
+  /**
+   * A shape type seen in a scene, with its builder and the
+   * slots of its arguments.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  private static final class StatementType {
+    /** The name of the type, as {@code Shape/Variation}. */
+    private final String name;
+    /** The builder for shapes of this type. */
+    private final ShapeBuilder builder;
+    /** The slots of the builder's arguments, by name. */
+    private final NameTable<Integer> slots;
+
+    /**
+     * Creates a new {@code StatementType}.
+     *
+     * @param name    The name of the type.
+     * @param builder The builder for shapes of this type, which
+     *                belongs to the parser.
+     */
+    private StatementType(String name, ShapeBuilder builder) {
+      this.name = name;
+      this.builder = builder;
+      this.slots = new NameTable<>();
+      for (int slot = 0; slot < builder.getNumArgs(); ++slot) {
+        this.slots.put(builder.getRequiredArg(slot).getName(), slot);
+      }
+    }
+  }
+
+  /**
+   * A hash table of names which can be looked up by a range
+   * of characters, so that looking up a name read from the
+   * input does not need it to be copied into a
+   * {@code String}.
+   *
+   * @param <V> The type of the values.
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  private static final class NameTable<V> {
+    /** The names, or {@code null} for empty entries. */
+    private String[] names;
+    /** The hash of each name. */
+    private int[] hashes;
+    /** The value of each name. */
+    private Object[] values;
+    /** The number of names. */
+    private int size;
+
+    /**
+     * Creates a new, empty {@code NameTable}.
+     */
+    private NameTable() {
+      this.names = new String[16];
+      this.hashes = new int[16];
+      this.values = new Object[16];
+    }
+
+    /**
+     * Adds a name, which must not already be in this table.
+     *
+     * @param name  The name.
+     * @param value The value of the name.
+     */
+    private void put(String name, V value) {
+      if (2*(this.size+1) > this.names.length) {
+        String[] oldNames = this.names;
+        int[] oldHashes = this.hashes;
+        Object[] oldValues = this.values;
+        this.names = new String[2*oldNames.length];
+        this.hashes = new int[2*oldNames.length];
+        this.values = new Object[2*oldNames.length];
+        for (int i = 0; i < oldNames.length; ++i) {
+          if (oldNames[i] != null) {
+            this.insert(oldNames[i], oldHashes[i], oldValues[i]);
+          }
+        }
+      }
+      this.insert(name, name.hashCode(), value);
+      ++this.size;
+    }
+
+    /**
+     * Inserts a name into the first free entry for its hash.
+     *
+     * @param name  The name.
+     * @param hash  The hash of the name.
+     * @param value The value of the name.
+     */
+    private void insert(String name, int hash, Object value) {
+      int mask = this.names.length-1;
+      int i = NameTable.spread(hash)&mask;
+      while (this.names[i] != null) {
+        i = (i+1)&mask;
+      }
+      this.names[i] = name;
+      this.hashes[i] = hash;
+      this.values[i] = value;
+    }
+
+    /**
+     * Looks up the name in a range of characters.
+     *
+     * @param buffer The characters.
+     * @param start  The start of the name.
+     * @param end    The end of the name.
+     * @param hash   The hash of the name, as it would be named,
+     *               matching {@link String#hashCode()}.
+     * @param bare   Whether {@code _} in the name stands for a
+     *               space.
+     * @return V, the value of the name, or {@code null} if it
+     *         is not in this table.
+     */
+    @SuppressWarnings("unchecked")
+    private V get(char[] buffer, int start, int end, int hash, boolean bare) {
+      int mask = this.names.length-1;
+      for (int i = NameTable.spread(hash)&mask; this.names[i] != null; i = (i+1)&mask) {
+        if (
+          (this.hashes[i] == hash)
+          && NameTable.matches(this.names[i], buffer, start, end, bare)
+        ) {
+          return (V)this.values[i];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Checks whether a range of characters names the given
+     * name.
+     *
+     * @param name   The name.
+     * @param buffer The characters.
+     * @param start  The start of the range.
+     * @param end    The end of the range.
+     * @param bare   Whether {@code _} in the range stands for
+     *               a space.
+     * @return boolean, whether the range names the name.
+     */
+    private static boolean matches(String name, char[] buffer, int start, int end, boolean bare) {
+      if (name.length() != end-start) {
+        return false;
+      }
+      for (int i = start; i < end; ++i) {
+        char c = bare ? SceneParser.unescape(buffer[i]) : buffer[i];
+        if (name.charAt(i-start) != c) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Spreads the high bits of a hash into the low bits, which
+     * pick the entry.
+     *
+     * @param hash The hash.
+     * @return int, the spread hash.
+     */
+    private static int spread(int hash) {
+      return hash^(hash >>> 16);
+    }
+  }
+}
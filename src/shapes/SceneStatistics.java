@@ -0,0 +1,436 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A class to keep summary statistics of a scene of
+ * {@code Shape}s up to date as the scene changes: the total
+ * area and perimeter, the number of {@code Shape}s of each
+ * type and colour, and the bounding box of the whole scene.
+ * <p>
+ * Each change is applied as a delta, so adding, removing, or
+ * moving a {@code Shape} takes constant time, except for the
+ * scene bounding box, which is kept as sorted counts of each
+ * {@code Shape}'s edges and so takes logarithmic time.
+ * Moving every {@code Shape} at once only moves an offset.
+ * <p>
+ * A {@code Shape} whose area and perimeter have not been
+ * calculated yet is counted straight away in everything but
+ * the totals, and is queued to have its area and perimeter
+ * calculated on a background thread, so adding many large
+ * {@code Shape}s does not block the caller. A single task
+ * works through the queue, skipping {@code Shape}s removed
+ * before their turn, so a scene of millions of
+ * {@code Shape}s queues one task rather than one for each.
+ * The totals include a {@code Shape} once its calculation
+ * finishes; until then it is counted as pending. Since the
+ * area and perimeter of a {@code Shape} never change, they
+ * are only calculated once.
+ * <p>
+ * All methods are synchronized, so a
+ * {@code SceneStatistics} can be read while the background
+ * calculations complete.
+ *
+ * @author Kevin Qiao
+ * @version 1.1
+ */
+public final class SceneStatistics {
+  /**
+   * The thread which works through the queues of
+   * {@code Shape}s waiting to be measured, shared by every
+   * {@code SceneStatistics}. It is a daemon thread, so it
+   * does not keep the program running.
+   */
+  private static final ExecutorService MEASURER =
+    Executors.newSingleThreadExecutor(r -> {
+      Thread thread = new Thread(r, "Scene statistics");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+  /** What is known of each {@code Shape} in the scene. */
+  private final HashMap<Shape, Entry> entries;
+  /** The number of {@code Shape}s of each type. */
+  private final HashMap<Class<? extends Shape>, Integer> typeCounts;
+  /** The number of {@code Shape}s of each colour. */
+  private final HashMap<Color, Integer> colorCounts;
+  /** The counts of the left edges of the {@code Shape}s. */
+  private final TreeMap<Integer, Integer> minXs;
+  /** The counts of the right edges of the {@code Shape}s. */
+  private final TreeMap<Integer, Integer> maxXs;
+  /** The counts of the bottom edges of the {@code Shape}s. */
+  private final TreeMap<Integer, Integer> minYs;
+  /** The counts of the top edges of the {@code Shape}s. */
+  private final TreeMap<Integer, Integer> maxYs;
+  /**
+   * The x offset added to every recorded edge, so that
+   * moving every {@code Shape} only changes the offset.
+   */
+  private long offsetX;
+  /** The y offset added to every recorded edge. */
+  private long offsetY;
+
+  /** The total area of the measured {@code Shape}s. */
+  private double totalArea;
+  /** The total perimeter of the measured {@code Shape}s. */
+  private double totalPerimeter;
+  /** The number of {@code Shape}s waiting to be measured. */
+  private int numPending;
+  /**
+   * The entries waiting to be measured, in the order they
+   * were added, including any removed since.
+   */
+  private final ArrayDeque<Entry> queue;
+  /** Whether or not a task is working through the queue. */
+  private boolean draining;
+
+  /**
+   * Constructs a new {@code SceneStatistics} for an empty
+   * scene.
+   */
+  public SceneStatistics() {
+    this.entries = new HashMap<>();
+    this.typeCounts = new HashMap<>();
+    this.colorCounts = new HashMap<>();
+    this.minXs = new TreeMap<>();
+    this.maxXs = new TreeMap<>();
+    this.minYs = new TreeMap<>();
+    this.maxYs = new TreeMap<>();
+    this.offsetX = 0;
+    this.offsetY = 0;
+    this.totalArea = 0;
+    this.totalPerimeter = 0;
+    this.numPending = 0;
+    this.queue = new ArrayDeque<>();
+    this.draining = false;
+  }
+
+  /**
+   * Adds a {@code Shape} to the scene. Does nothing if the
+   * {@code Shape} is already in the scene.
+   *
+   * @param shape The {@code Shape} to add.
+   */
+  public synchronized void add(Shape shape) {
+    if (this.entries.containsKey(shape)) {
+      return;
+    }
+    Entry entry = new Entry(shape);
+    this.entries.put(shape, entry);
+    SceneStatistics.increment(this.typeCounts, shape.getClass(), 1);
+    SceneStatistics.increment(this.colorCounts, shape.getColor(), 1);
+    this.addBounds(entry, shape.getBounds());
+
+    if (shape.isMeasured()) {
+      this.addMeasurements(entry, shape);
+    } else {
+      ++this.numPending;
+      this.queue.add(entry);
+      if (!this.draining) {
+        this.draining = true;
+        SceneStatistics.MEASURER.execute(this::drain);
+      }
+    }
+  }
+
+  /**
+   * Removes a {@code Shape} from the scene. Does nothing if
+   * the {@code Shape} is not in the scene.
+   *
+   * @param shape The {@code Shape} to remove.
+   */
+  public synchronized void remove(Shape shape) {
+    Entry entry = this.entries.remove(shape);
+    if (entry == null) {
+      return;
+    }
+    SceneStatistics.increment(this.typeCounts, shape.getClass(), -1);
+    SceneStatistics.increment(this.colorCounts, shape.getColor(), -1);
+    this.removeBounds(entry);
+
+    if (entry.measured) {
+      this.totalArea -= entry.area;
+      this.totalPerimeter -= entry.perimeter;
+    } else {
+      --this.numPending;
+    }
+    if (this.entries.isEmpty()) {
+      // clears any rounding error left by the subtractions
+      this.totalArea = 0;
+      this.totalPerimeter = 0;
+    }
+  }
+
+  /**
+   * Updates the bounds of a {@code Shape} in the scene after
+   * it has been moved or rotated. Does nothing if the
+   * {@code Shape} is not in the scene.
+   *
+   * @param shape The {@code Shape} which changed.
+   */
+  public synchronized void update(Shape shape) {
+    Entry entry = this.entries.get(shape);
+    if (entry == null) {
+      return;
+    }
+    this.removeBounds(entry);
+    this.addBounds(entry, shape.getBounds());
+  }
+
+  /**
+   * Records that every {@code Shape} in the scene has been
+   * translated by the same amount.
+   *
+   * @param dx The change in x coordinates.
+   * @param dy The change in y coordinates.
+   */
+  public synchronized void translateAll(int dx, int dy) {
+    this.offsetX += dx;
+    this.offsetY += dy;
+  }
+
+  /**
+   * Removes every {@code Shape} from the scene.
+   */
+  public synchronized void clear() {
+    this.entries.clear();
+    this.typeCounts.clear();
+    this.colorCounts.clear();
+    this.minXs.clear();
+    this.maxXs.clear();
+    this.minYs.clear();
+    this.maxYs.clear();
+    this.offsetX = 0;
+    this.offsetY = 0;
+    this.totalArea = 0;
+    this.totalPerimeter = 0;
+    this.numPending = 0;
+    this.queue.clear();
+  }
+
+  /**
+   * Gets the number of {@code Shape}s in the scene.
+   *
+   * @return int, the number of {@code Shape}s.
+   */
+  public synchronized int getShapeCount() {
+    return this.entries.size();
+  }
+
+  /**
+   * Gets the number of {@code Shape}s whose area and
+   * perimeter are still being calculated, and so are not yet
+   * included in the totals.
+   *
+   * @return int, the number of pending {@code Shape}s.
+   */
+  public synchronized int getPendingCount() {
+    return this.numPending;
+  }
+
+  /**
+   * Gets the total area of the {@code Shape}s in the scene,
+   * not counting pending {@code Shape}s. Overlapping area is
+   * counted once for each {@code Shape}; see
+   * {@code SceneCoverage} for the area covered.
+   *
+   * @return double, the total area.
+   */
+  public synchronized double getTotalArea() {
+    return this.totalArea;
+  }
+
+  /**
+   * Gets the total perimeter of the {@code Shape}s in the
+   * scene, not counting pending {@code Shape}s.
+   *
+   * @return double, the total perimeter.
+   */
+  public synchronized double getTotalPerimeter() {
+    return this.totalPerimeter;
+  }
+
+  /**
+   * Gets the number of {@code Shape}s of each type in the
+   * scene.
+   *
+   * @return Map&lt;Class&lt;? extends Shape&gt;, Integer&gt;,
+   *         an unmodifiable copy of the counts of each
+   *         type.
+   */
+  public synchronized Map<Class<? extends Shape>, Integer> getTypeCounts() {
+    return Collections.unmodifiableMap(new HashMap<>(this.typeCounts));
+  }
+
+  /**
+   * Gets the number of {@code Shape}s of each colour in the
+   * scene.
+   *
+   * @return Map&lt;Color, Integer&gt;, an unmodifiable copy of
+   *         the counts of each colour.
+   */
+  public synchronized Map<Color, Integer> getColorHistogram() {
+    return Collections.unmodifiableMap(new HashMap<>(this.colorCounts));
+  }
+
+  /**
+   * Gets the bounding box of the whole scene, in the same
+   * form as {@link Shape#getBounds()}: the x and y of the
+   * top left corner, and the width and height.
+   *
+   * @return Rectangle, the bounding box of the scene, or
+   *         {@code null} if the scene is empty.
+   */
+  public synchronized Rectangle getBounds() {
+    if (this.entries.isEmpty()) {
+      return null;
+    }
+    long minX = this.minXs.firstKey()+this.offsetX;
+    long maxX = this.maxXs.lastKey()+this.offsetX;
+    long minY = this.minYs.firstKey()+this.offsetY;
+    long maxY = this.maxYs.lastKey()+this.offsetY;
+    return new Rectangle((int)minX, (int)maxY, (int)(maxX-minX), (int)(maxY-minY));
+  }
+
+  /**
+   * Measures the queued {@code Shape}s one at a time until
+   * the queue is empty, skipping any which were removed from
+   * the scene while they waited.
+   */
+  private void drain() {
+    while (true) {
+      Entry entry;
+      synchronized (this) {
+        do {
+          entry = this.queue.poll();
+        } while ((entry != null) && !this.isWaiting(entry));
+        if (entry == null) {
+          this.draining = false;
+          return;
+        }
+      }
+      // calculated outside the lock, since this is the slow
+      // part and the result never changes
+      entry.shape.getArea();
+      entry.shape.getPerimeter();
+      synchronized (this) {
+        if (this.isWaiting(entry)) {
+          --this.numPending;
+          this.addMeasurements(entry, entry.shape);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks whether an entry is still in the scene and has
+   * not been measured.
+   *
+   * @param entry The entry to check.
+   * @return boolean, whether or not the entry still needs
+   *         to be measured.
+   */
+  private boolean isWaiting(Entry entry) {
+    return (this.entries.get(entry.shape) == entry) && !entry.measured;
+  }
+
+  /**
+   * Adds the area and perimeter of a measured {@code Shape}
+   * to the totals.
+   *
+   * @param entry The entry of the {@code Shape}.
+   * @param shape The {@code Shape}, which must have been
+   *              measured.
+   */
+  private void addMeasurements(Entry entry, Shape shape) {
+    entry.area = shape.getArea();
+    entry.perimeter = shape.getPerimeter();
+    entry.measured = true;
+    this.totalArea += entry.area;
+    this.totalPerimeter += entry.perimeter;
+  }
+
+  /**
+   * Records the bounds of a {@code Shape}, relative to the
+   * current offset.
+   *
+   * @param entry  The entry of the {@code Shape}.
+   * @param bounds The bounds of the {@code Shape}.
+   */
+  private void addBounds(Entry entry, Rectangle bounds) {
+    entry.minX = (int)(bounds.x-this.offsetX);
+    entry.maxX = (int)((long)bounds.x+bounds.width-this.offsetX);
+    entry.minY = (int)((long)bounds.y-bounds.height-this.offsetY);
+    entry.maxY = (int)(bounds.y-this.offsetY);
+    SceneStatistics.increment(this.minXs, entry.minX, 1);
+    SceneStatistics.increment(this.maxXs, entry.maxX, 1);
+    SceneStatistics.increment(this.minYs, entry.minY, 1);
+    SceneStatistics.increment(this.maxYs, entry.maxY, 1);
+  }
+
+  /**
+   * Removes the recorded bounds of a {@code Shape}.
+   *
+   * @param entry The entry of the {@code Shape}.
+   */
+  private void removeBounds(Entry entry) {
+    SceneStatistics.increment(this.minXs, entry.minX, -1);
+    SceneStatistics.increment(this.maxXs, entry.maxX, -1);
+    SceneStatistics.increment(this.minYs, entry.minY, -1);
+    SceneStatistics.increment(this.maxYs, entry.maxY, -1);
+  }
+
+  /**
+   * Changes the count of a key in a map of counts, removing
+   * the key when its count reaches zero.
+   *
+   * @param <K>    The type of key.
+   * @param counts The map of counts.
+   * @param key    The key to change the count of.
+   * @param change The change in the count.
+   */
+  private static <K> void increment(Map<K, Integer> counts, K key, int change) {
+    counts.merge(key, change, (a, b) -> ((a+b == 0) ? null : a+b));
+  }
+
+  /**
+   * What is recorded of a single {@code Shape}, so that it
+   * can be removed again without recalculating anything.
+   */
+  private static final class Entry {
+    /** The {@code Shape}. */
+    private final Shape shape;
+    /** Whether or not the area and perimeter are recorded. */
+    private boolean measured;
+    /** The recorded area. */
+    private double area;
+    /** The recorded perimeter. */
+    private double perimeter;
+    /** The recorded left edge, relative to the offset. */
+    private int minX;
+    /** The recorded right edge, relative to the offset. */
+    private int maxX;
+    /** The recorded bottom edge, relative to the offset. */
+    private int minY;
+    /** The recorded top edge, relative to the offset. */
+    private int maxY;
+
+    /**
+     * Constructs a new {@code Entry} for a {@code Shape}
+     * which has not been recorded yet.
+     *
+     * @param shape The {@code Shape}.
+     */
+    private Entry(Shape shape) {
+      this.shape = shape;
+    }
+  }
+}
@@ -3,6 +3,10 @@ package shapes;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 import geometrygraphics.Drawable;
@@ -15,15 +19,37 @@ import geometrygraphics.Translateable;
  * coordinate system when drawing to screen coordinates.
  * {@code Shape}s and subclasses should be immutable, except
  * for position.
+ * <p>
+ * The colour is interned in the global {@code ColorPalette},
+ * so a {@code Shape} only holds its packed RGB value and
+ * palette index rather than its own {@code Color}. Once the
+ * palette is full, a {@code Shape} of a new colour has no
+ * index, and makes its {@code Color} from the packed value
+ * when asked for it.
+ * <p>
+ * A {@code Shape} can be copied within this package, which
+ * shares any immutable data, such as polygon geometry, with
+ * the original.
  *
  * @author Kevin Qiao
- * @version 1.6
+ * @version 1.13
  */
-public abstract class Shape implements Serializable, Drawable, Translateable {
+public abstract class Shape implements Serializable, Drawable, Translateable, Cloneable {
   private static final long serialVersionUID = 1602488594L;
 
-  /** The {@code Colour} to draw this {@code Shape} with. */
-  private final Color color;
+  /**
+   * The {@code Colour} to draw this {@code Shape} with,
+   * packed as by {@link Color#getRGB()}. This is what is
+   * saved, since palette indices differ between runs. Not
+   * final only so that it can be read from older streams.
+   */
+  private int rgb;
+  /**
+   * The index of this {@code Shape}'s colour in the
+   * {@code ColorPalette}, or {@code ColorPalette.NOT_INTERNED}.
+   * Set again on deserialization.
+   */
+  private transient int colorIndex;
 
   /**
    * The x coordinate of this {@code Shape}. The x coordinate
@@ -44,16 +70,19 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
    * The area of this {@code Shape}. A negative value means
    * the area has not been initialized yet, however only
    * private access to the {@code area} attribute could result
-   * in the retrieval of an uninitialized value.
+   * in the retrieval of an uninitialized value. It is
+   * volatile since it may be calculated on a background
+   * thread; calculating it twice is harmless.
    */
-  private double area;
+  private volatile double area;
   /**
    * The perimeter of this {@code Shape}. A negative value
    * means the perimeter has not been initialized yet, however
    * only private access to the {@code perimeter} attribute
    * could result in the retrieval of an uninitialized value.
+   * It is volatile for the same reason as {@code area}.
    */
-  private double perimeter;
+  private volatile double perimeter;
 
   /**
    * Constructs a new {@code Shape} with the given coordinates
@@ -67,7 +96,8 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
   public Shape(int x, int y, Color color) {
     this.x = x;
     this.y = y;
-    this.color = color;
+    this.rgb = color.getRGB();
+    this.colorIndex = ColorPalette.indexOf(this.rgb);
 
     // will be initialized on the first call to getPerimeter
     // and getArea, since subclass data that is required to
@@ -99,9 +129,27 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
    * the bounding box is equal to the coordinates specified in
    * the {@code x} and {@code y} attributes of this
    * {@code Shape}.
+   * <p>
+   * Sets the colour of the {@code Graphics} to the colour of
+   * this {@code Shape}, then fills it; see
+   * {@link #fill(Graphics)}.
    */
   @Override
-  public abstract void draw(Graphics g);
+  public void draw(Graphics g) {
+    g.setColor(this.getColor());
+    this.fill(g);
+  }
+
+  /**
+   * Fills this {@code Shape} onto the specified
+   * {@code Graphics} object with its current colour, rather
+   * than the colour of this {@code Shape}. Consecutive
+   * {@code Shape}s with the same colour index can be drawn by
+   * setting the colour once and filling each of them.
+   *
+   * @param g The {@code Graphics} object to fill onto.
+   */
+  public abstract void fill(Graphics g);
 
   /**
    * Returns whether or not the given point can be considered
@@ -111,7 +159,67 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
    * @return boolean, whether or not the point can be
    *         considered inside this {@code Shape}.
    */
-  public abstract boolean contains(Point p);
+  public boolean contains(Point p) {
+    return this.contains(p.x, p.y);
+  }
+
+  /**
+   * Returns whether or not the given coordinates can be
+   * considered within this {@code Shape}. The test is exact
+   * for the geometry of the {@code Shape} (not just its
+   * bounding box), and implementations should not allocate
+   * any objects, since this is called for every
+   * {@code Shape} on every hit test.
+   *
+   * @param x The x coordinate of the point to check for
+   *          insideness.
+   * @param y The y coordinate of the point to check for
+   *          insideness.
+   * @return boolean, whether or not the point can be
+   *         considered inside this {@code Shape}.
+   */
+  public abstract boolean contains(int x, int y);
+
+  /**
+   * Gets a circle enclosing this {@code Shape}, in the same
+   * coordinates as this {@code Shape}. The circle is a cheap
+   * conservative stand-in for the geometry of this
+   * {@code Shape}: anything outside it is outside this
+   * {@code Shape}, so it can be used to reject points and
+   * other shapes before an exact test.
+   *
+   * @return BoundingCircle, a circle enclosing this
+   *         {@code Shape}.
+   */
+  public abstract BoundingCircle getBoundingCircle();
+
+  /**
+   * Returns whether or not this {@code Shape} might overlap
+   * the given {@code Shape}. A false result means the two
+   * definitely do not overlap, but a true result only means
+   * that they could not be cheaply told apart. Bounding boxes
+   * are tested first, then bounding circles; subclasses may
+   * add tighter tests.
+   *
+   * @param other The other {@code Shape}.
+   * @return boolean, false if the {@code Shape}s definitely do
+   *         not overlap, true otherwise.
+   */
+  public boolean mayOverlap(Shape other) {
+    Rectangle bounds = this.getBounds();
+    Rectangle otherBounds = other.getBounds();
+    // y is the top edge of each box, so each box covers
+    // [y-height, y] vertically
+    if (
+      ((long)bounds.x+bounds.width < otherBounds.x)
+      || ((long)otherBounds.x+otherBounds.width < bounds.x)
+      || ((long)bounds.y < (long)otherBounds.y-otherBounds.height)
+      || ((long)otherBounds.y < (long)bounds.y-bounds.height)
+    ) {
+      return false;
+    }
+    return this.getBoundingCircle().intersects(other.getBoundingCircle());
+  }
 
   /**
    * Calculates and returns the area of this {@code Shape}. It
@@ -138,7 +246,7 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
     return super.toString()+"[\n"
       +"x: "+this.x+", "
       +"y: "+this.y+", "
-      +"color: #"+Integer.toHexString(this.color.getRGB()).substring(2)+", "
+      +"color: #"+Integer.toHexString(this.rgb).substring(2)+", "
       +"area: "+String.format("%.3f", this.getArea())+", "
       +"perimeter: "+String.format("%.3f", this.getPerimeter())
       +"]";
@@ -150,6 +258,33 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
     this.y += dy;
   }
 
+  /**
+   * Creates a copy of this {@code Shape}, which can be moved
+   * independently of this one. Immutable data is shared with
+   * this {@code Shape} rather than copied.
+   *
+   * @return Shape, a copy of this {@code Shape}.
+   */
+  Shape copy() {
+    try {
+      Shape copy = (Shape)super.clone();
+      copy.clearCopiedCaches();
+      return copy;
+    } catch (CloneNotSupportedException e) {
+      // cannot happen, since this class is Cloneable
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Clears any cached state of a new copy made by
+   * {@link #copy()} which would otherwise be shared with the
+   * original but is changed in place. Does nothing by
+   * default.
+   */
+  void clearCopiedCaches() {
+  }
+
   /**
    * Gets the {@code Colour} to draw this {@code Shape} with.
    *
@@ -157,7 +292,36 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
    *         {@code Shape} with.
    */
   public Color getColor() {
-    return this.color;
+    if (this.colorIndex == ColorPalette.NOT_INTERNED) {
+      return new Color(this.rgb, true);
+    }
+    return ColorPalette.get(this.colorIndex);
+  }
+
+  /**
+   * Gets this {@code Shape}'s colour, packed as by
+   * {@link Color#getRGB()}. {@code Shape}s with the same
+   * colour have the same value, whether or not it is in the
+   * {@code ColorPalette}.
+   *
+   * @return int, the packed colour.
+   */
+  public int getRGB() {
+    return this.rgb;
+  }
+
+  /**
+   * Gets the index of this {@code Shape}'s colour in the
+   * {@code ColorPalette}. {@code Shape}s with the same colour
+   * have the same index, unless the palette filled up before
+   * the colour was added to it, in which case the index is
+   * {@code ColorPalette.NOT_INTERNED}.
+   *
+   * @return int, the palette index of this {@code Shape}'s
+   *         colour, or {@code ColorPalette.NOT_INTERNED}.
+   */
+  public int getColorIndex() {
+    return this.colorIndex;
   }
 
   /**
@@ -211,4 +375,46 @@ public abstract class Shape implements Serializable, Drawable, Translateable {
     }
     return this.perimeter;
   }
+
+  /**
+   * Checks whether or not both the area and perimeter of this
+   * {@code Shape} have already been calculated, so that
+   * getting them is cheap.
+   *
+   * @return boolean, whether or not this {@code Shape} has
+   *         been measured.
+   */
+  boolean isMeasured() {
+    return (this.area >= 0) && (this.perimeter >= 0);
+  }
+
+  /**
+   * Reads this {@code Shape} and interns its colour in the
+   * {@code ColorPalette}. {@code Shape}s written before the
+   * palette saved a {@code Color} rather than its packed
+   * value, which is converted.
+   *
+   * @param in The stream to read from.
+   * @throws IOException            If reading fails.
+   * @throws ClassNotFoundException If a class of a
+   *                                serialized object cannot
+   *                                be found.
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    this.x = fields.get("x", 0);
+    this.y = fields.get("y", 0);
+    this.area = fields.get("area", -1.0);
+    this.perimeter = fields.get("perimeter", -1.0);
+    if (fields.getObjectStreamClass().getField("rgb") != null) {
+      this.rgb = fields.get("rgb", 0);
+    } else {
+      Object color = fields.get("color", null);
+      if (!(color instanceof Color)) {
+        throw new InvalidObjectException("A shape has no colour");
+      }
+      this.rgb = ((Color)color).getRGB();
+    }
+    this.colorIndex = ColorPalette.indexOf(this.rgb);
+  }
 }
@@ -0,0 +1,284 @@
+package shapes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A columnar batch of arguments for building many
+ * {@code Shape}s of the same shape and variation at once,
+ * through {@link ShapeFactory#buildAll(ShapeBatch)}. Each
+ * argument is given as a column with one value per record,
+ * and any argument without a column takes its default value.
+ * <p>
+ * Columns are referenced, not copied, so they should not be
+ * modified while the batch is being built.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+public final class ShapeBatch {
+  /** The name of the {@code Shape} to build. */
+  private final String shape;
+  /** The name of the builder variation to use. */
+  private final String variation;
+  /** The number of records in this batch. */
+  private final int size;
+  /** The argument columns, by argument name. */
+  private final LinkedHashMap<String, int[]> columns;
+
+  /**
+   * Creates a new, empty {@code ShapeBatch} for the given
+   * shape and variation, with the given number of records.
+   *
+   * @param shape     The name of the {@code Shape} to build.
+   * @param variation The name of the builder variation to
+   *                  use.
+   * @param size      The number of records in this batch.
+   */
+  public ShapeBatch(String shape, String variation, int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative batch size: "+size);
+    }
+    this.shape = shape;
+    this.variation = variation;
+    this.size = size;
+    this.columns = new LinkedHashMap<>();
+  }
+
+  /**
+   * Sets the column of values for the given argument, one per
+   * record, replacing any column already set for it.
+   *
+   * @param arg    The name of the argument.
+   * @param values The value of the argument for each record.
+   * @return ShapeBatch, this {@code ShapeBatch}.
+   */
+  public ShapeBatch withColumn(String arg, int[] values) {
+    if (values.length != this.size) {
+      throw new IllegalArgumentException(
+        "Column "+arg+" has "+values.length+" values (expected "+this.size+")"
+      );
+    }
+    this.columns.put(arg, values);
+    return this;
+  }
+
+  /**
+   * Gets the name of the {@code Shape} to build.
+   *
+   * @return String, the name of the {@code Shape} to build.
+   */
+  public String getShape() {
+    return this.shape;
+  }
+
+  /**
+   * Gets the name of the builder variation to use.
+   *
+   * @return String, the name of the builder variation.
+   */
+  public String getVariation() {
+    return this.variation;
+  }
+
+  /**
+   * Gets the number of records in this batch.
+   *
+   * @return int, the number of records in this batch.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the argument columns of this batch, by argument name.
+   *
+   * @return Map, the argument columns.
+   */
+  Map<String, int[]> getColumns() {
+    return this.columns;
+  }
+
+  /**
+   * A single record to build, for callers which produce
+   * records one at a time instead of in columns. Records of
+   * different shapes can be built together through
+   * {@link ShapeFactory#buildAll(java.util.List)}.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  public static final class Record {
+    /** The name of the {@code Shape} to build. */
+    private final String shape;
+    /** The name of the builder variation to use. */
+    private final String variation;
+    /** The arguments to build with, by name. */
+    private final Map<String, Integer> args;
+
+    /**
+     * Creates a new {@code Record} with the given shape,
+     * variation, and arguments. Any argument not given takes
+     * its default value.
+     *
+     * @param shape     The name of the {@code Shape} to build.
+     * @param variation The name of the builder variation to
+     *                  use.
+     * @param args      The arguments to build with, by name.
+     */
+    public Record(String shape, String variation, Map<String, Integer> args) {
+      this.shape = shape;
+      this.variation = variation;
+      this.args = args;
+    }
+
+    /**
+     * Gets the name of the {@code Shape} to build.
+     *
+     * @return String, the name of the {@code Shape} to build.
+     */
+    public String getShape() {
+      return this.shape;
+    }
+
+    /**
+     * Gets the name of the builder variation to use.
+     *
+     * @return String, the name of the builder variation.
+     */
+    public String getVariation() {
+      return this.variation;
+    }
+
+    /**
+     * Gets the arguments to build with, by name.
+     *
+     * @return Map, the arguments to build with.
+     */
+    public Map<String, Integer> getArgs() {
+      return this.args;
+    }
+  }
+
+  /**
+   * The outcome of building a batch of records. Each record
+   * either has a built {@code Shape} or a message describing
+   * why it could not be built, in the same order as the
+   * records were given.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  public static final class Result {
+    /** The built shapes, or {@code null} for failed records. */
+    private final Shape[] shapes;
+    /** The failure messages, or {@code null} for built records. */
+    private final String[] failures;
+
+    /**
+     * Creates a new {@code Result} for the given number of
+     * records, none of which are built or failed yet.
+     *
+     * @param size The number of records.
+     */
+    Result(int size) {
+      this.shapes = new Shape[size];
+      this.failures = new String[size];
+    }
+
+    /**
+     * Records the shape built for a record.
+     *
+     * @param i     The index of the record.
+     * @param shape The shape built for the record.
+     */
+    void setShape(int i, Shape shape) {
+      this.shapes[i] = shape;
+    }
+
+    /**
+     * Records that a record failed, keeping the first failure
+     * if there is more than one.
+     *
+     * @param i       The index of the record.
+     * @param failure The reason the record failed.
+     */
+    void setFailure(int i, String failure) {
+      if (this.failures[i] == null) {
+        this.failures[i] = failure;
+      }
+    }
+
+    /**
+     * Gets the number of records.
+     *
+     * @return int, the number of records.
+     */
+    public int size() {
+      return this.shapes.length;
+    }
+
+    /**
+     * Gets the shape built for a record.
+     *
+     * @param i The index of the record.
+     * @return Shape, the built shape, or {@code null} if the
+     *         record failed.
+     */
+    public Shape getShape(int i) {
+      return this.shapes[i];
+    }
+
+    /**
+     * Gets the reason a record failed.
+     *
+     * @param i The index of the record.
+     * @return String, the reason the record failed, or
+     *         {@code null} if it was built.
+     */
+    public String getFailure(int i) {
+      return this.failures[i];
+    }
+
+    /**
+     * Checks whether a record failed.
+     *
+     * @param i The index of the record.
+     * @return boolean, whether the record failed.
+     */
+    public boolean isFailed(int i) {
+      return this.failures[i] != null;
+    }
+
+    /**
+     * Gets the number of records which failed.
+     *
+     * @return int, the number of failed records.
+     */
+    public int getFailureCount() {
+      int count = 0;
+      for (String failure : this.failures) {
+        if (failure != null) {
+          ++count;
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Gets every shape which was built, in record order.
+     *
+     * @return Shape[], the built shapes.
+     */
+    public Shape[] getShapes() {
+      Shape[] built = new Shape[this.shapes.length-this.getFailureCount()];
+      int count = 0;
+      for (int i = 0; i < this.shapes.length; ++i) {
+        if (this.failures[i] == null) {
+          built[count++] = this.shapes[i];
+        }
+      }
+      return built;
+    }
+  }
+}
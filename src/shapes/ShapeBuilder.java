@@ -2,8 +2,8 @@ package shapes;
 
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class which represents a builder for a {@code Shape}.
@@ -23,9 +23,28 @@ import java.util.LinkedHashSet;
  * some calculation to get all the required arguments can
  * use a {@code ShapeBuilder} to calculate the arguments
  * needed.
+ * <p>
+ * The arguments of each builder class are compiled once
+ * into a {@code Schema}, which gives each argument an index
+ * (slot) into an {@code int[]} of values. Each builder class
+ * declares its {@code Schema} by extending the one of its
+ * superclass with its own arguments, so the slots of
+ * inherited arguments never change, and looks up the slots
+ * of its own arguments from it once, so typed accessors such
+ * as {@link #getX()} read their slot directly. Looking up an
+ * argument by name is only needed for
+ * {@link #withArg(String, int)} and {@link #getArg(String)}.
+ * <p>
+ * Arguments can be set and checked without any exceptions
+ * through {@link #trySetArg(String, int)} and
+ * {@link #validate()}, which return a {@code Validation}
+ * instead of throwing. This is preferred wherever invalid
+ * input is expected, such as live previews, since creating
+ * an exception is expensive. Once {@code validate()} passes,
+ * {@code build()} will not throw until an argument changes.
  *
  * @author Kevin Qiao
- * @version 1.0
+ * @version 1.4
  */
 public abstract class ShapeBuilder implements Cloneable {
   /** The {@code String} to represent the argument of x coordinate. */
@@ -39,19 +58,33 @@ public abstract class ShapeBuilder implements Cloneable {
   /** The {@code String} to represent the argument of blue in an RGB color. */
   private static final String BLUE = "Blue";
   /**
-   * The set of arguments all {@code ShapeBuilder}s require
-   * and will inherit.
+   * The arguments all {@code ShapeBuilder}s require and will
+   * inherit.
+   */
+  protected static final Schema SCHEMA = new Schema(
+    null,
+    new Arg(ShapeBuilder.X),
+    new Arg(ShapeBuilder.Y),
+    new Arg(ShapeBuilder.RED, 0, 255),
+    new Arg(ShapeBuilder.GREEN, 0, 255),
+    new Arg(ShapeBuilder.BLUE, 0, 255)
+  );
+  /** The slot of the x coordinate argument. */
+  private static final int X_SLOT = ShapeBuilder.SCHEMA.getSlot(ShapeBuilder.X);
+  /** The slot of the y coordinate argument. */
+  private static final int Y_SLOT = ShapeBuilder.SCHEMA.getSlot(ShapeBuilder.Y);
+  /** The slot of the red argument. */
+  private static final int RED_SLOT = ShapeBuilder.SCHEMA.getSlot(ShapeBuilder.RED);
+  /** The slot of the green argument. */
+  private static final int GREEN_SLOT = ShapeBuilder.SCHEMA.getSlot(ShapeBuilder.GREEN);
+  /** The slot of the blue argument. */
+  private static final int BLUE_SLOT = ShapeBuilder.SCHEMA.getSlot(ShapeBuilder.BLUE);
+  /**
+   * The compiled arguments of each builder class which passes
+   * its arguments as a set rather than as a {@code Schema}.
    */
-  private static final LinkedHashSet<Arg> REQUIRED_SHAPE_ARGS =
-    new LinkedHashSet<>(
-      Arrays.asList(
-        new Arg(ShapeBuilder.X),
-        new Arg(ShapeBuilder.Y),
-        new Arg(ShapeBuilder.RED, 0, 255),
-        new Arg(ShapeBuilder.GREEN, 0, 255),
-        new Arg(ShapeBuilder.BLUE, 0, 255)
-      )
-    );
+  private static final ConcurrentHashMap<Class<?>, Schema> SCHEMAS =
+    new ConcurrentHashMap<>();
 
   /**
    * The {@code String} name of the {@code Shape} to be built
@@ -67,28 +100,31 @@ public abstract class ShapeBuilder implements Cloneable {
    */
   private final String variation;
 
+  /**
+   * The required arguments this {@code ShapeBuilder} needs to
+   * build its target shape, shared by every builder of the
+   * same class.
+   */
+  private final Schema schema;
   /**
    * The current arguments in this {@code ShapeBuilder} to be
-   * used when building a final product {@code Shape}.
+   * used when building a final product {@code Shape}, by
+   * slot. Only reassigned by {@link #clone()}.
    */
-  private final HashMap<String, Integer> args;
+  private int[] values;
   /**
-   * The required arguments this {@code ShapeBuilder} needs to
-   * build its target shape. This attribute is created by
-   * merging together required arguments passed through the
-   * chain of inheritance via the {@code args} constructor
-   * parameter. A {@code LinkedHashMap} is used to provide
-   * predictable iteration order, which is useful when
-   * presenting the list of required arguments in a user
-   * interface.
+   * The result of the last {@link #validate()}, or
+   * {@code null} if an argument changed since.
    */
-  private final LinkedHashMap<String, Arg> requiredArgs;
+  private Validation validation;
 
   /**
    * Constructs a {@code ShapeBuilder} with the given target
    * {@code Shape} name, variation name, and with the given
    * required arguments in addition to the ones specified in
-   * this class.
+   * this class. The arguments are only compiled for the first
+   * builder of each class; subclasses within the inheritance
+   * chain of this package pass their {@code Schema} instead.
    *
    * @param targetShape The name of the {@code Shape} to be
    *                    built.
@@ -106,57 +142,61 @@ public abstract class ShapeBuilder implements Cloneable {
   ) {
     this.targetShape = targetShape;
     this.variation = variation;
-    this.args = new HashMap<>();
-    this.requiredArgs = new LinkedHashMap<>();
-
-    // combine the arg lists together
-    for (Arg arg : ShapeBuilder.REQUIRED_SHAPE_ARGS) {
-      this.requiredArgs.put(arg.getName(), arg);
-    }
-    for (Arg arg : args) {
-      this.requiredArgs.put(arg.getName(), arg);
-    }
 
-    // fill args with default of 0 or the minimum value (if 0 is
-    // not valid)
-    for (Arg arg : this.requiredArgs.values()) {
-      if ((arg.getMinValue() <= 0) && (0 <= arg.getMaxValue())) {
-        this.args.put(arg.getName(), 0);
-      } else {
-        this.args.put(arg.getName(), arg.getMinValue());
+    // every builder of a class passes the same args, so they
+    // only need to be compiled for the first one
+    Schema schema = ShapeBuilder.SCHEMAS.get(this.getClass());
+    if (schema == null) {
+      schema = ShapeBuilder.SCHEMA.extend(
+        (args == null) ? new Arg[0] : args.toArray(new Arg[0])
+      );
+      Schema existing = ShapeBuilder.SCHEMAS.putIfAbsent(this.getClass(), schema);
+      if (existing != null) {
+        schema = existing;
       }
     }
+    this.schema = schema;
+    this.values = schema.defaults.clone();
   }
 
   /**
-   * Creates a new {@code LinkedHashSet} with the keys
-   * contained in both set arguments.
+   * Constructs a {@code ShapeBuilder} with the given target
+   * {@code Shape} name, variation name, and compiled required
+   * arguments, which must extend the arguments of this class.
    *
-   * @param <T>        The type of the keys in the sets to
-   *                   merge.
-   * @param firstArgs  The first {@code LinkedHashSet}
-   *                   containing keys to merge.
-   * @param secondArgs The second {@code LinkedHashSet}
-   *                   containing keys to merge.
-   * @return {@code LinkedhashSet}, a new set containing the
-   *         keys of both set arguments.
+   * @param targetShape The name of the {@code Shape} to be
+   *                    built.
+   * @param variation   The name of the build variation to be
+   *                    used. See {@link #getVariation()}.
+   * @param schema      The required arguments of the builder
+   *                    class, shared by every builder of it.
    */
-  protected static <T> LinkedHashSet<T> mergeArgs(
-    LinkedHashSet<T> firstArgs,
-    LinkedHashSet<T> secondArgs
-  ) {
-    if (firstArgs == null) {
-      if (secondArgs == null) {
-        return new LinkedHashSet<>();
+  protected ShapeBuilder(String targetShape, String variation, Schema schema) {
+    this.targetShape = targetShape;
+    this.variation = variation;
+    this.schema = ShapeBuilder.checkExtends(schema, ShapeBuilder.SCHEMA);
+    this.values = schema.defaults.clone();
+  }
+
+  /**
+   * Checks that a {@code Schema} passed up by a subclass
+   * extends the {@code Schema} of a superclass, so that the
+   * slots the superclass reads are its own arguments.
+   *
+   * @param schema The {@code Schema} passed by the subclass.
+   * @param base   The {@code Schema} of the superclass.
+   * @return Schema, the given {@code Schema}.
+   * @throws IllegalArgumentException If the {@code Schema}
+   *                                  does not extend the
+   *                                  superclass's.
+   */
+  protected static Schema checkExtends(Schema schema, Schema base) {
+    for (Schema s = schema; s != null; s = s.parent) {
+      if (s == base) {
+        return schema;
       }
-      return new LinkedHashSet<>(secondArgs);
-    }
-    if (secondArgs == null) {
-      return new LinkedHashSet<>(firstArgs);
     }
-    LinkedHashSet<T> set = new LinkedHashSet<>(firstArgs);
-    set.addAll(secondArgs);
-    return set;
+    throw new IllegalArgumentException("Builder arguments do not extend those of the superclass");
   }
 
   /**
@@ -185,21 +225,251 @@ public abstract class ShapeBuilder implements Cloneable {
    * @return {@code ShapeBuilder}, this {@code ShapeBuilder}
    */
   public ShapeBuilder withArg(String arg, int value) {
-    // don't let new unknown args be added in
-    if (!this.args.containsKey(arg)) {
-      throw new IllegalArgumentException("Unknown argument: "+arg);
+    this.setArg(this.schema.getSlot(arg), value);
+    return this;
+  }
+
+  /**
+   * Sets the argument with the given name on this builder to
+   * the given value, if the argument is declared and the
+   * value is within its range. Otherwise, the argument is not
+   * changed. Unlike {@link #withArg(String, int)}, this never
+   * throws.
+   *
+   * @param arg   The name of the argument to set.
+   * @param value The value to set for the argument.
+   * @return Validation, whether the argument was set, and if
+   *         not, why not.
+   */
+  public final Validation trySetArg(String arg, int value) {
+    Integer slot = this.schema.slots.get(arg);
+    if (slot == null) {
+      return new Validation(
+        Validation.Code.UNKNOWN_ARGUMENT,
+        arg,
+        "Unknown argument: "+arg
+      );
     }
-    Arg requiredArg = requiredArgs.get(arg);
-    if (!requiredArg.test(value)) {
-      throw new IllegalArgumentException(
-        "Argument "+arg+": "
+    Validation validation = ShapeBuilder.checkRange(this.schema.args[slot], value);
+    if (validation.isValid()) {
+      this.setArgUnchecked(slot, value);
+    }
+    return validation;
+  }
+
+  /**
+   * Checks whether the current arguments of this builder can
+   * build a valid {@code Shape}, without building it and
+   * without throwing. The result is kept until an argument
+   * changes, so validating again is free, and if it is valid
+   * {@link #build()} will not throw.
+   *
+   * @return Validation, whether the arguments are valid, and
+   *         if not, the first problem found.
+   */
+  public final Validation validate() {
+    Validation validation = this.validation;
+    if (validation == null) {
+      validation = Validation.VALID;
+      // arguments set without checking may be out of range
+      for (int i = 0; (i < this.values.length) && validation.isValid(); ++i) {
+        validation = ShapeBuilder.checkRange(this.schema.args[i], this.values[i]);
+      }
+      if (validation.isValid()) {
+        validation = this.validateDimensions();
+      }
+      this.validation = validation;
+    }
+    return validation;
+  }
+
+  /**
+   * Checks whether the dimensions of the {@code Shape} which
+   * would be built from the current arguments are valid,
+   * with the same checks as its constructor. Subclasses whose
+   * {@code Shape} checks its dimensions should override this,
+   * adding to the checks of their superclass. Called by
+   * {@link #validate()}, after every argument is known to be
+   * in range.
+   *
+   * @return Validation, whether the dimensions are valid, and
+   *         if not, the first problem found.
+   */
+  protected Validation validateDimensions() {
+    return Validation.VALID;
+  }
+
+  /**
+   * Checks whether a dimension of the {@code Shape} to build
+   * is positive, as {@link Shape#checkDimension(int)} does,
+   * without throwing.
+   *
+   * @param arg       The name of the argument the dimension
+   *                  comes from.
+   * @param dimension The dimension to check.
+   * @return Validation, whether the dimension is positive.
+   */
+  protected static Validation checkDimension(String arg, int dimension) {
+    if (dimension <= 0) {
+      return new Validation(
+        Validation.Code.NON_POSITIVE_DIMENSION,
+        arg,
+        "Invalid (non-positive) dimension: "+dimension
+      );
+    }
+    return Validation.VALID;
+  }
+
+  /**
+   * Checks whether a value is within the range of an
+   * argument, without throwing.
+   *
+   * @param arg   The argument to check against.
+   * @param value The value to check.
+   * @return Validation, whether the value is in range.
+   */
+  private static Validation checkRange(Arg arg, int value) {
+    if (!arg.test(value)) {
+      return new Validation(
+        Validation.Code.OUT_OF_RANGE,
+        arg.getName(),
+        "Argument "+arg.getName()+": "
         +value+" out of range (expected "
-        +requiredArg.getMinValue()+"<=x<="+requiredArg.getMaxValue()
+        +arg.getMinValue()+"<=x<="+arg.getMaxValue()
         +")"
       );
     }
-    this.args.put(arg, value);
-    return this;
+    return Validation.VALID;
+  }
+
+  /**
+   * Sets the argument in the given slot to the given value.
+   * The value must be within the declared range of the
+   * argument, otherwise an {@code IllegalArgumentException}
+   * will be thrown. Used by typed accessors instead of
+   * {@link #withArg(String, int)}.
+   *
+   * @param slot  The slot of the argument to set.
+   * @param value The value to set for the argument.
+   */
+  protected final void setArg(int slot, int value) {
+    Validation validation = ShapeBuilder.checkRange(this.schema.args[slot], value);
+    if (!validation.isValid()) {
+      throw new IllegalArgumentException(validation.getMessage());
+    }
+    this.setArgUnchecked(slot, value);
+  }
+
+  /**
+   * Gets the value of the argument in the given slot. Used by
+   * typed accessors instead of {@link #getArg(String)}.
+   *
+   * @param slot The slot of the argument to get.
+   * @return int, the value of the argument.
+   */
+  protected final int getArg(int slot) {
+    return this.values[slot];
+  }
+
+  /**
+   * Sets the argument in the given slot to the given value
+   * without checking its range, for callers which have
+   * already validated it.
+   *
+   * @param slot  The slot of the argument to set.
+   * @param value The value to set for the argument.
+   */
+  final void setArgUnchecked(int slot, int value) {
+    if (this.values[slot] != value) {
+      this.values[slot] = value;
+      this.validation = null;
+    }
+  }
+
+  /**
+   * Gets the slot of the argument with the given name. The
+   * argument must be a required argument, otherwise an
+   * {@code IllegalArgumentException} will be thrown.
+   *
+   * @param arg The name of the argument.
+   * @return int, the slot of the argument.
+   */
+  final int getSlot(String arg) {
+    return this.schema.getSlot(arg);
+  }
+
+  /**
+   * Copies the values of every argument except the position,
+   * in slot order. Since the position only translates the
+   * built {@code Shape}, two builders of the same class with
+   * the same values here build the same {@code Shape} up to
+   * translation.
+   *
+   * @return int[], the values of every argument except the
+   *         position.
+   */
+  final int[] copyArgsExceptPosition() {
+    // x and y are the first two slots
+    return Arrays.copyOfRange(this.values, ShapeBuilder.Y_SLOT+1, this.values.length);
+  }
+
+  /**
+   * Gets the default value of the argument in the given slot.
+   *
+   * @param slot The slot of the argument.
+   * @return int, the default value of the argument.
+   */
+  final int getDefaultArg(int slot) {
+    return this.schema.defaults[slot];
+  }
+
+  /**
+   * Gets the number of required arguments, and so the number
+   * of slots, of this builder.
+   *
+   * @return int, the number of required arguments.
+   */
+  final int getNumArgs() {
+    return this.values.length;
+  }
+
+  /**
+   * Gets the required argument in the given slot.
+   *
+   * @param slot The slot of the argument.
+   * @return Arg, the required argument.
+   */
+  final Arg getRequiredArg(int slot) {
+    return this.schema.args[slot];
+  }
+
+  /**
+   * Sets every argument of this builder back to its default
+   * value.
+   */
+  final void resetArgs() {
+    System.arraycopy(this.schema.defaults, 0, this.values, 0, this.values.length);
+    this.validation = null;
+  }
+
+  /**
+   * Creates a copy of this builder with the same arguments,
+   * which can be changed independently of this builder. Used
+   * to give each thread its own builder when building in
+   * parallel.
+   *
+   * @return ShapeBuilder, a copy of this builder.
+   */
+  @Override
+  public ShapeBuilder clone() {
+    try {
+      ShapeBuilder copy = (ShapeBuilder)super.clone();
+      copy.values = this.values.clone();
+      return copy;
+    } catch (CloneNotSupportedException e) {
+      // cannot happen, since this class is Cloneable
+      throw new AssertionError(e);
+    }
   }
 
   /**
@@ -211,8 +481,8 @@ public abstract class ShapeBuilder implements Cloneable {
    * @return {@code ShapeBuilder}, this {@code ShapeBuilder}
    */
   public ShapeBuilder withPosition(int x, int y) {
-    this.withArg(ShapeBuilder.X, x);
-    this.withArg(ShapeBuilder.Y, y);
+    this.setArg(ShapeBuilder.X_SLOT, x);
+    this.setArg(ShapeBuilder.Y_SLOT, y);
     return this;
   }
 
@@ -229,9 +499,9 @@ public abstract class ShapeBuilder implements Cloneable {
    * @return {@code ShapeBuilder}, this {@code ShapeBuilder}
    */
   public ShapeBuilder withColour(int r, int g, int b) {
-    this.withArg(ShapeBuilder.RED, r);
-    this.withArg(ShapeBuilder.GREEN, g);
-    this.withArg(ShapeBuilder.BLUE, b);
+    this.setArg(ShapeBuilder.RED_SLOT, r);
+    this.setArg(ShapeBuilder.GREEN_SLOT, g);
+    this.setArg(ShapeBuilder.BLUE_SLOT, b);
     return this;
   }
 
@@ -276,12 +546,7 @@ public abstract class ShapeBuilder implements Cloneable {
    *         name.
    */
   public int getArg(String arg) {
-    // prevent NullPointerException if the function return tries
-    // to unbox a null returned from the map
-    if (!this.args.containsKey(arg)) {
-      throw new IllegalArgumentException("Unknown argument: "+arg);
-    }
-    return this.args.get(arg);
+    return this.values[this.schema.getSlot(arg)];
   }
 
   /**
@@ -293,7 +558,7 @@ public abstract class ShapeBuilder implements Cloneable {
    *         arguments required to build a new {@code Shape}.
    */
   public ReadOnlyIterator<Arg> getRequiredArgs() {
-    return new ReadOnlyIterator<>(this.requiredArgs.values().iterator());
+    return new ReadOnlyIterator<>(Arrays.asList(this.schema.args).iterator());
   }
 
   /**
@@ -303,7 +568,7 @@ public abstract class ShapeBuilder implements Cloneable {
    *         build.
    */
   public int getX() {
-    return this.getArg(ShapeBuilder.X);
+    return this.getArg(ShapeBuilder.X_SLOT);
   }
 
   /**
@@ -313,7 +578,7 @@ public abstract class ShapeBuilder implements Cloneable {
    *         build.
    */
   public int getY() {
-    return this.getArg(ShapeBuilder.Y);
+    return this.getArg(ShapeBuilder.Y_SLOT);
   }
 
   /**
@@ -324,7 +589,7 @@ public abstract class ShapeBuilder implements Cloneable {
    *         {@code Shape} to build.
    */
   public int getRed() {
-    return this.getArg(ShapeBuilder.RED);
+    return this.getArg(ShapeBuilder.RED_SLOT);
   }
 
   /**
@@ -335,7 +600,7 @@ public abstract class ShapeBuilder implements Cloneable {
    *         {@code Shape} to build.
    */
   public int getGreen() {
-    return this.getArg(ShapeBuilder.GREEN);
+    return this.getArg(ShapeBuilder.GREEN_SLOT);
   }
 
   /**
@@ -346,7 +611,212 @@ public abstract class ShapeBuilder implements Cloneable {
    *         {@code Shape} to build.
    */
   public int getBlue() {
-    return this.getArg(ShapeBuilder.BLUE);
+    return this.getArg(ShapeBuilder.BLUE_SLOT);
+  }
+
+  /**
+   * The compiled required arguments of a builder class: the
+   * arguments in slot order, the slot of each argument name,
+   * and the default value of each slot. Each builder class
+   * declares one as a static field, by extending the
+   * {@code Schema} of its superclass with its own arguments,
+   * which are put after the inherited ones. Immutable, and
+   * shared by every builder of the class.
+   *
+   * @author Kevin Qiao
+   * @version 1.1
+   */
+  protected static final class Schema {
+    /** The {@code Schema} this one extends, if any. */
+    private final Schema parent;
+    /** The required arguments, by slot. */
+    private final Arg[] args;
+    /** The slot of each argument, by name. */
+    private final HashMap<String, Integer> slots;
+    /** The default value of each slot. */
+    private final int[] defaults;
+
+    /**
+     * Compiles the arguments of a {@code Schema} with the
+     * given arguments after those of its parent. The order is
+     * kept, which is useful when presenting the list of
+     * required arguments in a user interface.
+     *
+     * @param parent The {@code Schema} to extend, or
+     *               {@code null} if none.
+     * @param args   The arguments to add.
+     * @throws IllegalArgumentException If an argument has the
+     *                                  same name as another.
+     */
+    private Schema(Schema parent, Arg... args) {
+      this.parent = parent;
+      int numInherited = (parent == null) ? 0 : parent.args.length;
+      this.args = new Arg[numInherited+args.length];
+      if (parent != null) {
+        System.arraycopy(parent.args, 0, this.args, 0, numInherited);
+      }
+      System.arraycopy(args, 0, this.args, numInherited, args.length);
+
+      this.slots = new HashMap<>();
+      this.defaults = new int[this.args.length];
+      for (int i = 0; i < this.args.length; ++i) {
+        Arg arg = this.args[i];
+        if (this.slots.put(arg.getName(), i) != null) {
+          throw new IllegalArgumentException("Duplicate argument: "+arg.getName());
+        }
+        // default of 0 or the minimum value (if 0 is not valid)
+        if ((arg.getMinValue() <= 0) && (0 <= arg.getMaxValue())) {
+          this.defaults[i] = 0;
+        } else {
+          this.defaults[i] = arg.getMinValue();
+        }
+      }
+    }
+
+    /**
+     * Creates a {@code Schema} with the arguments of this one
+     * followed by the given arguments.
+     *
+     * @param args The arguments to add.
+     * @return Schema, the extended {@code Schema}.
+     * @throws IllegalArgumentException If an argument has the
+     *                                  same name as another.
+     */
+    public Schema extend(Arg... args) {
+      return new Schema(this, args);
+    }
+
+    /**
+     * Gets the number of arguments of this {@code Schema},
+     * and so the first slot of the arguments of any
+     * {@code Schema} extending it.
+     *
+     * @return int, the number of arguments.
+     */
+    public int getNumArgs() {
+      return this.args.length;
+    }
+
+    /**
+     * Gets the slot of the argument with the given name. The
+     * argument must be a required argument, otherwise an
+     * {@code IllegalArgumentException} will be thrown.
+     *
+     * @param arg The name of the argument.
+     * @return int, the slot of the argument.
+     */
+    public int getSlot(String arg) {
+      Integer slot = this.slots.get(arg);
+      // don't let new unknown args be added in
+      if (slot == null) {
+        throw new IllegalArgumentException("Unknown argument: "+arg);
+      }
+      return slot;
+    }
+  }
+
+  /**
+   * The result of checking the arguments of a
+   * {@code ShapeBuilder}, from {@link #validate()} or
+   * {@link #trySetArg(String, int)}. A valid result has the
+   * code {@code VALID}; any other result names the problem,
+   * the argument it came from, and a message suitable for
+   * showing to the user.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  public static final class Validation {
+    /**
+     * The kinds of result of a validation.
+     *
+     * @author Kevin Qiao
+     * @version 1.0
+     */
+    public static enum Code {
+      /** The arguments are valid. */
+      VALID,
+      /** An argument name is not a required argument. */
+      UNKNOWN_ARGUMENT,
+      /** An argument value is outside its declared range. */
+      OUT_OF_RANGE,
+      /** A dimension of the built {@code Shape} would not be positive. */
+      NON_POSITIVE_DIMENSION,
+      /** The built {@code Shape} would be invalid in some other way. */
+      INVALID_SHAPE;
+    }
+
+    /** The single valid result, shared since it has no details. */
+    public static final Validation VALID = new Validation(Code.VALID, null, null);
+
+    /** The kind of result. */
+    private final Code code;
+    /** The name of the argument with the problem, if any. */
+    private final String argument;
+    /** A description of the problem, if any. */
+    private final String message;
+
+    /**
+     * Creates a new {@code Validation} result.
+     *
+     * @param code     The kind of result.
+     * @param argument The name of the argument with the
+     *                 problem, or {@code null} if none.
+     * @param message  A description of the problem, or
+     *                 {@code null} if valid.
+     */
+    public Validation(Code code, String argument, String message) {
+      this.code = code;
+      this.argument = argument;
+      this.message = message;
+    }
+
+    /**
+     * Checks whether this result is valid.
+     *
+     * @return boolean, whether this result is valid.
+     */
+    public boolean isValid() {
+      return this.code == Code.VALID;
+    }
+
+    /**
+     * Gets the kind of this result.
+     *
+     * @return Code, the kind of this result.
+     */
+    public Code getCode() {
+      return this.code;
+    }
+
+    /**
+     * Gets the name of the argument with the problem.
+     *
+     * @return String, the name of the argument, or
+     *         {@code null} if valid or not specific to one
+     *         argument.
+     */
+    public String getArgument() {
+      return this.argument;
+    }
+
+    /**
+     * Gets a description of the problem.
+     *
+     * @return String, the description of the problem, or
+     *         {@code null} if valid.
+     */
+    public String getMessage() {
+      return this.message;
+    }
+
+    @Override
+    public String toString() {
+      if (this.isValid()) {
+        return this.code.toString();
+      }
+      return this.code+": "+this.message;
+    }
   }
 
   /**
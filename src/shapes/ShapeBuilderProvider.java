@@ -0,0 +1,102 @@
+package shapes;
+
+import java.util.List;
+
+/**
+ * A source of {@code ShapeBuilder}s for a
+ * {@code ShapeFactory}, found through
+ * {@link java.util.ServiceLoader}. A plugin adds its own
+ * shapes to every {@code ShapeFactory} by implementing this
+ * interface and listing the implementation in a
+ * {@code META-INF/services/shapes.ShapeBuilderProvider}
+ * file, without any change to {@code ShapeFactory}.
+ * <p>
+ * A provider only describes its builders, with the shape
+ * and variation names of each and a way to create it. The
+ * builder classes themselves, and the shapes they build, are
+ * not loaded until a builder is first asked for, so the
+ * number of shapes available has little effect on startup.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+public interface ShapeBuilderProvider {
+  /**
+   * Gets the descriptions of every builder this provider
+   * offers.
+   *
+   * @return List, the descriptions of the builders.
+   */
+  public List<Descriptor> getDescriptors();
+
+  /**
+   * The description of one {@code ShapeBuilder}: the name of
+   * the shape it builds, the name of its variation, and the
+   * binary name of its class, such as
+   * {@code shapes.Circle$Builder}. The class is given by name
+   * rather than as a {@code Class} or constructor reference,
+   * since either of those would load it. It must have a
+   * public constructor with no parameters, and is loaded by
+   * the class loader of the provider which describes it.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  public static final class Descriptor {
+    /** The name of the {@code Shape} the builder builds. */
+    private final String shape;
+    /** The name of the builder's variation. */
+    private final String variation;
+    /** The binary name of the builder class. */
+    private final String builderClassName;
+
+    /**
+     * Creates a new {@code Descriptor} of a builder.
+     *
+     * @param shape            The name of the {@code Shape}
+     *                         the builder builds, which must
+     *                         equal its
+     *                         {@link ShapeBuilder#getTargetShape()}.
+     * @param variation        The name of the builder's
+     *                         variation, which must equal its
+     *                         {@link ShapeBuilder#getVariation()}.
+     * @param builderClassName The binary name of the builder
+     *                         class.
+     */
+    public Descriptor(String shape, String variation, String builderClassName) {
+      if ((shape == null) || (variation == null) || (builderClassName == null)) {
+        throw new NullPointerException("Descriptor fields must not be null");
+      }
+      this.shape = shape;
+      this.variation = variation;
+      this.builderClassName = builderClassName;
+    }
+
+    /**
+     * Gets the name of the {@code Shape} the builder builds.
+     *
+     * @return String, the name of the {@code Shape}.
+     */
+    public String getShape() {
+      return this.shape;
+    }
+
+    /**
+     * Gets the name of the builder's variation.
+     *
+     * @return String, the name of the variation.
+     */
+    public String getVariation() {
+      return this.variation;
+    }
+
+    /**
+     * Gets the binary name of the builder class.
+     *
+     * @return String, the binary name of the builder class.
+     */
+    public String getBuilderClassName() {
+      return this.builderClassName;
+    }
+  }
+}
@@ -1,28 +1,68 @@
 package shapes;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * A class containing a mapping of all {@code ShapeBuilder}s
  * and variations of builders. Allows for abstract handling of
  * {@code Shape} creation.
+ * <p>
+ * Builders are registered from {@code ShapeBuilderProvider}s:
+ * the built in {@code StandardShapeBuilders}, then every
+ * provider found by {@code ServiceLoader}, so plugins can add
+ * shapes without changing this class. Providers only give
+ * the shape and variation names of their builders up front,
+ * and each builder is only created, loading its class, the
+ * first time it is asked for.
+ * <p>
+ * The builders registered with this factory are only used
+ * as prototypes, and are never handed out. Every builder
+ * returned by {@link #getBuilder(String, String)} and
+ * {@link #getBuilders(String)} is a new copy with default
+ * arguments, which belongs to the caller alone. Copies share
+ * the immutable argument schema of their class, so a copy is
+ * just one small object and one small array, and any number
+ * of threads can get and use builders at once without
+ * locking or affecting each other.
+ * <p>
+ * Large numbers of {@code Shape}s can be built at once with
+ * the {@code buildAll} methods, which validate every
+ * argument up front and build in parallel.
  *
  * @author Kevin Qiao
- * @version 1.0
+ * @version 1.3
  */
 public class ShapeFactory {
+  /**
+   * The number of records each thread builds at a time in
+   * {@code buildAll}, so that a copy of the builder is made
+   * per chunk instead of per record.
+   */
+  private static final int BUILD_CHUNK_SIZE = 1024;
+
   /**
    * A map of {@code Shape} names to another map of variation
-   * names to actual {@code ShapeBuilder}s.
+   * names to the registration of the prototype builder.
+   * Concurrent maps, so lookups never lock, even while a
+   * builder is being registered.
    */
-  private HashMap<String, HashMap<String, ShapeBuilder>> builders;
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, Registration>> builders;
 
   /**
    * Creates a new {@code ShapeFactory} and adds all builders
    * to it.
    */
   public ShapeFactory() {
-    this.builders = new HashMap<>();
+    this.builders = new ConcurrentHashMap<>();
 
     this.registerBuilders();
   }
@@ -35,66 +75,89 @@ public class ShapeFactory {
    * @param shape The shape name to check.
    */
   private void checkShapeKey(String shape) {
-    if (!this.builders.containsKey(shape)) {
+    // concurrent maps do not allow null keys
+    if ((shape == null) || !this.builders.containsKey(shape)) {
       throw new IllegalArgumentException("Unknown shape: "+shape);
     }
   }
 
   /**
-   * Registers all {@code ShapeBuilder}s to this factory. New
-   * {@code Shape}s would need to have their builders added
-   * here so that they can be constructed through this
-   * factory and set of builders.
+   * Registers all {@code ShapeBuilder}s to this factory, from
+   * {@code StandardShapeBuilders} and then from every
+   * {@code ShapeBuilderProvider} on the class path. A builder
+   * registered later replaces one with the same shape and
+   * variation names, so a plugin can replace a standard
+   * builder.
    */
   protected void registerBuilders() {
-    this.registerBuilder(new Circle.Builder());
-    this.registerBuilder(new Ellipse.Builder());
-    this.registerBuilder(new Triangle.SasBuilder());
-    this.registerBuilder(new Square.Builder());
-    this.registerBuilder(new Rectangle.Builder());
-    this.registerBuilder(new Rhombus.Builder());
-    this.registerBuilder(new Parallelogram.OffsetBuilder());
-    this.registerBuilder(new Parallelogram.AngleBuilder());
-    this.registerBuilder(new Trapezoid.OffsetBuilder());
-    this.registerBuilder(new Trapezoid.AngleBuilder());
+    this.registerProvider(new StandardShapeBuilders());
+    for (ShapeBuilderProvider provider : ServiceLoader.load(ShapeBuilderProvider.class)) {
+      this.registerProvider(provider);
+    }
+  }
+
+  /**
+   * Registers every builder described by the given provider,
+   * without creating any of them.
+   *
+   * @param provider The provider of the builders to register.
+   */
+  protected void registerProvider(ShapeBuilderProvider provider) {
+    ClassLoader loader = provider.getClass().getClassLoader();
+    for (ShapeBuilderProvider.Descriptor descriptor : provider.getDescriptors()) {
+      this.register(new Registration(descriptor, loader));
+    }
   }
 
   /**
    * Adds a {@code ShapeBuilder} to this factory's mapping for
-   * later access.
+   * later access. A copy of the builder with default
+   * arguments is kept as the prototype, so changing the given
+   * builder afterwards has no effect on this factory.
    *
    * @param builder The {@code ShapeBuilder} to add.
    */
   protected void registerBuilder(ShapeBuilder builder) {
-    HashMap<String, ShapeBuilder> variations;
-    variations = this.builders.get(builder.getTargetShape());
+    this.register(new Registration(builder));
+  }
 
-    if (variations == null) {
-      variations = new HashMap<>();
-      this.builders.put(builder.getTargetShape(), variations);
-    }
-    variations.put(builder.getVariation(), builder);
+  /**
+   * Adds a registration to this factory's mapping, replacing
+   * any with the same shape and variation names.
+   *
+   * @param registration The registration to add.
+   */
+  private void register(Registration registration) {
+    this.builders.computeIfAbsent(
+      registration.shape,
+      k -> new ConcurrentHashMap<>()
+    ).put(registration.variation, registration);
   }
 
   /**
-   * Gets an iterator of all builder variations for a given
-   * {@code Shape} name.
+   * Gets an iterator of new builders for every variation of
+   * a given {@code Shape} name. The builders have default
+   * arguments and belong to the caller.
    *
    * @param shape The name of the {@code Shape} to get all
    *              build variations for.
-   * @return ReadOnlyIterator, an iterator of all builder
-   *         variations for the given {@code Shape} name.
+   * @return ReadOnlyIterator, an iterator of new builders for
+   *         every variation of the given {@code Shape} name.
    */
   public ReadOnlyIterator<ShapeBuilder> getBuilders(String shape) {
     this.checkShapeKey(shape);
-    return new ReadOnlyIterator<>(
-      this.builders.get(shape).values().iterator()
-    );
+    ArrayList<ShapeBuilder> copies = new ArrayList<>();
+    for (Registration registration : this.builders.get(shape).values()) {
+      copies.add(registration.getPrototype().clone());
+    }
+    return new ReadOnlyIterator<>(copies.iterator());
   }
 
   /**
-   * Gets the builder for the given {@code Shape} name and
-   * variation name.
+   * Gets a new builder for the given {@code Shape} name and
+   * variation name. The builder has default arguments and
+   * belongs to the caller, so it can be changed and used
+   * without affecting any other caller or thread.
    *
    * @param shape     The name of the {@code Shape} to get the
    *                  builder for.
@@ -105,11 +168,14 @@ public class ShapeFactory {
    */
   public ShapeBuilder getBuilder(String shape, String variation) {
     this.checkShapeKey(shape);
-    HashMap<String, ShapeBuilder> variations = this.builders.get(shape);
-    if (!variations.containsKey(variation)) {
+    Registration registration = null;
+    if (variation != null) {
+      registration = this.builders.get(shape).get(variation);
+    }
+    if (registration == null) {
       throw new IllegalArgumentException("Unknown variation: "+variation+" for shape "+shape);
     }
-    return variations.get(variation);
+    return registration.getPrototype().clone();
   }
 
   /**
@@ -147,4 +213,341 @@ public class ShapeFactory {
     this.checkShapeKey(shape);
     return this.builders.get(shape).size();
   }
+
+  /**
+   * Builds every record in the given batch, in parallel. The
+   * arguments are validated column by column before anything
+   * is built, and a record which fails validation or whose
+   * construction throws is reported as failed in the result
+   * instead of stopping the batch. If the shape, variation,
+   * or any column is unknown, or the builder cannot be
+   * created, every record is reported as failed.
+   *
+   * @param batch The batch of records to build.
+   * @return ShapeBatch.Result, the shape or failure for each
+   *         record.
+   */
+  public ShapeBatch.Result buildAll(ShapeBatch batch) {
+    ShapeBatch.Result result = new ShapeBatch.Result(batch.size());
+    int[] indices = IntStream.range(0, batch.size()).toArray();
+    ShapeBuilder template;
+    String[] names = batch.getColumns().keySet().toArray(new String[0]);
+    int[] slots = new int[names.length];
+    try {
+      template = this.getBuilder(batch.getShape(), batch.getVariation());
+      for (int c = 0; c < names.length; ++c) {
+        slots[c] = template.getSlot(names[c]);
+      }
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      ShapeFactory.failAll(result, indices, e.getMessage());
+      return result;
+    }
+    int[][] columns = batch.getColumns().values().toArray(new int[0][]);
+    ShapeFactory.buildColumns(template, slots, columns, indices, result);
+    return result;
+  }
+
+  /**
+   * Builds every given record, in parallel. Records may be of
+   * different shapes and variations, and each may give any
+   * subset of the arguments of its builder, with the rest
+   * taking their default values. Records are grouped by shape
+   * and variation and each group is built as a columnar batch,
+   * as in {@link #buildAll(ShapeBatch)}. A record which is
+   * invalid in any way is reported as failed in the result,
+   * in the same position as it was given.
+   *
+   * @param records The records to build.
+   * @return ShapeBatch.Result, the shape or failure for each
+   *         record.
+   */
+  public ShapeBatch.Result buildAll(List<ShapeBatch.Record> records) {
+    ShapeBatch.Result result = new ShapeBatch.Result(records.size());
+
+    // group the record indices by shape, then by variation
+    LinkedHashMap<String, LinkedHashMap<String, ArrayList<Integer>>> groups =
+      new LinkedHashMap<>();
+    for (int i = 0; i < records.size(); ++i) {
+      ShapeBatch.Record record = records.get(i);
+      groups.computeIfAbsent(record.getShape(), k -> new LinkedHashMap<>())
+        .computeIfAbsent(record.getVariation(), k -> new ArrayList<>())
+        .add(i);
+    }
+
+    for (Map.Entry<String, LinkedHashMap<String, ArrayList<Integer>>> shapeGroup
+      : groups.entrySet()
+    ) {
+      for (Map.Entry<String, ArrayList<Integer>> group : shapeGroup.getValue().entrySet()) {
+        int[] indices = group.getValue().stream().mapToInt(Integer::intValue).toArray();
+        ShapeBuilder template;
+        try {
+          template = this.getBuilder(shapeGroup.getKey(), group.getKey());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+          ShapeFactory.failAll(result, indices, e.getMessage());
+          continue;
+        }
+        ShapeFactory.buildRecords(template, records, indices, result);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Builds every record from the given stream, in parallel,
+   * as in {@link #buildAll(List)}. The stream is consumed
+   * fully before anything is built.
+   *
+   * @param records The records to build.
+   * @return ShapeBatch.Result, the shape or failure for each
+   *         record, in stream order.
+   */
+  public ShapeBatch.Result buildAll(Stream<ShapeBatch.Record> records) {
+    return this.buildAll(records.collect(Collectors.toList()));
+  }
+
+  /**
+   * Converts records of the same shape and variation into
+   * columns and builds them. Records with unknown or missing
+   * argument values are failed and left out of the build.
+   *
+   * @param template The builder for the records' shape and
+   *                 variation, with default arguments.
+   * @param records  Every record being built.
+   * @param indices  The indices of the records to build.
+   * @param result   The result to store each record's outcome
+   *                 in.
+   */
+  private static void buildRecords(
+    ShapeBuilder template,
+    List<ShapeBatch.Record> records,
+    int[] indices,
+    ShapeBatch.Result result
+  ) {
+    // only arguments given by some record need a column
+    LinkedHashSet<String> names = new LinkedHashSet<>();
+    for (int index : indices) {
+      names.addAll(records.get(index).getArgs().keySet());
+    }
+    ArrayList<Integer> slots = new ArrayList<>();
+    ArrayList<String> known = new ArrayList<>();
+    for (String name : names) {
+      try {
+        slots.add(template.getSlot(name));
+        known.add(name);
+      } catch (IllegalArgumentException e) {
+        for (int index : indices) {
+          if (records.get(index).getArgs().containsKey(name)) {
+            result.setFailure(index, e.getMessage());
+          }
+        }
+      }
+    }
+
+    int[][] columns = new int[known.size()][indices.length];
+    int[] slotArray = new int[known.size()];
+    for (int c = 0; c < columns.length; ++c) {
+      String name = known.get(c);
+      int slot = slots.get(c);
+      slotArray[c] = slot;
+      int defaultValue = template.getArg(slot);
+      for (int i = 0; i < indices.length; ++i) {
+        Integer value = records.get(indices[i]).getArgs().getOrDefault(name, defaultValue);
+        if (value == null) {
+          result.setFailure(indices[i], "Missing value for argument: "+name);
+        } else {
+          columns[c][i] = value;
+        }
+      }
+    }
+    ShapeFactory.buildColumns(template, slotArray, columns, indices, result);
+  }
+
+  /**
+   * Validates and builds columns of arguments. Every column
+   * is checked against the range of its argument first,
+   * failing any record with a value out of range. The
+   * remaining records are then validated and built in
+   * parallel chunks, each with its own copy of the template
+   * builder.
+   *
+   * @param template The builder for the records' shape and
+   *                 variation, with default arguments, which
+   *                 is not modified.
+   * @param slots    The builder slot of each column.
+   * @param columns  The argument columns, with one value per
+   *                 record.
+   * @param indices  The index in the result of each record.
+   * @param result   The result to store each record's outcome
+   *                 in.
+   */
+  private static void buildColumns(
+    ShapeBuilder template,
+    int[] slots,
+    int[][] columns,
+    int[] indices,
+    ShapeBatch.Result result
+  ) {
+    int size = indices.length;
+    for (int c = 0; c < columns.length; ++c) {
+      ShapeBuilder.Arg arg = template.getRequiredArg(slots[c]);
+      int min = arg.getMinValue();
+      int max = arg.getMaxValue();
+      int[] column = columns[c];
+      for (int i = 0; i < size; ++i) {
+        int value = column[i];
+        if ((value < min) || (value > max)) {
+          result.setFailure(
+            indices[i],
+            "Argument "+arg.getName()+": "
+            +value+" out of range (expected "+min+"<=x<="+max+")"
+          );
+        }
+      }
+    }
+
+    int numChunks = (size+ShapeFactory.BUILD_CHUNK_SIZE-1)/ShapeFactory.BUILD_CHUNK_SIZE;
+    IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+      ShapeBuilder builder = template.clone();
+      int start = chunk*ShapeFactory.BUILD_CHUNK_SIZE;
+      int end = Math.min(start+ShapeFactory.BUILD_CHUNK_SIZE, size);
+      for (int i = start; i < end; ++i) {
+        int index = indices[i];
+        if (result.isFailed(index)) {
+          continue;
+        }
+        for (int c = 0; c < columns.length; ++c) {
+          builder.setArgUnchecked(slots[c], columns[c][i]);
+        }
+        ShapeBuilder.Validation validation = builder.validate();
+        if (!validation.isValid()) {
+          result.setFailure(index, validation.getMessage());
+          continue;
+        }
+        // builders which don't validate every dimension may
+        // still throw
+        try {
+          result.setShape(index, builder.build());
+        } catch (RuntimeException e) {
+          result.setFailure(index, e.getMessage());
+        }
+      }
+    });
+  }
+
+  /**
+   * Fails every given record with the same message.
+   *
+   * @param result  The result to store the failures in.
+   * @param indices The indices of the records to fail.
+   * @param failure The reason the records failed.
+   */
+  private static void failAll(ShapeBatch.Result result, int[] indices, String failure) {
+    for (int index : indices) {
+      result.setFailure(index, failure);
+    }
+  }
+
+  /**
+   * A builder registered with a {@code ShapeFactory}, by its
+   * shape and variation names. The prototype builder is
+   * created from the descriptor the first time it is needed,
+   * unless a builder was registered directly.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  private static final class Registration {
+    /** The name of the {@code Shape} the builder builds. */
+    private final String shape;
+    /** The name of the builder's variation. */
+    private final String variation;
+    /** Describes the prototype, or {@code null} once it exists. */
+    private ShapeBuilderProvider.Descriptor descriptor;
+    /** Loads the prototype's class, or {@code null} once it exists. */
+    private ClassLoader loader;
+    /** The prototype builder, or {@code null} until created. */
+    private volatile ShapeBuilder prototype;
+
+    /**
+     * Creates a registration which creates its prototype from
+     * the given descriptor when first needed.
+     *
+     * @param descriptor The descriptor of the builder.
+     * @param loader     The class loader to load the builder
+     *                   class with.
+     */
+    private Registration(ShapeBuilderProvider.Descriptor descriptor, ClassLoader loader) {
+      this.shape = descriptor.getShape();
+      this.variation = descriptor.getVariation();
+      this.descriptor = descriptor;
+      this.loader = loader;
+    }
+
+    /**
+     * Creates a registration with a copy of the given builder,
+     * reset to default arguments, as the prototype.
+     *
+     * @param builder The builder to register.
+     */
+    private Registration(ShapeBuilder builder) {
+      this.shape = builder.getTargetShape();
+      this.variation = builder.getVariation();
+      ShapeBuilder prototype = builder.clone();
+      prototype.resetArgs();
+      this.prototype = prototype;
+    }
+
+    /**
+     * Gets the prototype builder, creating it if needed. The
+     * prototype must not be modified. An
+     * {@code IllegalStateException} is thrown if the builder
+     * cannot be created or does not match its description.
+     *
+     * @return ShapeBuilder, the prototype builder.
+     */
+    private ShapeBuilder getPrototype() {
+      ShapeBuilder prototype = this.prototype;
+      if (prototype == null) {
+        synchronized (this) {
+          prototype = this.prototype;
+          if (prototype == null) {
+            prototype = this.createPrototype();
+            this.prototype = prototype;
+            this.descriptor = null;
+            this.loader = null;
+          }
+        }
+      }
+      return prototype;
+    }
+
+    /**
+     * Loads the described builder class and creates a builder.
+     *
+     * @return ShapeBuilder, the new builder.
+     */
+    private ShapeBuilder createPrototype() {
+      String className = this.descriptor.getBuilderClassName();
+      ShapeBuilder builder;
+      try {
+        builder = Class.forName(className, true, this.loader)
+          .asSubclass(ShapeBuilder.class)
+          .getConstructor()
+          .newInstance();
+      } catch (ReflectiveOperationException | ClassCastException e) {
+        throw new IllegalStateException("Cannot create builder "+className, e);
+      }
+      if (
+        !this.shape.equals(builder.getTargetShape())
+          || !this.variation.equals(builder.getVariation())
+      ) {
+        throw new IllegalStateException(
+          "Builder "+className+" builds "+builder.getTargetShape()
+          +" ("+builder.getVariation()+") but is described as "
+          +this.shape+" ("+this.variation+")"
+        );
+      }
+      return builder;
+    }
+  }
 }
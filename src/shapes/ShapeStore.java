@@ -0,0 +1,416 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An ordered collection of {@code Shape}s which also keeps
+ * the values scanned most often, such as position, bounding
+ * box, colour, and type, in parallel primitive arrays. Bulk
+ * operations like hit tests, region queries, and counting
+ * run as tight loops over those columns, and only touch the
+ * {@code Shape} objects themselves for the exact tests that
+ * remain.
+ * <p>
+ * The {@code Shape}s are still the authority on their
+ * geometry, and the rest of the program keeps using them
+ * as usual. A {@code Shape} in a store must only be
+ * transformed through the store, or be passed to
+ * {@link #update(Shape)} afterwards, so that its columns
+ * stay in sync.
+ * <p>
+ * The {@code Shape}s keep the order they were added in.
+ * Removal leaves an empty slot, which is skipped, and the
+ * columns are compacted once half of the slots are empty,
+ * so removal takes amortized constant time.
+ *
+ * @author Kevin Qiao
+ * @version 1.1
+ */
+public final class ShapeStore extends AbstractCollection<Shape> {
+  /** The initial capacity of the columns. */
+  private static final int INITIAL_CAPACITY = 16;
+
+  /** The {@code Shape} in each slot, or {@code null} if removed. */
+  private Shape[] shapes;
+  /** The type id of the {@code Shape} in each slot. */
+  private int[] typeIds;
+  /** The left edge of the bounding box in each slot. */
+  private int[] xs;
+  /** The top edge of the bounding box in each slot. */
+  private int[] ys;
+  /** The width of the bounding box in each slot. */
+  private int[] widths;
+  /** The height of the bounding box in each slot. */
+  private int[] heights;
+  /** The packed colour in each slot. */
+  private int[] colors;
+  /** The number of slots used, including empty ones. */
+  private int numSlots;
+  /** The number of {@code Shape}s stored. */
+  private int numShapes;
+
+  /** The slot of each stored {@code Shape}. */
+  private final HashMap<Shape, Integer> slots;
+  /** The id given to each type of {@code Shape} stored so far. */
+  private final HashMap<Class<? extends Shape>, Integer> typeIdsByClass;
+  /**
+   * The number of times this store has been changed, so that
+   * iterators can fail fast.
+   */
+  private int modCount;
+
+  /**
+   * Constructs a new, empty {@code ShapeStore}.
+   */
+  public ShapeStore() {
+    this.shapes = new Shape[ShapeStore.INITIAL_CAPACITY];
+    this.typeIds = new int[ShapeStore.INITIAL_CAPACITY];
+    this.xs = new int[ShapeStore.INITIAL_CAPACITY];
+    this.ys = new int[ShapeStore.INITIAL_CAPACITY];
+    this.widths = new int[ShapeStore.INITIAL_CAPACITY];
+    this.heights = new int[ShapeStore.INITIAL_CAPACITY];
+    this.colors = new int[ShapeStore.INITIAL_CAPACITY];
+    this.numSlots = 0;
+    this.numShapes = 0;
+    this.slots = new HashMap<>();
+    this.typeIdsByClass = new HashMap<>();
+    this.modCount = 0;
+  }
+
+  /**
+   * Adds a {@code Shape} to the end of this store, if it is
+   * not already stored.
+   *
+   * @param shape The {@code Shape} to add.
+   * @return boolean, whether or not the {@code Shape} was
+   *         added.
+   */
+  @Override
+  public boolean add(Shape shape) {
+    if (this.slots.containsKey(shape)) {
+      return false;
+    }
+    if (this.numSlots == this.shapes.length) {
+      this.resize(Math.max(ShapeStore.INITIAL_CAPACITY, this.numShapes*2));
+    }
+    int slot = this.numSlots++;
+    this.shapes[slot] = shape;
+    this.typeIds[slot] = this.getTypeId(shape.getClass());
+    this.colors[slot] = shape.getRGB();
+    this.writeBounds(slot, shape);
+    this.slots.put(shape, slot);
+    ++this.numShapes;
+    ++this.modCount;
+    return true;
+  }
+
+  /**
+   * Removes a {@code Shape} from this store, if it is stored.
+   *
+   * @param o The {@code Shape} to remove.
+   * @return boolean, whether or not the {@code Shape} was
+   *         removed.
+   */
+  @Override
+  public boolean remove(Object o) {
+    Integer slot = this.slots.remove(o);
+    if (slot == null) {
+      return false;
+    }
+    this.shapes[slot] = null;
+    --this.numShapes;
+    ++this.modCount;
+    if (this.numShapes*2 < this.numSlots) {
+      this.resize(Math.max(ShapeStore.INITIAL_CAPACITY, this.numShapes*2));
+    }
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return this.slots.containsKey(o);
+  }
+
+  @Override
+  public int size() {
+    return this.numShapes;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(this.shapes, 0, this.numSlots, null);
+    this.numSlots = 0;
+    this.numShapes = 0;
+    this.slots.clear();
+    ++this.modCount;
+  }
+
+  /**
+   * Gets an iterator over the stored {@code Shape}s, in the
+   * order they were added. The iterator does not support
+   * removal.
+   *
+   * @return Iterator&lt;Shape&gt;, the iterator.
+   */
+  @Override
+  public Iterator<Shape> iterator() {
+    return new Iterator<Shape>() {
+      private final int expectedModCount = ShapeStore.this.modCount;
+      private int slot = this.skipEmpty(0);
+
+      @Override
+      public boolean hasNext() {
+        return this.slot < ShapeStore.this.numSlots;
+      }
+
+      @Override
+      public Shape next() {
+        if (ShapeStore.this.modCount != this.expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Shape shape = ShapeStore.this.shapes[this.slot];
+        this.slot = this.skipEmpty(this.slot+1);
+        return shape;
+      }
+
+      private int skipEmpty(int slot) {
+        while ((slot < ShapeStore.this.numSlots) && (ShapeStore.this.shapes[slot] == null)) {
+          ++slot;
+        }
+        return slot;
+      }
+    };
+  }
+
+  /**
+   * Updates the columns of a {@code Shape} after it has been
+   * transformed outside of this store.
+   *
+   * @param shape The {@code Shape} which changed.
+   */
+  public void update(Shape shape) {
+    Integer slot = this.slots.get(shape);
+    if (slot != null) {
+      this.writeBounds(slot, shape);
+    }
+  }
+
+  /**
+   * Translates a stored {@code Shape} and updates its
+   * columns.
+   *
+   * @param shape The {@code Shape} to translate.
+   * @param dx    The change in x coordinates.
+   * @param dy    The change in y coordinates.
+   */
+  public void translate(Shape shape, int dx, int dy) {
+    shape.translate(dx, dy);
+    this.update(shape);
+  }
+
+  /**
+   * Translates every stored {@code Shape}. The columns are
+   * moved in a single pass rather than read back from each
+   * {@code Shape}.
+   *
+   * @param dx The change in x coordinates.
+   * @param dy The change in y coordinates.
+   */
+  public void translateAll(int dx, int dy) {
+    for (int i = 0; i < this.numSlots; ++i) {
+      Shape shape = this.shapes[i];
+      if (shape != null) {
+        shape.translate(dx, dy);
+        this.xs[i] += dx;
+        this.ys[i] += dy;
+      }
+    }
+  }
+
+  /**
+   * Gets the stored {@code Shape}s which contain the given
+   * point, in the order they were added. Bounding boxes are
+   * tested from the columns, and only {@code Shape}s whose
+   * box contains the point are tested exactly.
+   *
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @return ArrayList&lt;Shape&gt;, the {@code Shape}s which
+   *         contain the point.
+   */
+  public ArrayList<Shape> shapesAt(int x, int y) {
+    ArrayList<Shape> found = new ArrayList<>();
+    int[] xs = this.xs;
+    int[] ys = this.ys;
+    int[] widths = this.widths;
+    int[] heights = this.heights;
+    for (int i = 0; i < this.numSlots; ++i) {
+      long dx = (long)x-xs[i];
+      long dy = (long)ys[i]-y;
+      if (
+        (dx >= 0)
+        && (dx <= widths[i])
+        && (dy >= 0)
+        && (dy <= heights[i])
+        && (this.shapes[i] != null)
+        && this.shapes[i].contains(x, y)
+      ) {
+        found.add(this.shapes[i]);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Gets the stored {@code Shape}s whose bounding boxes
+   * intersect the given rectangle, in the order they were
+   * added.
+   *
+   * @param region The region to search, in the same form as
+   *               {@link Shape#getBounds()}.
+   * @return ArrayList&lt;Shape&gt;, the {@code Shape}s whose
+   *         bounding boxes intersect the region.
+   */
+  public ArrayList<Shape> shapesIn(Rectangle region) {
+    ArrayList<Shape> found = new ArrayList<>();
+    long minX = region.x;
+    long maxX = (long)region.x+region.width;
+    long maxY = region.y;
+    long minY = (long)region.y-region.height;
+    for (int i = 0; i < this.numSlots; ++i) {
+      if (
+        ((long)this.xs[i] <= maxX)
+        && ((long)this.xs[i]+this.widths[i] >= minX)
+        && ((long)this.ys[i] >= minY)
+        && ((long)this.ys[i]-this.heights[i] <= maxY)
+        && (this.shapes[i] != null)
+      ) {
+        found.add(this.shapes[i]);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Counts the stored {@code Shape}s of exactly the given
+   * type, not including subclasses.
+   *
+   * @param type The type of {@code Shape} to count.
+   * @return int, the number of {@code Shape}s of the type.
+   */
+  public int countOf(Class<? extends Shape> type) {
+    Integer typeId = this.typeIdsByClass.get(type);
+    if (typeId == null) {
+      return 0;
+    }
+    int count = 0;
+    for (int i = 0; i < this.numSlots; ++i) {
+      if ((this.typeIds[i] == typeId) && (this.shapes[i] != null)) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Counts the stored {@code Shape}s of the given colour.
+   *
+   * @param color The colour.
+   * @return int, the number of {@code Shape}s of the colour.
+   */
+  public int countOfColor(Color color) {
+    int argb = color.getRGB();
+    int count = 0;
+    for (int i = 0; i < this.numSlots; ++i) {
+      if ((this.colors[i] == argb) && (this.shapes[i] != null)) {
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Gets the id of the given type of {@code Shape}, giving
+   * it the next id if it has none yet.
+   *
+   * @param type The type of {@code Shape}.
+   * @return int, the id of the type.
+   */
+  private int getTypeId(Class<? extends Shape> type) {
+    Integer typeId = this.typeIdsByClass.get(type);
+    if (typeId == null) {
+      typeId = this.typeIdsByClass.size();
+      this.typeIdsByClass.put(type, typeId);
+    }
+    return typeId;
+  }
+
+  /**
+   * Writes the bounding box of a {@code Shape} to the
+   * columns.
+   *
+   * @param slot  The slot of the {@code Shape}.
+   * @param shape The {@code Shape}.
+   */
+  private void writeBounds(int slot, Shape shape) {
+    Rectangle bounds = shape.getBounds();
+    this.xs[slot] = bounds.x;
+    this.ys[slot] = bounds.y;
+    this.widths[slot] = bounds.width;
+    this.heights[slot] = bounds.height;
+  }
+
+  /**
+   * Moves the stored {@code Shape}s to the start of new
+   * columns with the given capacity, dropping empty slots.
+   *
+   * @param capacity The capacity of the new columns, which
+   *                 must be at least the number of stored
+   *                 {@code Shape}s.
+   */
+  private void resize(int capacity) {
+    Shape[] shapes = new Shape[capacity];
+    int[] typeIds = new int[capacity];
+    int[] xs = new int[capacity];
+    int[] ys = new int[capacity];
+    int[] widths = new int[capacity];
+    int[] heights = new int[capacity];
+    int[] colors = new int[capacity];
+    int numSlots = 0;
+    for (int i = 0; i < this.numSlots; ++i) {
+      Shape shape = this.shapes[i];
+      if (shape != null) {
+        shapes[numSlots] = shape;
+        typeIds[numSlots] = this.typeIds[i];
+        xs[numSlots] = this.xs[i];
+        ys[numSlots] = this.ys[i];
+        widths[numSlots] = this.widths[i];
+        heights[numSlots] = this.heights[i];
+        colors[numSlots] = this.colors[i];
+        if (numSlots != i) {
+          this.slots.put(shape, numSlots);
+        }
+        ++numSlots;
+      }
+    }
+    this.shapes = shapes;
+    this.typeIds = typeIds;
+    this.xs = xs;
+    this.ys = ys;
+    this.widths = widths;
+    this.heights = heights;
+    this.colors = colors;
+    this.numSlots = numSlots;
+  }
+}
@@ -95,7 +95,7 @@ public class Square extends Rectangle {
    * added.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.1
    */
   public static class Builder extends OrientedPolygon.BaseBuilder {
     /**
@@ -103,7 +103,7 @@ public class Square extends Rectangle {
      * the base to construct a {@code Square}.
      */
     public Builder() {
-      super("Square", "Lengths", null);
+      super("Square", "Lengths", OrientedPolygon.BaseBuilder.SCHEMA);
     }
 
     @Override
@@ -121,7 +121,7 @@ public class Square extends Rectangle {
       return new Square(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         size
@@ -0,0 +1,37 @@
+package shapes;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code ShapeBuilderProvider} for the builders of every
+ * {@code Shape} in this package. Always registered by
+ * {@code ShapeFactory}, before any plugin providers.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+public class StandardShapeBuilders implements ShapeBuilderProvider {
+  /**
+   * Creates the provider. Public so that it can be used like
+   * any other provider.
+   */
+  public StandardShapeBuilders() {
+  }
+
+  @Override
+  public List<Descriptor> getDescriptors() {
+    return Arrays.asList(
+      new Descriptor("Circle", "Lengths", "shapes.Circle$Builder"),
+      new Descriptor("Ellipse", "Lengths", "shapes.Ellipse$Builder"),
+      new Descriptor("Triangle", "SAS", "shapes.Triangle$SasBuilder"),
+      new Descriptor("Square", "Lengths", "shapes.Square$Builder"),
+      new Descriptor("Rectangle", "Lengths", "shapes.Rectangle$Builder"),
+      new Descriptor("Rhombus", "Angle", "shapes.Rhombus$Builder"),
+      new Descriptor("Parallelogram", "Offset", "shapes.Parallelogram$OffsetBuilder"),
+      new Descriptor("Parallelogram", "Angle", "shapes.Parallelogram$AngleBuilder"),
+      new Descriptor("Trapezoid", "Offset", "shapes.Trapezoid$OffsetBuilder"),
+      new Descriptor("Trapezoid", "Angle", "shapes.Trapezoid$AngleBuilder")
+    );
+  }
+}
@@ -2,8 +2,6 @@ package shapes;
 
 import java.awt.Color;
 import java.awt.Point;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
 
 /**
  * A class to represent a trapezoid: a quadrilateral with at
@@ -111,19 +109,20 @@ public class Trapezoid extends OrientedPolygon {
    * offset. Adds an argument for top edge length.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public static class OffsetBuilder extends OrientedPolygon.OffsetBuilder {
     /** The {@code String} to represent the argument of top edge length. */
     private static final String OPPOSITE_BASE = "Top Edge Length";
     /**
-     * The set of arguments this {@code OffsetBuilder} requires
-     * in addition to inherited arguments.
+     * The arguments this {@code OffsetBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(OffsetBuilder.OPPOSITE_BASE, 0))
-      );
+    private static final Schema SCHEMA =
+      OrientedPolygon.OffsetBuilder.SCHEMA.extend(new Arg(OffsetBuilder.OPPOSITE_BASE, 0));
+    /** The slot of the top edge length argument. */
+    private static final int OPPOSITE_BASE_SLOT =
+      OffsetBuilder.SCHEMA.getSlot(OffsetBuilder.OPPOSITE_BASE);
 
     /**
      * Creates a {@code Trapezoid} builder which uses the length
@@ -132,7 +131,7 @@ public class Trapezoid extends OrientedPolygon {
      * {@code Trapezoid}.
      */
     public OffsetBuilder() {
-      super("Trapezoid", "Offset", OffsetBuilder.REQUIRED_ARGS);
+      super("Trapezoid", "Offset", OffsetBuilder.SCHEMA);
     }
 
     @Override
@@ -153,7 +152,7 @@ public class Trapezoid extends OrientedPolygon {
       return new Trapezoid(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         base,
@@ -162,6 +161,15 @@ public class Trapezoid extends OrientedPolygon {
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      Validation validation = super.validateDimensions();
+      if (!validation.isValid()) {
+        return validation;
+      }
+      return ShapeBuilder.checkDimension(OffsetBuilder.OPPOSITE_BASE, this.getOppositeBase());
+    }
+
     /**
      * Sets the top edge length argument of this
      * {@code OffsetBuilder}.
@@ -172,7 +180,7 @@ public class Trapezoid extends OrientedPolygon {
      *         {@code OffsetBuilder}.
      */
     public OffsetBuilder withOppositeBase(int oppositeBase) {
-      this.withArg(OffsetBuilder.OPPOSITE_BASE, oppositeBase);
+      this.setArg(OffsetBuilder.OPPOSITE_BASE_SLOT, oppositeBase);
       return this;
     }
 
@@ -184,7 +192,7 @@ public class Trapezoid extends OrientedPolygon {
      *         {@code OffsetBuilder}.
      */
     public int getOppositeBase() {
-      return this.getArg(OffsetBuilder.OPPOSITE_BASE);
+      return this.getArg(OffsetBuilder.OPPOSITE_BASE_SLOT);
     }
   }
 
@@ -193,19 +201,20 @@ public class Trapezoid extends OrientedPolygon {
    * Adds an argument for top edge length.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public static class AngleBuilder extends OrientedPolygon.AngleBuilder {
     /** The {@code String} to represent the argument of top edge length. */
     private static final String OPPOSITE_BASE = "Top Edge";
     /**
-     * The set of arguments this {@code AngleBuilder} requires
-     * in addition to inherited arguments.
+     * The arguments this {@code AngleBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(new Arg(AngleBuilder.OPPOSITE_BASE, 0))
-      );
+    private static final Schema SCHEMA =
+      OrientedPolygon.AngleBuilder.SCHEMA.extend(new Arg(AngleBuilder.OPPOSITE_BASE, 0));
+    /** The slot of the top edge length argument. */
+    private static final int OPPOSITE_BASE_SLOT =
+      AngleBuilder.SCHEMA.getSlot(AngleBuilder.OPPOSITE_BASE);
 
     /**
      * Creates a {@code Trapezoid} builder which uses the length
@@ -214,7 +223,7 @@ public class Trapezoid extends OrientedPolygon {
      * {@code Trapezoid}.
      */
     public AngleBuilder() {
-      super("Trapezoid", "Angle", AngleBuilder.REQUIRED_ARGS);
+      super("Trapezoid", "Angle", AngleBuilder.SCHEMA);
     }
 
     @Override
@@ -242,7 +251,7 @@ public class Trapezoid extends OrientedPolygon {
       return new Trapezoid(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         base,
@@ -251,6 +260,15 @@ public class Trapezoid extends OrientedPolygon {
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      Validation validation = super.validateDimensions();
+      if (!validation.isValid()) {
+        return validation;
+      }
+      return ShapeBuilder.checkDimension(AngleBuilder.OPPOSITE_BASE, this.getOppositeBase());
+    }
+
     /**
      * Sets the top edge length argument of this
      * {@code AngleBuilder}.
@@ -260,7 +278,7 @@ public class Trapezoid extends OrientedPolygon {
      * @return {@code AngleBuilder}, this {@code AngleBuilder}.
      */
     public AngleBuilder withOppositeBase(int oppositeBase) {
-      this.withArg(AngleBuilder.OPPOSITE_BASE, oppositeBase);
+      this.setArg(AngleBuilder.OPPOSITE_BASE_SLOT, oppositeBase);
       return this;
     }
 
@@ -272,7 +290,7 @@ public class Trapezoid extends OrientedPolygon {
      *         {@code AngleBuilder}.
      */
     public int getOppositeBase() {
-      return this.getArg(AngleBuilder.OPPOSITE_BASE);
+      return this.getArg(AngleBuilder.OPPOSITE_BASE_SLOT);
     }
   }
 }
@@ -2,8 +2,6 @@ package shapes;
 
 import java.awt.Color;
 import java.awt.Point;
-import java.util.Arrays;
-import java.util.LinkedHashSet;
 
 /**
  * A class to represent a polygon with 3 sides. A
@@ -78,7 +76,7 @@ public class Triangle extends OrientedPolygon {
    * to base length.
    *
    * @author Kevin Qiao
-   * @version 1.0
+   * @version 1.2
    */
   public static class SasBuilder extends OrientedPolygon.BaseBuilder {
     /** The {@code String} to represent the argument of angle. */
@@ -86,16 +84,17 @@ public class Triangle extends OrientedPolygon {
     /** The {@code String} to represent the argument of second side length. */
     private static final String SIDE_2 = "Side 2 Length";
     /**
-     * The set of arguments this {@code SasBuilder} requires in
-     * addition to inherited arguments.
+     * The arguments this {@code SasBuilder} requires, after the
+     * inherited arguments.
      */
-    private static final LinkedHashSet<Arg> REQUIRED_ARGS =
-      new LinkedHashSet<>(
-        Arrays.asList(
-          new Arg(SasBuilder.ANGLE, 1, 178),
-          new Arg(SasBuilder.SIDE_2, 0)
-        )
-      );
+    private static final Schema SCHEMA = OrientedPolygon.BaseBuilder.SCHEMA.extend(
+      new Arg(SasBuilder.ANGLE, 1, 178),
+      new Arg(SasBuilder.SIDE_2, 0)
+    );
+    /** The slot of the angle argument. */
+    private static final int ANGLE_SLOT = SasBuilder.SCHEMA.getSlot(SasBuilder.ANGLE);
+    /** The slot of the second side length argument. */
+    private static final int SIDE_2_SLOT = SasBuilder.SCHEMA.getSlot(SasBuilder.SIDE_2);
 
     /**
      * Creates a {@code Triangle} builder which uses base
@@ -103,7 +102,7 @@ public class Triangle extends OrientedPolygon {
      * {@code Triangle}.
      */
     public SasBuilder() {
-      super("Triangle", "SAS", SasBuilder.REQUIRED_ARGS);
+      super("Triangle", "SAS", SasBuilder.SCHEMA);
     }
 
     @Override
@@ -111,11 +110,8 @@ public class Triangle extends OrientedPolygon {
       int x = this.getX();
       int y = this.getY();
       int base = this.getBase();
-      double angle = Math.toRadians(this.getAngle());
-      int side2 = this.getSide2();
-
-      int height = (int)(side2*Math.sin(angle));
-      int offset = (int)(side2*Math.cos(angle));
+      int height = this.calculateHeight();
+      int offset = (int)(this.getSide2()*Math.cos(Math.toRadians(this.getAngle())));
 
       Point[] points = new Point[3];
       points[0] = new Point(x, y-height);
@@ -125,7 +121,7 @@ public class Triangle extends OrientedPolygon {
       return new Triangle(
         x,
         y,
-        new Color(this.getRed(), this.getGreen(), this.getBlue()),
+        ColorPalette.get(this.getRed(), this.getGreen(), this.getBlue()),
         points,
         this.getRotation(),
         base,
@@ -133,6 +129,25 @@ public class Triangle extends OrientedPolygon {
       );
     }
 
+    @Override
+    protected Validation validateDimensions() {
+      Validation validation = super.validateDimensions();
+      if (!validation.isValid()) {
+        return validation;
+      }
+      return ShapeBuilder.checkDimension(SasBuilder.SIDE_2, this.calculateHeight());
+    }
+
+    /**
+     * Calculates the height of the {@code Triangle} to build,
+     * from its second side length and angle.
+     *
+     * @return int, the height of the {@code Triangle}.
+     */
+    private int calculateHeight() {
+      return (int)(this.getSide2()*Math.sin(Math.toRadians(this.getAngle())));
+    }
+
     /**
      * Sets the angle argument of this {@code SasBuilder}.
      *
@@ -141,7 +156,7 @@ public class Triangle extends OrientedPolygon {
      * @return {@code SasBuilder}, this {@code SasBuilder}.
      */
     public SasBuilder withAngle(int angle) {
-      this.withArg(SasBuilder.ANGLE, angle);
+      this.setArg(SasBuilder.ANGLE_SLOT, angle);
       return this;
     }
 
@@ -154,7 +169,7 @@ public class Triangle extends OrientedPolygon {
      * @return {@code SasBuilder}, this {@code SasBuilder}.
      */
     public SasBuilder withSide2(int length) {
-      this.withArg(SasBuilder.SIDE_2, length);
+      this.setArg(SasBuilder.SIDE_2_SLOT, length);
       return this;
     }
 
@@ -165,7 +180,7 @@ public class Triangle extends OrientedPolygon {
      *         {@code SasBuilder}.
      */
     public int getAngle() {
-      return this.getArg(SasBuilder.ANGLE);
+      return this.getArg(SasBuilder.ANGLE_SLOT);
     }
 
     /**
@@ -176,7 +191,7 @@ public class Triangle extends OrientedPolygon {
      *         {@code SasBuilder}.
      */
     public int getSide2() {
-      return this.getArg(SasBuilder.SIDE_2);
+      return this.getArg(SasBuilder.SIDE_2_SLOT);
     }
   }
 }
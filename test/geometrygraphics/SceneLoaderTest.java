@@ -0,0 +1,222 @@
+package geometrygraphics;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import shapes.SceneFileReader;
+import shapes.SceneFileWriter;
+import shapes.SceneGenerator;
+import shapes.Shape;
+import shapes.ShapeFactory;
+
+/**
+ * Tests SceneLoader: that scene text, scene files, and
+ * serialized shapes are loaded into a ShapeDrawingPanel in
+ * full, in order, and with progress reaching 100%, both as
+ * shapes and into the large scene; that a stopped load
+ * finishes normally without adding anything more; and that a
+ * file which cannot be read fails the load with the reason.
+ * <p>
+ * The loader only adds shapes on the event dispatch thread,
+ * so this must run with -Djava.awt.headless=true where there
+ * is no display. There is no test framework in the build, so
+ * this is a program which stops at the first failure:
+ * <pre>
+ * javac -cp out -d out-test test/geometrygraphics/*.java
+ * java -Djava.awt.headless=true -cp out:out-test geometrygraphics.SceneLoaderTest
+ * </pre>
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class SceneLoaderTest {
+
+  // more than two of the loader's batches
+  private static final int NUM_SHAPES = 40000;
+  private static final long TIMEOUT_MILLIS = 30000;
+
+  private SceneLoaderTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    SceneGenerator generator = new SceneGenerator(new ShapeFactory(), 5);
+    List<Shape> scene = Arrays.asList(generator.generate(0, SceneLoaderTest.NUM_SHAPES));
+
+    File text = File.createTempFile("loader", ".scene");
+    File sceneFile = File.createTempFile("loader", ".shps");
+    File serialized = File.createTempFile("loader", ".ser");
+    File corrupt = File.createTempFile("loader", ".shps");
+    File badText = File.createTempFile("loader", ".scene");
+    try {
+      try (Writer out = Files.newBufferedWriter(text.toPath(), StandardCharsets.UTF_8)) {
+        generator.writeScene(SceneLoaderTest.NUM_SHAPES, out);
+      }
+      try (
+        FileChannel out = FileChannel.open(sceneFile.toPath(), StandardOpenOption.WRITE);
+        SceneFileWriter writer = new SceneFileWriter(out)
+      ) {
+        writer.writeAll(scene);
+      }
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(serialized.toPath()))) {
+        generator.writeSerializedShapes(SceneLoaderTest.NUM_SHAPES, out);
+      }
+      byte[] corruptBytes = Files.readAllBytes(sceneFile.toPath());
+      Files.write(corrupt.toPath(), Arrays.copyOf(corruptBytes, corruptBytes.length/2));
+      Files.write(
+        badText.toPath(),
+        "Circle/Lengths Diameter=4\n\nCircle/Lengths Diameter=oops\n".getBytes(StandardCharsets.UTF_8)
+      );
+
+      for (boolean largeScene : new boolean[] {false, true}) {
+        SceneLoaderTest.testLoad("scene text", text, largeScene, scene);
+        SceneLoaderTest.testLoad("scene file", sceneFile, largeScene, scene);
+        SceneLoaderTest.testLoad("serialized shapes", serialized, largeScene, scene);
+      }
+      SceneLoaderTest.testStop("scene text", text);
+      SceneLoaderTest.testStop("scene file", sceneFile);
+      SceneLoaderTest.testFailure(corrupt, StreamCorruptedException.class, null);
+      SceneLoaderTest.testFailure(badText, IllegalArgumentException.class, "Line 3: ");
+      SceneLoaderTest.testFailure(
+        new File(text.getPath()+".missing"),
+        FileNotFoundException.class,
+        null
+      );
+    } finally {
+      for (File file : new File[] {text, sceneFile, serialized, corrupt, badText}) {
+        Files.delete(file.toPath());
+      }
+    }
+    // the event dispatch thread keeps the program running
+    System.exit(0);
+  }
+
+  private static void testLoad(
+    String format,
+    File file,
+    boolean largeScene,
+    List<Shape> scene
+  ) throws Exception {
+    String name = format+(largeScene ? " into the large scene" : "");
+    ShapeDrawingPanel panel = new ShapeDrawingPanel(800, 600, e -> { });
+    SceneLoader loader = new SceneLoader(file, panel, largeScene);
+    List<Integer> progress = new ArrayList<>();
+    loader.addPropertyChangeListener(e -> {
+      if (e.getPropertyName().equals("progress")) {
+        progress.add((Integer)e.getNewValue());
+      }
+    });
+    loader.execute();
+    SceneLoaderTest.checkEqual((long)scene.size(), loader.get(), name+" shapes loaded");
+    SceneLoaderTest.waitForEvents(loader);
+
+    List<Shape> loaded = SceneLoaderTest.getShapes(panel);
+    SceneLoaderTest.checkEqual(scene.size(), loaded.size(), name+" shapes in the panel");
+    for (int i = 0; i < scene.size(); ++i) {
+      Shape expected = scene.get(i);
+      Shape actual = loaded.get(i);
+      SceneLoaderTest.checkEqual(expected.getClass(), actual.getClass(), name+" class of shape "+i);
+      SceneLoaderTest.checkEqual(expected.getBounds(), actual.getBounds(), name+" bounds of shape "+i);
+    }
+    SceneLoaderTest.check(!progress.isEmpty(), name+" reported no progress");
+    SceneLoaderTest.checkEqual(100, progress.get(progress.size()-1), name+" final progress");
+    for (int i = 1; i < progress.size(); ++i) {
+      SceneLoaderTest.check(progress.get(i-1) <= progress.get(i), name+" progress went backwards");
+    }
+    System.out.println("ok load "+name);
+  }
+
+  private static void testStop(String name, File file) throws Exception {
+    ShapeDrawingPanel panel = new ShapeDrawingPanel(800, 600, e -> { });
+    SceneLoader loader = new SceneLoader(file, panel, false);
+    // stopped before the first batch, so nothing is added
+    loader.stop();
+    loader.execute();
+    SceneLoaderTest.checkEqual(0L, loader.get(), name+" shapes loaded after stop");
+    SceneLoaderTest.check(!loader.isCancelled(), name+" was cancelled rather than stopped");
+    SceneLoaderTest.waitForEvents(loader);
+    SceneLoaderTest.checkEqual(0, SceneLoaderTest.getShapes(panel).size(), name+" shapes added");
+    System.out.println("ok stop "+name);
+  }
+
+  private static void testFailure(
+    File file,
+    Class<? extends Exception> type,
+    String message
+  ) throws Exception {
+    ShapeDrawingPanel panel = new ShapeDrawingPanel(800, 600, e -> { });
+    SceneLoader loader = new SceneLoader(file, panel, false);
+    loader.execute();
+    try {
+      loader.get();
+      throw new AssertionError(file.getName()+" loaded");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      SceneLoaderTest.check(type.isInstance(cause), file.getName()+" failed with "+cause);
+      if (message != null) {
+        SceneLoaderTest.check(
+          cause.getMessage().startsWith(message),
+          file.getName()+" failed with "+cause.getMessage()
+        );
+      }
+    }
+    System.out.println("ok failure "+type.getSimpleName());
+  }
+
+  // batches and progress are delivered to the event dispatch
+  // thread on a timer, so wait until the worker is done there
+  // and then for any of them still queued
+  private static void waitForEvents(SwingWorker<?, ?> worker) throws Exception {
+    long deadline = System.currentTimeMillis()+SceneLoaderTest.TIMEOUT_MILLIS;
+    boolean[] done = new boolean[1];
+    while (!done[0]) {
+      SceneLoaderTest.check(System.currentTimeMillis() < deadline, "timed out waiting for events");
+      Thread.sleep(20);
+      SwingUtilities.invokeAndWait(() -> {
+        done[0] = worker.getState() == SwingWorker.StateValue.DONE;
+      });
+    }
+    Thread.sleep(200);
+    SwingUtilities.invokeAndWait(() -> { });
+  }
+
+  // the panel writes everything it holds, in order, to a
+  // scene file, which is read back
+  private static List<Shape> getShapes(ShapeDrawingPanel panel) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SwingUtilities.invokeAndWait(() -> panel.writeSceneFile(Channels.newChannel(out)));
+    List<Shape> shapes = new ArrayList<>();
+    new SceneFileReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())))
+      .readAll(shapes::add);
+    return shapes;
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+  private static void checkEqual(Object expected, Object actual, String message) {
+    if (!expected.equals(actual)) {
+      throw new AssertionError(message+": expected "+expected+" but was "+actual);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package geometrygraphics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import shapes.SceneFileReader;
+import shapes.Shape;
+import shapes.ShapeFactory;
+
+/**
+ * Tests how ShapeDrawingPanel selects and edits the shapes
+ * of mapped scenes and the large scene: that a click selects
+ * them where they are, without changing what is written or
+ * drawn, that the same shape is selected every time, that
+ * a shape is only moved into the panel once it is edited,
+ * and that reopening a mapped scene replaces it.
+ * <p>
+ * Run it like SceneLoaderTest:
+ * <pre>
+ * javac -cp out -d out-test test/geometrygraphics/*.java
+ * java -Djava.awt.headless=true -cp out:out-test geometrygraphics.ShapeDrawingPanelTest
+ * </pre>
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class ShapeDrawingPanelTest {
+
+  private ShapeDrawingPanelTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    // three overlapping squares, with the point (5, -5) in
+    // all of them
+    ShapeFactory factory = new ShapeFactory();
+    List<Shape> scene = new ArrayList<>();
+    for (int i = 0; i < 3; ++i) {
+      scene.add(
+        factory.getBuilder("Square", "Lengths")
+          .withArg("Base Length", 10+i)
+          .withArg("Red", 50*i)
+          .withPosition(-i, i)
+          .build()
+      );
+    }
+
+    File file = File.createTempFile("panel", ".shps");
+    try {
+      ShapeDrawingPanel writer = new ShapeDrawingPanel(100, 100, e -> { });
+      writer.addShapes(scene);
+      try (FileOutputStream out = new FileOutputStream(file)) {
+        writer.writeSceneFile(out.getChannel());
+      }
+
+      ShapeDrawingPanelTest.testSelectInPlace("mapped scene", file, scene, false);
+      ShapeDrawingPanelTest.testSelectInPlace("large scene", file, scene, true);
+      ShapeDrawingPanelTest.testReopen(file, scene);
+    } finally {
+      Files.delete(file.toPath());
+    }
+    System.exit(0);
+  }
+
+  private static void testSelectInPlace(
+    String name,
+    File file,
+    List<Shape> scene,
+    boolean largeScene
+  ) throws Exception {
+    List<LinkedHashSet<Shape>> selections = new ArrayList<>();
+    ShapeDrawingPanel panel = new ShapeDrawingPanel(100, 100, e -> {
+      @SuppressWarnings("unchecked")
+      LinkedHashSet<Shape> selected = (LinkedHashSet<Shape>)e.getSource();
+      selections.add(selected);
+    });
+    if (largeScene) {
+      panel.addShapesToLargeScene(scene);
+    } else {
+      panel.openMappedScene(file.toPath());
+    }
+
+    panel.selectIntersecting(5, -5);
+    panel.selectIntersecting(5, -5);
+    ShapeDrawingPanelTest.checkEqual(2, selections.size(), name+" selections");
+    List<Shape> first = new ArrayList<>(selections.get(0));
+    List<Shape> second = new ArrayList<>(selections.get(1));
+    ShapeDrawingPanelTest.checkEqual(3, first.size(), name+" shapes selected");
+    for (int i = 0; i < 3; ++i) {
+      ShapeDrawingPanelTest.checkEqual(
+        scene.get(i).getBounds(),
+        first.get(i).getBounds(),
+        name+" bounds of selected shape "+i
+      );
+      ShapeDrawingPanelTest.check(first.get(i) == second.get(i), name+" shape "+i+" selected twice");
+    }
+    ShapeDrawingPanelTest.checkOrder(panel, scene, name+" after selecting");
+    ShapeDrawingPanelTest.checkEqual(0, panel.getStatistics().getShapeCount(), name+" shapes in the panel");
+
+    // moving the bottom shape takes it out, and it is drawn
+    // on top from then on
+    Shape bottom = first.get(0);
+    panel.translate(bottom, 1, 0);
+    ShapeDrawingPanelTest.checkEqual(1, panel.getStatistics().getShapeCount(), name+" shapes in the panel");
+    List<Shape> expected = new ArrayList<>(scene.subList(1, 3));
+    expected.add(bottom);
+    ShapeDrawingPanelTest.checkOrder(panel, expected, name+" after moving");
+    ShapeDrawingPanelTest.checkEqual(
+      scene.get(0).getX()+1,
+      bottom.getX(),
+      name+" moved shape"
+    );
+
+    // removing a selected shape removes it from the scene
+    panel.removeShape(first.get(2));
+    ShapeDrawingPanelTest.checkOrder(panel, Arrays.asList(scene.get(1), bottom), name+" after removing");
+
+    panel.selectIntersecting(5, -5);
+    List<Shape> third = new ArrayList<>(selections.get(2));
+    ShapeDrawingPanelTest.checkEqual(2, third.size(), name+" shapes selected after editing");
+    ShapeDrawingPanelTest.check(third.get(0) == first.get(1), name+" untouched shape selected again");
+    ShapeDrawingPanelTest.check(third.get(1) == bottom, name+" moved shape selected from the panel");
+    System.out.println("ok select in place in the "+name);
+  }
+
+  private static void testReopen(File file, List<Shape> scene) throws Exception {
+    ShapeDrawingPanel panel = new ShapeDrawingPanel(100, 100, e -> { });
+    panel.openMappedScene(file.toPath());
+    panel.openMappedScene(file.getAbsoluteFile().toPath());
+    ShapeDrawingPanelTest.checkOrder(panel, scene, "reopened mapped scene");
+    panel.addShapesToLargeScene(scene);
+    panel.closeLargeScene();
+    ShapeDrawingPanelTest.checkOrder(panel, scene, "closed large scene");
+    System.out.println("ok reopen");
+  }
+
+  // the panel writes everything it holds in the order it is
+  // drawn
+  private static void checkOrder(
+    ShapeDrawingPanel panel,
+    List<Shape> expected,
+    String message
+  ) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    panel.writeSceneFile(Channels.newChannel(out));
+    List<Shape> shapes = new ArrayList<>();
+    new SceneFileReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())))
+      .readAll(shapes::add);
+    ShapeDrawingPanelTest.checkEqual(expected.size(), shapes.size(), message+" shapes");
+    for (int i = 0; i < shapes.size(); ++i) {
+      ShapeDrawingPanelTest.checkEqual(
+        expected.get(i).getBounds(),
+        shapes.get(i).getBounds(),
+        message+" bounds of shape "+i
+      );
+    }
+  }
+
+  private static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+  private static void checkEqual(Object expected, Object actual, String message) {
+    if (!expected.equals(actual)) {
+      throw new AssertionError(message+": expected "+expected+" but was "+actual);
+    }
+  }
+}
@@ -0,0 +1,271 @@
+package shapes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests {@code BuildCache}: that a build with the same
+ * arguments at another position is a hit, moved to the new
+ * position and identical to a fresh build, that the shapes
+ * it returns belong to the caller, that anything but the
+ * position is part of the key, and that the least recently
+ * used shapes are evicted.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class BuildCacheTest {
+  /**
+   * Prevents {@code BuildCacheTest} from being instantiated.
+   */
+  private BuildCacheTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("hit at another position", BuildCacheTest::testHitAtAnotherPosition);
+    Checks.run("returned shapes belong to the caller", BuildCacheTest::testReturnedShapesAreCopies);
+    Checks.run("misses", BuildCacheTest::testMisses);
+    Checks.run("eviction", BuildCacheTest::testEviction);
+    Checks.run("failed builds", BuildCacheTest::testFailedBuild);
+    Checks.run("metrics", BuildCacheTest::testMetrics);
+    Checks.run("threads", BuildCacheTest::testThreads);
+  }
+
+  /**
+   * Checks that building the same shape at other positions
+   * hits the cache, and gives the shape a fresh build would,
+   * for every kind of shape.
+   */
+  private static void testHitAtAnotherPosition() {
+    ShapeFactory factory = new ShapeFactory();
+    BuildCache cache = new BuildCache(1000);
+    int[][] positions = {{0, 0}, {100, -50}, {-7, 3}, {Integer.MIN_VALUE, Integer.MAX_VALUE}, {0, 0}};
+    for (String[] type : BuildCacheTest.types()) {
+      ShapeBuilder builder = BuildCacheTest.builder(factory, type);
+      for (int[] position : positions) {
+        builder.withPosition(position[0], position[1]);
+        Shape shape = cache.build(builder);
+        String name = type[0]+"/"+type[1]+" at "+position[0]+", "+position[1];
+        Checks.checkEqual(position[0], shape.getX(), name+" x");
+        Checks.checkEqual(position[1], shape.getY(), name+" y");
+        Checks.checkSameShape(builder.build(), shape, name);
+      }
+    }
+    int numTypes = BuildCacheTest.types().length;
+    Checks.checkEqual((long)numTypes, cache.getMissCount(), "misses");
+    Checks.checkEqual((long)numTypes*(positions.length-1), cache.getHitCount(), "hits");
+    Checks.checkEqual(numTypes, cache.size(), "size");
+  }
+
+  /**
+   * Checks that moving a returned shape, whether it was built
+   * or copied, changes neither the cache nor the other shapes
+   * it returned.
+   */
+  private static void testReturnedShapesAreCopies() {
+    ShapeFactory factory = new ShapeFactory();
+    BuildCache cache = new BuildCache(10);
+    for (String[] type : BuildCacheTest.types()) {
+      ShapeBuilder builder = BuildCacheTest.builder(factory, type).withPosition(5, 5);
+      Shape expected = builder.build();
+      Shape built = cache.build(builder);
+      Shape copied = cache.build(builder);
+      Checks.check(built != copied, type[0]+" returned twice");
+      built.translate(1000, 1000);
+      Checks.checkSameShape(expected, copied, type[0]+" after moving the built shape");
+      copied.translate(-300, 20);
+      Checks.checkSameShape(expected, cache.build(builder), type[0]+" after moving the copy");
+      built.translate(-1000, -1000);
+      Checks.checkSameShape(expected, built, type[0]+" moved back");
+    }
+  }
+
+  /**
+   * Checks that changing any argument but the position, or
+   * the builder, misses the cache, even when the argument
+   * values are the same.
+   */
+  private static void testMisses() {
+    ShapeFactory factory = new ShapeFactory();
+    BuildCache cache = new BuildCache(100);
+    ShapeBuilder builder = factory.getBuilder("Triangle", "SAS")
+      .withArg("Base Length", 30)
+      .withArg("Angle", 60)
+      .withArg("Side 2 Length", 40);
+    cache.build(builder);
+    String[][] changes = {
+      {"Rotation", "10"},
+      {"Base Length", "31"},
+      {"Angle", "61"},
+      {"Side 2 Length", "41"},
+      {"Red", "1"},
+      {"Green", "1"},
+      {"Blue", "1"}
+    };
+    for (String[] change : changes) {
+      ShapeBuilder changed = builder.clone().withArg(change[0], Integer.parseInt(change[1]));
+      long misses = cache.getMissCount();
+      Checks.checkSameShape(changed.build(), cache.build(changed), change[0]);
+      Checks.checkEqual(misses+1, cache.getMissCount(), "misses after changing "+change[0]);
+    }
+    Checks.checkEqual(0L, cache.getHitCount(), "hits");
+
+    // the same values for a rectangle and a rhombus, which
+    // build different shapes
+    Shape rectangle = cache.build(
+      factory.getBuilder("Rectangle", "Lengths").withArg("Base Length", 30).withArg("Height", 60)
+    );
+    Shape rhombus = cache.build(
+      factory.getBuilder("Rhombus", "Angle").withArg("Base Length", 30).withArg("Angle", 60)
+    );
+    Checks.checkEqual(shapes.Rectangle.class, rectangle.getClass(), "rectangle");
+    Checks.checkEqual(Rhombus.class, rhombus.getClass(), "rhombus");
+  }
+
+  /**
+   * Checks that the least recently used shape is evicted once
+   * the cache is full, counting hits as uses.
+   */
+  private static void testEviction() {
+    ShapeFactory factory = new ShapeFactory();
+    BuildCache cache = new BuildCache(2);
+    ShapeBuilder a = factory.getBuilder("Circle", "Lengths").withArg("Diameter", 10);
+    ShapeBuilder b = factory.getBuilder("Circle", "Lengths").withArg("Diameter", 20);
+    ShapeBuilder c = factory.getBuilder("Circle", "Lengths").withArg("Diameter", 30);
+    cache.build(a);
+    cache.build(b);
+    // a is used again, so b is the least recently used
+    cache.build(a);
+    cache.build(c);
+    Checks.checkEqual(2, cache.size(), "size");
+    Checks.checkEqual(1L, cache.getEvictionCount(), "evictions");
+
+    long hits = cache.getHitCount();
+    cache.build(a);
+    cache.build(c);
+    Checks.checkEqual(hits+2, cache.getHitCount(), "hits on a and c");
+    long misses = cache.getMissCount();
+    cache.build(b);
+    Checks.checkEqual(misses+1, cache.getMissCount(), "b was evicted");
+    Checks.checkEqual(2L, cache.getEvictionCount(), "evictions");
+
+    cache.clear();
+    Checks.checkEqual(0, cache.size(), "size after clearing");
+    cache.build(a);
+    Checks.checkEqual(misses+2, cache.getMissCount(), "a after clearing");
+    Checks.checkThrows(NonPositiveDimensionException.class, () -> new BuildCache(0), "capacity 0");
+  }
+
+  /**
+   * Checks that a build which throws is not cached, so the
+   * next build with the same arguments throws again.
+   */
+  private static void testFailedBuild() {
+    BuildCache cache = new BuildCache(10);
+    ShapeBuilder builder = new ShapeFactory().getBuilder("Circle", "Lengths");
+    for (int i = 0; i < 2; ++i) {
+      Checks.checkThrows(InvalidShapeException.class, () -> cache.build(builder), "build "+i);
+      Checks.checkEqual(0, cache.size(), "size after build "+i);
+    }
+    Checks.checkEqual(0L, cache.getHitCount(), "hits");
+  }
+
+  /**
+   * Checks the hit rate and the counts in the description.
+   */
+  private static void testMetrics() {
+    BuildCache cache = new BuildCache(4);
+    Checks.checkEqual(0.0, cache.getHitRate(), "hit rate before any build");
+    ShapeBuilder builder = new ShapeFactory().getBuilder("Square", "Lengths").withArg("Base Length", 5);
+    for (int i = 0; i < 4; ++i) {
+      cache.build(builder.withPosition(i, i));
+    }
+    Checks.checkEqual(0.75, cache.getHitRate(), "hit rate");
+    Checks.checkEqual(4, cache.getCapacity(), "capacity");
+    Checks.checkEqual(
+      "BuildCache[size: 1/4, hits: 3, misses: 1, evictions: 0]",
+      cache.toString(),
+      "description"
+    );
+  }
+
+  /**
+   * Checks that threads building the same shapes at their own
+   * positions each get the shapes they asked for.
+   *
+   * @throws Exception If a thread fails.
+   */
+  private static void testThreads() throws Exception {
+    ShapeFactory factory = new ShapeFactory();
+    BuildCache cache = new BuildCache(8);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < 4; ++t) {
+        int thread = t;
+        results.add(executor.submit(() -> {
+          String[][] types = BuildCacheTest.types();
+          for (int i = 0; i < 2000; ++i) {
+            String[] type = types[(i*7+thread)%types.length];
+            ShapeBuilder builder = BuildCacheTest.builder(factory, type).withPosition(thread, i);
+            Checks.checkSameShape(builder.build(), cache.build(builder), "thread "+thread+" build "+i);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Checks.checkEqual(8000L, cache.getHitCount()+cache.getMissCount(), "builds");
+    Checks.check(cache.size() <= cache.getCapacity(), "cache is over capacity");
+  }
+
+  /**
+   * Gets a shape and variation of every kind of shape, with
+   * the arguments to build one.
+   *
+   * @return String[][], the shape, variation, and pairs of
+   *         argument names and values for each kind of shape.
+   */
+  private static String[][] types() {
+    return new String[][] {
+      {"Circle", "Lengths", "Diameter", "17"},
+      {"Ellipse", "Lengths", "Width", "30", "Height", "11"},
+      {"Triangle", "SAS", "Rotation", "45", "Base Length", "30", "Angle", "70", "Side 2 Length", "25"},
+      {"Trapezoid", "Angle", "Rotation", "300", "Base Length", "40", "Height", "15", "Angle", "60", "Top Edge", "1"},
+      {"Parallelogram", "Angle", "Rotation", "20", "Base Length", "19", "Height", "15", "Angle", "53"},
+      {"Rhombus", "Angle", "Rotation", "91", "Base Length", "30", "Angle", "60"},
+      {"Rectangle", "Lengths", "Rotation", "258", "Base Length", "65", "Height", "15"},
+      {"Square", "Lengths", "Rotation", "15", "Base Length", "73"}
+    };
+  }
+
+  /**
+   * Gets a builder for a kind of shape, with its arguments
+   * set.
+   *
+   * @param factory The factory to get the builder from.
+   * @param type    The shape, variation, and arguments, as
+   *                from {@link #types()}.
+   * @return ShapeBuilder, the builder.
+   */
+  private static ShapeBuilder builder(ShapeFactory factory, String[] type) {
+    ShapeBuilder builder = factory.getBuilder(type[0], type[1]).withColour(10, 20, 30);
+    for (int i = 2; i < type.length; i += 2) {
+      builder.withArg(type[i], Integer.parseInt(type[i+1]));
+    }
+    return builder;
+  }
+}
@@ -0,0 +1,159 @@
+package shapes;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The checks shared by the tests of the {@code shapes}
+ * package. There is no test framework in the build, so each
+ * test class is a program which runs its tests in order and
+ * stops at the first failure, with an {@code AssertionError}
+ * describing it.
+ * <p>
+ * The tests are in the {@code shapes} package so they can
+ * check package private details, like the layout of a scene
+ * file. To run them, from the root of the project:
+ * <pre>
+ * javac -d out src/shapes/*.java src/geometrygraphics/*.java
+ * javac -cp out -d out-test test/shapes/*.java
+ * java -cp out:out-test shapes.SceneFileTest
+ * java -cp out:out-test shapes.SceneParserTest
+ * java -cp out:out-test shapes.ContainsTest
+ * java -cp out:out-test shapes.BuildCacheTest
+ * java -cp out:out-test shapes.ColorPaletteTest
+ * java -cp out:out-test shapes.PolygonClipperTest
+ * java -cp out:out-test shapes.SceneCoverageTest
+ * java -cp out:out-test shapes.ShapeStoreTest
+ * java -cp out:out-test shapes.ShapeFactoryTest
+ * java -cp out:out-test shapes.ShapeBuilderTest
+ * </pre>
+ *
+ * @author Kevin Qiao
+ * @version 1.7
+ */
+final class Checks {
+  /**
+   * A test, or any code checked by a test, which may throw.
+   *
+   * @author Kevin Qiao
+   * @version 1.0
+   */
+  @FunctionalInterface
+  static interface Body {
+    /**
+     * Runs the code.
+     *
+     * @throws Exception If the code throws.
+     */
+    public void run() throws Exception;
+  }
+
+  /**
+   * Prevents {@code Checks} from being instantiated.
+   */
+  private Checks() {
+  }
+
+  /**
+   * Runs one test, and reports that it passed.
+   *
+   * @param name The name of the test.
+   * @param test The test to run.
+   * @throws Exception If the test fails.
+   */
+  static void run(String name, Body test) throws Exception {
+    test.run();
+    System.out.println("ok "+name);
+  }
+
+  /**
+   * Checks that a condition holds.
+   *
+   * @param condition The condition.
+   * @param message   What failed, if it does not hold.
+   */
+  static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+  /**
+   * Checks that two values are equal.
+   *
+   * @param expected The expected value.
+   * @param actual   The actual value.
+   * @param message  What was checked.
+   */
+  static void checkEqual(Object expected, Object actual, String message) {
+    if (!Objects.equals(expected, actual)) {
+      throw new AssertionError(message+": expected "+expected+" but was "+actual);
+    }
+  }
+
+  /**
+   * Checks that some code throws an exception of the given
+   * type, or a subtype of it.
+   *
+   * @param <T>     The type of exception.
+   * @param type    The type of exception.
+   * @param body    The code which should throw.
+   * @param message What was checked.
+   * @return T, the exception thrown.
+   */
+  static <T extends Throwable> T checkThrows(Class<T> type, Body body, String message) {
+    try {
+      body.run();
+    } catch (Throwable e) {
+      if (type.isInstance(e)) {
+        return type.cast(e);
+      }
+      throw new AssertionError(message+": expected "+type.getSimpleName()+" but got "+e, e);
+    }
+    throw new AssertionError(message+": expected "+type.getSimpleName()+" but nothing was thrown");
+  }
+
+  /**
+   * Checks that a {@code Shape} is an exact copy of another,
+   * with the same class, position, colour and geometry.
+   * Shapes do not override {@code equals}, so this compares
+   * everything that can be seen from outside.
+   *
+   * @param expected The original shape.
+   * @param actual   The copy.
+   * @param message  Which shape was checked.
+   */
+  static void checkSameShape(Shape expected, Shape actual, String message) {
+    Checks.checkEqual(expected.getClass(), actual.getClass(), message+" class");
+    Checks.checkEqual(expected.getX(), actual.getX(), message+" x");
+    Checks.checkEqual(expected.getY(), actual.getY(), message+" y");
+    Checks.checkEqual(expected.getColor().getRGB(), actual.getColor().getRGB(), message+" colour");
+    Checks.checkEqual(expected.getBounds(), actual.getBounds(), message+" bounds");
+    Checks.checkEqual(expected.getArea(), actual.getArea(), message+" area");
+    Checks.checkEqual(expected.getPerimeter(), actual.getPerimeter(), message+" perimeter");
+    if (expected instanceof Ellipse) {
+      Ellipse ellipse = (Ellipse)expected;
+      Checks.checkEqual(ellipse.getWidth(), ((Ellipse)actual).getWidth(), message+" width");
+      Checks.checkEqual(ellipse.getHeight(), ((Ellipse)actual).getHeight(), message+" height");
+    } else if (expected instanceof ArbitrarySimplePolygon) {
+      ArbitrarySimplePolygon polygon = (ArbitrarySimplePolygon)expected;
+      ArbitrarySimplePolygon other = (ArbitrarySimplePolygon)actual;
+      Checks.checkEqual(polygon.getRotation(), other.getRotation(), message+" rotation");
+      Polygon vertices = polygon.getAwtPolygon();
+      Polygon otherVertices = other.getAwtPolygon();
+      Checks.checkEqual(vertices.npoints, otherVertices.npoints, message+" vertex count");
+      Checks.check(
+        Arrays.equals(
+          Arrays.copyOf(vertices.xpoints, vertices.npoints),
+          Arrays.copyOf(otherVertices.xpoints, otherVertices.npoints)
+        )
+        && Arrays.equals(
+          Arrays.copyOf(vertices.ypoints, vertices.npoints),
+          Arrays.copyOf(otherVertices.ypoints, otherVertices.npoints)
+        ),
+        message+" vertices"
+      );
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package shapes;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests {@code ColorPalette}: that threads interning the
+ * same colours at once get the same index for each, that
+ * the palette stops growing once it is full, and that
+ * shapes of colours past the end of the palette keep their
+ * colour, are counted by it, and are written to and read
+ * from scene files with it.
+ * <p>
+ * The palette is global, so this must run in its own
+ * program, and the order of the tests matters.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class ColorPaletteTest {
+  /** The number of threads interning colours at once. */
+  private static final int NUM_THREADS = 4;
+
+  /**
+   * Prevents {@code ColorPaletteTest} from being instantiated.
+   */
+  private ColorPaletteTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("threads", ColorPaletteTest::testThreads);
+    Checks.run("full palette", ColorPaletteTest::testFullPalette);
+    Checks.run("shapes past the end of the palette", ColorPaletteTest::testShapesPastTheEnd);
+    Checks.run("scene files past the end of the palette", ColorPaletteTest::testSceneFile);
+  }
+
+  /**
+   * Checks that threads interning the same colours, in
+   * different orders, get the same index for each colour,
+   * and that each index is a different colour.
+   *
+   * @throws Exception If a thread fails.
+   */
+  private static void testThreads() throws Exception {
+    int numColors = ColorPalette.MAX_COLORS/2;
+    ExecutorService executor = Executors.newFixedThreadPool(ColorPaletteTest.NUM_THREADS);
+    List<Future<int[]>> results = new ArrayList<>();
+    try {
+      for (int t = 0; t < ColorPaletteTest.NUM_THREADS; ++t) {
+        int thread = t;
+        results.add(executor.submit(() -> {
+          int[] indices = new int[numColors];
+          for (int i = 0; i < numColors; ++i) {
+            int colour = (thread%2 == 0) ? i : numColors-1-i;
+            indices[colour] = ColorPalette.indexOf(0xFF000000 | colour);
+          }
+          return indices;
+        }));
+      }
+      int[] expected = results.get(0).get();
+      for (Future<int[]> result : results) {
+        int[] indices = result.get();
+        for (int i = 0; i < numColors; ++i) {
+          Checks.checkEqual(expected[i], indices[i], "index of colour "+i);
+        }
+      }
+      for (int i = 0; i < numColors; ++i) {
+        Checks.checkEqual(0xFF000000 | i, ColorPalette.get(expected[i]).getRGB(), "colour at index "+expected[i]);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    Checks.checkEqual(numColors, ColorPalette.size(), "size");
+  }
+
+  /**
+   * Checks that the palette interns colours until it is full,
+   * and then returns {@code NOT_INTERNED} for new colours but
+   * still finds the colours already in it.
+   */
+  private static void testFullPalette() {
+    int firstIndex = ColorPalette.size();
+    for (int i = firstIndex; i < ColorPalette.MAX_COLORS; ++i) {
+      Checks.checkEqual(i, ColorPalette.indexOf(0xFF100000 | i), "index of new colour "+i);
+    }
+    Checks.checkEqual(ColorPalette.MAX_COLORS, ColorPalette.size(), "size when full");
+    Checks.checkEqual(ColorPalette.NOT_INTERNED, ColorPalette.indexOf(0xFF200000), "new colour when full");
+    Checks.checkEqual(ColorPalette.NOT_INTERNED, ColorPalette.indexOf(Color.MAGENTA), "new colour when full");
+    Checks.checkEqual(firstIndex, ColorPalette.indexOf(0xFF100000 | firstIndex), "colour already in the palette");
+    Checks.checkEqual(ColorPalette.MAX_COLORS, ColorPalette.size(), "size after looking up colours");
+    Color colour = ColorPalette.get(1, 2, 3);
+    Checks.checkEqual(0xFF010203, colour.getRGB(), "colour made when full");
+  }
+
+  /**
+   * Checks that shapes of colours which are not in the palette
+   * keep their own colour, and that shapes of the same
+   * colour are counted together.
+   */
+  private static void testShapesPastTheEnd() {
+    ShapeFactory factory = new ShapeFactory();
+    Shape outside = factory.getBuilder("Circle", "Lengths")
+      .withArg("Diameter", 5)
+      .withColour(9, 8, 7)
+      .build();
+    Shape alsoOutside = factory.getBuilder("Square", "Lengths")
+      .withArg("Base Length", 5)
+      .withColour(9, 8, 7)
+      .build();
+    Shape other = factory.getBuilder("Square", "Lengths")
+      .withArg("Base Length", 5)
+      .withColour(9, 8, 6)
+      .build();
+    Checks.checkEqual(ColorPalette.NOT_INTERNED, outside.getColorIndex(), "index outside the palette");
+    Checks.checkEqual(0xFF090807, outside.getColor().getRGB(), "colour outside the palette");
+    Checks.checkEqual(outside.getRGB(), alsoOutside.getRGB(), "same colour outside the palette");
+    Checks.check(outside.getRGB() != other.getRGB(), "different colours outside the palette");
+
+    ShapeStore store = new ShapeStore();
+    store.add(outside);
+    store.add(alsoOutside);
+    store.add(other);
+    Checks.checkEqual(2, store.countOfColor(new Color(9, 8, 7)), "shapes of the colour");
+    Checks.checkEqual(1, store.countOfColor(new Color(9, 8, 6)), "shapes of the other colour");
+  }
+
+  /**
+   * Checks that a scene of more colours than the palette
+   * holds, more than fit in the writer's table at first, is
+   * written and read back with every colour.
+   *
+   * @throws Exception If the scene could not be written or
+   *                   read.
+   */
+  private static void testSceneFile() throws Exception {
+    ShapeFactory factory = new ShapeFactory();
+    List<Shape> scene = new ArrayList<>();
+    for (int i = 0; i < 3*ColorPalette.MAX_COLORS; ++i) {
+      int colour = i/2;
+      scene.add(
+        factory.getBuilder("Circle", "Lengths")
+          .withArg("Diameter", 1+i%7)
+          .withColour(colour >> 16, (colour >> 8) & 0xFF, colour & 0xFF)
+          .withPosition(i, -i)
+          .build()
+      );
+    }
+    for (boolean indexed : new boolean[] {false, true}) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (SceneFileWriter writer = new SceneFileWriter(Channels.newChannel(out), indexed)) {
+        writer.writeAll(scene);
+      }
+      List<Shape> read = new ArrayList<>();
+      new SceneFileReader(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())))
+        .readAll(read::add);
+      Checks.checkEqual(scene.size(), read.size(), "shapes read");
+      for (int i = 0; i < scene.size(); ++i) {
+        Checks.checkSameShape(scene.get(i), read.get(i), "shape "+i);
+      }
+    }
+    Checks.checkEqual(ColorPalette.MAX_COLORS, ColorPalette.size(), "size after reading");
+  }
+}
@@ -0,0 +1,532 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Polygon;
+import java.math.BigInteger;
+
+/**
+ * Tests the edge cases of {@link Shape#contains(int, int)}
+ * for ellipses and polygons: points on and next to the
+ * boundary, dimensions around the limit of the fixed point
+ * ellipse test, shapes at the ends of the range of an
+ * {@code int} or spanning all of it, and polygons with
+ * enough vertices to use the convex hull and edge tree,
+ * which must agree with the plain crossing test.
+ *
+ * @author Kevin Qiao
+ * @version 1.1
+ */
+final class ContainsTest {
+  /** The colour of every shape, which does not matter here. */
+  private static final Color COLOUR = Color.BLACK;
+
+  /**
+   * Prevents {@code ContainsTest} from being instantiated.
+   */
+  private ContainsTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("ellipse boundary", ContainsTest::testEllipseBoundary);
+    Checks.run("ellipse at the range of int", ContainsTest::testEllipseAtRangeOfInt);
+    Checks.run("small ellipses", ContainsTest::testSmallEllipses);
+    Checks.run("polygon vertices and edges", ContainsTest::testPolygonVerticesAndEdges);
+    Checks.run("adjacent polygons", ContainsTest::testAdjacentPolygons);
+    Checks.run("polygon at the range of int", ContainsTest::testPolygonAtRangeOfInt);
+    Checks.run("polygons spanning the range of int", ContainsTest::testPolygonsSpanningRangeOfInt);
+    Checks.run("rotated polygons", ContainsTest::testRotatedPolygons);
+    Checks.run("polygons with many vertices", ContainsTest::testManyVertices);
+  }
+
+  /**
+   * Checks points on either side of the boundary of ellipses
+   * of many proportions, against the exact inequality, for
+   * dimensions on both sides of where the fixed point test
+   * would overflow a {@code long} and falls back to floating
+   * point.
+   */
+  private static void testEllipseBoundary() {
+    int[][] dimensions = {
+      {3, 5},
+      {100, 37},
+      {1, 1000},
+      {46341, 46341},
+      {50000, 60000},
+      // just below and above the limit of the fixed point test
+      {55108, 55109},
+      {55109, 55109},
+      {1, 2000000000},
+      {2000000000, 3},
+      {1000000, 1000000}
+    };
+    for (int[] size : dimensions) {
+      int width = size[0];
+      int height = size[1];
+      Ellipse ellipse = new Ellipse(-width/2, height/2, ContainsTest.COLOUR, width, height);
+      String name = "ellipse "+width+"x"+height;
+      int numRows = Math.min(height, 2000);
+      for (int row = 0; row < numRows; ++row) {
+        long dy = (long)row*height/numRows;
+        long v = 2*dy-height;
+        double halfChord = width*Math.sqrt(1-((double)v*v)/((double)height*height));
+        for (double u0 : new double[] {-halfChord, halfChord}) {
+          long dx0 = Math.round((u0+width)/2);
+          for (long dx = dx0-2; dx <= dx0+2; ++dx) {
+            ContainsTest.checkEllipsePoint(ellipse, dx, dy, name);
+          }
+        }
+      }
+      ContainsTest.checkEllipsePoint(ellipse, width/2, height/2, name+" centre");
+    }
+  }
+
+  /**
+   * Checks that ellipses at the ends of the range of an
+   * {@code int} do not overflow, and that points far outside
+   * of them are not contained.
+   */
+  private static void testEllipseAtRangeOfInt() {
+    int max = Integer.MAX_VALUE;
+    int min = Integer.MIN_VALUE;
+    Ellipse[] ellipses = {
+      new Ellipse(max-100, min+50, ContainsTest.COLOUR, 100, 50),
+      new Ellipse(min, max, ContainsTest.COLOUR, 100, 50),
+      new Ellipse(min, max, ContainsTest.COLOUR, max, max),
+      new Ellipse(0, 0, ContainsTest.COLOUR, max, max)
+    };
+    for (Ellipse ellipse : ellipses) {
+      String name = "ellipse at "+ellipse.getX()+", "+ellipse.getY();
+      long centreX = (long)ellipse.getX()+ellipse.getWidth()/2;
+      long centreY = (long)ellipse.getY()-ellipse.getHeight()/2;
+      Checks.check(ellipse.contains((int)centreX, (int)centreY), name+" does not contain its centre");
+      int[] extremes = {min, min+1, -1, 0, 1, max-1, max};
+      for (int x : extremes) {
+        for (int y : extremes) {
+          ContainsTest.checkEllipsePoint(
+            ellipse,
+            (long)x-ellipse.getX(),
+            (long)ellipse.getY()-y,
+            name
+          );
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks every point in and around the bounds of small
+   * ellipses, where rounding matters most.
+   */
+  private static void testSmallEllipses() {
+    for (int width = 1; width <= 12; ++width) {
+      for (int height = 1; height <= 12; ++height) {
+        Ellipse ellipse = new Ellipse(7, -3, ContainsTest.COLOUR, width, height);
+        int contained = 0;
+        for (long dx = -2; dx <= width+2; ++dx) {
+          for (long dy = -2; dy <= height+2; ++dy) {
+            if (ContainsTest.checkEllipsePoint(ellipse, dx, dy, "ellipse "+width+"x"+height)) {
+              ++contained;
+            }
+          }
+        }
+        if (width == height) {
+          Circle circle = new Circle(7, -3, ContainsTest.COLOUR, width);
+          for (long dx = -2; dx <= width+2; ++dx) {
+            for (long dy = -2; dy <= height+2; ++dy) {
+              Checks.checkEqual(
+                ellipse.contains(7+(int)dx, -3-(int)dy),
+                circle.contains(7+(int)dx, -3-(int)dy),
+                "circle "+width+" at "+dx+", "+dy
+              );
+            }
+          }
+        }
+        Checks.check(contained <= width*height, "ellipse "+width+"x"+height+" overflows its bounds");
+      }
+    }
+  }
+
+  /**
+   * Checks a polygon whose vertices and horizontal edges lie
+   * on the rows of the points tested, where a crossing test
+   * can count an edge twice or not at all.
+   */
+  private static void testPolygonVerticesAndEdges() {
+    // a diamond, with vertices level with the points beside
+    // them
+    ArbitrarySimplePolygon diamond = ContainsTest.polygon(0, 0, 10, 10, 20, 0, 10, -10);
+    Checks.check(!diamond.contains(-5, 0), "left of the diamond");
+    Checks.check(!diamond.contains(25, 0), "right of the diamond");
+    Checks.check(diamond.contains(5, 0), "inside the diamond, level with its vertices");
+    Checks.check(diamond.contains(15, 0), "inside the diamond, right of its centre");
+    Checks.check(!diamond.contains(5, 10), "level with the top vertex");
+    Checks.check(!diamond.contains(5, -10), "level with the bottom vertex");
+
+    // an L, whose notch is inside its bounds but not the shape
+    ArbitrarySimplePolygon l = ContainsTest.polygon(0, 0, 30, 0, 30, -10, 10, -10, 10, -30, 0, -30);
+    Checks.check(l.contains(5, -5), "the corner of the L");
+    Checks.check(l.contains(25, -5), "the foot of the L");
+    Checks.check(l.contains(5, -25), "the top of the L");
+    Checks.check(!l.contains(20, -20), "the notch of the L");
+    Checks.check(!l.contains(29, -29), "the far corner of the notch");
+    // along the row of the inner horizontal edge
+    for (int x = -5; x <= 35; ++x) {
+      ContainsTest.checkSameAsCrossingTest(l, x, -10, "L");
+    }
+
+    // a comb, whose teeth cross the ray of a point many times
+    ArbitrarySimplePolygon comb = ContainsTest.polygon(
+      0, 0, 10, 0, 10, -20, 20, -20, 20, 0, 30, 0, 30, -20, 40, -20, 40, 0, 50, 0, 50, -30, 0, -30
+    );
+    for (int x = -5; x <= 55; ++x) {
+      for (int y = 5; y >= -35; --y) {
+        ContainsTest.checkSameAsCrossingTest(comb, x, y, "comb");
+      }
+    }
+    Checks.check(!comb.contains(15, -5), "between the teeth of the comb");
+    Checks.check(comb.contains(25, -5), "in a tooth of the comb");
+  }
+
+  /**
+   * Checks that two rectangles sharing an edge never both
+   * contain a point, and that together they contain every
+   * point the rectangle they make up contains, so shapes
+   * which tile the plane count each point once.
+   */
+  private static void testAdjacentPolygons() {
+    ArbitrarySimplePolygon left = ContainsTest.polygon(0, 0, 10, 0, 10, -10, 0, -10);
+    ArbitrarySimplePolygon right = ContainsTest.polygon(10, 0, 25, 0, 25, -10, 10, -10);
+    ArbitrarySimplePolygon below = ContainsTest.polygon(0, -10, 25, -10, 25, -16, 0, -16);
+    ArbitrarySimplePolygon whole = ContainsTest.polygon(0, 0, 25, 0, 25, -16, 0, -16);
+    for (int x = -3; x <= 28; ++x) {
+      for (int y = 3; y >= -19; --y) {
+        int count = (left.contains(x, y) ? 1 : 0)
+          +(right.contains(x, y) ? 1 : 0)
+          +(below.contains(x, y) ? 1 : 0);
+        Checks.check(count <= 1, "point "+x+", "+y+" is in "+count+" tiles");
+        Checks.checkEqual(whole.contains(x, y), count == 1, "point "+x+", "+y);
+      }
+    }
+  }
+
+  /**
+   * Checks polygons at the ends of the range of an
+   * {@code int} against points far from them, which must not
+   * overflow into the polygon.
+   */
+  private static void testPolygonAtRangeOfInt() {
+    int max = Integer.MAX_VALUE;
+    int min = Integer.MIN_VALUE;
+    ArbitrarySimplePolygon[] polygons = {
+      ContainsTest.polygon(max-10, max, max, max, max, max-10),
+      ContainsTest.polygon(min, min+10, min+10, min, min, min),
+      ContainsTest.star(min+1000, max-1000, 100, 500, 200)
+    };
+    int[] extremes = {min, min+1, min+5, -1, 0, 1, max-5, max-1, max};
+    for (ArbitrarySimplePolygon polygon : polygons) {
+      for (int x : extremes) {
+        for (int y : extremes) {
+          ContainsTest.checkSameAsCrossingTest(polygon, x, y, "polygon at "+polygon.getX());
+        }
+      }
+    }
+    Checks.check(polygons[0].contains(max-2, max-5), "inside the top right corner");
+  }
+
+  /**
+   * Checks the crossing test on rings spanning all of the
+   * range of an {@code int}, like the rings the clipper tests,
+   * where its cross products take more than 64 bits, and
+   * polygons spanning as much as their local vertices can,
+   * large enough to use the convex hull and edge tree, all
+   * against the test done with exact integers.
+   */
+  private static void testPolygonsSpanningRangeOfInt() {
+    int max = Integer.MAX_VALUE;
+    int min = Integer.MIN_VALUE;
+    int[][][] rings = {
+      {{min, max, min+1}, {min, min+1, max}},
+      {{min, 0, max, 0}, {max, min, max-1, 1}},
+      {{max, min, min, max-1}, {max, max-1, min, min}}
+    };
+    int[] coordinates = {
+      min, min+1, min+2, -1500000001, -1000000000, -3, -1, 0, 1, 2, 999999999,
+      1500000000, max-2, max-1, max
+    };
+    for (int[][] ring : rings) {
+      Polygon vertices = new Polygon(ring[0], ring[1], ring[0].length);
+      int contained = 0;
+      for (int x : coordinates) {
+        for (int y : coordinates) {
+          boolean expected = ContainsTest.exactCrossingTest(vertices, x, y);
+          Checks.checkEqual(
+            expected,
+            ArbitrarySimplePolygon.crossingTest(ring[0], ring[1], ring[0].length, x, y),
+            ring[0].length+" vertex ring at "+x+", "+y
+          );
+          if (expected) {
+            ++contained;
+          }
+        }
+      }
+      Checks.check(contained > 0, ring[0].length+" vertex ring contains nothing");
+    }
+
+    for (int numPoints : new int[] {7, 100}) {
+      ArbitrarySimplePolygon star = ContainsTest.star(min, max, 500000000, 1070000000, numPoints);
+      Polygon vertices = star.getAwtPolygon();
+      java.awt.Rectangle bounds = star.getBounds();
+      int contained = 0;
+      for (long dx = -1; dx <= bounds.width+1L; dx += bounds.width/37) {
+        for (long dy = -1; dy <= bounds.height+1L; dy += bounds.height/41) {
+          long x = bounds.x+dx;
+          long y = bounds.y-dy;
+          if ((x != (int)x) || (y != (int)y)) {
+            continue;
+          }
+          boolean expected = ContainsTest.exactCrossingTest(vertices, (int)x, (int)y);
+          Checks.checkEqual(expected, star.contains((int)x, (int)y), numPoints+" vertex star at "+x+", "+y);
+          if (expected) {
+            ++contained;
+          }
+        }
+      }
+      Checks.check(contained > 0, numPoints+" vertex star contains nothing");
+    }
+  }
+
+  /**
+   * Checks that a rotated polygon contains the same points as
+   * the polygon its rotated vertices make up, at every whole
+   * degree.
+   */
+  private static void testRotatedPolygons() {
+    for (int rotation = 0; rotation < 360; rotation += 7) {
+      ArbitrarySimplePolygon polygon = new ArbitrarySimplePolygon.StreamBuilder()
+        .addVertex(0, 0)
+        .addVertex(40, 0)
+        .addVertex(40, -10)
+        .addVertex(10, -10)
+        .addVertex(10, -30)
+        .addVertex(0, -30)
+        .withRotation(rotation)
+        .withPosition(-20, 20)
+        .build();
+      java.awt.Rectangle bounds = polygon.getBounds();
+      for (int x = bounds.x-2; x <= bounds.x+bounds.width+2; ++x) {
+        for (int y = bounds.y+2; y >= bounds.y-bounds.height-2; --y) {
+          ContainsTest.checkSameAsCrossingTest(polygon, x, y, "rotation "+rotation);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that polygons with enough vertices to be tested
+   * with the convex hull and the edge tree contain exactly
+   * the points the plain crossing test finds.
+   */
+  private static void testManyVertices() {
+    for (int numPoints : new int[] {8, 12, 20, 40, 100, 300}) {
+      for (int rotation : new int[] {0, 33}) {
+        ArbitrarySimplePolygon star = ContainsTest.star(-50, 50, 10, 60, numPoints);
+        star = new ArbitrarySimplePolygon(
+          star.getX(),
+          star.getY(),
+          ContainsTest.COLOUR,
+          ContainsTest.copyVertices(star),
+          rotation
+        );
+        java.awt.Rectangle bounds = star.getBounds();
+        int contained = 0;
+        for (int x = bounds.x-2; x <= bounds.x+bounds.width+2; ++x) {
+          for (int y = bounds.y+2; y >= bounds.y-bounds.height-2; --y) {
+            if (ContainsTest.checkSameAsCrossingTest(star, x, y, numPoints+" vertex star")) {
+              ++contained;
+            }
+          }
+        }
+        Checks.check(contained > 0, numPoints+" vertex star contains nothing");
+      }
+    }
+  }
+
+  /**
+   * Checks one point against an ellipse, relative to its top
+   * left corner, by the exact inequality in its documentation.
+   * Points outside the range of an {@code int} are skipped,
+   * and so are points within rounding of the boundary of
+   * ellipses too large for the fixed point test.
+   *
+   * @param ellipse The ellipse.
+   * @param dx      The x offset of the point from the left.
+   * @param dy      The y offset of the point down from the
+   *                top.
+   * @param name    The name of the ellipse.
+   * @return boolean, whether the point is contained.
+   */
+  private static boolean checkEllipsePoint(Ellipse ellipse, long dx, long dy, String name) {
+    long x = ellipse.getX()+dx;
+    long y = ellipse.getY()-dy;
+    if ((x != (int)x) || (y != (int)y)) {
+      return false;
+    }
+    BigInteger w = BigInteger.valueOf(ellipse.getWidth());
+    BigInteger h = BigInteger.valueOf(ellipse.getHeight());
+    BigInteger u = BigInteger.valueOf(dx).shiftLeft(1).subtract(w);
+    BigInteger v = BigInteger.valueOf(dy).shiftLeft(1).subtract(h);
+    BigInteger lhs = u.pow(2).multiply(h.pow(2)).add(v.pow(2).multiply(w.pow(2)));
+    BigInteger rhs = w.pow(2).multiply(h.pow(2));
+    boolean inBox = (u.compareTo(w.negate()) >= 0)
+      && (u.compareTo(w) < 0)
+      && (v.compareTo(h.negate()) >= 0)
+      && (v.compareTo(h) < 0);
+    boolean expected = inBox && (lhs.compareTo(rhs) < 0);
+
+    boolean actual = ellipse.contains((int)x, (int)y);
+    if (actual != expected) {
+      boolean nearBoundary = lhs.subtract(rhs).abs().doubleValue() < 1e-9*rhs.doubleValue();
+      boolean fixedPoint = (long)ellipse.getWidth()*ellipse.getHeight() <= 3037000499L;
+      if (!inBox || fixedPoint || !nearBoundary) {
+        throw new AssertionError(
+          name+" at "+dx+", "+dy+": expected "+expected+" but was "+actual
+        );
+      }
+    }
+    return actual;
+  }
+
+  /**
+   * Checks one point against a polygon, by the crossing test
+   * on its vertices, which is only used directly for small
+   * polygons. Points outside the bounds are never contained.
+   *
+   * @param polygon The polygon.
+   * @param x       The x coordinate of the point.
+   * @param y       The y coordinate of the point.
+   * @param name    The name of the polygon.
+   * @return boolean, whether the point is contained.
+   */
+  private static boolean checkSameAsCrossingTest(
+    ArbitrarySimplePolygon polygon,
+    int x,
+    int y,
+    String name
+  ) {
+    java.awt.Rectangle bounds = polygon.getBounds();
+    boolean expected = false;
+    if (
+      (x >= bounds.x)
+      && ((long)x <= (long)bounds.x+bounds.width)
+      && (y <= bounds.y)
+      && ((long)y >= (long)bounds.y-bounds.height)
+    ) {
+      Polygon vertices = polygon.getAwtPolygon();
+      expected = ArbitrarySimplePolygon.crossingTest(
+        vertices.xpoints,
+        vertices.ypoints,
+        vertices.npoints,
+        x,
+        y
+      );
+    }
+    boolean actual = polygon.contains(x, y);
+    if (actual != expected) {
+      throw new AssertionError(name+" at "+x+", "+y+": expected "+expected+" but was "+actual);
+    }
+    return actual;
+  }
+
+  /**
+   * Does the crossing test with exact integers, by the same
+   * rule as
+   * {@link ArbitrarySimplePolygon#crossingTest(int[], int[], int, int, int)}.
+   *
+   * @param vertices The vertices of the polygon.
+   * @param x        The x coordinate of the point.
+   * @param y        The y coordinate of the point.
+   * @return boolean, whether the point is inside.
+   */
+  private static boolean exactCrossingTest(Polygon vertices, int x, int y) {
+    boolean inside = false;
+    int last = vertices.npoints-1;
+    for (int i = 0; i < vertices.npoints; ++i) {
+      long curY = vertices.ypoints[i];
+      long lastY = vertices.ypoints[last];
+      if ((curY > y) != (lastY > y)) {
+        BigInteger lhs = BigInteger.valueOf((long)x-vertices.xpoints[i])
+          .multiply(BigInteger.valueOf(lastY-curY));
+        BigInteger rhs = BigInteger.valueOf((long)vertices.xpoints[last]-vertices.xpoints[i])
+          .multiply(BigInteger.valueOf(y-curY));
+        int comparison = lhs.compareTo(rhs);
+        if ((lastY > curY) ? (comparison < 0) : (comparison > 0)) {
+          inside = !inside;
+        }
+      }
+      last = i;
+    }
+    return inside;
+  }
+
+  /**
+   * Creates a polygon positioned where its vertices are.
+   *
+   * @param coordinates The x and y coordinates of each
+   *                    vertex in turn.
+   * @return ArbitrarySimplePolygon, the polygon.
+   */
+  private static ArbitrarySimplePolygon polygon(int... coordinates) {
+    ArbitrarySimplePolygon.StreamBuilder builder = new ArbitrarySimplePolygon.StreamBuilder();
+    for (int i = 0; i < coordinates.length; i += 2) {
+      builder.addVertex(coordinates[i], coordinates[i+1]);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a star, alternating between an inner and outer
+   * radius, which is concave at every inner vertex.
+   *
+   * @param x         The x coordinate of the top left corner
+   *                  of the star's bounds.
+   * @param y         The y coordinate of the top left corner
+   *                  of the star's bounds.
+   * @param inner     The inner radius.
+   * @param outer     The outer radius.
+   * @param numPoints The number of vertices.
+   * @return ArbitrarySimplePolygon, the star.
+   */
+  private static ArbitrarySimplePolygon star(int x, int y, int inner, int outer, int numPoints) {
+    ArbitrarySimplePolygon.StreamBuilder builder = new ArbitrarySimplePolygon.StreamBuilder();
+    for (int i = 0; i < numPoints; ++i) {
+      double angle = 2*Math.PI*i/numPoints;
+      int radius = ((i%2) == 0) ? outer : inner;
+      builder.addVertex(
+        (int)Math.round(radius*Math.cos(angle)),
+        (int)Math.round(radius*Math.sin(angle))
+      );
+    }
+    return builder.withPosition(x, y).build();
+  }
+
+  /**
+   * Copies the vertices of a polygon.
+   *
+   * @param polygon The polygon.
+   * @return java.awt.Point[], the vertices.
+   */
+  private static java.awt.Point[] copyVertices(ArbitrarySimplePolygon polygon) {
+    Polygon vertices = polygon.getAwtPolygon();
+    java.awt.Point[] points = new java.awt.Point[vertices.npoints];
+    for (int i = 0; i < points.length; ++i) {
+      points[i] = new java.awt.Point(vertices.xpoints[i], vertices.ypoints[i]);
+    }
+    return points;
+  }
+}
@@ -0,0 +1,251 @@
+package shapes;
+
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@code PolygonClipper} against
+ * {@code java.awt.geom.Area} on small random scenes of
+ * overlapping polygons and ellipses: that every operation
+ * covers the same points as {@code Area} away from the
+ * outlines of the inputs, where rounding the results to
+ * integer vertices cannot matter, and has about the same
+ * area.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class PolygonClipperTest {
+  /** The number of random scenes combined. */
+  private static final int NUM_SCENES = 40;
+  /** The distance between the points checked. */
+  private static final int GRID_STEP = 3;
+  /**
+   * How close to an input's outline a point may be and still
+   * be checked. Vertices are rounded by up to a unit, and
+   * ellipses are flattened to within half a unit.
+   */
+  private static final double MARGIN = 2;
+  /** How flat outlines are made to measure them. */
+  private static final double FLATNESS = 0.01;
+
+  /**
+   * Prevents {@code PolygonClipperTest} from being
+   * instantiated.
+   */
+  private PolygonClipperTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    for (PolygonClipper.Operation operation : PolygonClipper.Operation.values()) {
+      Checks.run(
+        operation+" against Area",
+        () -> PolygonClipperTest.testAgainstArea(operation)
+      );
+    }
+    Checks.run("disjoint intersection", PolygonClipperTest::testDisjointIntersection);
+  }
+
+  /**
+   * Checks an operation on random scenes of two to four
+   * overlapping shapes against the same operation with
+   * {@code Area}.
+   *
+   * @param operation The operation to check.
+   */
+  private static void testAgainstArea(PolygonClipper.Operation operation) {
+    PolygonClipper clipper = new PolygonClipper();
+    for (int seed = 0; seed < PolygonClipperTest.NUM_SCENES; ++seed) {
+      List<Shape> scene = Arrays.asList(
+        new SceneGenerator(new ShapeFactory(), seed)
+          .withArea(0, 0, 120, 120)
+          .withSizeRange(20, 90)
+          .generate(0, 2+seed%3)
+      );
+      String name = operation+" of scene "+seed;
+
+      Area expected = PolygonClipperTest.toArea(scene.get(0));
+      for (Shape shape : scene.subList(1, scene.size())) {
+        Area area = PolygonClipperTest.toArea(shape);
+        switch (operation) {
+          case UNION:
+            expected.add(area);
+            break;
+          case INTERSECTION:
+            expected.intersect(area);
+            break;
+          case DIFFERENCE:
+            expected.subtract(area);
+            break;
+          default:
+            expected.exclusiveOr(area);
+            break;
+        }
+      }
+      List<ArbitrarySimplePolygon> result = clipper.apply(operation, scene);
+
+      double expectedArea = PolygonClipperTest.measure(expected, true);
+      double area = 0;
+      for (ArbitrarySimplePolygon polygon : result) {
+        area += polygon.getArea();
+      }
+      double tolerance = PolygonClipperTest.measure(expected, false)+1;
+      Checks.check(
+        Math.abs(area-expectedArea) <= tolerance,
+        name+" area: expected "+expectedArea+" but was "+area
+      );
+
+      List<java.awt.Shape> outlines = new ArrayList<>();
+      for (Shape shape : scene) {
+        outlines.add(PolygonClipperTest.toAwtShape(shape));
+      }
+      for (int x = -100; x <= 220; x += PolygonClipperTest.GRID_STEP) {
+        for (int y = -220; y <= 100; y += PolygonClipperTest.GRID_STEP) {
+          if (PolygonClipperTest.isNearOutline(outlines, x, y)) {
+            continue;
+          }
+          boolean covered = false;
+          for (ArbitrarySimplePolygon polygon : result) {
+            covered |= polygon.contains(x, y);
+          }
+          Checks.checkEqual(expected.contains(x, y), covered, name+" covers ("+x+", "+y+")");
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that the intersection of shapes which do not touch
+   * is empty.
+   */
+  private static void testDisjointIntersection() {
+    ShapeFactory factory = new ShapeFactory();
+    Shape left = factory.getBuilder("Square", "Lengths")
+      .withArg("Base Length", 10)
+      .build();
+    Shape right = factory.getBuilder("Circle", "Lengths")
+      .withArg("Diameter", 10)
+      .withPosition(20, 0)
+      .build();
+    Checks.checkEqual(
+      0,
+      new PolygonClipper().intersection(Arrays.asList(left, right)).size(),
+      "polygons in the intersection"
+    );
+  }
+
+  /**
+   * Gets the outline of a {@code Shape} as a
+   * {@code java.awt.Shape}, in the same coordinates as its
+   * vertices.
+   *
+   * @param shape The polygon or ellipse.
+   * @return java.awt.Shape, its outline.
+   */
+  private static java.awt.Shape toAwtShape(Shape shape) {
+    if (shape instanceof Ellipse) {
+      Ellipse ellipse = (Ellipse)shape;
+      return new Ellipse2D.Double(
+        ellipse.getX(),
+        ellipse.getY()-ellipse.getHeight(),
+        ellipse.getWidth(),
+        ellipse.getHeight()
+      );
+    }
+    return ((ArbitrarySimplePolygon)shape).getAwtPolygon();
+  }
+
+  /**
+   * Gets the region covered by a {@code Shape}.
+   *
+   * @param shape The polygon or ellipse.
+   * @return Area, the region it covers.
+   */
+  private static Area toArea(Shape shape) {
+    return new Area(PolygonClipperTest.toAwtShape(shape));
+  }
+
+  /**
+   * Measures the area or the length of the outline of a
+   * region, from its outline flattened to line segments.
+   *
+   * @param region The region.
+   * @param area   Whether to measure the area rather than
+   *               the length of the outline.
+   * @return double, the area or length.
+   */
+  private static double measure(Area region, boolean area) {
+    double sum = 0;
+    double[] coords = new double[6];
+    double startX = 0;
+    double startY = 0;
+    double lastX = 0;
+    double lastY = 0;
+    PathIterator path = region.getPathIterator(null, PolygonClipperTest.FLATNESS);
+    for (; !path.isDone(); path.next()) {
+      int type = path.currentSegment(coords);
+      double x = coords[0];
+      double y = coords[1];
+      if (type == PathIterator.SEG_MOVETO) {
+        startX = x;
+        startY = y;
+      } else {
+        if (type == PathIterator.SEG_CLOSE) {
+          x = startX;
+          y = startY;
+        }
+        sum += area ? (lastX*y-x*lastY)/2 : Math.hypot(x-lastX, y-lastY);
+      }
+      lastX = x;
+      lastY = y;
+    }
+    // outer rings and holes wind in opposite directions
+    return Math.abs(sum);
+  }
+
+  /**
+   * Checks whether a point is close to any of the given
+   * outlines.
+   *
+   * @param outlines The outlines.
+   * @param x        The x coordinate of the point.
+   * @param y        The y coordinate of the point.
+   * @return boolean, whether the point is within
+   *         {@code MARGIN} of an outline.
+   */
+  private static boolean isNearOutline(List<java.awt.Shape> outlines, int x, int y) {
+    double[] coords = new double[6];
+    for (java.awt.Shape outline : outlines) {
+      double startX = 0;
+      double startY = 0;
+      double lastX = 0;
+      double lastY = 0;
+      PathIterator path = outline.getPathIterator(null, PolygonClipperTest.FLATNESS);
+      for (; !path.isDone(); path.next()) {
+        int type = path.currentSegment(coords);
+        double toX = (type == PathIterator.SEG_CLOSE) ? startX : coords[0];
+        double toY = (type == PathIterator.SEG_CLOSE) ? startY : coords[1];
+        if (type == PathIterator.SEG_MOVETO) {
+          startX = toX;
+          startY = toY;
+        } else if (Line2D.ptSegDist(lastX, lastY, toX, toY, x, y) <= PolygonClipperTest.MARGIN) {
+          return true;
+        }
+        lastX = toX;
+        lastY = toY;
+      }
+    }
+    return false;
+  }
+}
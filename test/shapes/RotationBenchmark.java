@@ -0,0 +1,211 @@
+package shapes;
+
+import java.util.SplittableRandom;
+
+/**
+ * Compares the rotation kernel {@code PolygonMetrics} uses
+ * with its scalar loop on large polygons: first that they
+ * give exactly the same vertices, including at the halves
+ * where rounding is decided and past the range of
+ * {@code int}, and then how long each takes to rotate a
+ * polygon a leaf at a time, as
+ * {@code PolygonMetrics.rotate} does.
+ * <p>
+ * The vector kernel is only used with the
+ * {@code jdk.incubator.vector} module, so run it both ways,
+ * from the root of the project:
+ * <pre>
+ * javac -d out src/*.java src/shapes/*.java src/geometrygraphics/*.java
+ * javac --add-modules jdk.incubator.vector -cp out -d out src-vector/shapes/*.java
+ * javac -cp out -d out-test test/shapes/*.java
+ * java --add-modules jdk.incubator.vector -cp out:out-test shapes.RotationBenchmark
+ * java -cp out:out-test shapes.RotationBenchmark
+ * </pre>
+ * Without the module, both timings are of the scalar loop.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class RotationBenchmark {
+  /**
+   * The number of vertices of each polygon rotated, largest
+   * first, so the kernels are compiled before the small
+   * polygons are timed.
+   */
+  private static final int[] SIZES = {1 << 20, 1 << 16, 1 << 12};
+  /** The number of vertices in each leaf, as rotated. */
+  private static final int LEAF_SIZE = 1 << 12;
+  /** The largest coordinate, so no rotation overflows. */
+  private static final int MAX_COORDINATE = 1 << 29;
+  /** The number of times each polygon is timed. */
+  private static final int NUM_RUNS = 20;
+  /** The number of runs before timing, to warm up the JIT. */
+  private static final int NUM_WARMUP_RUNS = 20;
+
+  /**
+   * Prevents {@code RotationBenchmark} from being
+   * instantiated.
+   */
+  private RotationBenchmark() {
+  }
+
+  /**
+   * Runs the comparison and the benchmark.
+   *
+   * @param args Not used.
+   * @throws Exception If the kernels disagree.
+   */
+  public static void main(String[] args) throws Exception {
+    RotationKernel kernel = PolygonMetrics.getRotationKernel();
+    System.out.println("kernel: "+kernel.getClass().getName());
+    Checks.run("same vertices", () -> RotationBenchmark.testSameVertices(kernel));
+    for (int size : RotationBenchmark.SIZES) {
+      RotationBenchmark.benchmark(kernel, size);
+    }
+  }
+
+  /**
+   * Checks that the kernel rotates random vertices,
+   * vertices rotated onto halves, and vertices rotated past
+   * the range of {@code int}, to the same place as the
+   * scalar loop, over ranges which do not fill a whole
+   * vector.
+   *
+   * @param kernel The kernel to check.
+   */
+  private static void testSameVertices(RotationKernel kernel) {
+    SplittableRandom random = new SplittableRandom(29);
+    int n = 1000;
+    for (int angle = 0; angle < 360; angle += 7) {
+      double sinT = Math.sin(Math.toRadians(angle));
+      double cosT = Math.cos(Math.toRadians(angle));
+      int[] xs = new int[n];
+      int[] ys = new int[n];
+      for (int i = 0; i < n; ++i) {
+        int bound = (i%2 == 0) ? 100 : RotationBenchmark.MAX_COORDINATE;
+        xs[i] = random.nextInt(-bound, bound);
+        ys[i] = random.nextInt(-bound, bound);
+      }
+      int from = angle%5;
+      int to = n-angle%11;
+      RotationBenchmark.checkSameRotation(kernel, xs, ys, from, to, sinT, cosT, "angle "+angle);
+    }
+
+    // a scale of a half puts every odd coordinate on a half,
+    // positive and negative
+    int[] xs = new int[n];
+    int[] ys = new int[n];
+    for (int i = 0; i < n; ++i) {
+      xs[i] = i-n/2;
+      ys[i] = n/2-i;
+    }
+    RotationBenchmark.checkSameRotation(kernel, xs, ys, 0, n, 0, 0.5, "halves");
+
+    // corners of the range of int end up outside it when
+    // rotated, and wrap
+    for (int i = 0; i < n; ++i) {
+      xs[i] = (i%2 == 0) ? Integer.MAX_VALUE-i : Integer.MIN_VALUE+i;
+      ys[i] = (i%3 == 0) ? Integer.MAX_VALUE-i : Integer.MIN_VALUE+i;
+    }
+    double sinT = Math.sin(Math.toRadians(45));
+    double cosT = Math.cos(Math.toRadians(45));
+    RotationBenchmark.checkSameRotation(kernel, xs, ys, 0, n, sinT, cosT, "past the range of int");
+  }
+
+  /**
+   * Checks that the kernel and the scalar loop rotate the
+   * same range of copies of the given vertices to the same
+   * place, and leave the rest alone.
+   *
+   * @param kernel  The kernel to check.
+   * @param xs      The x coordinates of the vertices.
+   * @param ys      The y coordinates of the vertices.
+   * @param from    The first vertex (inclusive) to rotate.
+   * @param to      The last vertex (exclusive) to rotate.
+   * @param sinT    The sine of the angle to rotate by.
+   * @param cosT    The cosine of the angle to rotate by.
+   * @param message What was rotated.
+   */
+  private static void checkSameRotation(
+    RotationKernel kernel,
+    int[] xs,
+    int[] ys,
+    int from,
+    int to,
+    double sinT,
+    double cosT,
+    String message
+  ) {
+    int[] expectedXs = xs.clone();
+    int[] expectedYs = ys.clone();
+    PolygonMetrics.rotateRange(expectedXs, expectedYs, from, to, sinT, cosT);
+    int[] actualXs = xs.clone();
+    int[] actualYs = ys.clone();
+    kernel.rotateRange(actualXs, actualYs, from, to, sinT, cosT);
+    for (int i = 0; i < xs.length; ++i) {
+      Checks.checkEqual(expectedXs[i], actualXs[i], message+" x of vertex "+i);
+      Checks.checkEqual(expectedYs[i], actualYs[i], message+" y of vertex "+i);
+    }
+  }
+
+  /**
+   * Times rotating a random polygon of the given size with
+   * the kernel and with the scalar loop, and prints the best
+   * time per vertex of each.
+   *
+   * @param kernel The kernel to time.
+   * @param n      The number of vertices.
+   */
+  private static void benchmark(RotationKernel kernel, int n) {
+    SplittableRandom random = new SplittableRandom(n);
+    int[] xs = new int[n];
+    int[] ys = new int[n];
+    for (int i = 0; i < n; ++i) {
+      xs[i] = random.nextInt(-RotationBenchmark.MAX_COORDINATE, RotationBenchmark.MAX_COORDINATE);
+      ys[i] = random.nextInt(-RotationBenchmark.MAX_COORDINATE, RotationBenchmark.MAX_COORDINATE);
+    }
+    long scalarNanos = RotationBenchmark.time(PolygonMetrics::rotateRange, xs, ys);
+    long kernelNanos = RotationBenchmark.time(kernel, xs, ys);
+    System.out.printf(
+      "%8d vertices: scalar %.2f ns/vertex, kernel %.2f ns/vertex, %.2fx%n",
+      n,
+      scalarNanos/(double)n,
+      kernelNanos/(double)n,
+      scalarNanos/(double)kernelNanos
+    );
+  }
+
+  /**
+   * Times rotating copies of the given vertices a leaf at a
+   * time, by a different angle each run.
+   *
+   * @param kernel The kernel to time.
+   * @param xs     The x coordinates of the vertices.
+   * @param ys     The y coordinates of the vertices.
+   * @return long, the fastest run in nanoseconds.
+   */
+  private static long time(RotationKernel kernel, int[] xs, int[] ys) {
+    int n = xs.length;
+    int[] rotatedXs = new int[n];
+    int[] rotatedYs = new int[n];
+    long best = Long.MAX_VALUE;
+    int numRuns = RotationBenchmark.NUM_WARMUP_RUNS+RotationBenchmark.NUM_RUNS;
+    for (int run = 0; run < numRuns; ++run) {
+      double angle = Math.toRadians(run+1);
+      double sinT = Math.sin(angle);
+      double cosT = Math.cos(angle);
+      System.arraycopy(xs, 0, rotatedXs, 0, n);
+      System.arraycopy(ys, 0, rotatedYs, 0, n);
+      long start = System.nanoTime();
+      for (int from = 0; from < n; from += RotationBenchmark.LEAF_SIZE) {
+        int to = Math.min(n, from+RotationBenchmark.LEAF_SIZE);
+        kernel.rotateRange(rotatedXs, rotatedYs, from, to, sinT, cosT);
+      }
+      long nanos = System.nanoTime()-start;
+      if (run >= RotationBenchmark.NUM_WARMUP_RUNS) {
+        best = Math.min(best, nanos);
+      }
+    }
+    return best;
+  }
+}
@@ -0,0 +1,261 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@code SceneCoverage} against
+ * {@code java.awt.geom.Area}: that the area covered by
+ * random scenes of overlapping shapes, in whole and within
+ * a region, is the area of their union, that a polygon
+ * whose edges cross covers what {@code java.awt.Polygon}
+ * does, and that scenes billions of units tall are measured
+ * straight away.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class SceneCoverageTest {
+  /** The number of random scenes measured. */
+  private static final int NUM_SCENES = 20;
+  /** The number of shapes in each random scene. */
+  private static final int NUM_SHAPES = 60;
+  /**
+   * The relative error allowed for scenes of polygons, which
+   * is only rounding.
+   */
+  private static final double POLYGON_TOLERANCE = 1e-9;
+  /**
+   * The relative error allowed for scenes with ellipses,
+   * which {@code Area} approximates with cubic curves.
+   */
+  private static final double ELLIPSE_TOLERANCE = 1e-3;
+  /** How flat outlines are made to measure them. */
+  private static final double FLATNESS = 1e-4;
+
+  /**
+   * Prevents {@code SceneCoverageTest} from being
+   * instantiated.
+   */
+  private SceneCoverageTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("polygons against Area", () -> SceneCoverageTest.testAgainstArea(false));
+    Checks.run("polygons and ellipses against Area", () -> SceneCoverageTest.testAgainstArea(true));
+    Checks.run("empty scenes", SceneCoverageTest::testEmpty);
+    Checks.run("crossing edges", SceneCoverageTest::testCrossingEdges);
+    Checks.run("tall scenes", SceneCoverageTest::testTallScenes);
+  }
+
+  /**
+   * Checks the covered area of random scenes, and of a
+   * region of each, against the area of the union found
+   * with {@code Area}.
+   *
+   * @param ellipses Whether the scenes have ellipses too.
+   */
+  private static void testAgainstArea(boolean ellipses) {
+    java.awt.Rectangle region = new java.awt.Rectangle(-50, 70, 130, 90);
+    Area regionArea = new Area(new Rectangle2D.Double(-50, 70-90, 130, 90));
+    double tolerance = ellipses
+      ? SceneCoverageTest.ELLIPSE_TOLERANCE
+      : SceneCoverageTest.POLYGON_TOLERANCE;
+    for (int seed = 0; seed < SceneCoverageTest.NUM_SCENES; ++seed) {
+      SceneGenerator generator = new SceneGenerator(new ShapeFactory(), seed)
+        .withArea(-200, 200, 400, 400)
+        .withSizeRange(5, 80);
+      if (!ellipses) {
+        generator
+          .withType("Square", "Lengths", 1)
+          .withType("Rectangle", "Lengths", 1)
+          .withType("Triangle", "SAS", 1)
+          .withType("Rhombus", "Angle", 1)
+          .withType("Parallelogram", "Angle", 1)
+          .withType("Trapezoid", "Angle", 1);
+      }
+      List<Shape> scene = Arrays.asList(generator.generate(0, SceneCoverageTest.NUM_SHAPES));
+
+      Area union = new Area();
+      for (Shape shape : scene) {
+        union.add(SceneCoverageTest.toArea(shape));
+      }
+      SceneCoverageTest.checkClose(
+        SceneCoverageTest.measure(union),
+        SceneCoverage.coveredArea(scene),
+        tolerance,
+        "scene "+seed
+      );
+      union.intersect(regionArea);
+      SceneCoverageTest.checkClose(
+        SceneCoverageTest.measure(union),
+        SceneCoverage.coveredArea(scene, region),
+        tolerance,
+        "region of scene "+seed
+      );
+    }
+  }
+
+  /**
+   * Checks that nothing, and a region with nothing in it,
+   * covers no area.
+   */
+  private static void testEmpty() {
+    Checks.checkEqual(0.0, SceneCoverage.coveredArea(Collections.emptyList()), "no shapes");
+    Shape square = new ShapeFactory().getBuilder("Square", "Lengths")
+      .withArg("Base Length", 10)
+      .build();
+    Checks.checkEqual(
+      0.0,
+      SceneCoverage.coveredArea(Arrays.asList(square), new java.awt.Rectangle(20, 0, 5, 5)),
+      "region beside the shape"
+    );
+  }
+
+  /**
+   * Checks that a bow tie, a square whose vertices are joined
+   * in the wrong order, covers its two triangles, alone and
+   * under a square covering half of it.
+   */
+  private static void testCrossingEdges() {
+    Point[] vertices = {new Point(0, 0), new Point(10, 10), new Point(10, 0), new Point(0, 10)};
+    Shape bowTie = new ArbitrarySimplePolygon(0, 10, Color.BLACK, vertices, 0);
+    Checks.checkEqual(50.0, SceneCoverage.coveredArea(Arrays.asList(bowTie)), "bow tie");
+    Shape square = new ShapeFactory().getBuilder("Square", "Lengths")
+      .withArg("Base Length", 5)
+      .withPosition(0, 10)
+      .build();
+    SceneCoverageTest.checkClose(
+      62.5,
+      SceneCoverage.coveredArea(Arrays.asList(bowTie, square)),
+      SceneCoverageTest.POLYGON_TOLERANCE,
+      "bow tie under a square"
+    );
+  }
+
+  /**
+   * Checks scenes far taller than they could be swept a unit
+   * at a time: a rectangle 10^8 units tall, a rectangle
+   * 2*10^9 units tall, and a circle as wide, both alone and
+   * overlapping.
+   */
+  private static void testTallScenes() {
+    ShapeFactory factory = new ShapeFactory();
+    Shape tall = factory.getBuilder("Rectangle", "Lengths")
+      .withArg("Base Length", 10)
+      .withArg("Height", 100000000)
+      .build();
+    Checks.checkEqual(1e9, SceneCoverage.coveredArea(Arrays.asList(tall)), "10^8 tall rectangle");
+
+    Shape taller = factory.getBuilder("Rectangle", "Lengths")
+      .withArg("Base Length", 2)
+      .withArg("Height", 2000000000)
+      .withPosition(-1000000000, 0)
+      .build();
+    Checks.checkEqual(4e9, SceneCoverage.coveredArea(Arrays.asList(taller)), "2*10^9 tall rectangle");
+
+    // the rectangle is centred on the circle's left edge, so
+    // half of it is outside
+    Shape circle = factory.getBuilder("Circle", "Lengths")
+      .withArg("Diameter", 2000000000)
+      .withPosition(-1000000001, 0)
+      .build();
+    SceneCoverageTest.checkClose(
+      Math.PI*1e18,
+      SceneCoverage.coveredArea(Arrays.asList(circle)),
+      1e-12,
+      "2*10^9 wide circle"
+    );
+    double covered = SceneCoverage.coveredArea(Arrays.asList(circle, taller));
+    Checks.check(
+      (covered > Math.PI*1e18) && (covered < Math.PI*1e18+4e9),
+      "circle and rectangle: "+covered
+    );
+  }
+
+  /**
+   * Checks that a covered area is close to the expected
+   * area.
+   *
+   * @param expected  The expected area.
+   * @param actual    The covered area.
+   * @param tolerance The relative error allowed.
+   * @param message   What was measured.
+   */
+  private static void checkClose(double expected, double actual, double tolerance, String message) {
+    Checks.check(
+      Math.abs(actual-expected) <= tolerance*Math.max(expected, 1),
+      message+": expected "+expected+" but was "+actual
+    );
+  }
+
+  /**
+   * Gets the region covered by a {@code Shape}.
+   *
+   * @param shape The polygon or ellipse.
+   * @return Area, the region it covers.
+   */
+  private static Area toArea(Shape shape) {
+    if (shape instanceof Ellipse) {
+      Ellipse ellipse = (Ellipse)shape;
+      return new Area(
+        new Ellipse2D.Double(
+          ellipse.getX(),
+          ellipse.getY()-ellipse.getHeight(),
+          ellipse.getWidth(),
+          ellipse.getHeight()
+        )
+      );
+    }
+    return new Area(((ArbitrarySimplePolygon)shape).getAwtPolygon());
+  }
+
+  /**
+   * Measures the area of a region with the shoelace formula
+   * over its outline, flattened to line segments.
+   *
+   * @param region The region.
+   * @return double, its area.
+   */
+  private static double measure(Area region) {
+    double sum = 0;
+    double[] coords = new double[6];
+    double startX = 0;
+    double startY = 0;
+    double lastX = 0;
+    double lastY = 0;
+    PathIterator path = region.getPathIterator(null, SceneCoverageTest.FLATNESS);
+    for (; !path.isDone(); path.next()) {
+      int type = path.currentSegment(coords);
+      double x = coords[0];
+      double y = coords[1];
+      if (type == PathIterator.SEG_MOVETO) {
+        startX = x;
+        startY = y;
+      } else {
+        if (type == PathIterator.SEG_CLOSE) {
+          x = startX;
+          y = startY;
+        }
+        sum += (lastX*y-x*lastY)/2;
+      }
+      lastX = x;
+      lastY = y;
+    }
+    // outer rings and holes wind in opposite directions
+    return Math.abs(sum);
+  }
+}
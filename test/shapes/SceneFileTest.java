@@ -0,0 +1,615 @@
+package shapes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests the binary scene file format: that every kind of
+ * {@code Shape} survives a round trip through
+ * {@code SceneFileWriter} and {@code SceneFileReader}, that
+ * the index and trailer of an indexed file match its blocks
+ * and can be read by a {@code MappedScene}, and that corrupt
+ * input is rejected with an {@code IOException} rather than
+ * any other exception.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class SceneFileTest {
+  /** The number of shapes in a scene of several blocks. */
+  private static final int LARGE_SCENE = 10000;
+
+  /**
+   * Prevents {@code SceneFileTest} from being instantiated.
+   */
+  private SceneFileTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("round trip of every shape type", SceneFileTest::testRoundTrip);
+    Checks.run("round trip of an empty scene", SceneFileTest::testEmptyScene);
+    Checks.run("round trip across blocks", SceneFileTest::testRoundTripAcrossBlocks);
+    Checks.run("index and trailer", SceneFileTest::testIndexAndTrailer);
+    Checks.run("mapped scene", SceneFileTest::testMappedScene);
+    Checks.run("mapped scene rejects plain files", SceneFileTest::testMappedSceneRejectsPlainFile);
+    Checks.run("mapped scene rejects a corrupt index", SceneFileTest::testCorruptIndex);
+    Checks.run("corrupt headers", SceneFileTest::testCorruptHeaders);
+    Checks.run("corrupt records", SceneFileTest::testCorruptRecords);
+    Checks.run("truncated files", SceneFileTest::testTruncated);
+    Checks.run("random corruption", SceneFileTest::testRandomCorruption);
+  }
+
+  /**
+   * Checks that a scene of every shape type, including
+   * polygons which share an outline and shapes far from the
+   * origin, is read back exactly as it was written.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testRoundTrip() throws IOException {
+    List<Shape> scene = SceneFileTest.createScene(500, 1);
+    boolean[] types = new boolean[SceneFile.SQUARE+1];
+    for (Shape shape : scene) {
+      types[SceneFile.getType(shape)] = true;
+    }
+    for (int type = SceneFile.CIRCLE; type <= SceneFile.SQUARE; ++type) {
+      Checks.check(types[type], "no shape of type "+type+" in the scene");
+    }
+    for (boolean indexed : new boolean[] {false, true}) {
+      byte[] file = SceneFileTest.write(scene, indexed);
+      SceneFileReader reader = SceneFileTest.reader(file);
+      Checks.checkEqual((int)SceneFile.VERSION, reader.getVersion(), "version");
+      List<Shape> read = SceneFileTest.readAll(reader);
+      SceneFileTest.checkSameScene(scene, read);
+      if (!indexed) {
+        // the index is not needed to read the file in order
+        Checks.checkEqual((long)file.length, reader.getByteCount(), "bytes read");
+      }
+      Checks.checkEqual((long)scene.size(), reader.getShapeCount(), "shapes read");
+      Checks.check(reader.readBlock() == null, "read past the end");
+    }
+  }
+
+  /**
+   * Checks that a scene with no shapes is just a header and
+   * an empty block.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testEmptyScene() throws IOException {
+    byte[] file = SceneFileTest.write(new ArrayList<>(), false);
+    Checks.checkEqual(
+      SceneFile.HEADER_BYTES+SceneFile.BLOCK_HEADER_BYTES,
+      file.length,
+      "empty file length"
+    );
+    Checks.check(SceneFileTest.reader(file).readBlock() == null, "empty file has a block");
+  }
+
+  /**
+   * Checks that a scene of several blocks is read back
+   * exactly, block by block.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testRoundTripAcrossBlocks() throws IOException {
+    List<Shape> scene = SceneFileTest.createScene(SceneFileTest.LARGE_SCENE, 2);
+    for (boolean indexed : new boolean[] {false, true}) {
+      SceneFileReader reader = SceneFileTest.reader(SceneFileTest.write(scene, indexed));
+      int numBlocks = 0;
+      List<Shape> read = new ArrayList<>();
+      List<Shape> block;
+      while ((block = reader.readBlock()) != null) {
+        ++numBlocks;
+        read.addAll(block);
+      }
+      Checks.check(numBlocks > 1, "only "+numBlocks+" block");
+      SceneFileTest.checkSameScene(scene, read);
+    }
+  }
+
+  /**
+   * Checks the layout of an indexed file: the header flag,
+   * the trailer, and that each index entry gives the offset,
+   * length, count, and bounds of its block.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testIndexAndTrailer() throws IOException {
+    List<Shape> scene = SceneFileTest.createScene(SceneFileTest.LARGE_SCENE, 3);
+    ByteBuffer file = ByteBuffer.wrap(SceneFileTest.write(scene, true));
+    Checks.checkEqual(SceneFile.MAGIC, file.getInt(0), "magic");
+    Checks.checkEqual(SceneFile.VERSION, file.getShort(4), "version");
+    Checks.checkEqual(SceneFile.INDEXED, file.getShort(6), "flags");
+
+    int trailer = file.limit()-SceneFile.TRAILER_BYTES;
+    long indexOffset = file.getLong(trailer);
+    int numBlocks = file.getInt(trailer+8);
+    Checks.checkEqual(SceneFile.MAGIC, file.getInt(trailer+12), "trailer magic");
+    Checks.checkEqual(
+      (long)trailer,
+      indexOffset+(long)SceneFile.INDEX_ENTRY_BYTES*numBlocks,
+      "index length"
+    );
+
+    long blockOffset = SceneFile.HEADER_BYTES;
+    int first = 0;
+    for (int i = 0; i < numBlocks; ++i) {
+      int entry = (int)indexOffset+i*SceneFile.INDEX_ENTRY_BYTES;
+      Checks.checkEqual(blockOffset, file.getLong(entry), "offset of block "+i);
+      int length = file.getInt(entry+8);
+      int count = file.getInt(entry+12);
+      Checks.checkEqual(length, file.getInt((int)blockOffset), "length of block "+i);
+      Checks.checkEqual(count, file.getInt((int)blockOffset+4), "count of block "+i);
+
+      java.awt.Rectangle blockBounds = new java.awt.Rectangle(
+        file.getInt(entry+16),
+        file.getInt(entry+20),
+        file.getInt(entry+24),
+        file.getInt(entry+28)
+      );
+      int boundsStart = (int)blockOffset+SceneFile.BLOCK_HEADER_BYTES;
+      for (int j = 0; j < count; ++j) {
+        int start = boundsStart+j*SceneFile.BOUNDS_BYTES;
+        java.awt.Rectangle bounds = new java.awt.Rectangle(
+          file.getInt(start),
+          file.getInt(start+4),
+          file.getInt(start+8),
+          file.getInt(start+12)
+        );
+        Shape shape = scene.get(first+j);
+        Checks.checkEqual(shape.getBounds(), bounds, "bounds of shape "+(first+j));
+        Checks.check(
+          (bounds.x >= blockBounds.x)
+          && (bounds.y <= blockBounds.y)
+          && ((long)bounds.x+bounds.width <= (long)blockBounds.x+blockBounds.width)
+          && ((long)bounds.y-bounds.height >= (long)blockBounds.y-blockBounds.height),
+          "shape "+(first+j)+" is outside the bounds of block "+i
+        );
+      }
+      first += count;
+      blockOffset += SceneFile.BLOCK_HEADER_BYTES+length;
+    }
+    Checks.checkEqual(scene.size(), first, "shapes in the index");
+
+    // the empty block comes between the last block and the index
+    Checks.checkEqual(indexOffset, blockOffset+SceneFile.BLOCK_HEADER_BYTES, "index offset");
+    Checks.checkEqual(0, file.getInt((int)blockOffset+4), "count of the end block");
+  }
+
+  /**
+   * Checks that a {@code MappedScene} finds every shape and
+   * its bounds through the index, and that a scene written
+   * from it leaves out removed shapes.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testMappedScene() throws IOException {
+    List<Shape> scene = SceneFileTest.createScene(SceneFileTest.LARGE_SCENE, 4);
+    Path path = Files.createTempFile("scene", ".shps");
+    try {
+      Files.write(path, SceneFileTest.write(scene, true));
+      try (MappedScene mapped = new MappedScene(path, 2)) {
+        Checks.checkEqual((long)scene.size(), mapped.size(), "size");
+        long minX = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE;
+        long minY = Long.MAX_VALUE;
+        long maxY = Long.MIN_VALUE;
+        for (int i = 0; i < scene.size(); ++i) {
+          java.awt.Rectangle bounds = scene.get(i).getBounds();
+          Checks.checkEqual(bounds, mapped.getBounds(i), "bounds of shape "+i);
+          // y is up, so java.awt.Rectangle.union does not apply
+          minX = Math.min(minX, bounds.x);
+          maxX = Math.max(maxX, (long)bounds.x+bounds.width);
+          minY = Math.min(minY, (long)bounds.y-bounds.height);
+          maxY = Math.max(maxY, bounds.y);
+        }
+        Checks.checkEqual(
+          new java.awt.Rectangle((int)minX, (int)maxY, (int)(maxX-minX), (int)(maxY-minY)),
+          mapped.getBounds(),
+          "scene bounds"
+        );
+        // backwards, so blocks are evicted and read again
+        for (int i = scene.size()-1; i >= 0; i -= 7) {
+          Checks.checkSameShape(scene.get(i), mapped.get(i), "shape "+i);
+        }
+        Checks.check(mapped.getMaterialisedBlockCount() <= 2, "too many blocks kept");
+
+        List<Shape> kept = new ArrayList<>();
+        for (int i = 0; i < scene.size(); ++i) {
+          if ((i%3) == 0) {
+            Checks.check(mapped.remove(i), "shape "+i+" not removed");
+          } else {
+            kept.add(scene.get(i));
+          }
+        }
+        Checks.check(mapped.get(0) == null, "removed shape returned");
+        Checks.check(!mapped.remove(0), "shape removed twice");
+        Checks.checkEqual((long)kept.size(), mapped.size(), "size after removal");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SceneFileWriter writer = new SceneFileWriter(Channels.newChannel(out))) {
+          mapped.writeTo(writer);
+        }
+        SceneFileTest.checkSameScene(
+          kept,
+          SceneFileTest.readAll(SceneFileTest.reader(out.toByteArray()))
+        );
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Checks that a file without an index cannot be opened as a
+   * {@code MappedScene}.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testMappedSceneRejectsPlainFile() throws IOException {
+    Path path = Files.createTempFile("scene", ".shps");
+    try {
+      Files.write(path, SceneFileTest.write(SceneFileTest.createScene(100, 5), false));
+      Checks.checkThrows(IOException.class, () -> new MappedScene(path).close(), "plain file");
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Checks that a {@code MappedScene} rejects a file whose
+   * trailer or index has been damaged.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testCorruptIndex() throws IOException {
+    byte[] file = SceneFileTest.write(SceneFileTest.createScene(SceneFileTest.LARGE_SCENE, 6), true);
+    int trailer = file.length-SceneFile.TRAILER_BYTES;
+    long indexOffset = ByteBuffer.wrap(file).getLong(trailer);
+    // each change is the offset of a byte and the bits to flip
+    int[][] damage = {
+      // the trailer magic
+      {trailer+12, 0xFF},
+      // the index offset
+      {trailer+7, 1},
+      // the block count
+      {trailer+11, 1},
+      // the offset of the second block
+      {(int)indexOffset+SceneFile.INDEX_ENTRY_BYTES+7, 3},
+      // the count of the first block
+      {(int)indexOffset+12, 0xFF},
+      // the length of the last block
+      {(int)indexOffset+8, 0x7F}
+    };
+    Path path = Files.createTempFile("scene", ".shps");
+    try {
+      for (int[] change : damage) {
+        byte[] corrupt = file.clone();
+        corrupt[change[0]] ^= (byte)change[1];
+        Files.write(path, corrupt);
+        Checks.checkThrows(
+          StreamCorruptedException.class,
+          () -> new MappedScene(path).close(),
+          "damaged byte "+change[0]
+        );
+      }
+    } finally {
+      Files.delete(path);
+    }
+  }
+
+  /**
+   * Checks that a header with the wrong magic number or an
+   * unsupported version, and block headers with impossible
+   * lengths or counts, are rejected.
+   */
+  private static void testCorruptHeaders() {
+    Checks.checkThrows(
+      StreamCorruptedException.class,
+      () -> SceneFileTest.reader(SceneFileTest.header(0x53485054, 2, 0)),
+      "wrong magic"
+    );
+    for (int version : new int[] {0, SceneFile.VERSION+1, -1}) {
+      Checks.checkThrows(
+        StreamCorruptedException.class,
+        () -> SceneFileTest.reader(SceneFileTest.header(SceneFile.MAGIC, version, 0)),
+        "version "+version
+      );
+    }
+    Checks.checkThrows(
+      StreamCorruptedException.class,
+      () -> SceneFileTest.reader(new byte[] {0x53, 0x48, 0x50}),
+      "short header"
+    );
+
+    int[][] blockHeaders = {
+      {-1, 1},
+      {16, -1},
+      // every record takes at least MIN_RECORD_BYTES
+      {16, 5},
+      {Integer.MAX_VALUE, Integer.MAX_VALUE},
+      // more bytes than the file has
+      {Integer.MAX_VALUE, 1}
+    };
+    for (int[] blockHeader : blockHeaders) {
+      ByteBuffer file = ByteBuffer.allocate(SceneFile.HEADER_BYTES+SceneFile.BLOCK_HEADER_BYTES+16);
+      file.put(SceneFileTest.header(SceneFile.MAGIC, SceneFile.VERSION, 0));
+      file.putInt(blockHeader[0]).putInt(blockHeader[1]);
+      Checks.checkThrows(
+        StreamCorruptedException.class,
+        () -> SceneFileTest.readAll(SceneFileTest.reader(file.array())),
+        "block header "+Arrays.toString(blockHeader)
+      );
+    }
+  }
+
+  /**
+   * Checks that records with an unknown type, colour code, or
+   * outline, an impossible number of vertices, an invalid
+   * dimension, or trailing bytes are rejected, and that the
+   * same record without the damage is accepted.
+   *
+   * @throws IOException If the valid record is rejected.
+   */
+  private static void testCorruptRecords() throws IOException {
+    ByteBuffer circle = SceneFileTest.record(SceneFile.CIRCLE, SceneFile.NEW_RGB, 4);
+    List<Shape> read = SceneFileTest.readAll(
+      SceneFileTest.reader(SceneFileTest.file(circle, circle))
+    );
+    Checks.checkEqual(2, read.size(), "valid records");
+    Checks.checkEqual(4, ((Circle)read.get(0)).getDiameter(), "diameter");
+    Checks.checkEqual(0xFF010203, read.get(1).getColor().getRGB(), "colour");
+
+    // a polygon with no outline of its own, then its vertices
+    ByteBuffer polygon = SceneFileTest.record(SceneFile.POLYGON, SceneFile.NEW_RGB, 0);
+    ByteBuffer hugePolygon = SceneFileTest.record(SceneFile.POLYGON, SceneFile.NEW_RGB, 0);
+    SceneFile.putVarint(hugePolygon, -1);
+    ByteBuffer longPolygon = SceneFileTest.record(SceneFile.POLYGON, SceneFile.NEW_RGB, 0);
+    SceneFile.putVarint(longPolygon, 1000);
+    ByteBuffer unknownOutline = SceneFileTest.record(SceneFile.POLYGON, SceneFile.NEW_RGB, 0);
+    SceneFile.putVarint(unknownOutline, 0);
+    SceneFile.putVarint(unknownOutline, 0);
+    ByteBuffer trailing = SceneFileTest.record(SceneFile.CIRCLE, SceneFile.NEW_RGB, 4);
+    trailing.put((byte)0);
+
+    Object[][] cases = {
+      {"unknown type", SceneFileTest.record(99, SceneFile.NEW_RGB, 4)},
+      {"type 0", SceneFileTest.record(0, SceneFile.NEW_RGB, 4)},
+      {"unseen colour", SceneFileTest.record(SceneFile.CIRCLE, SceneFile.FIRST_COLOUR, 4)},
+      {"negative colour", SceneFileTest.record(SceneFile.CIRCLE, -1, 4)},
+      {"zero diameter", SceneFileTest.record(SceneFile.CIRCLE, SceneFile.NEW_RGB, 0)},
+      {"negative diameter", SceneFileTest.record(SceneFile.CIRCLE, SceneFile.NEW_RGB, -5)},
+      {"negative vertex count", hugePolygon},
+      {"too many vertices", longPolygon},
+      {"unknown outline", unknownOutline},
+      {"missing outline", polygon},
+      {"trailing bytes", trailing}
+    };
+    for (Object[] c : cases) {
+      ByteBuffer record = (ByteBuffer)c[1];
+      Checks.checkThrows(
+        StreamCorruptedException.class,
+        () -> SceneFileTest.readAll(SceneFileTest.reader(SceneFileTest.file(record))),
+        (String)c[0]
+      );
+    }
+  }
+
+  /**
+   * Checks that every truncation of a file is rejected, rather
+   * than read as a shorter scene.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testTruncated() throws IOException {
+    byte[] file = SceneFileTest.write(SceneFileTest.createScene(20, 7), false);
+    for (int length = 0; length < file.length; ++length) {
+      byte[] truncated = Arrays.copyOf(file, length);
+      Checks.checkThrows(
+        StreamCorruptedException.class,
+        () -> SceneFileTest.readAll(SceneFileTest.reader(truncated)),
+        "truncated to "+length+" bytes"
+      );
+    }
+  }
+
+  /**
+   * Checks that randomly damaged files are either read or
+   * rejected with an {@code IOException}, and never fail in
+   * any other way.
+   *
+   * @throws IOException If the scene could not be written.
+   */
+  private static void testRandomCorruption() throws IOException {
+    byte[] file = SceneFileTest.write(SceneFileTest.createScene(200, 8), false);
+    Random random = new Random(8);
+    for (int i = 0; i < 5000; ++i) {
+      byte[] corrupt = file.clone();
+      int numChanges = 1+random.nextInt(4);
+      for (int j = 0; j < numChanges; ++j) {
+        corrupt[random.nextInt(corrupt.length)] = (byte)random.nextInt(256);
+      }
+      try {
+        SceneFileTest.readAll(SceneFileTest.reader(corrupt));
+      } catch (IOException e) {
+        // rejected, as it should be
+      } catch (RuntimeException | Error e) {
+        throw new AssertionError("damaged file "+i+" failed with "+e, e);
+      }
+    }
+  }
+
+  /**
+   * Creates a scene of every shape type, including polygons
+   * which share an outline and shapes far from the origin.
+   *
+   * @param count The number of generated shapes.
+   * @param seed  The seed of the scene.
+   * @return List&lt;Shape&gt;, the scene.
+   */
+  private static List<Shape> createScene(int count, long seed) {
+    List<Shape> scene = new ArrayList<>();
+    SceneGenerator generator = new SceneGenerator(new ShapeFactory(), seed)
+      .withArea(-100000, 100000, 200000, 200000);
+    scene.addAll(Arrays.asList(generator.generate(0, count)));
+
+    ArbitrarySimplePolygon polygon = new ArbitrarySimplePolygon.StreamBuilder()
+      .addVertex(0, 0)
+      .addVertex(40, 0)
+      .addVertex(40, -10)
+      .addVertex(10, -10)
+      .addVertex(10, -30)
+      .addVertex(0, -30)
+      .withColour(12, 34, 56)
+      .withRotation(30)
+      .withPosition(-1000000000, 1000000000)
+      .build();
+    Shape copy = polygon.copy();
+    copy.translate(1000, -1000);
+    scene.add(polygon);
+    scene.add(copy);
+    scene.add(new Circle(1000000000, -1000000000, polygon.getColor(), 1));
+    return scene;
+  }
+
+  /**
+   * Writes a scene to a byte array.
+   *
+   * @param scene   The shapes of the scene.
+   * @param indexed Whether to write an indexed file.
+   * @return byte[], the file.
+   * @throws IOException If the scene could not be written.
+   */
+  private static byte[] write(List<Shape> scene, boolean indexed) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (SceneFileWriter writer = new SceneFileWriter(Channels.newChannel(out), indexed)) {
+      writer.writeAll(scene);
+      Checks.checkEqual((long)scene.size(), writer.getShapeCount(), "shapes written");
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Creates a reader of a file in a byte array.
+   *
+   * @param file The file.
+   * @return SceneFileReader, the reader, with the header read.
+   * @throws IOException If the header is rejected.
+   */
+  private static SceneFileReader reader(byte[] file) throws IOException {
+    return new SceneFileReader(Channels.newChannel(new ByteArrayInputStream(file)));
+  }
+
+  /**
+   * Reads every shape of a file.
+   *
+   * @param reader The reader of the file.
+   * @return List&lt;Shape&gt;, the shapes read.
+   * @throws IOException If the file is rejected.
+   */
+  private static List<Shape> readAll(SceneFileReader reader) throws IOException {
+    List<Shape> shapes = new ArrayList<>();
+    reader.readAll(shapes::add);
+    return shapes;
+  }
+
+  /**
+   * Checks that the shapes read from a file are the shapes
+   * written to it, in the same order.
+   *
+   * @param expected The shapes written.
+   * @param actual   The shapes read.
+   */
+  private static void checkSameScene(List<Shape> expected, List<Shape> actual) {
+    Checks.checkEqual(expected.size(), actual.size(), "number of shapes");
+    for (int i = 0; i < expected.size(); ++i) {
+      Checks.checkSameShape(expected.get(i), actual.get(i), "shape "+i);
+    }
+  }
+
+  /**
+   * Creates a file header.
+   *
+   * @param magic   The magic number.
+   * @param version The version.
+   * @param flags   The flags.
+   * @return byte[], the header.
+   */
+  private static byte[] header(int magic, int version, int flags) {
+    return ByteBuffer.allocate(SceneFile.HEADER_BYTES)
+      .putInt(magic)
+      .putShort((short)version)
+      .putShort((short)flags)
+      .array();
+  }
+
+  /**
+   * Starts a record at the origin, with the colour 1, 2, 3 if
+   * the colour code is for a new colour.
+   *
+   * @param type       The type tag.
+   * @param colourCode The colour code.
+   * @param dimension  The first dimension, or for polygons,
+   *                   the rotation.
+   * @return ByteBuffer, the record so far, which can be added
+   *         to.
+   */
+  private static ByteBuffer record(int type, int colourCode, int dimension) {
+    ByteBuffer record = ByteBuffer.allocate(64);
+    record.put((byte)type);
+    SceneFile.putVarint(record, colourCode);
+    if (colourCode == SceneFile.NEW_RGB) {
+      record.put((byte)1).put((byte)2).put((byte)3);
+    }
+    SceneFile.putSignedVarint(record, 0);
+    SceneFile.putSignedVarint(record, 0);
+    if (type == SceneFile.POLYGON) {
+      SceneFile.putSignedVarint(record, dimension);
+    } else {
+      SceneFile.putVarint(record, dimension);
+    }
+    return record;
+  }
+
+  /**
+   * Creates a plain file of one block of the given records,
+   * and the empty block at the end.
+   *
+   * @param records The records, each written up to its
+   *                position.
+   * @return byte[], the file.
+   */
+  private static byte[] file(ByteBuffer... records) {
+    int length = 0;
+    for (ByteBuffer record : records) {
+      length += record.position();
+    }
+    ByteBuffer file = ByteBuffer.allocate(
+      SceneFile.HEADER_BYTES+2*SceneFile.BLOCK_HEADER_BYTES+length
+    );
+    file.put(SceneFileTest.header(SceneFile.MAGIC, SceneFile.VERSION, 0));
+    file.putInt(length).putInt(records.length);
+    for (ByteBuffer record : records) {
+      file.put(record.array(), 0, record.position());
+    }
+    file.putInt(0).putInt(0);
+    return file.array();
+  }
+}
@@ -0,0 +1,312 @@
+package shapes;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@code SceneParser}: that scenes written by
+ * {@code SceneGenerator} and {@link SceneParser#appendStatement}
+ * are parsed back exactly, however the input is split, and
+ * that every kind of bad statement is rejected with the
+ * number of its line.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class SceneParserTest {
+  /**
+   * Prevents {@code SceneParserTest} from being instantiated.
+   */
+  private SceneParserTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("generated scene", SceneParserTest::testGeneratedScene);
+    Checks.run("input split into small reads", SceneParserTest::testSmallReads);
+    Checks.run("append statement", SceneParserTest::testAppendStatement);
+    Checks.run("syntax", SceneParserTest::testSyntax);
+    Checks.run("long lines", SceneParserTest::testLongLine);
+    Checks.run("errors", SceneParserTest::testErrors);
+    Checks.run("line numbers", SceneParserTest::testLineNumbers);
+    Checks.run("shapes before an error", SceneParserTest::testShapesBeforeError);
+  }
+
+  /**
+   * Checks that a scene written by {@code SceneGenerator} is
+   * parsed into the shapes it generates.
+   *
+   * @throws IOException If the scene could not be read.
+   */
+  private static void testGeneratedScene() throws IOException {
+    SceneGenerator generator = new SceneGenerator(new ShapeFactory(), 1)
+      .withArea(-5000, 5000, 10000, 10000);
+    Shape[] expected = generator.generate(0, 20000);
+    StringWriter out = new StringWriter();
+    generator.writeScene(expected.length, out);
+    List<Shape> parsed = SceneParserTest.parse(new StringReader(out.toString()));
+    SceneParserTest.checkSameShapes(Arrays.asList(expected), parsed);
+  }
+
+  /**
+   * Checks that the same scene is parsed whether the reader
+   * returns it all at once or a few characters at a time, so
+   * that statements and names split between reads are
+   * joined.
+   *
+   * @throws IOException If the scene could not be read.
+   */
+  private static void testSmallReads() throws IOException {
+    SceneGenerator generator = new SceneGenerator(new ShapeFactory(), 2);
+    StringWriter out = new StringWriter();
+    generator.writeScene(2000, out);
+    String scene = out.toString();
+    List<Shape> expected = SceneParserTest.parse(new StringReader(scene));
+    for (int chunk : new int[] {1, 3, 7, 4096}) {
+      Reader in = new StringReader(scene) {
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+          return super.read(buffer, offset, Math.min(length, chunk));
+        }
+      };
+      SceneParserTest.checkSameShapes(expected, SceneParserTest.parse(in));
+    }
+  }
+
+  /**
+   * Checks that a statement written for a builder builds the
+   * same shape as the builder.
+   *
+   * @throws IOException If the statement could not be read.
+   */
+  private static void testAppendStatement() throws IOException {
+    ShapeFactory factory = new ShapeFactory();
+    ShapeBuilder builder = factory.getBuilder("Trapezoid", "Angle")
+      .withPosition(-12, 34)
+      .withColour(1, 2, 3)
+      .withArg("Rotation", 300)
+      .withArg("Base Length", 40)
+      .withArg("Height", 15)
+      .withArg("Angle", 60)
+      .withArg("Top Edge", 1);
+    StringBuilder statement = new StringBuilder();
+    SceneParser.appendStatement(builder, statement);
+    List<Shape> parsed = SceneParserTest.parse(new StringReader(statement.toString()));
+    Checks.checkEqual(1, parsed.size(), "shapes from "+statement);
+    Checks.checkSameShape(builder.build(), parsed.get(0), statement.toString());
+  }
+
+  /**
+   * Checks statement separators, comments, blank lines, line
+   * endings, quoted names, signs, and default arguments.
+   *
+   * @throws IOException If the scene could not be read.
+   */
+  private static void testSyntax() throws IOException {
+    String bare = "Rectangle/Lengths x=-5 y=+7 Red=9 Base_Length=30 Height=20";
+    Shape expected = SceneParserTest.parse(new StringReader(bare)).get(0);
+    String[] equivalent = {
+      "Rectangle/Lengths x=-5 y=+7 Red=9 \"Base Length\"=30 Height=20",
+      "\"Rectangle/Lengths\" Height=20 Base_Length=30 Red=9 y=7 x=-5",
+      "  Rectangle/Lengths\tx=-5  y=+7 Red=9 Base_Length=30 Height=20  ",
+      "Rectangle/Lengths x=-5 y=+7 Red=9 Base_Length=30 Height=20 # a comment",
+      "Rectangle/Lengths x=-5 y=+7 Red=9 Base_Length=30 Height=20#comment",
+      "Rectangle/Lengths x=-5 y=+7 Red=9 Base_Length=30 Height=20\r\n",
+      "Rectangle/Lengths x=1 x=-5 y=+7 Red=9 Base_Length=30 Height=20;",
+      ";;Rectangle/Lengths x=-5 y=+7 Red=9 Base_Length=30 Height=20;;"
+    };
+    for (String statement : equivalent) {
+      List<Shape> parsed = SceneParserTest.parse(new StringReader(statement));
+      Checks.checkEqual(1, parsed.size(), "shapes from "+statement);
+      Checks.checkSameShape(expected, parsed.get(0), statement);
+    }
+
+    String scene = "# a scene\n"
+      +"\n"
+      +"Circle/Lengths Diameter=5; Circle/Lengths Diameter=6 ;Circle/Lengths Diameter=7\r\n"
+      +"   \t\n"
+      +"Square/Lengths Base_Length=4 # Circle/Lengths Diameter=8\n"
+      +"Square/Lengths Base_Length=3";
+    List<Shape> parsed = SceneParserTest.parse(new StringReader(scene));
+    Checks.checkEqual(5, parsed.size(), "shapes in the scene");
+    for (int i = 0; i < 3; ++i) {
+      Checks.checkEqual(5+i, ((Circle)parsed.get(i)).getDiameter(), "diameter "+i);
+    }
+
+    // arguments not given keep their defaults, and do not
+    // carry over from the statement before
+    Shape circle = parsed.get(0);
+    Checks.checkEqual(0, circle.getX(), "default x");
+    Checks.checkEqual(0, circle.getY(), "default y");
+    Checks.checkEqual(
+      new ShapeFactory().getBuilder("Square", "Lengths").withArg("Base Length", 3).build().getArea(),
+      parsed.get(4).getArea(),
+      "square area"
+    );
+    Checks.checkEqual(0, SceneParserTest.parse(new StringReader("")).size(), "empty scene");
+  }
+
+  /**
+   * Checks that a line longer than the parser's buffer is
+   * parsed, along with the lines around it.
+   *
+   * @throws IOException If the scene could not be read.
+   */
+  private static void testLongLine() throws IOException {
+    char[] spaces = new char[200000];
+    Arrays.fill(spaces, ' ');
+    String padding = new String(spaces);
+    String scene = "Circle/Lengths Diameter=5\n"
+      +"Circle/Lengths"+padding+"x=3"+padding+"Diameter=6"+padding+"\n"
+      +"Circle/Lengths Diameter=7";
+    List<Shape> parsed = SceneParserTest.parse(new StringReader(scene));
+    Checks.checkEqual(3, parsed.size(), "shapes");
+    Checks.checkEqual(6, ((Circle)parsed.get(1)).getDiameter(), "diameter of the long line");
+    Checks.checkEqual(3, parsed.get(1).getX(), "x of the long line");
+    Checks.checkEqual(7, ((Circle)parsed.get(2)).getDiameter(), "diameter after the long line");
+  }
+
+  /**
+   * Checks that each kind of bad statement is rejected with
+   * an {@code IllegalArgumentException} naming its line and
+   * the problem.
+   */
+  private static void testErrors() {
+    // each case is a statement and part of the message
+    String[][] cases = {
+      {"Circle", "Expected Shape/Variation"},
+      {"Hexagon/Lengths", "Hexagon"},
+      {"Circle/Radius", "Radius"},
+      {"Circle/Lengths Radius=4", "Unknown argument for Circle/Lengths: Radius"},
+      {"Circle/Lengths Diameter", "Expected = after Diameter"},
+      {"Circle/Lengths Diameter 4", "Expected = after Diameter"},
+      {"Circle/Lengths Diameter=", "Expected an integer for Diameter"},
+      {"Circle/Lengths Diameter=-", "Expected an integer for Diameter"},
+      {"Circle/Lengths Diameter=4x", "Expected an integer for Diameter"},
+      {"Circle/Lengths Diameter=4.5", "Expected an integer for Diameter"},
+      {"Circle/Lengths Diameter==4", "Expected an integer for Diameter"},
+      {"Circle/Lengths Diameter=-4", "Diameter must be between"},
+      {"Circle/Lengths Diameter=2147483648", "Diameter must be between"},
+      {"Circle/Lengths Diameter=99999999999999999999999", "Diameter must be between"},
+      {"Circle/Lengths Red=256 Diameter=4", "Red must be between"},
+      {"Circle/Lengths x=-2147483649 Diameter=4", "x must be between"},
+      {"Circle/Lengths \"Diameter=4", "Unterminated quoted name"},
+      {"Circle/Lengths =4", "Expected an argument name"},
+      {"\"\" Diameter=4", "Expected a shape type"},
+      {"Circle/Lengths", "non-positive"},
+      {"Triangle/SAS Base_Length=10 Angle=179 Side_2_Length=10", "Angle must be between"}
+    };
+    for (String[] c : cases) {
+      IllegalArgumentException e = Checks.checkThrows(
+        IllegalArgumentException.class,
+        () -> SceneParserTest.parse(new StringReader(c[0])),
+        c[0]
+      );
+      Checks.check(e.getMessage().startsWith("Line 1: "), c[0]+": "+e.getMessage());
+      Checks.check(e.getMessage().contains(c[1]), c[0]+": "+e.getMessage());
+    }
+  }
+
+  /**
+   * Checks that errors name the line they are on, counting
+   * blank lines, comment lines, and lines of several
+   * statements, and past the parser's first buffer.
+   */
+  private static void testLineNumbers() {
+    String[] scenes = {
+      "Circle/Lengths Diameter=4\nCircle/Lengths Diameter=0\n",
+      "\n\n# comment\n\nCircle/Lengths Diameter=0",
+      "Circle/Lengths Diameter=4; Circle/Lengths Diameter=5\r\n\r\nCircle/Lengths Diameter=4; Circle/Lengths Bad=1"
+    };
+    int[] lines = {2, 5, 3};
+    for (int i = 0; i < scenes.length; ++i) {
+      String scene = scenes[i];
+      IllegalArgumentException e = Checks.checkThrows(
+        IllegalArgumentException.class,
+        () -> SceneParserTest.parse(new StringReader(scene)),
+        "scene "+i
+      );
+      Checks.check(e.getMessage().startsWith("Line "+lines[i]+": "), "scene "+i+": "+e.getMessage());
+    }
+
+    StringBuilder scene = new StringBuilder();
+    int errorLine = 50000;
+    for (int line = 1; line < errorLine; ++line) {
+      scene.append((line%10 == 0) ? "# comment\n" : "Circle/Lengths x=1 Diameter=12\n");
+    }
+    scene.append("Circle/Lengths Diameter=12 Oops=1\nCircle/Lengths Diameter=12\n");
+    IllegalArgumentException e = Checks.checkThrows(
+      IllegalArgumentException.class,
+      () -> SceneParserTest.parse(new StringReader(scene.toString())),
+      "long scene"
+    );
+    Checks.check(e.getMessage().startsWith("Line "+errorLine+": "), "long scene: "+e.getMessage());
+
+    // the line count starts again for each scene
+    SceneParser parser = new SceneParser(new ShapeFactory());
+    for (int i = 0; i < 2; ++i) {
+      e = Checks.checkThrows(
+        IllegalArgumentException.class,
+        () -> parser.parse(new StringReader("\nCircle/Lengths Bad=1"), shape -> { }),
+        "parse "+i
+      );
+      Checks.check(e.getMessage().startsWith("Line 2: "), "parse "+i+": "+e.getMessage());
+    }
+  }
+
+  /**
+   * Checks that the shapes before a bad statement, including
+   * those earlier on its line, are passed to the sink before
+   * the error is thrown.
+   */
+  private static void testShapesBeforeError() {
+    List<Shape> shapes = new ArrayList<>();
+    SceneParser parser = new SceneParser(new ShapeFactory());
+    Checks.checkThrows(
+      IllegalArgumentException.class,
+      () -> parser.parse(
+        new StringReader("Circle/Lengths Diameter=4\nCircle/Lengths Diameter=5; Circle/Lengths Bad=1\n"),
+        shapes::add
+      ),
+      "bad statement"
+    );
+    Checks.checkEqual(2, shapes.size(), "shapes before the error");
+  }
+
+  /**
+   * Parses a scene.
+   *
+   * @param in The scene.
+   * @return List&lt;Shape&gt;, the shapes of the scene.
+   * @throws IOException If the scene could not be read.
+   */
+  private static List<Shape> parse(Reader in) throws IOException {
+    List<Shape> shapes = new ArrayList<>();
+    long count = new SceneParser(new ShapeFactory()).parse(in, shapes::add);
+    Checks.checkEqual((long)shapes.size(), count, "shapes counted");
+    return shapes;
+  }
+
+  /**
+   * Checks that two lists of shapes are the same.
+   *
+   * @param expected The expected shapes.
+   * @param actual   The parsed shapes.
+   */
+  private static void checkSameShapes(List<Shape> expected, List<Shape> actual) {
+    Checks.checkEqual(expected.size(), actual.size(), "number of shapes");
+    for (int i = 0; i < expected.size(); ++i) {
+      Checks.checkSameShape(expected.get(i), actual.get(i), "shape "+i);
+    }
+  }
+}
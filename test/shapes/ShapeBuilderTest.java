@@ -0,0 +1,178 @@
+package shapes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Tests {@link ShapeBuilder#validate()} against
+ * {@link ShapeBuilder#build()} for every builder: that
+ * whenever the arguments validate, building does not throw,
+ * and whenever they do not, building throws with the same
+ * message, for random arguments drawn mostly from the values
+ * around the limits of each check.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class ShapeBuilderTest {
+  /** The number of random sets of arguments per builder. */
+  private static final int NUM_TRIALS = 20000;
+  /**
+   * The values around the limits of the checks made by the
+   * builders and the constructors of their {@code Shape}s.
+   */
+  private static final int[] EDGE_VALUES = {
+    Integer.MIN_VALUE,
+    -1,
+    0,
+    1,
+    2,
+    3,
+    89,
+    90,
+    91,
+    178,
+    179,
+    180,
+    255,
+    256,
+    359,
+    360,
+    46341,
+    1 << 20,
+    Integer.MAX_VALUE/2,
+    Integer.MAX_VALUE
+  };
+
+  /**
+   * Prevents {@code ShapeBuilderTest} from being
+   * instantiated.
+   */
+  private ShapeBuilderTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("validate agrees with build", ShapeBuilderTest::testValidateAgreesWithBuild);
+    Checks.run("validation is redone", ShapeBuilderTest::testValidationIsRedone);
+  }
+
+  /**
+   * Checks random arguments for every builder, and that each
+   * builder has both valid and invalid sets of arguments
+   * among them.
+   */
+  private static void testValidateAgreesWithBuild() {
+    ShapeFactory factory = new ShapeFactory();
+    SplittableRandom random = new SplittableRandom(44);
+    for (ShapeBuilder builder : ShapeBuilderTest.builders(factory)) {
+      String name = builder.getTargetShape()+"/"+builder.getVariation();
+      List<ShapeBuilder.Arg> args = new ArrayList<>();
+      for (ShapeBuilder.Arg arg : builder.getRequiredArgs()) {
+        args.add(arg);
+      }
+      int numValid = 0;
+      for (int trial = 0; trial < ShapeBuilderTest.NUM_TRIALS; ++trial) {
+        StringBuilder values = new StringBuilder();
+        for (ShapeBuilder.Arg arg : args) {
+          // values out of range are not set, as for any caller
+          builder.trySetArg(arg.getName(), ShapeBuilderTest.randomValue(random, arg));
+          values.append(' ').append(arg.getName()).append('=').append(builder.getArg(arg.getName()));
+        }
+        numValid += ShapeBuilderTest.checkAgrees(builder, name+values) ? 1 : 0;
+      }
+      Checks.check(
+        (numValid > 0) && (numValid < ShapeBuilderTest.NUM_TRIALS),
+        name+" valid "+numValid+" of "+ShapeBuilderTest.NUM_TRIALS
+      );
+    }
+  }
+
+  /**
+   * Checks that the kept result of {@code validate()} is
+   * dropped when an argument changes, both ways.
+   */
+  private static void testValidationIsRedone() {
+    ShapeBuilder builder = new ShapeFactory().getBuilder("Triangle", "SAS")
+      .withArg("Base Length", 30)
+      .withArg("Angle", 60)
+      .withArg("Side 2 Length", 40);
+    Checks.check(ShapeBuilderTest.checkAgrees(builder, "triangle"), "triangle is invalid");
+    builder.withArg("Base Length", 0);
+    Checks.check(!ShapeBuilderTest.checkAgrees(builder, "flat triangle"), "flat triangle is valid");
+    Checks.check(!builder.trySetArg("Angle", 180).isValid(), "angle of 180 was set");
+    Checks.check(!ShapeBuilderTest.checkAgrees(builder, "flat triangle"), "flat triangle is valid");
+    builder.withArg("Base Length", 30);
+    Checks.check(ShapeBuilderTest.checkAgrees(builder, "triangle again"), "triangle is invalid again");
+  }
+
+  /**
+   * Checks that a builder builds a {@code Shape} if its
+   * arguments validate, and throws with the message of the
+   * validation otherwise.
+   *
+   * @param builder The builder, with its arguments set.
+   * @param message What was built.
+   * @return boolean, whether the arguments are valid.
+   */
+  private static boolean checkAgrees(ShapeBuilder builder, String message) {
+    ShapeBuilder.Validation validation = builder.validate();
+    if (validation.isValid()) {
+      Shape shape;
+      try {
+        shape = builder.build();
+      } catch (RuntimeException e) {
+        throw new AssertionError(message+": valid but build threw "+e, e);
+      }
+      Checks.check(shape != null, message+": built nothing");
+      return true;
+    }
+    RuntimeException e = Checks.checkThrows(RuntimeException.class, builder::build, message);
+    Checks.checkEqual(validation.getMessage(), e.getMessage(), message+" message");
+    return false;
+  }
+
+  /**
+   * Gets a random value for an argument: usually a value at
+   * the limit of some check, or next to the limits of the
+   * argument itself, and otherwise anything in a wide range.
+   *
+   * @param random The source of randomness.
+   * @param arg    The argument.
+   * @return int, the value.
+   */
+  private static int randomValue(SplittableRandom random, ShapeBuilder.Arg arg) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return ShapeBuilderTest.EDGE_VALUES[random.nextInt(ShapeBuilderTest.EDGE_VALUES.length)];
+      case 1:
+        return (int)Math.max(Integer.MIN_VALUE, (long)arg.getMinValue()-random.nextInt(2));
+      case 2:
+        return (int)Math.min(Integer.MAX_VALUE, (long)arg.getMaxValue()+random.nextInt(2));
+      default:
+        return random.nextInt(-10, 200);
+    }
+  }
+
+  /**
+   * Gets a builder of every shape and variation.
+   *
+   * @param factory The factory to get the builders from.
+   * @return List&lt;ShapeBuilder&gt;, the builders.
+   */
+  private static List<ShapeBuilder> builders(ShapeFactory factory) {
+    List<ShapeBuilder> builders = new ArrayList<>();
+    for (String shape : factory.getShapes()) {
+      for (ShapeBuilder builder : factory.getBuilders(shape)) {
+        builders.add(builder);
+      }
+    }
+    return builders;
+  }
+}
@@ -0,0 +1,270 @@
+package shapes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Tests building many {@code Shape}s at once with
+ * {@code ShapeFactory.buildAll}: that every record, in
+ * columns or one at a time, is built or failed exactly as a
+ * single builder with the same arguments would be, in the
+ * position it was given, and that a record which fails does
+ * not stop the rest of the batch.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class ShapeFactoryTest {
+  /**
+   * The number of records in the random batches, enough for
+   * several chunks to be built in parallel.
+   */
+  private static final int NUM_RECORDS = 5000;
+
+  /**
+   * Prevents {@code ShapeFactoryTest} from being
+   * instantiated.
+   */
+  private ShapeFactoryTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("columns", ShapeFactoryTest::testColumns);
+    Checks.run("unknown batches", ShapeFactoryTest::testUnknownBatches);
+    Checks.run("records", ShapeFactoryTest::testRecords);
+    Checks.run("record stream", ShapeFactoryTest::testRecordStream);
+  }
+
+  /**
+   * Checks a columnar batch of triangles with random
+   * arguments, many out of range or making no triangle,
+   * against building each record alone.
+   */
+  private static void testColumns() {
+    ShapeFactory factory = new ShapeFactory();
+    SplittableRandom random = new SplittableRandom(41);
+    int n = ShapeFactoryTest.NUM_RECORDS;
+    String[] names = {"x", "y", "Rotation", "Base Length", "Angle", "Side 2 Length", "Red"};
+    int[][] ranges = {{-1000, 1000}, {-1000, 1000}, {-20, 380}, {-5, 60}, {-10, 200}, {-5, 60}, {0, 300}};
+    ShapeBatch batch = new ShapeBatch("Triangle", "SAS", n);
+    List<Map<String, Integer>> records = new ArrayList<>();
+    for (int i = 0; i < n; ++i) {
+      records.add(new LinkedHashMap<>());
+    }
+    for (int c = 0; c < names.length; ++c) {
+      int[] column = new int[n];
+      for (int i = 0; i < n; ++i) {
+        column[i] = random.nextInt(ranges[c][0], ranges[c][1]+1);
+        records.get(i).put(names[c], column[i]);
+      }
+      batch.withColumn(names[c], column);
+    }
+
+    ShapeBatch.Result result = factory.buildAll(batch);
+    Checks.checkEqual(n, result.size(), "size");
+    int numFailed = ShapeFactoryTest.checkResult(factory, "Triangle", "SAS", records, result, 0);
+    Checks.check((numFailed > n/10) && (numFailed < n-n/10), "failed "+numFailed+" of "+n);
+    Checks.checkEqual(numFailed, result.getFailureCount(), "failure count");
+    Checks.checkEqual(n-numFailed, result.getShapes().length, "shapes built");
+
+    ShapeBatch empty = new ShapeBatch("Circle", "Lengths", 0);
+    Checks.checkEqual(0, factory.buildAll(empty).size(), "empty batch");
+    Checks.checkThrows(
+      IllegalArgumentException.class,
+      () -> batch.withColumn("x", new int[n+1]),
+      "column of the wrong length"
+    );
+  }
+
+  /**
+   * Checks that a batch of an unknown shape or variation, or
+   * with an unknown column, fails every record, with the
+   * reason.
+   */
+  private static void testUnknownBatches() {
+    ShapeFactory factory = new ShapeFactory();
+    ShapeBatch[] batches = {
+      new ShapeBatch("Hexagon", "Lengths", 3),
+      new ShapeBatch("Circle", "Radius", 3),
+      new ShapeBatch("Circle", "Lengths", 3).withColumn("Radius", new int[] {1, 2, 3})
+    };
+    for (ShapeBatch batch : batches) {
+      ShapeBatch.Result result = factory.buildAll(batch);
+      String name = batch.getShape()+"/"+batch.getVariation();
+      Checks.checkEqual(3, result.getFailureCount(), name+" failures");
+      for (int i = 0; i < 3; ++i) {
+        Checks.check(result.getShape(i) == null, name+" record "+i+" was built");
+        Checks.checkEqual(result.getFailure(0), result.getFailure(i), name+" failure "+i);
+      }
+    }
+    Checks.check(
+      factory.buildAll(batches[2]).getFailure(0).contains("Radius"),
+      "failure of an unknown column does not name it"
+    );
+  }
+
+  /**
+   * Checks records of every shape, interleaved, with some
+   * arguments left out, out of range, or unknown, and some of
+   * unknown shapes, against building each record alone.
+   */
+  private static void testRecords() {
+    ShapeFactory factory = new ShapeFactory();
+    List<ShapeBatch.Record> records = ShapeFactoryTest.records(43);
+    ShapeBatch.Result result = factory.buildAll(records);
+    Checks.checkEqual(records.size(), result.size(), "size");
+    int numFailed = 0;
+    for (int i = 0; i < records.size(); ++i) {
+      ShapeBatch.Record record = records.get(i);
+      numFailed += ShapeFactoryTest.checkResult(
+        factory,
+        record.getShape(),
+        record.getVariation(),
+        Collections.singletonList(record.getArgs()),
+        result,
+        i
+      );
+    }
+    Checks.check((numFailed > 0) && (numFailed < records.size()), "failed "+numFailed+" of "+records.size());
+    Checks.checkEqual(numFailed, result.getFailureCount(), "failure count");
+  }
+
+  /**
+   * Checks that building records from a stream gives the
+   * same result as from a list.
+   */
+  private static void testRecordStream() {
+    ShapeFactory factory = new ShapeFactory();
+    List<ShapeBatch.Record> records = ShapeFactoryTest.records(47);
+    ShapeBatch.Result expected = factory.buildAll(records);
+    ShapeBatch.Result actual = factory.buildAll(records.stream());
+    Checks.checkEqual(expected.size(), actual.size(), "size");
+    for (int i = 0; i < expected.size(); ++i) {
+      Checks.checkEqual(expected.getFailure(i), actual.getFailure(i), "failure "+i);
+      if (!expected.isFailed(i)) {
+        Checks.checkSameShape(expected.getShape(i), actual.getShape(i), "record "+i);
+      }
+    }
+  }
+
+  /**
+   * Checks the outcome of records of one shape and variation
+   * against building each alone, with a new builder: a record
+   * must fail, with the same reason, exactly when an argument
+   * cannot be set or the builder does not validate, and must
+   * otherwise be the {@code Shape} the builder builds.
+   *
+   * @param factory   The factory the records were built by.
+   * @param shape     The name of the {@code Shape} built.
+   * @param variation The name of the builder variation.
+   * @param records   The arguments of each record.
+   * @param result    The result of building the records.
+   * @param from      The index of the first record in the
+   *                  result.
+   * @return int, the number of records which failed.
+   */
+  private static int checkResult(
+    ShapeFactory factory,
+    String shape,
+    String variation,
+    List<Map<String, Integer>> records,
+    ShapeBatch.Result result,
+    int from
+  ) {
+    int numFailed = 0;
+    for (int i = 0; i < records.size(); ++i) {
+      int index = from+i;
+      String name = "record "+index+" "+shape+"/"+variation+" "+records.get(i);
+      String failure = null;
+      ShapeBuilder builder = null;
+      try {
+        builder = factory.getBuilder(shape, variation);
+      } catch (IllegalArgumentException e) {
+        failure = e.getMessage();
+      }
+      if (builder != null) {
+        for (Map.Entry<String, Integer> arg : records.get(i).entrySet()) {
+          ShapeBuilder.Validation validation = builder.trySetArg(arg.getKey(), arg.getValue());
+          if (!validation.isValid()) {
+            failure = validation.getMessage();
+            break;
+          }
+        }
+        if ((failure == null) && !builder.validate().isValid()) {
+          failure = builder.validate().getMessage();
+        }
+      }
+
+      Checks.checkEqual(failure, result.getFailure(index), name+" failure");
+      if (failure == null) {
+        Checks.checkSameShape(builder.build(), result.getShape(index), name);
+      } else {
+        Checks.check(result.getShape(index) == null, name+" was built");
+        ++numFailed;
+      }
+    }
+    return numFailed;
+  }
+
+  /**
+   * Gets random records of every shape and variation in a
+   * random order, with at most one problem each: a missing,
+   * out of range, or unknown argument, an unknown shape, or
+   * dimensions which make no shape.
+   *
+   * @param seed The seed of the records.
+   * @return List&lt;ShapeBatch.Record&gt;, the records.
+   */
+  private static List<ShapeBatch.Record> records(long seed) {
+    ShapeFactory factory = new ShapeFactory();
+    SplittableRandom random = new SplittableRandom(seed);
+    List<String[]> types = new ArrayList<>();
+    for (String shape : factory.getShapes()) {
+      for (ShapeBuilder builder : factory.getBuilders(shape)) {
+        types.add(new String[] {shape, builder.getVariation()});
+      }
+    }
+    types.add(new String[] {"Hexagon", "Lengths"});
+
+    List<ShapeBatch.Record> records = new ArrayList<>();
+    for (int i = 0; i < ShapeFactoryTest.NUM_RECORDS; ++i) {
+      String[] type = types.get(random.nextInt(types.size()));
+      Map<String, Integer> args = new HashMap<>();
+      String last = null;
+      if (!type[0].equals("Hexagon")) {
+        for (ShapeBuilder.Arg arg : factory.getBuilder(type[0], type[1]).getRequiredArgs()) {
+          args.put(arg.getName(), random.nextInt(1, 60));
+          last = arg.getName();
+        }
+      }
+      switch (random.nextInt(6)) {
+        case 0:
+          // the last argument is a dimension, which takes its
+          // default value
+          args.remove(last);
+          break;
+        case 1:
+          args.put("Red", 256);
+          break;
+        case 2:
+          args.put("Sides", 6);
+          break;
+        default:
+          break;
+      }
+      records.add(new ShapeBatch.Record(type[0], type[1], args));
+    }
+    return records;
+  }
+}
@@ -0,0 +1,437 @@
+package shapes;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Tests {@code ShapeStore} and {@code OffHeapShapeStore}:
+ * that the queries run over their columns and records find
+ * the same {@code Shape}s as testing every {@code Shape}
+ * directly, before and after removing and translating them,
+ * that an off-heap store gives back exact copies of what was
+ * added, and that removed indices and closed stores are
+ * rejected.
+ *
+ * @author Kevin Qiao
+ * @version 1.0
+ */
+final class ShapeStoreTest {
+  /** The number of shapes in each random scene. */
+  private static final int NUM_SHAPES = 80;
+  /** The distance between the points hit tested. */
+  private static final int GRID_STEP = 15;
+
+  /**
+   * Prevents {@code ShapeStoreTest} from being instantiated.
+   */
+  private ShapeStoreTest() {
+  }
+
+  /**
+   * Runs the tests.
+   *
+   * @param args Not used.
+   * @throws Exception If a test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    Checks.run("store queries", ShapeStoreTest::testQueries);
+    Checks.run("store removal", ShapeStoreTest::testRemoval);
+    Checks.run("store translation", ShapeStoreTest::testTranslation);
+    Checks.run("off-heap round trip", ShapeStoreTest::testOffHeapRoundTrip);
+    Checks.run("off-heap translation", ShapeStoreTest::testOffHeapTranslation);
+    Checks.run("off-heap removal", ShapeStoreTest::testOffHeapRemoval);
+    Checks.run("off-heap close", ShapeStoreTest::testOffHeapClose);
+  }
+
+  /**
+   * Checks that a store keeps its {@code Shape}s in order,
+   * ignores a {@code Shape} added twice, and answers every
+   * query as testing each {@code Shape} would.
+   */
+  private static void testQueries() {
+    List<Shape> scene = ShapeStoreTest.scene(1);
+    ShapeStore store = new ShapeStore();
+    for (Shape shape : scene) {
+      Checks.check(store.add(shape), "added shape");
+    }
+    Checks.check(!store.add(scene.get(0)), "shape added twice");
+    Checks.checkEqual(scene, new ArrayList<>(store), "shapes");
+    ShapeStoreTest.checkQueries(scene, store, "scene");
+
+    Iterator<Shape> shapes = store.iterator();
+    shapes.next();
+    store.remove(scene.get(1));
+    Checks.checkThrows(ConcurrentModificationException.class, shapes::next, "changed while iterating");
+  }
+
+  /**
+   * Checks that removing most of the {@code Shape}s, which
+   * compacts the columns, keeps the rest in order and in
+   * sync with their columns.
+   */
+  private static void testRemoval() {
+    List<Shape> scene = new ArrayList<>(ShapeStoreTest.scene(2));
+    ShapeStore store = new ShapeStore();
+    store.addAll(scene);
+    for (int i = scene.size()-1; i >= 0; --i) {
+      if (i%3 != 0) {
+        Checks.check(store.remove(scene.remove(i)), "removed shape "+i);
+      }
+    }
+    Checks.check(!store.remove(new Circle(0, 0, Color.BLACK, 5)), "removed a shape not stored");
+    Checks.checkEqual(scene, new ArrayList<>(store), "shapes left");
+    ShapeStoreTest.checkQueries(scene, store, "after removal");
+
+    store.clear();
+    Checks.checkEqual(0, store.size(), "size after clearing");
+    Checks.checkEqual(0, store.shapesAt(0, 0).size(), "shapes at the origin after clearing");
+  }
+
+  /**
+   * Checks that translating every {@code Shape}, and single
+   * {@code Shape}s, moves both the {@code Shape}s and their
+   * columns.
+   */
+  private static void testTranslation() {
+    List<Shape> scene = ShapeStoreTest.scene(3);
+    List<Rectangle> before = new ArrayList<>();
+    for (Shape shape : scene) {
+      before.add(shape.getBounds());
+    }
+    ShapeStore store = new ShapeStore();
+    store.addAll(scene);
+    store.translateAll(37, -12);
+    for (int i = 0; i < scene.size(); ++i) {
+      Rectangle expected = before.get(i);
+      expected.translate(37, -12);
+      Checks.checkEqual(expected, scene.get(i).getBounds(), "bounds of shape "+i);
+    }
+    ShapeStoreTest.checkQueries(scene, store, "after translating all");
+
+    store.translate(scene.get(0), -400, 300);
+    store.translate(scene.get(5), 0, 150);
+    ShapeStoreTest.checkQueries(scene, store, "after translating single shapes");
+
+    // a shape moved behind the store's back is only found
+    // where it is once the store is told
+    scene.get(7).translate(200, 200);
+    store.update(scene.get(7));
+    ShapeStoreTest.checkQueries(scene, store, "after updating a shape");
+  }
+
+  /**
+   * Checks that every kind of {@code Shape} comes back from
+   * an off-heap store as an exact copy, with the same
+   * bounds, and that the scene bounds cover them all.
+   */
+  private static void testOffHeapRoundTrip() {
+    List<Shape> scene = ShapeStoreTest.everyKind();
+    scene.addAll(ShapeStoreTest.scene(4));
+    try (OffHeapShapeStore store = new OffHeapShapeStore()) {
+      Checks.checkEqual(null, store.getSceneBounds(), "bounds of an empty store");
+      for (int i = 0; i < scene.size(); ++i) {
+        Checks.checkEqual((long)i, store.add(scene.get(i)), "index of shape "+i);
+      }
+      Checks.checkEqual((long)scene.size(), store.getShapeCount(), "shape count");
+      ShapeStoreTest.checkOffHeap(scene, store, "scene");
+    }
+  }
+
+  /**
+   * Checks that translating every record, and single
+   * records, moves the {@code Shape}s created from them the
+   * same way as translating the originals.
+   */
+  private static void testOffHeapTranslation() {
+    List<Shape> scene = ShapeStoreTest.everyKind();
+    scene.addAll(ShapeStoreTest.scene(5));
+    try (OffHeapShapeStore store = new OffHeapShapeStore()) {
+      for (Shape shape : scene) {
+        store.add(shape);
+      }
+      store.translateAll(-25, 60);
+      for (Shape shape : scene) {
+        shape.translate(-25, 60);
+      }
+      ShapeStoreTest.checkOffHeap(scene, store, "after translating all");
+
+      store.translate(3, 1000, -1000);
+      scene.get(3).translate(1000, -1000);
+      ShapeStoreTest.checkOffHeap(scene, store, "after translating a shape");
+
+      // the copies are not written back
+      store.get(4).translate(50, 50);
+      ShapeStoreTest.checkOffHeap(scene, store, "after moving a copy");
+    }
+  }
+
+  /**
+   * Checks that removed records are skipped by the queries
+   * and rejected by everything that reads or moves a single
+   * {@code Shape}, while their indices stay valid.
+   */
+  private static void testOffHeapRemoval() {
+    List<Shape> scene = ShapeStoreTest.scene(6);
+    try (OffHeapShapeStore store = new OffHeapShapeStore()) {
+      for (Shape shape : scene) {
+        store.add(shape);
+      }
+      List<Shape> left = new ArrayList<>();
+      List<Long> indices = new ArrayList<>();
+      for (int i = 0; i < scene.size(); ++i) {
+        if (i%2 == 0) {
+          Checks.check(store.remove(i), "removed shape "+i);
+        } else {
+          left.add(scene.get(i));
+          indices.add((long)i);
+        }
+      }
+      Checks.check(!store.remove(0), "removed shape 0 twice");
+      Checks.check(store.isRemoved(0), "shape 0 is removed");
+      Checks.check(!store.isRemoved(1), "shape 1 is removed");
+      Checks.checkEqual((long)scene.size(), store.getRecordCount(), "record count");
+      Checks.checkEqual((long)left.size(), store.getShapeCount(), "shape count");
+
+      Checks.checkThrows(NoSuchElementException.class, () -> store.get(0), "get removed shape");
+      Checks.checkThrows(
+        NoSuchElementException.class,
+        () -> store.translate(0, 1, 1),
+        "translate removed shape"
+      );
+      Checks.checkThrows(NoSuchElementException.class, () -> store.getBounds(0), "bounds of removed shape");
+      Checks.checkThrows(
+        IndexOutOfBoundsException.class,
+        () -> store.get(scene.size()),
+        "get past the last shape"
+      );
+
+      for (int i = 0; i < left.size(); ++i) {
+        Checks.checkSameShape(left.get(i), store.get(indices.get(i)), "shape "+indices.get(i));
+      }
+      Checks.checkEqual(ShapeStoreTest.bounds(left), store.getSceneBounds(), "scene bounds");
+      for (int x = -250; x <= 250; x += ShapeStoreTest.GRID_STEP) {
+        for (int y = -250; y <= 250; y += ShapeStoreTest.GRID_STEP) {
+          List<Long> expected = new ArrayList<>();
+          for (int i = 0; i < left.size(); ++i) {
+            if (left.get(i).contains(x, y)) {
+              expected.add(indices.get(i));
+            }
+          }
+          List<Long> found = new ArrayList<>();
+          for (long index : store.indicesAt(x, y)) {
+            found.add(index);
+          }
+          Checks.checkEqual(expected, found, "indices at ("+x+", "+y+")");
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks that a closed store rejects any use, and can be
+   * closed again.
+   */
+  private static void testOffHeapClose() {
+    OffHeapShapeStore store = new OffHeapShapeStore();
+    Shape square = new ShapeFactory().getBuilder("Square", "Lengths")
+      .withArg("Base Length", 10)
+      .build();
+    store.add(square);
+    store.close();
+    store.close();
+    Checks.checkThrows(IllegalStateException.class, () -> store.get(0), "get");
+    Checks.checkThrows(IllegalStateException.class, () -> store.add(square), "add");
+    Checks.checkThrows(IllegalStateException.class, () -> store.translateAll(1, 1), "translate all");
+    Checks.checkThrows(IllegalStateException.class, () -> store.indicesAt(0, 0), "indices at");
+  }
+
+  /**
+   * Checks every query of a store against testing each of
+   * the given {@code Shape}s directly.
+   *
+   * @param scene   The {@code Shape}s in the store, in order.
+   * @param store   The store.
+   * @param message What was checked.
+   */
+  private static void checkQueries(List<Shape> scene, ShapeStore store, String message) {
+    Checks.checkEqual(scene.size(), store.size(), message+" size");
+    for (int x = -250; x <= 250; x += ShapeStoreTest.GRID_STEP) {
+      for (int y = -250; y <= 250; y += ShapeStoreTest.GRID_STEP) {
+        List<Shape> expected = new ArrayList<>();
+        for (Shape shape : scene) {
+          if (shape.contains(x, y)) {
+            expected.add(shape);
+          }
+        }
+        Checks.checkEqual(expected, store.shapesAt(x, y), message+" shapes at ("+x+", "+y+")");
+      }
+    }
+
+    Rectangle[] regions = {
+      new Rectangle(-50, 50, 100, 100),
+      new Rectangle(150, -150, 10, 10),
+      new Rectangle(Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE)
+    };
+    for (Rectangle region : regions) {
+      long maxX = (long)region.x+region.width;
+      long minY = (long)region.y-region.height;
+      List<Shape> expected = new ArrayList<>();
+      for (Shape shape : scene) {
+        Rectangle bounds = shape.getBounds();
+        if (
+          (bounds.x <= maxX)
+          && ((long)bounds.x+bounds.width >= region.x)
+          && (bounds.y >= minY)
+          && ((long)bounds.y-bounds.height <= region.y)
+        ) {
+          expected.add(shape);
+        }
+      }
+      Checks.checkEqual(expected, store.shapesIn(region), message+" shapes in "+region);
+    }
+
+    for (Shape shape : ShapeStoreTest.everyKind()) {
+      int count = 0;
+      for (Shape stored : scene) {
+        count += (stored.getClass() == shape.getClass()) ? 1 : 0;
+      }
+      Checks.checkEqual(count, store.countOf(shape.getClass()), message+" count of "+shape.getClass());
+    }
+    Color colour = scene.get(scene.size()-1).getColor();
+    int count = 0;
+    for (Shape shape : scene) {
+      count += (shape.getRGB() == colour.getRGB()) ? 1 : 0;
+    }
+    Checks.checkEqual(count, store.countOfColor(colour), message+" count of "+colour);
+  }
+
+  /**
+   * Checks that an off-heap store holds exact copies of the
+   * given {@code Shape}s, with the same bounds.
+   *
+   * @param scene   The {@code Shape}s in the store, in order.
+   * @param store   The store.
+   * @param message What was checked.
+   */
+  private static void checkOffHeap(List<Shape> scene, OffHeapShapeStore store, String message) {
+    for (int i = 0; i < scene.size(); ++i) {
+      Shape shape = scene.get(i);
+      Checks.checkSameShape(shape, store.get(i), message+" shape "+i);
+      Checks.checkEqual(shape.getBounds(), store.getBounds(i), message+" bounds of shape "+i);
+    }
+    Checks.checkEqual(ShapeStoreTest.bounds(scene), store.getSceneBounds(), message+" scene bounds");
+  }
+
+  /**
+   * Gets the bounding box of the given {@code Shape}s, in the
+   * same form as {@link Shape#getBounds()}.
+   *
+   * @param scene The {@code Shape}s.
+   * @return Rectangle, their bounding box.
+   */
+  private static Rectangle bounds(List<Shape> scene) {
+    int minX = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (Shape shape : scene) {
+      Rectangle bounds = shape.getBounds();
+      minX = Math.min(minX, bounds.x);
+      maxX = Math.max(maxX, bounds.x+bounds.width);
+      minY = Math.min(minY, bounds.y-bounds.height);
+      maxY = Math.max(maxY, bounds.y);
+    }
+    return new Rectangle(minX, maxY, maxX-minX, maxY-minY);
+  }
+
+  /**
+   * Gets a random scene of overlapping {@code Shape}s.
+   *
+   * @param seed The seed of the scene.
+   * @return List&lt;Shape&gt;, the scene.
+   */
+  private static List<Shape> scene(long seed) {
+    return Arrays.asList(
+      new SceneGenerator(new ShapeFactory(), seed)
+        .withArea(-200, 200, 400, 400)
+        .withSizeRange(5, 80)
+        .generate(0, ShapeStoreTest.NUM_SHAPES)
+    );
+  }
+
+  /**
+   * Gets one of every kind of {@code Shape}, including a
+   * polygon of arbitrary vertices, rotated where they can
+   * be.
+   *
+   * @return List&lt;Shape&gt;, the {@code Shape}s.
+   */
+  private static List<Shape> everyKind() {
+    ShapeFactory factory = new ShapeFactory();
+    List<Shape> shapes = new ArrayList<>();
+    shapes.add(factory.getBuilder("Circle", "Lengths").withArg("Diameter", 17).build());
+    shapes.add(
+      factory.getBuilder("Ellipse", "Lengths").withArg("Width", 30).withArg("Height", 11).build()
+    );
+    shapes.add(
+      factory.getBuilder("Triangle", "SAS")
+        .withArg("Rotation", 45)
+        .withArg("Base Length", 30)
+        .withArg("Angle", 70)
+        .withArg("Side 2 Length", 25)
+        .build()
+    );
+    shapes.add(
+      factory.getBuilder("Trapezoid", "Angle")
+        .withArg("Rotation", 300)
+        .withArg("Base Length", 40)
+        .withArg("Height", 15)
+        .withArg("Angle", 60)
+        .withArg("Top Edge", 1)
+        .build()
+    );
+    shapes.add(
+      factory.getBuilder("Parallelogram", "Angle")
+        .withArg("Rotation", 20)
+        .withArg("Base Length", 19)
+        .withArg("Height", 15)
+        .withArg("Angle", 53)
+        .build()
+    );
+    shapes.add(
+      factory.getBuilder("Rhombus", "Angle")
+        .withArg("Rotation", 91)
+        .withArg("Base Length", 30)
+        .withArg("Angle", 60)
+        .build()
+    );
+    shapes.add(
+      factory.getBuilder("Rectangle", "Lengths")
+        .withArg("Rotation", 258)
+        .withArg("Base Length", 65)
+        .withArg("Height", 15)
+        .build()
+    );
+    shapes.add(
+      factory.getBuilder("Square", "Lengths").withArg("Rotation", 15).withArg("Base Length", 73).build()
+    );
+    shapes.add(
+      new ArbitrarySimplePolygon(
+        -20,
+        40,
+        Color.RED,
+        new int[] {0, 30, 25, 10},
+        new int[] {0, 0, 35, 20},
+        4,
+        30
+      )
+    );
+    return shapes;
+  }
+}